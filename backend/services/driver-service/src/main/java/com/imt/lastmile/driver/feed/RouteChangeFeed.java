@@ -0,0 +1,103 @@
+package com.imt.lastmile.driver.feed;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lastmile.driver.RouteChange;
+import lastmile.driver.RoutePlan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Versioned stream of route and capacity changes for WatchRouteChanges subscribers.
+ *
+ * <p>Changes are published after the surrounding transaction commits and kept in a short history
+ * so a reconnecting subscriber can resume from the last version it saw.
+ */
+@Component
+public class RouteChangeFeed {
+  private static final Logger log = LoggerFactory.getLogger(RouteChangeFeed.class);
+  private static final int HISTORY_SIZE = 1024;
+
+  /** Seeded from the clock so versions keep increasing across restarts */
+  private long version = System.currentTimeMillis() * 1000;
+  private final Deque<RouteChange> history = new ArrayDeque<>(HISTORY_SIZE);
+  private final Set<StreamObserver<RouteChange>> watchers = ConcurrentHashMap.newKeySet();
+
+  public void routeChanged(String driverId, int capacity, RoutePlan plan) {
+    publishAfterCommit(RouteChange.newBuilder()
+        .setKind(RouteChange.Kind.ROUTE_UPSERTED)
+        .setDriverId(driverId)
+        .setCapacity(capacity)
+        .setRoute(plan));
+  }
+
+  public void capacityChanged(String driverId, int capacity) {
+    publishAfterCommit(RouteChange.newBuilder()
+        .setKind(RouteChange.Kind.CAPACITY_CHANGED)
+        .setDriverId(driverId)
+        .setCapacity(capacity));
+  }
+
+  /**
+   * Replays changes after {@code sinceVersion} (or a RESYNC if they are no longer retained), then
+   * sends SUBSCRIBED and keeps the stream open for live changes until the caller cancels.
+   */
+  public synchronized void watch(long sinceVersion, StreamObserver<RouteChange> observer) {
+    if (observer instanceof ServerCallStreamObserver<RouteChange> serverObserver) {
+      serverObserver.setOnCancelHandler(() -> watchers.remove(observer));
+    }
+
+    if (sinceVersion > 0 && sinceVersion < version) {
+      RouteChange oldest = history.peekFirst();
+      if (oldest == null || sinceVersion < oldest.getVersion() - 1) {
+        observer.onNext(RouteChange.newBuilder().setKind(RouteChange.Kind.RESYNC).setVersion(version).build());
+      } else {
+        for (RouteChange change : history) {
+          if (change.getVersion() > sinceVersion) {
+            observer.onNext(change);
+          }
+        }
+      }
+    }
+    observer.onNext(RouteChange.newBuilder().setKind(RouteChange.Kind.SUBSCRIBED).setVersion(version).build());
+    watchers.add(observer);
+  }
+
+  private void publishAfterCommit(RouteChange.Builder change) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          publish(change);
+        }
+      });
+    } else {
+      publish(change);
+    }
+  }
+
+  private synchronized void publish(RouteChange.Builder builder) {
+    RouteChange change = builder.setVersion(++version).build();
+    if (history.size() == HISTORY_SIZE) {
+      history.removeFirst();
+    }
+    history.addLast(change);
+
+    watchers.removeIf(observer -> {
+      try {
+        observer.onNext(change);
+        return false;
+      } catch (Exception ex) {
+        log.warn("Dropping route change watcher", ex);
+        return true;
+      }
+    });
+  }
+}
@@ -4,6 +4,7 @@ import com.google.protobuf.TimestampProto.Timestamp;
 import com.imt.lastmile.driver.domain.Driver;
 import com.imt.lastmile.driver.domain.Route;
 import com.imt.lastmile.driver.domain.RouteStopEntity;
+import com.imt.lastmile.driver.feed.RouteChangeFeed;
 import com.imt.lastmile.driver.repo.AreaEdgeRepository;
 import com.imt.lastmile.driver.repo.AreaRepository;
 import com.imt.lastmile.driver.repo.DriverRepository;
@@ -22,9 +23,11 @@ import lastmile.driver.DriverProfile;
 import lastmile.driver.DriverServiceGrpc;
 import lastmile.driver.RegisterDriverRequest;
 import lastmile.driver.RegisterRouteRequest;
+import lastmile.driver.RouteChange;
 import lastmile.driver.RoutePlan;
 import lastmile.driver.RouteStop;
 import lastmile.driver.UpdateRouteRequest;
+import lastmile.driver.WatchRouteChangesRequest;
 import net.devh.boot.grpc.server.service.GrpcService;
 import org.springframework.transaction.annotation.Transactional;
 import lastmile.UserId;
@@ -36,16 +39,19 @@ public class GrpcDriverService extends DriverServiceGrpc.DriverServiceImplBase {
   private final RouteRepository routeRepo;
   private final AreaRepository areaRepo;
   private final AreaEdgeRepository edgeRepo;
+  private final RouteChangeFeed routeFeed;
 
   public GrpcDriverService(
       DriverRepository driverRepo,
       RouteRepository routeRepo,
       AreaRepository areaRepo,
-      AreaEdgeRepository edgeRepo) {
+      AreaEdgeRepository edgeRepo,
+      RouteChangeFeed routeFeed) {
     this.driverRepo = driverRepo;
     this.routeRepo = routeRepo;
     this.areaRepo = areaRepo;
     this.edgeRepo = edgeRepo;
+    this.routeFeed = routeFeed;
   }
 
   @Override
@@ -55,11 +61,15 @@ public class GrpcDriverService extends DriverServiceGrpc.DriverServiceImplBase {
     Driver d;
     if (!existing.isEmpty()) {
       d = existing.get(0);
+      boolean capacityChanged = d.getCapacity() != request.getCapacity();
       d.setVehicleNo(request.getVehicleNo());
       d.setCapacity(request.getCapacity());
       d.setModel(request.getModel());
       d.setColor(request.getColor());
       d = driverRepo.save(d);
+      if (capacityChanged) {
+        routeFeed.capacityChanged(d.getDriverId(), d.getCapacity());
+      }
     } else {
       d = new Driver(request.getUserId(), request.getVehicleNo(), request.getCapacity(), request.getModel(), request.getColor());
       d = driverRepo.save(d);
@@ -93,7 +103,9 @@ public class GrpcDriverService extends DriverServiceGrpc.DriverServiceImplBase {
       List<RouteStopEntity> stops = buildStops(request.getStopsList());
       route.replaceStops(stops);
       route = routeRepo.save(route);
-      responseObserver.onNext(toRoutePlan(route));
+      RoutePlan plan = toRoutePlan(route);
+      routeFeed.routeChanged(request.getDriverId(), driverOpt.get().getCapacity(), plan);
+      responseObserver.onNext(plan);
       responseObserver.onCompleted();
     } catch (IllegalArgumentException ex) {
       responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(ex.getMessage()).asRuntimeException());
@@ -120,7 +132,9 @@ public class GrpcDriverService extends DriverServiceGrpc.DriverServiceImplBase {
       List<RouteStopEntity> stops = buildStops(request.getStopsList());
       route.replaceStops(stops);
       route = routeRepo.save(route);
-      responseObserver.onNext(toRoutePlan(route));
+      RoutePlan plan = toRoutePlan(route);
+      routeFeed.routeChanged(request.getDriverId(), driverOpt.get().getCapacity(), plan);
+      responseObserver.onNext(plan);
       responseObserver.onCompleted();
     } catch (IllegalArgumentException ex) {
       responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(ex.getMessage()).asRuntimeException());
@@ -145,6 +159,11 @@ public class GrpcDriverService extends DriverServiceGrpc.DriverServiceImplBase {
     responseObserver.onCompleted();
   }
 
+  @Override
+  public void watchRouteChanges(WatchRouteChangesRequest request, StreamObserver<RouteChange> responseObserver) {
+    routeFeed.watch(request.getSinceVersion(), responseObserver);
+  }
+
   private DriverProfile toProfile(Driver driver) {
     List<RoutePlan> plans = routeRepo
         .findByDriver_DriverId(driver.getDriverId())
@@ -0,0 +1,93 @@
+package com.imt.lastmile.location.bench;
+
+import com.imt.lastmile.location.eta.BatchEtas;
+import com.imt.lastmile.location.route.CompiledRoute;
+import com.imt.lastmile.location.telemetry.DriverState;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import lastmile.location.DriverEta;
+import lastmile.location.DriverEtaRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * GetDriverEtas over in-memory state: 10k (driver, station) pairs in one call, and a station
+ * scan over a 10k-driver fleet. Scores are per pair (respectively per driver scanned).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchEtaBenchmark {
+  private static final int PAIRS = 10_000;
+  private static final int DRIVERS = 10_000;
+
+  @Param({"20", "200"})
+  int stopsPerRoute;
+
+  BatchEtas etas;
+  List<DriverEtaRequest> pairs;
+  String busyStation;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(42);
+    int routeCount = 100;
+    Map<String, CompiledRoute> routes = new HashMap<>();
+    for (int r = 0; r < routeCount; r++) {
+      CompiledRoute route = CompiledRoute.compile(RouteLookupBenchmark.syntheticRoute(stopsPerRoute).toBuilder()
+          .setRouteId("route-" + r)
+          .build());
+      routes.put(route.routeId(), route);
+    }
+
+    Map<String, DriverState> states = new ConcurrentHashMap<>();
+    Instant now = Instant.now();
+    for (int d = 0; d < DRIVERS; d++) {
+      String driverId = "driver-" + d;
+      String area = "area-" + random.nextInt(stopsPerRoute);
+      states.put(driverId, new DriverState(driverId, "route-" + random.nextInt(routeCount), area, 0, now));
+    }
+    etas = new BatchEtas(states::get, routes::get, states::values);
+
+    pairs = new ArrayList<>(PAIRS);
+    for (int i = 0; i < PAIRS; i++) {
+      pairs.add(DriverEtaRequest.newBuilder()
+          .setDriverId("driver-" + random.nextInt(DRIVERS))
+          // Stations are every fifth area; some pairs miss or are behind the driver
+          .setStationAreaId("area-" + (random.nextInt(stopsPerRoute / 5) * 5))
+          .build());
+    }
+    busyStation = "area-" + (stopsPerRoute - 1);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(PAIRS)
+  public List<DriverEta> pairs() {
+    return etas.forPairs(pairs);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(DRIVERS)
+  public List<DriverEta> station() {
+    return etas.forStation(busyStation, 0, 0);
+  }
+}
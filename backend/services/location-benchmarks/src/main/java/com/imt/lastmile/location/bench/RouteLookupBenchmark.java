@@ -0,0 +1,102 @@
+package com.imt.lastmile.location.bench;
+
+import com.imt.lastmile.location.route.CompiledRoute;
+import java.util.concurrent.TimeUnit;
+import lastmile.driver.RoutePlan;
+import lastmile.driver.RouteStop;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Per-ping route work in GrpcLocationService: stream scans over RoutePlan stops versus the
+ * precompiled index. Run with {@code -prof gc} to compare allocation per operation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RouteLookupBenchmark {
+  private static final int WINDOW_MINUTES = 10;
+
+  @Param({"10", "100", "1000"})
+  int stops;
+
+  RoutePlan plan;
+  CompiledRoute compiled;
+  String currentArea;
+  String targetStation;
+
+  @Setup
+  public void setup() {
+    plan = syntheticRoute(stops);
+    compiled = CompiledRoute.compile(plan);
+    // Driver halfway along the route, ETA asked for the last station
+    currentArea = "area-" + (stops / 2);
+    targetStation = "area-" + lastStation(stops);
+  }
+
+  @Benchmark
+  public void streamStationsWithin(Blackhole bh) {
+    StreamRouteLookup.stationsWithin(plan, currentArea, WINDOW_MINUTES, (stop, eta) -> bh.consume(eta));
+  }
+
+  @Benchmark
+  public void compiledStationsWithin(Blackhole bh) {
+    int current = compiled.stopIndexOf(currentArea);
+    if (current == CompiledRoute.NOT_FOUND) {
+      return;
+    }
+    int currentOffset = compiled.offsetAt(current);
+    int from = compiled.firstStationFrom(current);
+    int to = compiled.stationsEndWithin(from, currentOffset + WINDOW_MINUTES);
+    for (int s = from; s < to; s++) {
+      bh.consume(compiled.offsetAt(compiled.stationStopAt(s)) - currentOffset);
+    }
+  }
+
+  @Benchmark
+  public int streamEta() {
+    return StreamRouteLookup.eta(plan, currentArea, targetStation);
+  }
+
+  @Benchmark
+  public int compiledEta() {
+    int current = compiled.stopIndexOf(currentArea);
+    int target = compiled.stationStopIndexOf(targetStation);
+    if (current == CompiledRoute.NOT_FOUND || target == CompiledRoute.NOT_FOUND
+        || compiled.sequenceAt(target) < compiled.sequenceAt(current)) {
+      return -1;
+    }
+    return compiled.offsetAt(target) - compiled.offsetAt(current);
+  }
+
+  /** One stop per minute with a station every fifth stop. */
+  static RoutePlan syntheticRoute(int stops) {
+    RoutePlan.Builder builder = RoutePlan.newBuilder().setRouteId("bench-" + stops).setFinalAreaId("area-" + (stops - 1));
+    for (int i = 0; i < stops; i++) {
+      builder.addStops(RouteStop.newBuilder()
+          .setSequence(i)
+          .setAreaId("area-" + i)
+          .setIsStation(i % 5 == 0 || i == stops - 1)
+          .setArrivalOffsetMinutes(i)
+          .build());
+    }
+    return builder.build();
+  }
+
+  private static int lastStation(int stops) {
+    return stops - 1;
+  }
+}
@@ -0,0 +1,48 @@
+package com.imt.lastmile.location.bench;
+
+import java.util.Comparator;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.ObjIntConsumer;
+import lastmile.driver.RoutePlan;
+import lastmile.driver.RouteStop;
+
+/** The stream-based route lookups GrpcLocationService used before CompiledRoute, kept as a baseline. */
+final class StreamRouteLookup {
+  private StreamRouteLookup() {}
+
+  static Optional<RouteStop> findStop(RoutePlan plan, String areaId) {
+    return plan.getStopsList().stream()
+        .filter(stop -> Objects.equals(stop.getAreaId(), areaId))
+        .min(Comparator.comparingInt(RouteStop::getSequence));
+  }
+
+  static void stationsWithin(RoutePlan plan, String currentAreaId, int windowMinutes, ObjIntConsumer<RouteStop> sink) {
+    Optional<RouteStop> currentStopOpt = findStop(plan, currentAreaId);
+    if (currentStopOpt.isEmpty()) {
+      return;
+    }
+    RouteStop currentStop = currentStopOpt.get();
+    int currentOffset = currentStop.getArrivalOffsetMinutes();
+    plan.getStopsList().stream()
+        .filter(RouteStop::getIsStation)
+        .filter(stop -> stop.getSequence() >= currentStop.getSequence())
+        .map(stop -> new Candidate(stop, stop.getArrivalOffsetMinutes() - currentOffset))
+        .filter(candidate -> candidate.etaMinutes >= 0 && candidate.etaMinutes <= windowMinutes)
+        .forEach(candidate -> sink.accept(candidate.stop, candidate.etaMinutes));
+  }
+
+  static int eta(RoutePlan plan, String currentAreaId, String stationAreaId) {
+    RouteStop currentStop = findStop(plan, currentAreaId).orElse(null);
+    RouteStop targetStop = plan.getStopsList().stream()
+        .filter(s -> s.getIsStation() && s.getAreaId().equals(stationAreaId))
+        .findFirst()
+        .orElse(null);
+    if (currentStop == null || targetStop == null || targetStop.getSequence() < currentStop.getSequence()) {
+      return -1;
+    }
+    return targetStop.getArrivalOffsetMinutes() - currentStop.getArrivalOffsetMinutes();
+  }
+
+  private record Candidate(RouteStop stop, int etaMinutes) {}
+}
@@ -2,8 +2,10 @@ package com.imt.lastmile.location;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class LocationServiceApplication {
   public static void main(String[] args) { SpringApplication.run(LocationServiceApplication.class, args); }
 }
@@ -0,0 +1,60 @@
+package com.imt.lastmile.location.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalListener;
+import com.github.benmanes.caffeine.cache.Weigher;
+import com.imt.lastmile.location.cache.CacheProperties.Spec;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds the size/time bounded caches used in place of unbounded maps.
+ *
+ * <p>Each cache is named; its limits come from {@code location.cache.specs.<name>.*} falling back
+ * to the defaults given by the caller, and its hit/miss/eviction statistics are published as
+ * {@code cache.*} metrics tagged with the name.
+ */
+@Component
+public class BoundedCaches {
+  private final CacheProperties props;
+  private final MeterRegistry registry;
+
+  public BoundedCaches(CacheProperties props, MeterRegistry registry) {
+    this.props = props;
+    this.registry = registry;
+  }
+
+  public <K, V> Cache<K, V> build(String name, Spec defaults) {
+    return build(name, defaults, null, null);
+  }
+
+  /**
+   * @param weigher used with {@code maximumWeight}; may be null, in which case only
+   *     {@code maximumSize} applies
+   * @param removalListener notified of evictions and explicit removals; may be null
+   */
+  public <K, V> Cache<K, V> build(String name, Spec defaults, Weigher<? super K, ? super V> weigher,
+      RemovalListener<? super K, ? super V> removalListener) {
+    Spec spec = props.getSpecs().getOrDefault(name, new Spec()).orElse(defaults);
+    Caffeine<Object, Object> builder = Caffeine.newBuilder().recordStats();
+    if (weigher != null && spec.getMaximumWeight() != null) {
+      builder.maximumWeight(spec.getMaximumWeight()).weigher(weigher);
+    } else if (spec.getMaximumSize() != null) {
+      builder.maximumSize(spec.getMaximumSize());
+    }
+    if (spec.getExpireAfterWrite() != null) {
+      builder.expireAfterWrite(spec.getExpireAfterWrite());
+    }
+    if (spec.getExpireAfterAccess() != null) {
+      builder.expireAfterAccess(spec.getExpireAfterAccess());
+    }
+    if (removalListener != null) {
+      builder.removalListener(removalListener);
+    }
+    Cache<K, V> cache = builder.build();
+    CaffeineCacheMetrics.monitor(registry, cache, name);
+    return cache;
+  }
+}
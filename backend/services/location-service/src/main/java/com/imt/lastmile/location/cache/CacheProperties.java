@@ -0,0 +1,72 @@
+package com.imt.lastmile.location.cache;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "location.cache")
+public class CacheProperties {
+  /** Per-cache overrides keyed by cache name; unset fields keep the defaults chosen in code */
+  private Map<String, Spec> specs = new HashMap<>();
+  private WarmUp warmUp = new WarmUp();
+
+  public Map<String, Spec> getSpecs() { return specs; }
+  public void setSpecs(Map<String, Spec> specs) { this.specs = specs; }
+  public WarmUp getWarmUp() { return warmUp; }
+  public void setWarmUp(WarmUp warmUp) { this.warmUp = warmUp; }
+
+  public static class Spec {
+    /** Maximum number of entries */
+    private Long maximumSize;
+    /** Maximum total weight; only honoured by caches that define a weigher */
+    private Long maximumWeight;
+    /** Evict entries this long after they were written */
+    private Duration expireAfterWrite;
+    /** Evict entries this long after they were last read or written */
+    private Duration expireAfterAccess;
+
+    public Spec() {}
+
+    public Spec(Long maximumSize, Long maximumWeight, Duration expireAfterWrite, Duration expireAfterAccess) {
+      this.maximumSize = maximumSize;
+      this.maximumWeight = maximumWeight;
+      this.expireAfterWrite = expireAfterWrite;
+      this.expireAfterAccess = expireAfterAccess;
+    }
+
+    public Long getMaximumSize() { return maximumSize; }
+    public void setMaximumSize(Long maximumSize) { this.maximumSize = maximumSize; }
+    public Long getMaximumWeight() { return maximumWeight; }
+    public void setMaximumWeight(Long maximumWeight) { this.maximumWeight = maximumWeight; }
+    public Duration getExpireAfterWrite() { return expireAfterWrite; }
+    public void setExpireAfterWrite(Duration expireAfterWrite) { this.expireAfterWrite = expireAfterWrite; }
+    public Duration getExpireAfterAccess() { return expireAfterAccess; }
+    public void setExpireAfterAccess(Duration expireAfterAccess) { this.expireAfterAccess = expireAfterAccess; }
+
+    /** This spec with any unset field taken from {@code defaults}. */
+    Spec orElse(Spec defaults) {
+      return new Spec(
+          maximumSize != null ? maximumSize : defaults.maximumSize,
+          maximumWeight != null ? maximumWeight : defaults.maximumWeight,
+          expireAfterWrite != null ? expireAfterWrite : defaults.expireAfterWrite,
+          expireAfterAccess != null ? expireAfterAccess : defaults.expireAfterAccess);
+    }
+  }
+
+  public static class WarmUp {
+    /** Preload state and routes for recently active drivers on startup */
+    private boolean enabled = true;
+    /** Drivers whose last ping is older than this are not preloaded */
+    private Duration activeWithin = Duration.ofMinutes(30);
+    /** Upper bound on drivers preloaded */
+    private int maxDrivers = 5_000;
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+    public Duration getActiveWithin() { return activeWithin; }
+    public void setActiveWithin(Duration activeWithin) { this.activeWithin = activeWithin; }
+    public int getMaxDrivers() { return maxDrivers; }
+    public void setMaxDrivers(int maxDrivers) { this.maxDrivers = maxDrivers; }
+  }
+}
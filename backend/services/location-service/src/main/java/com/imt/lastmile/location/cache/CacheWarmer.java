@@ -0,0 +1,59 @@
+package com.imt.lastmile.location.cache;
+
+import com.imt.lastmile.location.route.RoutePlanCache;
+import com.imt.lastmile.location.telemetry.DriverState;
+import com.imt.lastmile.location.telemetry.DriverStateTable;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Preloads driver state and routes for recently active drivers after startup, so the first pings
+ * after a restart do not all miss and fetch from driver-service at once.
+ */
+@Component
+public class CacheWarmer {
+  private static final Logger log = LoggerFactory.getLogger(CacheWarmer.class);
+
+  private final CacheProperties props;
+  private final DriverStateTable stateTable;
+  private final RoutePlanCache routeCache;
+
+  public CacheWarmer(CacheProperties props, DriverStateTable stateTable, RoutePlanCache routeCache) {
+    this.props = props;
+    this.stateTable = stateTable;
+    this.routeCache = routeCache;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  void start() {
+    if (!props.getWarmUp().isEnabled()) {
+      return;
+    }
+    Thread t = new Thread(this::warmUp, "cache-warm-up");
+    t.setDaemon(true);
+    t.start();
+  }
+
+  private void warmUp() {
+    try {
+      Instant since = Instant.now().minus(props.getWarmUp().getActiveWithin());
+      List<DriverState> states = stateTable.warmUp(since, props.getWarmUp().getMaxDrivers());
+      Map<String, String> routeByDriver = new HashMap<>();
+      for (DriverState state : states) {
+        if (state.routeId() != null && !state.routeId().isBlank()) {
+          routeByDriver.put(state.driverId(), state.routeId());
+        }
+      }
+      routeCache.warmUp(routeByDriver);
+    } catch (Exception ex) {
+      log.warn("Cache warm-up failed", ex);
+    }
+  }
+}
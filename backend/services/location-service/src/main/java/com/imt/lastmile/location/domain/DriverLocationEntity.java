@@ -13,9 +13,15 @@ public class DriverLocationEntity {
   @Column(name = "driver_id", length = 36, nullable = false)
   private String driverId;
 
+  @Column(name = "route_id", length = 36)
+  private String routeId;
+
   @Column(name = "area_id", nullable = false, length = 128)
   private String areaId;
 
+  @Column(name = "occupancy", nullable = false)
+  private int occupancy;
+
   @Column(name = "ts", nullable = false)
   private Instant ts;
 
@@ -28,7 +34,9 @@ public class DriverLocationEntity {
   }
   public Long getId() { return id; }
   public String getDriverId() { return driverId; }
+  public String getRouteId() { return routeId; }
   public String getAreaId() { return areaId; }
+  public int getOccupancy() { return occupancy; }
   public Instant getTs() { return ts; }
   public Double getSpeed() { return speed; }
 }
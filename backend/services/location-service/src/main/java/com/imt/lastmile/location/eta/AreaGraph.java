@@ -0,0 +1,291 @@
+package com.imt.lastmile.location.eta;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of the area graph with travel minutes from every area to every station.
+ *
+ * <p>Edges are stored in compressed sparse row form, both forward and reversed. For each station
+ * there is one row of distances indexed by area, filled by a Dijkstra over the reversed edges, so
+ * "area to station" is two hash lookups and an array read. Memory is {@code stations x areas}
+ * ints plus the edge arrays, never {@code areas x areas}.
+ *
+ * <p>{@link #withEdge} returns a new snapshot sharing every distance row the change cannot affect.
+ */
+public final class AreaGraph {
+  public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+  /** One directed edge as loaded from {@code area_edges}. */
+  public record Edge(String from, String to, int minutes) {}
+
+  private final String[] areaIds;
+  private final Map<String, Integer> areaIndex;
+  private final Map<String, Integer> stationIndex;
+  private final int[] stationAreas;
+  // Forward CSR: edges leaving area a are outTo/outMinutes[outStart[a] .. outStart[a + 1])
+  private final int[] outStart;
+  private final int[] outTo;
+  private final int[] outMinutes;
+  // Reverse CSR: edges entering area a, with the position of the same edge in the forward arrays
+  private final int[] inStart;
+  private final int[] inFrom;
+  private final int[] inForward;
+  /** distances[station][area]: minutes from area to the station */
+  private final int[][] distances;
+
+  private AreaGraph(String[] areaIds, Map<String, Integer> areaIndex, Map<String, Integer> stationIndex, int[] stationAreas,
+      int[] outStart, int[] outTo, int[] outMinutes, int[] inStart, int[] inFrom, int[] inForward, int[][] distances) {
+    this.areaIds = areaIds;
+    this.areaIndex = areaIndex;
+    this.stationIndex = stationIndex;
+    this.stationAreas = stationAreas;
+    this.outStart = outStart;
+    this.outTo = outTo;
+    this.outMinutes = outMinutes;
+    this.inStart = inStart;
+    this.inFrom = inFrom;
+    this.inForward = inForward;
+    this.distances = distances;
+  }
+
+  /**
+   * Builds the graph and computes every station's distance row. Edges naming unknown areas are
+   * ignored.
+   *
+   * @param areas area id to whether it is a station
+   */
+  public static AreaGraph build(Map<String, Boolean> areas, List<Edge> edges) {
+    String[] ids = areas.keySet().stream().sorted().toArray(String[]::new);
+    Map<String, Integer> index = new HashMap<>(ids.length * 2);
+    for (int i = 0; i < ids.length; i++) {
+      index.put(ids[i], i);
+    }
+    Map<String, Integer> stations = new HashMap<>();
+    int[] stationAreas = Arrays.stream(ids).filter(areas::get).mapToInt(index::get).toArray();
+    for (int s = 0; s < stationAreas.length; s++) {
+      stations.put(ids[stationAreas[s]], s);
+    }
+
+    int n = ids.length;
+    List<Edge> valid = edges.stream()
+        .filter(e -> index.containsKey(e.from()) && index.containsKey(e.to()))
+        .sorted((a, b) -> Integer.compare(index.get(a.from()), index.get(b.from())))
+        .toList();
+    int m = valid.size();
+    int[] outStart = new int[n + 1];
+    int[] outTo = new int[m];
+    int[] outMinutes = new int[m];
+    int[] inDegree = new int[n];
+    for (int e = 0; e < m; e++) {
+      Edge edge = valid.get(e);
+      outStart[index.get(edge.from()) + 1]++;
+      outTo[e] = index.get(edge.to());
+      outMinutes[e] = edge.minutes();
+      inDegree[outTo[e]]++;
+    }
+    for (int a = 0; a < n; a++) {
+      outStart[a + 1] += outStart[a];
+    }
+
+    int[] inStart = new int[n + 1];
+    for (int a = 0; a < n; a++) {
+      inStart[a + 1] = inStart[a] + inDegree[a];
+    }
+    int[] inFrom = new int[m];
+    int[] inForward = new int[m];
+    int[] fill = Arrays.copyOf(inStart, n);
+    for (int a = 0; a < n; a++) {
+      for (int e = outStart[a]; e < outStart[a + 1]; e++) {
+        int slot = fill[outTo[e]]++;
+        inFrom[slot] = a;
+        inForward[slot] = e;
+      }
+    }
+
+    AreaGraph graph = new AreaGraph(ids, index, stations, stationAreas, outStart, outTo, outMinutes,
+        inStart, inFrom, inForward, new int[stationAreas.length][]);
+    for (int s = 0; s < stationAreas.length; s++) {
+      graph.distances[s] = graph.shortestPathsTo(stationAreas[s], outMinutes);
+    }
+    return graph;
+  }
+
+  public int areaCount() { return areaIds.length; }
+  public int stationCount() { return stationAreas.length; }
+  public int edgeCount() { return outTo.length; }
+
+  public boolean hasArea(String areaId) {
+    return areaIndex.containsKey(areaId);
+  }
+
+  public boolean isStation(String areaId) {
+    return stationIndex.containsKey(areaId);
+  }
+
+  public boolean hasEdge(String from, String to) {
+    return edgeIndex(from, to) >= 0;
+  }
+
+  /** Current travel minutes of the edge, or -1 if there is no such edge. */
+  public int edgeMinutes(String from, String to) {
+    int e = edgeIndex(from, to);
+    return e < 0 ? -1 : outMinutes[e];
+  }
+
+  /** Minutes along the fastest path from {@code areaId} to {@code stationAreaId}, or {@link #UNREACHABLE}. */
+  public int minutesTo(String areaId, String stationAreaId) {
+    Integer station = stationIndex.get(stationAreaId);
+    Integer area = areaIndex.get(areaId);
+    if (station == null || area == null) {
+      return UNREACHABLE;
+    }
+    return distances[station][area];
+  }
+
+  /**
+   * Snapshot with the travel time of an existing edge changed. A faster edge is propagated
+   * outwards from its tail; a slower edge only recomputes the stations whose shortest paths used
+   * it.
+   *
+   * @throws IllegalArgumentException if the edge does not exist; adding edges needs a rebuild
+   */
+  public AreaGraph withEdge(String from, String to, int minutes) {
+    int e = edgeIndex(from, to);
+    if (e < 0) {
+      throw new IllegalArgumentException("No edge " + from + " -> " + to);
+    }
+    int old = outMinutes[e];
+    if (old == minutes) {
+      return this;
+    }
+    int[] minutesAfter = outMinutes.clone();
+    minutesAfter[e] = minutes;
+    int u = areaIndex.get(from);
+    int v = areaIndex.get(to);
+
+    int[][] rows = distances.clone();
+    for (int s = 0; s < rows.length; s++) {
+      int[] row = rows[s];
+      if (row[v] == UNREACHABLE) {
+        continue;
+      }
+      if (minutes < old) {
+        if (row[v] + minutes < row[u]) {
+          rows[s] = propagateDecrease(row, u, row[v] + minutes, minutesAfter);
+        }
+      } else if (row[u] == row[v] + old) {
+        // The edge was on a shortest path from u, so distances through it may have grown
+        rows[s] = shortestPathsTo(stationAreas[s], minutesAfter);
+      }
+    }
+    return new AreaGraph(areaIds, areaIndex, stationIndex, stationAreas, outStart, outTo, minutesAfter,
+        inStart, inFrom, inForward, rows);
+  }
+
+  private int edgeIndex(String from, String to) {
+    Integer a = areaIndex.get(from);
+    Integer b = areaIndex.get(to);
+    if (a == null || b == null) {
+      return -1;
+    }
+    for (int e = outStart[a]; e < outStart[a + 1]; e++) {
+      if (outTo[e] == b) {
+        return e;
+      }
+    }
+    return -1;
+  }
+
+  /** Dijkstra from the station over reversed edges: result[a] is the distance from a to the station. */
+  private int[] shortestPathsTo(int target, int[] minutes) {
+    int[] dist = new int[areaIds.length];
+    Arrays.fill(dist, UNREACHABLE);
+    dist[target] = 0;
+    LongHeap heap = new LongHeap(Math.max(16, areaIds.length));
+    heap.push(0, target);
+    relaxInward(dist, heap, minutes);
+    return dist;
+  }
+
+  private int[] propagateDecrease(int[] row, int start, int startDistance, int[] minutes) {
+    int[] dist = row.clone();
+    dist[start] = startDistance;
+    LongHeap heap = new LongHeap(16);
+    heap.push(startDistance, start);
+    relaxInward(dist, heap, minutes);
+    return dist;
+  }
+
+  private void relaxInward(int[] dist, LongHeap heap, int[] minutes) {
+    while (!heap.isEmpty()) {
+      long top = heap.pop();
+      int d = (int) (top >>> 32);
+      int a = (int) top;
+      if (d > dist[a]) {
+        continue;
+      }
+      for (int i = inStart[a]; i < inStart[a + 1]; i++) {
+        int prev = inFrom[i];
+        int candidate = d + minutes[inForward[i]];
+        if (candidate < dist[prev]) {
+          dist[prev] = candidate;
+          heap.push(candidate, prev);
+        }
+      }
+    }
+  }
+
+  /** Binary min-heap of (distance, area) packed into longs, so Dijkstra does not box. */
+  private static final class LongHeap {
+    private long[] items;
+    private int size;
+
+    LongHeap(int capacity) {
+      items = new long[capacity];
+    }
+
+    boolean isEmpty() { return size == 0; }
+
+    void push(int distance, int area) {
+      if (size == items.length) {
+        items = Arrays.copyOf(items, size * 2);
+      }
+      int i = size++;
+      long item = ((long) distance << 32) | (area & 0xffffffffL);
+      while (i > 0) {
+        int parent = (i - 1) >>> 1;
+        if (items[parent] <= item) {
+          break;
+        }
+        items[i] = items[parent];
+        i = parent;
+      }
+      items[i] = item;
+    }
+
+    long pop() {
+      long top = items[0];
+      long last = items[--size];
+      int i = 0;
+      while (true) {
+        int child = 2 * i + 1;
+        if (child >= size) {
+          break;
+        }
+        if (child + 1 < size && items[child + 1] < items[child]) {
+          child++;
+        }
+        if (last <= items[child]) {
+          break;
+        }
+        items[i] = items[child];
+        i = child;
+      }
+      items[i] = last;
+      return top;
+    }
+  }
+}
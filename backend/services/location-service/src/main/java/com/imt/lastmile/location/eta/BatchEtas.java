@@ -0,0 +1,111 @@
+package com.imt.lastmile.location.eta;
+
+import com.imt.lastmile.location.route.CompiledRoute;
+import com.imt.lastmile.location.telemetry.DriverState;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntBiFunction;
+import lastmile.location.DriverEta;
+import lastmile.location.DriverEtaRequest;
+
+/**
+ * Answers GetDriverEtas in one pass over in-memory driver state and cached routes.
+ *
+ * <p>Lookups are passed in as functions so the same code runs against the live tables in the
+ * service and against plain maps in benchmarks.
+ */
+public final class BatchEtas {
+  private static final Comparator<DriverEta> BY_ETA_THEN_DRIVER =
+      Comparator.comparingInt(DriverEta::getEtaMinutes).thenComparing(DriverEta::getDriverId);
+
+  private final Function<String, DriverState> stateLookup;
+  private final Function<String, CompiledRoute> routeLookup;
+  private final Supplier<? extends Iterable<DriverState>> allStates;
+  private final ToIntBiFunction<String, String> offRouteEta;
+
+  public BatchEtas(Function<String, DriverState> stateLookup, Function<String, CompiledRoute> routeLookup,
+      Supplier<? extends Iterable<DriverState>> allStates) {
+    this(stateLookup, routeLookup, allStates, (area, station) -> CompiledRoute.NOT_FOUND);
+  }
+
+  /**
+   * @param stateLookup driverId to in-memory state, or null
+   * @param routeLookup routeId to cached route, or null
+   * @param allStates every driver currently in memory, for station mode
+   * @param offRouteEta (area, station) to minutes or {@link CompiledRoute#NOT_FOUND}, for drivers
+   *     whose current area is not on their route
+   */
+  public BatchEtas(Function<String, DriverState> stateLookup, Function<String, CompiledRoute> routeLookup,
+      Supplier<? extends Iterable<DriverState>> allStates, ToIntBiFunction<String, String> offRouteEta) {
+    this.stateLookup = stateLookup;
+    this.routeLookup = routeLookup;
+    this.allStates = allStates;
+    this.offRouteEta = offRouteEta;
+  }
+
+  /**
+   * Planned minutes along the route while the driver is on it; once the driver has left the route,
+   * travel time back to a station still ahead on it.
+   */
+  public int etaMinutes(CompiledRoute route, String areaId, String stationAreaId) {
+    int minutes = route.etaMinutes(areaId, stationAreaId);
+    if (minutes != CompiledRoute.NOT_FOUND
+        || route.stopIndexOf(areaId) != CompiledRoute.NOT_FOUND
+        || route.stationStopIndexOf(stationAreaId) == CompiledRoute.NOT_FOUND) {
+      return minutes;
+    }
+    return offRouteEta.applyAsInt(areaId, stationAreaId);
+  }
+
+  /** One result per pair, in the order given. */
+  public List<DriverEta> forPairs(List<DriverEtaRequest> pairs) {
+    List<DriverEta> etas = new ArrayList<>(pairs.size());
+    for (DriverEtaRequest pair : pairs) {
+      DriverEta.Builder eta = DriverEta.newBuilder()
+          .setDriverId(pair.getDriverId())
+          .setStationAreaId(pair.getStationAreaId());
+      int minutes = etaMinutes(stateLookup.apply(pair.getDriverId()), pair.getStationAreaId());
+      if (minutes != CompiledRoute.NOT_FOUND) {
+        eta.setReachable(true).setEtaMinutes(minutes);
+      }
+      etas.add(eta.build());
+    }
+    return etas;
+  }
+
+  /**
+   * Every driver that will reach {@code stationAreaId} within {@code maxEtaMinutes}, nearest first
+   * with ties broken by driver id.
+   *
+   * @param maxEtaMinutes 0 for no limit
+   * @param limit 0 for no limit
+   */
+  public List<DriverEta> forStation(String stationAreaId, int maxEtaMinutes, int limit) {
+    List<DriverEta> etas = new ArrayList<>();
+    for (DriverState state : allStates.get()) {
+      int minutes = etaMinutes(state, stationAreaId);
+      if (minutes == CompiledRoute.NOT_FOUND || (maxEtaMinutes > 0 && minutes > maxEtaMinutes)) {
+        continue;
+      }
+      etas.add(DriverEta.newBuilder()
+          .setDriverId(state.driverId())
+          .setStationAreaId(stationAreaId)
+          .setReachable(true)
+          .setEtaMinutes(minutes)
+          .build());
+    }
+    etas.sort(BY_ETA_THEN_DRIVER);
+    return limit > 0 && etas.size() > limit ? etas.subList(0, limit) : etas;
+  }
+
+  private int etaMinutes(DriverState state, String stationAreaId) {
+    if (state == null) {
+      return CompiledRoute.NOT_FOUND;
+    }
+    CompiledRoute route = routeLookup.apply(state.routeId());
+    return route == null ? CompiledRoute.NOT_FOUND : etaMinutes(route, state.areaId(), stationAreaId);
+  }
+}
@@ -0,0 +1,311 @@
+package com.imt.lastmile.location.eta;
+
+import com.imt.lastmile.location.cache.BoundedCaches;
+import com.imt.lastmile.location.cache.CacheProperties.Spec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Learns edge travel times from the area transitions drivers report.
+ *
+ * <p>When a driver's ping names a different area than the last one and the two are joined by an
+ * edge, the time since the driver entered the previous area is a sample for that edge. Samples feed
+ * a moving average and P-squared p50/p90 estimates per edge and hour of day, so memory per edge is
+ * fixed however many samples arrive. Changed buckets are written to {@code edge_travel_estimates}
+ * periodically, and well-sampled medians for the current hour replace the seeded travel times in
+ * {@link EtaEngine}.
+ */
+@Component
+public class EdgeTravelEstimator {
+  private static final Logger log = LoggerFactory.getLogger(EdgeTravelEstimator.class);
+  private static final int HOURS = 24;
+  /** Samples a P-squared sketch needs before its estimates mean anything */
+  private static final int MIN_SKETCH_SAMPLES = 5;
+  private static final String UPSERT_SQL = """
+      insert into edge_travel_estimates
+        (from_area_id, to_area_id, hour_of_day, samples, ewma_minutes, p50_minutes, p90_minutes, updated_at)
+      values (?, ?, ?, ?, ?, ?, ?, ?)
+      on conflict (from_area_id, to_area_id, hour_of_day) do update
+        set samples = excluded.samples,
+            ewma_minutes = excluded.ewma_minutes,
+            p50_minutes = excluded.p50_minutes,
+            p90_minutes = excluded.p90_minutes,
+            updated_at = excluded.updated_at
+      """;
+
+  /** One learned bucket as served by GetEdgeTravelTimes and stored in edge_travel_estimates. */
+  public record Estimate(String from, String to, int hourOfDay, long samples, double ewmaMinutes, double p50Minutes,
+      double p90Minutes) {}
+
+  private record EdgeKey(String from, String to) {}
+
+  private record LastArea(String areaId, Instant enteredAt) {}
+
+  private final EtaEngine etaEngine;
+  private final JdbcTemplate jdbc;
+  private final TravelTimeProperties props;
+  private final ZoneId zone;
+  private final Map<String, LastArea> lastAreaByDriver;
+  private final Map<EdgeKey, EdgeStats> stats = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService persister = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread t = new Thread(r, "edge-travel-persist");
+    t.setDaemon(true);
+    return t;
+  });
+  private final Counter samples;
+  private final Counter discarded;
+
+  public EdgeTravelEstimator(EtaEngine etaEngine, JdbcTemplate jdbc, TravelTimeProperties props, BoundedCaches caches,
+      MeterRegistry registry) {
+    this.etaEngine = etaEngine;
+    this.jdbc = jdbc;
+    this.props = props;
+    this.zone = ZoneId.of(props.getZone());
+    // A driver silent for longer than a plausible transition has no useful previous area
+    this.lastAreaByDriver = caches.<String, LastArea>build("area-transitions",
+        new Spec(200_000L, null, null, Duration.ofMinutes(props.getMaxTransitionMinutes()))).asMap();
+    this.samples = registry.counter("location.travel.samples");
+    this.discarded = Counter.builder("location.travel.samples.discarded")
+        .description("Area changes that were not between adjacent areas or took implausibly long")
+        .register(registry);
+    registry.gauge("location.travel.edges", stats, Map::size);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  void start() {
+    if (!props.isEnabled()) {
+      return;
+    }
+    persister.execute(this::loadSafely);
+    persister.scheduleWithFixedDelay(this::persistSafely, props.getPersistIntervalMs(), props.getPersistIntervalMs(),
+        TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  void stop() {
+    persister.shutdown();
+    try {
+      persister.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    persistSafely();
+  }
+
+  /** Feeds one ping; cheap when the driver has not changed area. */
+  public void observe(String driverId, String areaId, Instant ts) {
+    if (!props.isEnabled() || areaId == null || areaId.isBlank()) {
+      return;
+    }
+    LastArea previous = lastAreaByDriver.get(driverId);
+    if (previous != null && previous.areaId.equals(areaId)) {
+      return;
+    }
+    if (previous != null && ts.isBefore(previous.enteredAt)) {
+      return;
+    }
+    lastAreaByDriver.put(driverId, new LastArea(areaId, ts));
+    if (previous == null) {
+      return;
+    }
+
+    double minutes = Duration.between(previous.enteredAt, ts).toMillis() / 60_000.0;
+    if (minutes <= 0 || minutes > props.getMaxTransitionMinutes() || etaEngine.edgeMinutes(previous.areaId, areaId) < 0) {
+      discarded.increment();
+      return;
+    }
+    int hour = previous.enteredAt.atZone(zone).getHour();
+    stats.computeIfAbsent(new EdgeKey(previous.areaId, areaId), k -> new EdgeStats()).add(hour, minutes, props.getEwmaAlpha());
+    samples.increment();
+  }
+
+  /**
+   * Learned estimates, optionally filtered; null arguments match everything.
+   *
+   * @param hourOfDay 0-23 in the configured zone, or null for all hours
+   */
+  public List<Estimate> estimates(String from, String to, Integer hourOfDay) {
+    List<Estimate> result = new ArrayList<>();
+    stats.forEach((key, edge) -> {
+      if ((from == null || from.equals(key.from)) && (to == null || to.equals(key.to))) {
+        edge.collect(key, hourOfDay, freshAfter(), result);
+      }
+    });
+    result.sort(Comparator.comparing(Estimate::from).thenComparing(Estimate::to).thenComparingInt(Estimate::hourOfDay));
+    return result;
+  }
+
+  private void loadSafely() {
+    try {
+      jdbc.query("select from_area_id, to_area_id, hour_of_day, samples, ewma_minutes, p50_minutes, p90_minutes"
+          + " from edge_travel_estimates", rs -> {
+        stats.computeIfAbsent(new EdgeKey(rs.getString(1), rs.getString(2)), k -> new EdgeStats())
+            .restore(rs.getInt(3), rs.getLong(4), rs.getDouble(5), rs.getDouble(6), rs.getDouble(7));
+      });
+      log.info("Loaded travel time estimates for {} edges", stats.size());
+    } catch (Exception ex) {
+      log.warn("Failed to load edge travel estimates", ex);
+    }
+  }
+
+  private void persistSafely() {
+    try {
+      persist();
+      feedEtaEngine();
+    } catch (Exception ex) {
+      log.warn("Failed to persist edge travel estimates", ex);
+    }
+  }
+
+  private void persist() {
+    List<Estimate> dirty = new ArrayList<>();
+    int freshAfter = freshAfter();
+    stats.forEach((key, edge) -> edge.drainDirty(key, freshAfter, dirty));
+    if (dirty.isEmpty()) {
+      return;
+    }
+    Timestamp now = Timestamp.from(Instant.now());
+    try {
+      jdbc.batchUpdate(UPSERT_SQL, new BatchPreparedStatementSetter() {
+        @Override
+        public void setValues(PreparedStatement ps, int i) throws SQLException {
+          Estimate e = dirty.get(i);
+          ps.setString(1, e.from());
+          ps.setString(2, e.to());
+          ps.setInt(3, e.hourOfDay());
+          ps.setLong(4, e.samples());
+          ps.setDouble(5, e.ewmaMinutes());
+          ps.setDouble(6, e.p50Minutes());
+          ps.setDouble(7, e.p90Minutes());
+          ps.setTimestamp(8, now);
+        }
+
+        @Override
+        public int getBatchSize() {
+          return dirty.size();
+        }
+      });
+    } catch (RuntimeException ex) {
+      dirty.forEach(e -> stats.get(new EdgeKey(e.from(), e.to())).markDirty(e.hourOfDay()));
+      throw ex;
+    }
+  }
+
+  /**
+   * New samples a restored bucket needs before its sketches replace the persisted quantiles. At
+   * least {@code min-samples-for-eta}, since the bucket's sample count, restored with it, is what
+   * qualifies its median for {@link EtaEngine}.
+   */
+  private int freshAfter() {
+    return Math.max(MIN_SKETCH_SAMPLES, props.getMinSamplesForEta());
+  }
+
+  private void feedEtaEngine() {
+    if (props.getMinSamplesForEta() <= 0) {
+      return;
+    }
+    int hour = Instant.now().atZone(zone).getHour();
+    for (Estimate e : estimates(null, null, hour)) {
+      if (e.samples() >= props.getMinSamplesForEta() && !Double.isNaN(e.p50Minutes())) {
+        int minutes = Math.max(1, (int) Math.round(e.p50Minutes()));
+        if (etaEngine.edgeMinutes(e.from(), e.to()) != minutes) {
+          etaEngine.updateEdge(e.from(), e.to(), minutes);
+        }
+      }
+    }
+  }
+
+  /** Per-hour buckets for one edge; allocated on first sample for that hour. */
+  private static final class EdgeStats {
+    private final Bucket[] buckets = new Bucket[HOURS];
+
+    synchronized void add(int hour, double minutes, double alpha) {
+      bucket(hour).add(minutes, alpha);
+    }
+
+    synchronized void restore(int hour, long samples, double ewma, double p50, double p90) {
+      Bucket b = bucket(hour);
+      b.samples = samples;
+      b.ewma = ewma;
+      b.restoredP50 = p50;
+      b.restoredP90 = p90;
+    }
+
+    synchronized void markDirty(int hour) {
+      bucket(hour).dirty = true;
+    }
+
+    synchronized void collect(EdgeKey key, Integer hourOfDay, int freshAfter, List<Estimate> out) {
+      for (int h = 0; h < HOURS; h++) {
+        if (buckets[h] != null && (hourOfDay == null || hourOfDay == h)) {
+          out.add(buckets[h].toEstimate(key, h, freshAfter));
+        }
+      }
+    }
+
+    synchronized void drainDirty(EdgeKey key, int freshAfter, List<Estimate> out) {
+      for (int h = 0; h < HOURS; h++) {
+        if (buckets[h] != null && buckets[h].dirty) {
+          buckets[h].dirty = false;
+          out.add(buckets[h].toEstimate(key, h, freshAfter));
+        }
+      }
+    }
+
+    private Bucket bucket(int hour) {
+      if (buckets[hour] == null) {
+        buckets[hour] = new Bucket();
+      }
+      return buckets[hour];
+    }
+  }
+
+  private static final class Bucket {
+    private final P2Quantile p50 = new P2Quantile(0.5);
+    private final P2Quantile p90 = new P2Quantile(0.9);
+    private long samples;
+    private double ewma;
+    /** Persisted quantiles, reported until the sketches have seen enough new samples */
+    private double restoredP50 = Double.NaN;
+    private double restoredP90 = Double.NaN;
+    private boolean dirty;
+
+    void add(double minutes, double alpha) {
+      ewma = samples == 0 ? minutes : alpha * minutes + (1 - alpha) * ewma;
+      samples++;
+      p50.add(minutes);
+      p90.add(minutes);
+      dirty = true;
+    }
+
+    /** @param freshAfter new samples needed before the sketches replace restored quantiles */
+    Estimate toEstimate(EdgeKey key, int hour, int freshAfter) {
+      boolean fresh = p50.count() >= freshAfter || Double.isNaN(restoredP50);
+      return new Estimate(key.from, key.to, hour, samples, ewma,
+          fresh ? p50.estimate() : restoredP50,
+          fresh ? p90.estimate() : restoredP90);
+    }
+  }
+}
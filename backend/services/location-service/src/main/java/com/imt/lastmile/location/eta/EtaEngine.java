@@ -0,0 +1,150 @@
+package com.imt.lastmile.location.eta;
+
+import com.imt.lastmile.location.eta.AreaGraph.Edge;
+import com.imt.lastmile.location.route.CompiledRoute;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Travel-time ETAs over the {@code areas} / {@code area_edges} graph.
+ *
+ * <p>Readers use the current {@link AreaGraph} snapshot without locking. Edge changes, pushed via
+ * {@link #updateEdge} or found by the periodic re-read of {@code area_edges}, build a new snapshot
+ * that only recomputes the station rows they affect; new areas or edges rebuild it. Travel times
+ * pushed through {@link #updateEdge} take precedence over the seeded {@code travel_minutes} on
+ * later re-reads.
+ */
+@Component
+public class EtaEngine {
+  private static final Logger log = LoggerFactory.getLogger(EtaEngine.class);
+
+  private final JdbcTemplate jdbc;
+  private final EtaProperties props;
+  private final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread t = new Thread(r, "eta-graph-refresh");
+    t.setDaemon(true);
+    return t;
+  });
+  private final Timer rebuilds;
+  private final Timer updates;
+  private final Map<String, Integer> pushedMinutes = new ConcurrentHashMap<>();
+  private volatile AreaGraph graph = AreaGraph.build(Map.of(), List.of());
+
+  public EtaEngine(JdbcTemplate jdbc, EtaProperties props, MeterRegistry registry) {
+    this.jdbc = jdbc;
+    this.props = props;
+    this.rebuilds = registry.timer("location.eta.graph.rebuild");
+    this.updates = registry.timer("location.eta.graph.edge.update");
+    registry.gauge("location.eta.graph.areas", this, e -> e.graph.areaCount());
+    registry.gauge("location.eta.graph.stations", this, e -> e.graph.stationCount());
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  void start() {
+    if (props.isGraphEnabled()) {
+      refresher.scheduleWithFixedDelay(this::refreshSafely, 0, props.getGraphRefreshIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @PreDestroy
+  void stop() {
+    refresher.shutdownNow();
+  }
+
+  /** Minutes from {@code areaId} to {@code stationAreaId} along the fastest path, or {@link CompiledRoute#NOT_FOUND}. */
+  public int etaMinutes(String areaId, String stationAreaId) {
+    int minutes = graph.minutesTo(areaId, stationAreaId);
+    return minutes == AreaGraph.UNREACHABLE ? CompiledRoute.NOT_FOUND : minutes;
+  }
+
+  /** Travel minutes the engine currently uses for the edge, or -1 if the graph has no such edge. */
+  public int edgeMinutes(String from, String to) {
+    return graph.edgeMinutes(from, to);
+  }
+
+  /** Applies a new travel time for an edge; unknown edges trigger a reload of the whole graph. */
+  public synchronized void updateEdge(String from, String to, int minutes) {
+    pushedMinutes.put(edgeKey(from, to), minutes);
+    AreaGraph current = graph;
+    if (!current.hasEdge(from, to)) {
+      refreshSafely();
+      return;
+    }
+    long start = System.nanoTime();
+    graph = current.withEdge(from, to, minutes);
+    updates.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+  }
+
+  private void refreshSafely() {
+    try {
+      refresh();
+    } catch (Exception ex) {
+      log.warn("Area graph refresh failed", ex);
+    }
+  }
+
+  /** Re-reads the graph; changed weights are applied incrementally, changed topology rebuilds. */
+  synchronized void refresh() {
+    Map<String, Boolean> areas = new HashMap<>();
+    jdbc.query("select area_id, is_station from areas", rs -> {
+      areas.put(rs.getString(1), rs.getBoolean(2));
+    });
+    List<Edge> edges = jdbc.query("select from_area_id, to_area_id, travel_minutes from area_edges", (rs, i) -> {
+      String from = rs.getString(1);
+      String to = rs.getString(2);
+      return new Edge(from, to, pushedMinutes.getOrDefault(edgeKey(from, to), rs.getInt(3)));
+    });
+
+    AreaGraph current = graph;
+    if (sameTopology(current, areas, edges)) {
+      AreaGraph next = current;
+      for (Edge edge : edges) {
+        next = next.withEdge(edge.from(), edge.to(), edge.minutes());
+      }
+      graph = next;
+      return;
+    }
+    long start = System.nanoTime();
+    graph = AreaGraph.build(areas, edges);
+    rebuilds.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    log.info("Area graph loaded: {} areas, {} stations, {} edges", graph.areaCount(), graph.stationCount(), graph.edgeCount());
+  }
+
+  private static String edgeKey(String from, String to) {
+    return from + "\u0000" + to;
+  }
+
+  private static boolean sameTopology(AreaGraph current, Map<String, Boolean> areas, List<Edge> edges) {
+    if (current.areaCount() != areas.size()) {
+      return false;
+    }
+    for (Map.Entry<String, Boolean> area : areas.entrySet()) {
+      if (!current.hasArea(area.getKey()) || current.isStation(area.getKey()) != area.getValue()) {
+        return false;
+      }
+    }
+    Set<String> seen = new HashSet<>();
+    for (Edge edge : edges) {
+      if (!current.hasEdge(edge.from(), edge.to()) || !seen.add(edgeKey(edge.from(), edge.to()))) {
+        return false;
+      }
+    }
+    return seen.size() == current.edgeCount();
+  }
+}
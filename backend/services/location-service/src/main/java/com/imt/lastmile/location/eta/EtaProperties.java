@@ -0,0 +1,16 @@
+package com.imt.lastmile.location.eta;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "location.eta")
+public class EtaProperties {
+  /** Use the area graph for drivers who are off their planned route */
+  private boolean graphEnabled = true;
+  /** Delay between checks of area_edges for changed travel times */
+  private long graphRefreshIntervalMs = 300_000;
+
+  public boolean isGraphEnabled() { return graphEnabled; }
+  public void setGraphEnabled(boolean graphEnabled) { this.graphEnabled = graphEnabled; }
+  public long getGraphRefreshIntervalMs() { return graphRefreshIntervalMs; }
+  public void setGraphRefreshIntervalMs(long graphRefreshIntervalMs) { this.graphRefreshIntervalMs = graphRefreshIntervalMs; }
+}
@@ -0,0 +1,101 @@
+package com.imt.lastmile.location.eta;
+
+import java.util.Arrays;
+
+/**
+ * Streaming quantile estimate in constant memory using the P-squared algorithm (Jain and
+ * Chlamtac, 1985): five markers whose heights are nudged towards the target quantile with a
+ * piecewise-parabolic fit as samples arrive. Not thread-safe.
+ */
+final class P2Quantile {
+  private final double p;
+  private final double[] heights = new double[5];
+  private final double[] positions = new double[5];
+  private final double[] desired = new double[5];
+  private final double[] increments;
+  private long count;
+
+  P2Quantile(double p) {
+    this.p = p;
+    this.increments = new double[] {0, p / 2, p, (1 + p) / 2, 1};
+  }
+
+  long count() {
+    return count;
+  }
+
+  void add(double x) {
+    if (count < 5) {
+      heights[(int) count++] = x;
+      if (count == 5) {
+        Arrays.sort(heights);
+        for (int i = 0; i < 5; i++) {
+          positions[i] = i;
+        }
+        desired[0] = 0;
+        desired[1] = 2 * p;
+        desired[2] = 4 * p;
+        desired[3] = 2 + 2 * p;
+        desired[4] = 4;
+      }
+      return;
+    }
+    count++;
+
+    int k;
+    if (x < heights[0]) {
+      heights[0] = x;
+      k = 0;
+    } else if (x >= heights[4]) {
+      heights[4] = x;
+      k = 3;
+    } else {
+      k = 0;
+      while (x >= heights[k + 1]) {
+        k++;
+      }
+    }
+    for (int i = k + 1; i < 5; i++) {
+      positions[i]++;
+    }
+    for (int i = 0; i < 5; i++) {
+      desired[i] += increments[i];
+    }
+
+    for (int i = 1; i <= 3; i++) {
+      double d = desired[i] - positions[i];
+      if ((d >= 1 && positions[i + 1] - positions[i] > 1) || (d <= -1 && positions[i - 1] - positions[i] < -1)) {
+        int step = d > 0 ? 1 : -1;
+        double candidate = parabolic(i, step);
+        heights[i] = heights[i - 1] < candidate && candidate < heights[i + 1] ? candidate : linear(i, step);
+        positions[i] += step;
+      }
+    }
+  }
+
+  /** Current estimate; exact while fewer than five samples have been seen, NaN with none. */
+  double estimate() {
+    if (count == 0) {
+      return Double.NaN;
+    }
+    if (count < 5) {
+      double[] seen = Arrays.copyOf(heights, (int) count);
+      Arrays.sort(seen);
+      return seen[(int) Math.min(count - 1, Math.round(p * (count - 1)))];
+    }
+    return heights[2];
+  }
+
+  private double parabolic(int i, int step) {
+    double nPrev = positions[i - 1];
+    double n = positions[i];
+    double nNext = positions[i + 1];
+    return heights[i] + step / (nNext - nPrev)
+        * ((n - nPrev + step) * (heights[i + 1] - heights[i]) / (nNext - n)
+        + (nNext - n - step) * (heights[i] - heights[i - 1]) / (n - nPrev));
+  }
+
+  private double linear(int i, int step) {
+    return heights[i] + step * (heights[i + step] - heights[i]) / (positions[i + step] - positions[i]);
+  }
+}
@@ -0,0 +1,32 @@
+package com.imt.lastmile.location.eta;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "location.travel")
+public class TravelTimeProperties {
+  /** Learn edge travel times from area transitions in telemetry */
+  private boolean enabled = true;
+  /** Time zone whose hour of day buckets the estimates */
+  private String zone = "Asia/Kolkata";
+  /** Weight of the newest sample in the moving average */
+  private double ewmaAlpha = 0.2;
+  /** Transitions slower than this are treated as breaks, not travel */
+  private int maxTransitionMinutes = 120;
+  /** Delay between writes of changed estimates to edge_travel_estimates */
+  private long persistIntervalMs = 60_000;
+  /** Push observed medians into the ETA graph once a bucket has this many samples; 0 disables */
+  private int minSamplesForEta = 20;
+
+  public boolean isEnabled() { return enabled; }
+  public void setEnabled(boolean enabled) { this.enabled = enabled; }
+  public String getZone() { return zone; }
+  public void setZone(String zone) { this.zone = zone; }
+  public double getEwmaAlpha() { return ewmaAlpha; }
+  public void setEwmaAlpha(double ewmaAlpha) { this.ewmaAlpha = ewmaAlpha; }
+  public int getMaxTransitionMinutes() { return maxTransitionMinutes; }
+  public void setMaxTransitionMinutes(int maxTransitionMinutes) { this.maxTransitionMinutes = maxTransitionMinutes; }
+  public long getPersistIntervalMs() { return persistIntervalMs; }
+  public void setPersistIntervalMs(long persistIntervalMs) { this.persistIntervalMs = persistIntervalMs; }
+  public int getMinSamplesForEta() { return minSamplesForEta; }
+  public void setMinSamplesForEta(int minSamplesForEta) { this.minSamplesForEta = minSamplesForEta; }
+}
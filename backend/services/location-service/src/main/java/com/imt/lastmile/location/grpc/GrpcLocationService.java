@@ -2,31 +2,47 @@ package com.imt.lastmile.location.grpc;
 
 import com.google.protobuf.TimestampProto;
 import com.google.protobuf.TimestampProto.Timestamp;
-import com.imt.lastmile.location.domain.DriverTelemetryEntity;
-import com.imt.lastmile.location.repo.DriverTelemetryRepository;
+import com.imt.lastmile.location.cache.BoundedCaches;
+import com.imt.lastmile.location.cache.CacheProperties.Spec;
+import com.imt.lastmile.location.domain.DriverLocationEntity;
+import com.imt.lastmile.location.eta.BatchEtas;
+import com.imt.lastmile.location.eta.EdgeTravelEstimator;
+import com.imt.lastmile.location.eta.EtaEngine;
+import com.imt.lastmile.location.history.DriverTrackStreamer;
+import com.imt.lastmile.location.history.HistoryProperties;
+import com.imt.lastmile.location.history.TelemetryHistoryWriter;
+import com.imt.lastmile.location.matching.MatchingTriggerQueue;
+import com.imt.lastmile.location.repo.DriverLocationRepository;
+import com.imt.lastmile.location.route.CompiledRoute;
+import com.imt.lastmile.location.route.RoutePlanCache;
+import com.imt.lastmile.location.subscription.DriverUpdateBroadcaster;
+import com.imt.lastmile.location.telemetry.DriverState;
+import com.imt.lastmile.location.telemetry.DriverStateTable;
+import com.imt.lastmile.location.telemetry.DriverStateTable.Recorded;
+import com.imt.lastmile.location.telemetry.TelemetryChannels;
 import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
 import java.time.Duration;
 import java.time.Instant;
-import java.util.Comparator;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import lastmile.driver.DriverId;
-import lastmile.driver.DriverProfile;
-import lastmile.driver.DriverServiceGrpc;
-import lastmile.driver.RoutePlan;
-import lastmile.driver.RouteStop;
 import lastmile.location.Ack;
 import lastmile.location.DriverEta;
 import lastmile.location.DriverEtaRequest;
+import lastmile.location.DriverEtas;
+import lastmile.location.DriverEtasRequest;
 import lastmile.location.DriverSnapshot;
 import lastmile.location.DriverTelemetry;
+import lastmile.location.DriverTrackRequest;
+import lastmile.location.EdgeTravelTime;
+import lastmile.location.EdgeTravelTimes;
+import lastmile.location.EdgeTravelTimesRequest;
 import lastmile.location.LocationServiceGrpc;
+import lastmile.location.TelemetryAck;
+import lastmile.location.TelemetryBatch;
 import lastmile.matching.EvaluateDriverRequest;
-import lastmile.matching.MatchingServiceGrpc;
-import net.devh.boot.grpc.client.inject.GrpcClient;
+import lastmile.matching.EvaluateDriverRouteRequest;
+import lastmile.matching.RouteStation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import net.devh.boot.grpc.server.service.GrpcService;
@@ -34,23 +50,41 @@ import net.devh.boot.grpc.server.service.GrpcService;
 @GrpcService
 public class GrpcLocationService extends LocationServiceGrpc.LocationServiceImplBase {
   private static final Logger log = LoggerFactory.getLogger(GrpcLocationService.class);
-  private static final Duration ROUTE_CACHE_TTL = Duration.ofMinutes(5);
   private static final Duration TRIGGER_REFRESH = Duration.ofMinutes(2);
-
-  private final DriverTelemetryRepository repo;
-  private final Map<String, CachedRoute> routeCache = new ConcurrentHashMap<>();
-  private final Map<String, Integer> driverCapacityCache = new ConcurrentHashMap<>();
-  private final Map<String, TriggerState> lastTriggerByStation = new ConcurrentHashMap<>();
-  private final Map<String, java.util.Set<StreamObserver<DriverSnapshot>>> activeStreams = new ConcurrentHashMap<>();
-
-  @GrpcClient("driver-service")
-  private DriverServiceGrpc.DriverServiceBlockingStub driverClient;
-
-  @GrpcClient("matching-service")
-  private MatchingServiceGrpc.MatchingServiceBlockingStub matchingClient;
-
-  public GrpcLocationService(DriverTelemetryRepository repo) {
-    this.repo = repo;
+  private static final int TRIGGER_WINDOW_MINUTES = 10;
+
+  private final DriverStateTable stateTable;
+  private final MatchingTriggerQueue triggerQueue;
+  private final RoutePlanCache routeCache;
+  private final DriverUpdateBroadcaster broadcaster;
+  private final TelemetryHistoryWriter historyWriter;
+  private final DriverLocationRepository historyRepo;
+  private final HistoryProperties historyProps;
+  private final TelemetryChannels channels;
+  private final BatchEtas batchEtas;
+  private final EtaEngine etaEngine;
+  private final EdgeTravelEstimator travelEstimator;
+  private final Map<String, TriggerState> lastTriggerByStation;
+
+  public GrpcLocationService(DriverStateTable stateTable, MatchingTriggerQueue triggerQueue, RoutePlanCache routeCache,
+      DriverUpdateBroadcaster broadcaster, TelemetryHistoryWriter historyWriter, DriverLocationRepository historyRepo,
+      HistoryProperties historyProps, TelemetryChannels channels, EtaEngine etaEngine, EdgeTravelEstimator travelEstimator,
+      BoundedCaches caches) {
+    this.stateTable = stateTable;
+    this.triggerQueue = triggerQueue;
+    this.routeCache = routeCache;
+    this.broadcaster = broadcaster;
+    this.historyWriter = historyWriter;
+    this.historyRepo = historyRepo;
+    this.historyProps = historyProps;
+    this.channels = channels;
+    this.batchEtas = new BatchEtas(id -> stateTable.peek(id).orElse(null), routeCache::cached, stateTable::states,
+        etaEngine::etaMinutes);
+    this.etaEngine = etaEngine;
+    this.travelEstimator = travelEstimator;
+    // A trigger older than TRIGGER_REFRESH is re-sent anyway, so there is no point keeping it longer
+    this.lastTriggerByStation = caches.<String, TriggerState>build("match-triggers",
+        new Spec(200_000L, null, TRIGGER_REFRESH, null)).asMap();
   }
 
   @Override
@@ -58,18 +92,7 @@ public class GrpcLocationService extends LocationServiceGrpc.LocationServiceImpl
     return new StreamObserver<>() {
       @Override
       public void onNext(DriverTelemetry telemetry) {
-        Instant ts = telemetry.hasTs()
-            ? Instant.ofEpochSecond(telemetry.getTs().getSeconds(), telemetry.getTs().getNanos())
-            : Instant.now();
-        DriverTelemetryEntity entity = repo.findByDriverId(telemetry.getDriverId())
-            .map(existing -> {
-              existing.update(telemetry.getRouteId(), telemetry.getCurrentAreaId(), telemetry.getOccupancy(), ts);
-              return existing;
-            })
-            .orElseGet(() -> new DriverTelemetryEntity(
-                telemetry.getDriverId(), telemetry.getRouteId(), telemetry.getCurrentAreaId(), telemetry.getOccupancy(), ts));
-        repo.save(entity);
-        evaluateStations(telemetry, ts);
+        broadcastUpdate(ingest(telemetry));
       }
 
       @Override
@@ -85,103 +108,129 @@ public class GrpcLocationService extends LocationServiceGrpc.LocationServiceImpl
     };
   }
 
+  @Override
+  public StreamObserver<TelemetryBatch> telemetryChannel(StreamObserver<TelemetryAck> responseObserver) {
+    return channels.open(responseObserver, telemetry -> {
+      Recorded recorded = ingest(telemetry);
+      broadcastUpdate(recorded);
+      return recorded;
+    });
+  }
+
   @Override
   public void updateDriverLocation(DriverTelemetry telemetry, StreamObserver<Ack> responseObserver) {
-    Instant ts = telemetry.hasTs()
-        ? Instant.ofEpochSecond(telemetry.getTs().getSeconds(), telemetry.getTs().getNanos())
-        : Instant.now();
-    DriverTelemetryEntity entity = repo.findByDriverId(telemetry.getDriverId())
-        .map(existing -> {
-          existing.update(telemetry.getRouteId(), telemetry.getCurrentAreaId(), telemetry.getOccupancy(), ts);
-          return existing;
-        })
-        .orElseGet(() -> new DriverTelemetryEntity(
-            telemetry.getDriverId(), telemetry.getRouteId(), telemetry.getCurrentAreaId(), telemetry.getOccupancy(), ts));
-    repo.save(entity);
-    evaluateStations(telemetry, ts);
+    Recorded recorded = ingest(telemetry);
     
     responseObserver.onNext(Ack.newBuilder().setOk(true).setMsg("location updated").build());
     responseObserver.onCompleted();
 
-    broadcastUpdate(entity);
+    broadcastUpdate(recorded);
+  }
+
+  private Recorded ingest(DriverTelemetry telemetry) {
+    Instant ts = telemetry.hasTs()
+        ? Instant.ofEpochSecond(telemetry.getTs().getSeconds(), telemetry.getTs().getNanos())
+        : Instant.now();
+    Recorded recorded = stateTable.record(
+        telemetry.getDriverId(), telemetry.getRouteId(), telemetry.getCurrentAreaId(), telemetry.getOccupancy(), ts);
+    // History keeps every ping, including ones that arrive out of order
+    historyWriter.append(new DriverState(
+        telemetry.getDriverId(), telemetry.getRouteId(), telemetry.getCurrentAreaId(), telemetry.getOccupancy(), ts));
+    travelEstimator.observe(telemetry.getDriverId(), telemetry.getCurrentAreaId(), ts);
+    // A stale ping is not where the driver is; matching and subscribers only see the newest state
+    if (recorded.applied()) {
+      evaluateStations(telemetry, ts);
+    }
+    return recorded;
   }
 
   @Override
   public void subscribeDriverUpdates(lastmile.location.DriverId request, StreamObserver<DriverSnapshot> responseObserver) {
     String driverId = request.getId();
-    activeStreams.computeIfAbsent(driverId, k -> ConcurrentHashMap.newKeySet()).add(responseObserver);
-
-    // Send initial snapshot if available
-    repo.findByDriverId(driverId).ifPresent(entity -> {
-        try {
-            responseObserver.onNext(toSnapshot(entity));
-        } catch (Exception e) {
-            log.warn("Failed to send initial snapshot to subscriber for driver {}", driverId);
-            removeStream(driverId, responseObserver);
-        }
-    });
-
-    // We can't easily detect client disconnect without a proper context listener or using specific grpc features,
-    // but for simple cases, we just rely on onNext failing to remove the observer.
-    // However, providing a server-side streaming endpoint usually stays open until cancelled.
-    // A more robust approach uses Context.current().addListener or similar to remove on cancellation.
+    DriverSnapshot initial = stateTable.find(driverId).map(this::toSnapshot).orElse(null);
+    broadcaster.subscribe(driverId, responseObserver, initial);
   }
 
-  private void broadcastUpdate(DriverTelemetryEntity entity) {
-    String driverId = entity.getDriverId();
-    var streams = activeStreams.get(driverId);
-    if (streams != null && !streams.isEmpty()) {
-        DriverSnapshot snapshot = toSnapshot(entity);
-        streams.removeIf(observer -> {
-            try {
-                observer.onNext(snapshot);
-                return false;
-            } catch (Exception e) {
-                log.warn("Removing defunct observer for driver {}", driverId);
-                return true;
-            }
-        });
+  private void broadcastUpdate(Recorded recorded) {
+    if (recorded.applied() && broadcaster.hasSubscribers(recorded.state().driverId())) {
+      broadcaster.publish(toSnapshot(recorded.state()));
     }
   }
 
-  private void removeStream(String driverId, StreamObserver<DriverSnapshot> observer) {
-      if (activeStreams.containsKey(driverId)) {
-          activeStreams.get(driverId).remove(observer);
-      }
-  }
-
-  private DriverSnapshot toSnapshot(DriverTelemetryEntity entity) {
+  private DriverSnapshot toSnapshot(DriverState state) {
       return DriverSnapshot.newBuilder()
-        .setDriverId(entity.getDriverId())
-        .setRouteId(entity.getRouteId() == null ? "" : entity.getRouteId())
-        .setCurrentAreaId(entity.getAreaId())
-        .setOccupancy(entity.getOccupancy())
-        .setTs(toTimestamp(entity.getTs()))
+        .setDriverId(state.driverId())
+        .setRouteId(state.routeId() == null ? "" : state.routeId())
+        .setCurrentAreaId(state.areaId())
+        .setOccupancy(state.occupancy())
+        .setTs(toTimestamp(state.ts()))
         .build();
   }
 
   @Override
   public void getDriverSnapshot(lastmile.location.DriverId request, StreamObserver<DriverSnapshot> responseObserver) {
-    Optional<DriverTelemetryEntity> opt = repo.findByDriverId(request.getId());
+    Optional<DriverState> opt = stateTable.find(request.getId());
     if (opt.isEmpty()) {
       responseObserver.onError(Status.NOT_FOUND.withDescription("driver telemetry missing").asRuntimeException());
       return;
     }
-    DriverTelemetryEntity entity = opt.get();
-    DriverSnapshot snapshot = DriverSnapshot.newBuilder()
-        .setDriverId(entity.getDriverId())
-        .setRouteId(entity.getRouteId() == null ? "" : entity.getRouteId())
-        .setCurrentAreaId(entity.getAreaId())
-        .setOccupancy(entity.getOccupancy())
-        .setTs(toTimestamp(entity.getTs()))
-        .build();
-    responseObserver.onNext(snapshot);
+    responseObserver.onNext(toSnapshot(opt.get()));
+    responseObserver.onCompleted();
+  }
+
+  @Override
+  public void getEdgeTravelTimes(EdgeTravelTimesRequest request, StreamObserver<EdgeTravelTimes> responseObserver) {
+    var estimates = travelEstimator.estimates(
+        request.getFromAreaId().isBlank() ? null : request.getFromAreaId(),
+        request.getToAreaId().isBlank() ? null : request.getToAreaId(),
+        request.hasHourOfDay() ? request.getHourOfDay() : null);
+    EdgeTravelTimes.Builder response = EdgeTravelTimes.newBuilder();
+    for (EdgeTravelEstimator.Estimate e : estimates) {
+      response.addEdges(EdgeTravelTime.newBuilder()
+          .setFromAreaId(e.from())
+          .setToAreaId(e.to())
+          .setHourOfDay(e.hourOfDay())
+          .setSamples(e.samples())
+          .setEwmaMinutes(e.ewmaMinutes())
+          .setP50Minutes(e.p50Minutes())
+          .setP90Minutes(e.p90Minutes())
+          .setCurrentMinutes(etaEngine.edgeMinutes(e.from(), e.to())));
+    }
+    responseObserver.onNext(response.build());
     responseObserver.onCompleted();
   }
 
+  @Override
+  public void getDriverTrack(DriverTrackRequest request, StreamObserver<DriverSnapshot> responseObserver) {
+    if (request.getDriverId().isBlank() || !request.hasFrom()) {
+      responseObserver.onError(Status.INVALID_ARGUMENT.withDescription("driver_id and from are required").asRuntimeException());
+      return;
+    }
+    Instant from = toInstant(request.getFrom());
+    Instant to = request.hasTo() ? toInstant(request.getTo()) : Instant.now();
+    if (!from.isBefore(to)) {
+      responseObserver.onError(Status.INVALID_ARGUMENT.withDescription("from must be before to").asRuntimeException());
+      return;
+    }
+    int pageSize = request.getPageSize() > 0
+        ? Math.min(request.getPageSize(), historyProps.getMaxPageSize())
+        : historyProps.getDefaultPageSize();
+    DriverTrackStreamer.start(historyRepo, request.getDriverId(), from, to, pageSize, this::toSnapshot, responseObserver);
+  }
+
+  private DriverSnapshot toSnapshot(DriverLocationEntity row) {
+      return DriverSnapshot.newBuilder()
+        .setDriverId(row.getDriverId())
+        .setRouteId(row.getRouteId() == null ? "" : row.getRouteId())
+        .setCurrentAreaId(row.getAreaId())
+        .setOccupancy(row.getOccupancy())
+        .setTs(toTimestamp(row.getTs()))
+        .build();
+  }
+
   @Override
   public void getDriverEta(DriverEtaRequest request, StreamObserver<DriverEta> responseObserver) {
-    Optional<DriverTelemetryEntity> opt = repo.findByDriverId(request.getDriverId());
+    Optional<DriverState> opt = stateTable.find(request.getDriverId());
     if (opt.isEmpty()) {
       responseObserver.onNext(DriverEta.newBuilder()
           .setDriverId(request.getDriverId())
@@ -192,35 +241,39 @@ public class GrpcLocationService extends LocationServiceGrpc.LocationServiceImpl
       return;
     }
 
-    DriverTelemetryEntity entity = opt.get();
-    RoutePlan plan = resolveRoutePlan(request.getDriverId(), entity.getRouteId());
+    DriverState state = opt.get();
+    CompiledRoute route = routeCache.resolve(request.getDriverId(), state.routeId());
     DriverEta.Builder etaBuilder = DriverEta.newBuilder()
         .setDriverId(request.getDriverId())
         .setStationAreaId(request.getStationAreaId())
         .setReachable(false);
 
-    if (plan == null) {
+    if (route == null) {
       responseObserver.onNext(etaBuilder.build());
       responseObserver.onCompleted();
       return;
     }
 
-    RouteStop currentStop = findStop(plan, entity.getAreaId()).orElse(null);
-    RouteStop targetStop = plan.getStopsList().stream()
-        .filter(s -> s.getIsStation() && s.getAreaId().equals(request.getStationAreaId()))
-        .findFirst()
-        .orElse(null);
+    int etaMinutes = batchEtas.etaMinutes(route, state.areaId(), request.getStationAreaId());
+    if (etaMinutes != CompiledRoute.NOT_FOUND) {
+      etaBuilder.setReachable(true).setEtaMinutes(etaMinutes);
+    }
+    responseObserver.onNext(etaBuilder.build());
+    responseObserver.onCompleted();
+  }
 
-    if (currentStop == null || targetStop == null || targetStop.getSequence() < currentStop.getSequence()) {
-      responseObserver.onNext(etaBuilder.build());
-      responseObserver.onCompleted();
+  @Override
+  public void getDriverEtas(DriverEtasRequest request, StreamObserver<DriverEtas> responseObserver) {
+    boolean stationMode = !request.getStationAreaId().isBlank();
+    if (stationMode == (request.getPairsCount() > 0)) {
+      responseObserver.onError(Status.INVALID_ARGUMENT
+          .withDescription("set either pairs or station_area_id").asRuntimeException());
       return;
     }
-
-    int etaMinutes = targetStop.getArrivalOffsetMinutes() - currentStop.getArrivalOffsetMinutes();
-    etaBuilder.setReachable(etaMinutes >= 0)
-        .setEtaMinutes(Math.max(etaMinutes, 0));
-    responseObserver.onNext(etaBuilder.build());
+    var etas = stationMode
+        ? batchEtas.forStation(request.getStationAreaId(), request.getMaxEtaMinutes(), request.getLimit())
+        : batchEtas.forPairs(request.getPairsList());
+    responseObserver.onNext(DriverEtas.newBuilder().addAllEtas(etas).build());
     responseObserver.onCompleted();
   }
 
@@ -229,92 +282,105 @@ public class GrpcLocationService extends LocationServiceGrpc.LocationServiceImpl
       return;
     }
 
-    RoutePlan plan = resolveRoutePlan(telemetry.getDriverId(), telemetry.getRouteId());
-    if (plan == null) {
+    CompiledRoute route = routeCache.resolve(telemetry.getDriverId(), telemetry.getRouteId());
+    if (route == null) {
       return;
     }
 
-    Optional<RouteStop> currentStopOpt = findStop(plan, telemetry.getCurrentAreaId());
-    if (currentStopOpt.isEmpty()) {
+    int currentStop = route.stopIndexOf(telemetry.getCurrentAreaId());
+    if (currentStop == CompiledRoute.NOT_FOUND) {
       log.debug("Driver {} in area {} not part of route {}", telemetry.getDriverId(), telemetry.getCurrentAreaId(), telemetry.getRouteId());
       return;
     }
 
-    RouteStop currentStop = currentStopOpt.get();
-    int capacity = driverCapacityCache.getOrDefault(telemetry.getDriverId(), 0);
+    int capacity = routeCache.capacity(telemetry.getDriverId());
     int seatsAvailable = Math.max(capacity - telemetry.getOccupancy(), 0);
     if (seatsAvailable <= 0) {
       log.info("Driver {} is FULL (Occupancy {}/{}), skipping match.", telemetry.getDriverId(), telemetry.getOccupancy(), capacity);
       return;
     }
 
-    int currentOffset = currentStop.getArrivalOffsetMinutes();
+    int currentOffset = route.offsetAt(currentStop);
+    int from = route.firstStationFrom(currentStop);
+    int to = route.stationsEndWithin(from, currentOffset + TRIGGER_WINDOW_MINUTES);
+    if (triggerQueue.routeRequests()) {
+      if (from < to) {
+        triggerRoute(telemetry, route, from, to, currentOffset, ts, seatsAvailable);
+      }
+      return;
+    }
+    for (int station = from; station < to; station++) {
+      int stop = route.stationStopAt(station);
+      triggerMatching(telemetry, route, route.areaIdAt(stop), route.offsetAt(stop) - currentOffset, ts, seatsAvailable);
+    }
+  }
 
-    plan.getStopsList().stream()
-        .filter(RouteStop::getIsStation)
-        .filter(stop -> stop.getSequence() >= currentStop.getSequence())
-        .map(stop -> new Candidate(stop, stop.getArrivalOffsetMinutes() - currentOffset))
-        .filter(candidate -> candidate.etaMinutes >= 0 && candidate.etaMinutes <= 10)
-        .forEach(candidate -> triggerMatching(telemetry, plan, candidate.stop, candidate.etaMinutes, ts, seatsAvailable));
+  /**
+   * Asks matching-service to seat riders at every station in range in one decision, so seats
+   * taken at the first are not offered again at the next. Sent when any of the stations is due
+   * a trigger of its own.
+   */
+  private void triggerRoute(DriverTelemetry telemetry, CompiledRoute route, int from, int to, int currentOffset, Instant ts,
+      int seatsAvailable) {
+    EvaluateDriverRouteRequest.Builder request = EvaluateDriverRouteRequest.newBuilder()
+        .setDriverId(telemetry.getDriverId())
+        .setRouteId(route.routeId())
+        .setDriverCurrentAreaId(telemetry.getCurrentAreaId())
+        .setDestinationAreaId(route.finalAreaId())
+        .setSeatsAvailable(seatsAvailable)
+        .setDriverLastUpdate(toTimestamp(ts));
+    boolean due = false;
+    for (int station = from; station < to; station++) {
+      int stop = route.stationStopAt(station);
+      String stationAreaId = route.areaIdAt(stop);
+      int etaMinutes = route.offsetAt(stop) - currentOffset;
+      request.addStations(RouteStation.newBuilder().setStationAreaId(stationAreaId).setEtaToStationMinutes(etaMinutes));
+      due |= isDue(telemetry.getDriverId() + "|" + stationAreaId, etaMinutes, ts);
+    }
+    if (!due) {
+      return;
+    }
+    EvaluateDriverRouteRequest built = request.build();
+    triggerQueue.submit(built, () -> {
+      for (RouteStation station : built.getStationsList()) {
+        lastTriggerByStation.put(telemetry.getDriverId() + "|" + station.getStationAreaId(),
+            new TriggerState(station.getEtaToStationMinutes(), ts));
+      }
+    });
   }
 
-  private void triggerMatching(DriverTelemetry telemetry, RoutePlan plan, RouteStop stationStop, int etaMinutes, Instant ts, int seatsAvailable) {
-    String key = telemetry.getDriverId() + "|" + stationStop.getAreaId();
+  /** True unless the station was triggered within TRIGGER_REFRESH with an ETA at least as good. */
+  private boolean isDue(String key, int etaMinutes, Instant ts) {
     TriggerState previous = lastTriggerByStation.get(key);
-    if (previous != null) {
-      boolean etaImproved = etaMinutes < previous.etaMinutes;
-      boolean expired = Duration.between(previous.at, ts).compareTo(TRIGGER_REFRESH) > 0;
-      if (!etaImproved && !expired) {
-        return;
-      }
+    if (previous == null) {
+      return true;
+    }
+    boolean etaImproved = etaMinutes < previous.etaMinutes;
+    boolean expired = Duration.between(previous.at, ts).compareTo(TRIGGER_REFRESH) > 0;
+    return etaImproved || expired;
+  }
+
+  private void triggerMatching(DriverTelemetry telemetry, CompiledRoute route, String stationAreaId, int etaMinutes, Instant ts, int seatsAvailable) {
+    String key = telemetry.getDriverId() + "|" + stationAreaId;
+    if (!isDue(key, etaMinutes, ts)) {
+      return;
     }
 
     EvaluateDriverRequest request = EvaluateDriverRequest.newBuilder()
         .setDriverId(telemetry.getDriverId())
-        .setRouteId(plan.getRouteId())
-        .setStationAreaId(stationStop.getAreaId())
+        .setRouteId(route.routeId())
+        .setStationAreaId(stationAreaId)
         .setDriverCurrentAreaId(telemetry.getCurrentAreaId())
-        .setDestinationAreaId(plan.getFinalAreaId())
+        .setDestinationAreaId(route.finalAreaId())
         .setSeatsAvailable(seatsAvailable)
         .setEtaToStationMinutes(etaMinutes)
         .setDriverLastUpdate(toTimestamp(ts))
         .build();
-    try {
-      matchingClient.evaluateDriver(request);
-      lastTriggerByStation.put(key, new TriggerState(etaMinutes, ts));
-    } catch (Exception ex) {
-      log.warn("Failed to evaluate driver {} at station {}", telemetry.getDriverId(), stationStop.getAreaId(), ex);
-    }
+    triggerQueue.submit(request, () -> lastTriggerByStation.put(key, new TriggerState(etaMinutes, ts)));
   }
 
-  private RoutePlan resolveRoutePlan(String driverId, String routeId) {
-    if (routeId == null || routeId.isBlank()) {
-      return null;
-    }
-    CachedRoute cached = routeCache.get(routeId);
-    Instant now = Instant.now();
-    if (cached != null && Duration.between(cached.fetchedAt, now).compareTo(ROUTE_CACHE_TTL) < 0) {
-      driverCapacityCache.putIfAbsent(driverId, cached.capacity);
-      return cached.plan;
-    }
-
-    try {
-      DriverProfile profile = driverClient.getDriver(DriverId.newBuilder().setId(driverId).build());
-      driverCapacityCache.put(driverId, profile.getCapacity());
-      profile.getRoutesList().forEach(route ->
-          routeCache.put(route.getRouteId(), new CachedRoute(route, now, profile.getCapacity())));
-      CachedRoute refreshed = routeCache.get(routeId);
-      return refreshed != null ? refreshed.plan : null;
-    } catch (Exception ex) {
-      log.warn("Unable to fetch route {} for driver {}", routeId, driverId, ex);
-      return null;
-    }
-  }
-
-  private Optional<RouteStop> findStop(RoutePlan plan, String areaId) {
-    return plan.getStopsList().stream()
-        .filter(stop -> Objects.equals(stop.getAreaId(), areaId))
-        .min(Comparator.comparingInt(RouteStop::getSequence));
+  private Instant toInstant(Timestamp ts) {
+    return Instant.ofEpochSecond(ts.getSeconds(), ts.getNanos());
   }
 
   private Timestamp toTimestamp(Instant instant) {
@@ -324,9 +390,5 @@ public class GrpcLocationService extends LocationServiceGrpc.LocationServiceImpl
         .build();
   }
 
-  private record CachedRoute(RoutePlan plan, Instant fetchedAt, int capacity) {}
-
   private record TriggerState(int etaMinutes, Instant at) {}
-
-  private record Candidate(RouteStop stop, int etaMinutes) {}
 }
@@ -0,0 +1,101 @@
+package com.imt.lastmile.location.history;
+
+import com.imt.lastmile.location.domain.DriverLocationEntity;
+import com.imt.lastmile.location.repo.DriverLocationRepository;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Function;
+import lastmile.location.DriverSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+
+/**
+ * Streams one driver's history for GetDriverTrack a page at a time.
+ *
+ * <p>Pages are keyset queries on {@code (ts, id)}, fetched only when the previous page has been
+ * written and the call is ready for more, so a long track never sits in memory or in the transport
+ * buffer as a whole.
+ */
+public final class DriverTrackStreamer {
+  private static final Logger log = LoggerFactory.getLogger(DriverTrackStreamer.class);
+
+  private final DriverLocationRepository repo;
+  private final String driverId;
+  private final Instant to;
+  private final int pageSize;
+  private final Function<DriverLocationEntity, DriverSnapshot> mapper;
+  private final StreamObserver<DriverSnapshot> observer;
+  private final ServerCallStreamObserver<DriverSnapshot> flowControl;
+  private final Deque<DriverLocationEntity> page = new ArrayDeque<>();
+  /** Keyset cursor: the last row sent */
+  private Instant afterTs;
+  private long afterId = -1;
+  private boolean exhausted;
+  private boolean done;
+
+  private DriverTrackStreamer(DriverLocationRepository repo, String driverId, Instant from, Instant to, int pageSize,
+      Function<DriverLocationEntity, DriverSnapshot> mapper, StreamObserver<DriverSnapshot> observer) {
+    this.repo = repo;
+    this.driverId = driverId;
+    this.afterTs = from;
+    this.to = to;
+    this.pageSize = pageSize;
+    this.mapper = mapper;
+    this.observer = observer;
+    this.flowControl = observer instanceof ServerCallStreamObserver<DriverSnapshot> s ? s : null;
+  }
+
+  /** Starts streaming rows with {@code from <= ts < to}; returns once callbacks are installed. */
+  public static void start(DriverLocationRepository repo, String driverId, Instant from, Instant to, int pageSize,
+      Function<DriverLocationEntity, DriverSnapshot> mapper, StreamObserver<DriverSnapshot> observer) {
+    DriverTrackStreamer streamer = new DriverTrackStreamer(repo, driverId, from, to, pageSize, mapper, observer);
+    if (streamer.flowControl != null) {
+      streamer.flowControl.setOnCancelHandler(streamer::cancel);
+      streamer.flowControl.setOnReadyHandler(streamer::pump);
+    }
+    streamer.pump();
+  }
+
+  private synchronized void cancel() {
+    done = true;
+    page.clear();
+  }
+
+  private synchronized void pump() {
+    try {
+      while (!done && (flowControl == null || flowControl.isReady())) {
+        if (page.isEmpty()) {
+          if (exhausted) {
+            done = true;
+            observer.onCompleted();
+            return;
+          }
+          fetch();
+          continue;
+        }
+        DriverLocationEntity row = page.removeFirst();
+        afterTs = row.getTs();
+        afterId = row.getId();
+        observer.onNext(mapper.apply(row));
+      }
+    } catch (Exception ex) {
+      if (!done) {
+        done = true;
+        log.warn("GetDriverTrack for driver {} failed", driverId, ex);
+        observer.onError(Status.INTERNAL.withDescription("track query failed").asRuntimeException());
+      }
+    }
+  }
+
+  private void fetch() {
+    List<DriverLocationEntity> rows = repo.findTrackPage(driverId, afterTs, afterId, to, PageRequest.of(0, pageSize));
+    page.addAll(rows);
+    exhausted = rows.size() < pageSize;
+  }
+}
@@ -0,0 +1,125 @@
+package com.imt.lastmile.location.history;
+
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maintains the daily (UTC) partitions of {@code driver_locations}: creates them a few days ahead
+ * and drops whole partitions once they fall out of the retention window, so expiring history never
+ * deletes rows one by one.
+ */
+@Component
+public class HistoryPartitionManager {
+  private static final Logger log = LoggerFactory.getLogger(HistoryPartitionManager.class);
+  private static final String PREFIX = "driver_locations_p";
+  private static final DateTimeFormatter SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+  private static final String LIST_PARTITIONS_SQL = """
+      select c.relname
+        from pg_inherits i
+        join pg_class c on c.oid = i.inhrelid
+        join pg_class p on p.oid = i.inhparent
+       where p.relname = 'driver_locations'
+      """;
+
+  private final JdbcTemplate jdbc;
+  private final HistoryProperties props;
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread t = new Thread(r, "history-partitions");
+    t.setDaemon(true);
+    return t;
+  });
+  /** Inclusive start of the oldest partition; null until the first maintenance run */
+  private volatile Instant coveredFrom;
+  /** Exclusive end of the newest partition */
+  private volatile Instant coveredTo;
+
+  public HistoryPartitionManager(JdbcTemplate jdbc, HistoryProperties props) {
+    this.jdbc = jdbc;
+    this.props = props;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  void start() {
+    if (props.isEnabled()) {
+      scheduler.scheduleWithFixedDelay(this::maintainSafely, 0, props.getMaintenanceIntervalMinutes(), TimeUnit.MINUTES);
+    }
+  }
+
+  @PreDestroy
+  void stop() {
+    scheduler.shutdownNow();
+  }
+
+  /** Whether a row stamped {@code ts} has a partition to go to. */
+  public boolean covers(Instant ts) {
+    Instant from = coveredFrom;
+    Instant to = coveredTo;
+    return from != null && !ts.isBefore(from) && ts.isBefore(to);
+  }
+
+  private void maintainSafely() {
+    try {
+      maintain();
+    } catch (Exception ex) {
+      log.warn("driver_locations partition maintenance failed", ex);
+    }
+  }
+
+  void maintain() {
+    LocalDate today = LocalDate.now(ZoneOffset.UTC);
+    LocalDate oldestKept = today.minusDays(props.getRetentionDays());
+    LocalDate newest = today.plusDays(props.getPartitionsAhead());
+
+    for (LocalDate day = today; !day.isAfter(newest); day = day.plusDays(1)) {
+      jdbc.execute("create table if not exists " + PREFIX + day.format(SUFFIX)
+          + " partition of driver_locations for values from ('" + startOf(day) + "') to ('" + startOf(day.plusDays(1)) + "')");
+    }
+
+    LocalDate oldest = today;
+    List<String> partitions = jdbc.queryForList(LIST_PARTITIONS_SQL, String.class);
+    for (String name : partitions) {
+      LocalDate day = dayOf(name);
+      if (day == null) {
+        continue;
+      }
+      if (day.isBefore(oldestKept)) {
+        jdbc.execute("drop table if exists " + name);
+        log.info("Dropped expired history partition {}", name);
+      } else if (day.isBefore(oldest)) {
+        oldest = day;
+      }
+    }
+
+    coveredFrom = startOf(oldest);
+    coveredTo = startOf(newest.plusDays(1));
+  }
+
+  private static Instant startOf(LocalDate day) {
+    return day.atStartOfDay(ZoneOffset.UTC).toInstant();
+  }
+
+  private static LocalDate dayOf(String partition) {
+    if (!partition.startsWith(PREFIX)) {
+      return null;
+    }
+    try {
+      return LocalDate.parse(partition.substring(PREFIX.length()), SUFFIX);
+    } catch (DateTimeParseException ex) {
+      return null;
+    }
+  }
+}
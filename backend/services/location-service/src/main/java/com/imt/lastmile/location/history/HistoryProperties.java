@@ -0,0 +1,44 @@
+package com.imt.lastmile.location.history;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "location.history")
+public class HistoryProperties {
+  /** Append every ping to driver_locations */
+  private boolean enabled = true;
+  /** Pings waiting to be written; pings beyond this are dropped */
+  private int queueCapacity = 100_000;
+  /** Rows per multi-row insert */
+  private int batchSize = 1_000;
+  /** Longest a ping waits for a batch to fill before it is written anyway */
+  private long flushIntervalMs = 500;
+  /** Daily partitions older than this many days are dropped */
+  private int retentionDays = 30;
+  /** Daily partitions created ahead of the current day */
+  private int partitionsAhead = 3;
+  /** Delay between partition maintenance runs */
+  private long maintenanceIntervalMinutes = 60;
+  /** Rows fetched per page by GetDriverTrack when the caller does not ask for a size */
+  private int defaultPageSize = 500;
+  /** Upper bound on the page size a GetDriverTrack caller may ask for */
+  private int maxPageSize = 5_000;
+
+  public boolean isEnabled() { return enabled; }
+  public void setEnabled(boolean enabled) { this.enabled = enabled; }
+  public int getQueueCapacity() { return queueCapacity; }
+  public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+  public int getBatchSize() { return batchSize; }
+  public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+  public long getFlushIntervalMs() { return flushIntervalMs; }
+  public void setFlushIntervalMs(long flushIntervalMs) { this.flushIntervalMs = flushIntervalMs; }
+  public int getRetentionDays() { return retentionDays; }
+  public void setRetentionDays(int retentionDays) { this.retentionDays = retentionDays; }
+  public int getPartitionsAhead() { return partitionsAhead; }
+  public void setPartitionsAhead(int partitionsAhead) { this.partitionsAhead = partitionsAhead; }
+  public long getMaintenanceIntervalMinutes() { return maintenanceIntervalMinutes; }
+  public void setMaintenanceIntervalMinutes(long maintenanceIntervalMinutes) { this.maintenanceIntervalMinutes = maintenanceIntervalMinutes; }
+  public int getDefaultPageSize() { return defaultPageSize; }
+  public void setDefaultPageSize(int defaultPageSize) { this.defaultPageSize = defaultPageSize; }
+  public int getMaxPageSize() { return maxPageSize; }
+  public void setMaxPageSize(int maxPageSize) { this.maxPageSize = maxPageSize; }
+}
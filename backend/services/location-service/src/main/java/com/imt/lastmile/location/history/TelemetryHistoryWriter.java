@@ -0,0 +1,157 @@
+package com.imt.lastmile.location.history;
+
+import com.imt.lastmile.location.telemetry.DriverState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Appends every ping to the partitioned {@code driver_locations} history.
+ *
+ * <p>Pings are queued on the gRPC thread and written by a single background thread as multi-row
+ * inserts. History is best effort: a full queue, a ping outside the partitioned range or a failed
+ * insert drops rows and counts them rather than slowing ingestion down.
+ */
+@Component
+public class TelemetryHistoryWriter {
+  private static final Logger log = LoggerFactory.getLogger(TelemetryHistoryWriter.class);
+  private static final String INSERT_PREFIX = "insert into driver_locations (driver_id, route_id, area_id, occupancy, ts) values ";
+  private static final String ROW = "(?, ?, ?, ?, ?)";
+
+  private final JdbcTemplate jdbc;
+  private final HistoryProperties props;
+  private final HistoryPartitionManager partitions;
+  private final BlockingQueue<DriverState> queue;
+  private final Thread writer;
+  private volatile boolean stopped;
+
+  private final Counter written;
+  private final Counter dropped;
+  private final Counter outOfRange;
+  private final Counter failures;
+  private final DistributionSummary batchSize;
+
+  public TelemetryHistoryWriter(JdbcTemplate jdbc, HistoryProperties props, HistoryPartitionManager partitions, MeterRegistry registry) {
+    this.jdbc = jdbc;
+    this.props = props;
+    this.partitions = partitions;
+    this.queue = new ArrayBlockingQueue<>(props.getQueueCapacity());
+    this.written = registry.counter("location.history.rows.written");
+    this.dropped = Counter.builder("location.history.rows.dropped")
+        .description("Pings not recorded because the history queue was full or the insert failed")
+        .register(registry);
+    this.outOfRange = Counter.builder("location.history.rows.out.of.range")
+        .description("Pings whose timestamp has no partition, e.g. older than the retention window")
+        .register(registry);
+    this.failures = registry.counter("location.history.write.failures");
+    this.batchSize = DistributionSummary.builder("location.history.batch.size")
+        .description("Rows per history insert")
+        .register(registry);
+    registry.gauge("location.history.queue.depth", queue, BlockingQueue::size);
+
+    this.writer = new Thread(this::run, "telemetry-history-writer");
+    writer.setDaemon(true);
+    if (props.isEnabled()) {
+      writer.start();
+    }
+  }
+
+  public void append(DriverState state) {
+    if (!props.isEnabled()) {
+      return;
+    }
+    if (!queue.offer(state)) {
+      dropped.increment();
+    }
+  }
+
+  private void run() {
+    List<DriverState> batch = new ArrayList<>(props.getBatchSize());
+    while (!stopped || !queue.isEmpty()) {
+      try {
+        DriverState first = queue.poll(props.getFlushIntervalMs(), TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(props.getFlushIntervalMs());
+        while (batch.size() < props.getBatchSize()) {
+          long remaining = deadline - System.nanoTime();
+          DriverState next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+        write(batch);
+      } catch (InterruptedException ex) {
+        if (batch.isEmpty() && queue.isEmpty()) {
+          return;
+        }
+      } catch (Exception ex) {
+        log.warn("History writer error", ex);
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  private void write(List<DriverState> batch) {
+    List<DriverState> rows = new ArrayList<>(batch.size());
+    for (DriverState state : batch) {
+      if (partitions.covers(state.ts())) {
+        rows.add(state);
+      } else {
+        outOfRange.increment();
+      }
+    }
+    if (rows.isEmpty()) {
+      return;
+    }
+
+    StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows.size() * (ROW.length() + 2)).append(INSERT_PREFIX);
+    Object[] args = new Object[rows.size() * 5];
+    int a = 0;
+    for (int i = 0; i < rows.size(); i++) {
+      DriverState s = rows.get(i);
+      sql.append(i == 0 ? "" : ", ").append(ROW);
+      args[a++] = s.driverId();
+      args[a++] = s.routeId();
+      args[a++] = s.areaId();
+      args[a++] = s.occupancy();
+      args[a++] = OffsetDateTime.ofInstant(s.ts(), ZoneOffset.UTC);
+    }
+
+    try {
+      jdbc.update(sql.toString(), args);
+      written.increment(rows.size());
+      batchSize.record(rows.size());
+    } catch (Exception ex) {
+      failures.increment();
+      dropped.increment(rows.size());
+      log.warn("Failed to append {} history rows", rows.size(), ex);
+    }
+  }
+
+  @PreDestroy
+  void shutdown() {
+    stopped = true;
+    try {
+      writer.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
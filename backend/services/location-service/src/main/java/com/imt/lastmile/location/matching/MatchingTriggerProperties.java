@@ -0,0 +1,38 @@
+package com.imt.lastmile.location.matching;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "location.matching-trigger")
+public class MatchingTriggerProperties {
+  /** What to do with a new driver/station trigger when the queue is full */
+  public enum OverflowPolicy {
+    /** Reject the incoming trigger */
+    DROP_NEWEST,
+    /** Evict the trigger that has waited longest to make room */
+    DROP_OLDEST,
+    /** Send the incoming trigger on the telemetry thread */
+    CALLER_RUNS
+  }
+
+  /** Maximum distinct driver/station triggers waiting to be sent */
+  private int capacity = 10_000;
+  /** Worker threads calling matching-service concurrently */
+  private int concurrency = 8;
+  /** Behaviour once capacity is reached */
+  private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+  /** Deadline for each EvaluateDriver call */
+  private long deadlineMs = 2_000;
+  /** One EvaluateDriverRoute for every station in range instead of one EvaluateDriver per station */
+  private boolean routeRequests = true;
+
+  public int getCapacity() { return capacity; }
+  public void setCapacity(int capacity) { this.capacity = capacity; }
+  public int getConcurrency() { return concurrency; }
+  public void setConcurrency(int concurrency) { this.concurrency = concurrency; }
+  public OverflowPolicy getOverflowPolicy() { return overflowPolicy; }
+  public void setOverflowPolicy(OverflowPolicy overflowPolicy) { this.overflowPolicy = overflowPolicy; }
+  public long getDeadlineMs() { return deadlineMs; }
+  public void setDeadlineMs(long deadlineMs) { this.deadlineMs = deadlineMs; }
+  public boolean isRouteRequests() { return routeRequests; }
+  public void setRouteRequests(boolean routeRequests) { this.routeRequests = routeRequests; }
+}
@@ -0,0 +1,210 @@
+package com.imt.lastmile.location.matching;
+
+import com.imt.lastmile.location.matching.MatchingTriggerProperties.OverflowPolicy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import com.google.protobuf.Message;
+import lastmile.matching.EvaluateDriverRequest;
+import lastmile.matching.EvaluateDriverRouteRequest;
+import lastmile.matching.MatchingServiceGrpc;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sends EvaluateDriver triggers to matching-service off the telemetry thread.
+ *
+ * <p>Triggers are keyed by driver and station, or by driver alone for a route. While a key is
+ * waiting, newer triggers for it replace the queued request instead of queueing again, so only the
+ * freshest ETA is sent.
+ */
+@Component
+public class MatchingTriggerQueue {
+  private static final Logger log = LoggerFactory.getLogger(MatchingTriggerQueue.class);
+
+  private final MatchingTriggerProperties props;
+  private final Map<String, Trigger> pending = new ConcurrentHashMap<>();
+  private final BlockingQueue<String> ready;
+  private final ExecutorService workers;
+
+  private final Counter enqueued;
+  private final Counter coalesced;
+  private final Counter rejected;
+  private final Counter failed;
+  private final Timer queueWait;
+  private final Timer triggerLatency;
+
+  @GrpcClient("matching-service")
+  private MatchingServiceGrpc.MatchingServiceBlockingStub matchingClient;
+
+  public MatchingTriggerQueue(MatchingTriggerProperties props, MeterRegistry registry) {
+    this.props = props;
+    this.ready = new ArrayBlockingQueue<>(props.getCapacity());
+    AtomicInteger threadIds = new AtomicInteger();
+    this.workers = Executors.newFixedThreadPool(props.getConcurrency(), r -> {
+      Thread t = new Thread(r, "matching-trigger-" + threadIds.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+
+    this.enqueued = registry.counter("location.matching.trigger.enqueued");
+    this.coalesced = registry.counter("location.matching.trigger.coalesced");
+    this.rejected = Counter.builder("location.matching.trigger.rejected")
+        .tag("policy", props.getOverflowPolicy().name())
+        .register(registry);
+    this.failed = registry.counter("location.matching.trigger.failed");
+    this.queueWait = Timer.builder("location.matching.trigger.wait")
+        .description("Time a trigger spent queued before a worker picked it up")
+        .publishPercentiles(0.5, 0.99)
+        .register(registry);
+    this.triggerLatency = Timer.builder("location.matching.trigger.latency")
+        .description("Time from enqueue until matching-service answered")
+        .publishPercentiles(0.5, 0.99)
+        .register(registry);
+    registry.gauge("location.matching.trigger.queue.depth", ready, BlockingQueue::size);
+  }
+
+  @PostConstruct
+  void start() {
+    for (int i = 0; i < props.getConcurrency(); i++) {
+      workers.execute(this::drain);
+    }
+  }
+
+  @PreDestroy
+  void stop() {
+    workers.shutdownNow();
+  }
+
+  /**
+   * Queues an evaluation for the request's driver and station.
+   *
+   * @param onDelivered run on the worker thread once matching-service accepted the request
+   */
+  public void submit(EvaluateDriverRequest request, Runnable onDelivered) {
+    enqueue(request.getDriverId() + "|" + request.getStationAreaId(), request, onDelivered);
+  }
+
+  /**
+   * Queues one evaluation for every station in the request, replacing the driver's waiting route.
+   *
+   * @param onDelivered run on the worker thread once matching-service accepted the request
+   */
+  public void submit(EvaluateDriverRouteRequest request, Runnable onDelivered) {
+    enqueue(request.getDriverId(), request, onDelivered);
+  }
+
+  private void enqueue(String key, Message request, Runnable onDelivered) {
+    Trigger trigger = new Trigger(request, onDelivered, System.nanoTime());
+    enqueued.increment();
+    OverflowPolicy policy = props.getOverflowPolicy();
+    Placement placement = place(key, trigger);
+    if (placement == Placement.FULL && policy == OverflowPolicy.DROP_OLDEST) {
+      String oldest = ready.poll();
+      if (oldest != null && pending.remove(oldest) != null) {
+        rejected.increment();
+      }
+      placement = place(key, trigger);
+    }
+    switch (placement) {
+      // Key is already queued; the worker will pick up this newer request instead
+      case COALESCED -> coalesced.increment();
+      case QUEUED -> { }
+      case FULL -> {
+        if (policy == OverflowPolicy.CALLER_RUNS) {
+          send(trigger);
+        } else {
+          rejected.increment();
+        }
+      }
+    }
+  }
+
+  /**
+   * Stores the key's trigger and queues the key unless it is already waiting. Runs inside
+   * {@code pending.compute}, so for one key it is atomic with other enqueues and with the worker's
+   * removal: a trigger is pending exactly while its key is in {@code ready} or about to be sent.
+   * With {@code ready} full nothing is stored.
+   */
+  private Placement place(String key, Trigger trigger) {
+    Placement[] placement = new Placement[1];
+    pending.compute(key, (k, waiting) -> {
+      if (waiting != null) {
+        placement[0] = Placement.COALESCED;
+        return trigger;
+      }
+      if (ready.offer(k)) {
+        placement[0] = Placement.QUEUED;
+        return trigger;
+      }
+      placement[0] = Placement.FULL;
+      return null;
+    });
+    return placement[0];
+  }
+
+  /** True if drivers are evaluated with one route request for all stations in range. */
+  public boolean routeRequests() {
+    return props.isRouteRequests();
+  }
+
+  /** Fraction of queue capacity in use, from 0 to 1. */
+  public double load() {
+    return (double) ready.size() / props.getCapacity();
+  }
+
+  private void drain() {
+    while (!Thread.currentThread().isInterrupted()) {
+      String key;
+      try {
+        key = ready.take();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      Trigger trigger = pending.remove(key);
+      if (trigger != null) {
+        queueWait.record(System.nanoTime() - trigger.enqueuedNanos, TimeUnit.NANOSECONDS);
+        send(trigger);
+      }
+    }
+  }
+
+  private void send(Trigger trigger) {
+    MatchingServiceGrpc.MatchingServiceBlockingStub client =
+        matchingClient.withDeadlineAfter(props.getDeadlineMs(), TimeUnit.MILLISECONDS);
+    try {
+      if (trigger.request instanceof EvaluateDriverRouteRequest route) {
+        client.evaluateDriverRoute(route);
+      } else {
+        client.evaluateDriver((EvaluateDriverRequest) trigger.request);
+      }
+      triggerLatency.record(System.nanoTime() - trigger.enqueuedNanos, TimeUnit.NANOSECONDS);
+      trigger.onDelivered.run();
+    } catch (Exception ex) {
+      failed.increment();
+      if (trigger.request instanceof EvaluateDriverRouteRequest route) {
+        log.warn("Failed to evaluate driver {} on route {}", route.getDriverId(), route.getRouteId(), ex);
+      } else {
+        EvaluateDriverRequest request = (EvaluateDriverRequest) trigger.request;
+        log.warn("Failed to evaluate driver {} at station {}", request.getDriverId(), request.getStationAreaId(), ex);
+      }
+    }
+  }
+
+  private enum Placement { QUEUED, COALESCED, FULL }
+
+  private record Trigger(Message request, Runnable onDelivered, long enqueuedNanos) {}
+}
@@ -1,9 +1,25 @@
 package com.imt.lastmile.location.repo;
 
 import com.imt.lastmile.location.domain.DriverLocationEntity;
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 public interface DriverLocationRepository extends JpaRepository<DriverLocationEntity, Long> {
   Optional<DriverLocationEntity> findFirstByDriverIdOrderByTsDesc(String driverId);
+
+  /** Next page of a driver's track after the keyset cursor {@code (afterTs, afterId)}, stopping before {@code to}. */
+  @Query("""
+      select l from DriverLocationEntity l
+       where l.driverId = :driverId
+         and l.ts < :to
+         and (l.ts > :afterTs or (l.ts = :afterTs and l.id > :afterId))
+       order by l.ts, l.id
+      """)
+  List<DriverLocationEntity> findTrackPage(@Param("driverId") String driverId, @Param("afterTs") Instant afterTs,
+      @Param("afterId") long afterId, @Param("to") Instant to, Pageable page);
 }
@@ -1,9 +1,14 @@
 package com.imt.lastmile.location.repo;
 
 import com.imt.lastmile.location.domain.DriverTelemetryEntity;
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 public interface DriverTelemetryRepository extends JpaRepository<DriverTelemetryEntity, String> {
   Optional<DriverTelemetryEntity> findByDriverId(String driverId);
+
+  List<DriverTelemetryEntity> findByTsAfterOrderByTsDesc(Instant since, Pageable page);
 }
@@ -0,0 +1,146 @@
+package com.imt.lastmile.location.route;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import lastmile.driver.RoutePlan;
+import lastmile.driver.RouteStop;
+
+/**
+ * Immutable, array-backed view of a {@link RoutePlan} built once per cached route.
+ *
+ * <p>Stops are ordered by sequence and addressed by index. Area lookups are hash lookups and
+ * "stations within N minutes" is a binary search over station offsets, so the per-ping path
+ * allocates nothing.
+ */
+public final class CompiledRoute {
+  public static final int NOT_FOUND = -1;
+
+  private final String routeId;
+  private final String driverId;
+  private final String finalAreaId;
+  private final String[] areaIds;
+  private final int[] sequences;
+  private final int[] offsets;
+  /** First (lowest sequence) stop index for each area on the route */
+  private final Map<String, Integer> stopIndexByArea;
+  /** First station stop index for each station area on the route */
+  private final Map<String, Integer> stationStopByArea;
+  /** Stop indices of station stops, ascending */
+  private final int[] stationStops;
+  /** Arrival offsets of {@link #stationStops}, non-decreasing */
+  private final int[] stationOffsets;
+
+  private CompiledRoute(RoutePlan plan) {
+    List<RouteStop> stops = plan.getStopsList();
+    RouteStop[] ordered = stops.stream()
+        .sorted(Comparator.comparingInt(RouteStop::getSequence))
+        .toArray(RouteStop[]::new);
+    int n = ordered.length;
+
+    this.routeId = plan.getRouteId();
+    this.driverId = plan.getDriverId();
+    this.finalAreaId = plan.getFinalAreaId();
+    this.areaIds = new String[n];
+    this.sequences = new int[n];
+    this.offsets = new int[n];
+    this.stopIndexByArea = new HashMap<>(n * 2);
+    this.stationStopByArea = new HashMap<>();
+
+    int stationCount = 0;
+    for (int i = 0; i < n; i++) {
+      RouteStop stop = ordered[i];
+      if (i > 0 && stop.getArrivalOffsetMinutes() < offsets[i - 1]) {
+        throw new IllegalArgumentException("Route " + routeId + " has decreasing arrival offsets");
+      }
+      areaIds[i] = stop.getAreaId();
+      sequences[i] = stop.getSequence();
+      offsets[i] = stop.getArrivalOffsetMinutes();
+      stopIndexByArea.putIfAbsent(stop.getAreaId(), i);
+      if (stop.getIsStation()) {
+        stationStopByArea.putIfAbsent(stop.getAreaId(), i);
+        stationCount++;
+      }
+    }
+
+    this.stationStops = IntStream.range(0, n).filter(i -> ordered[i].getIsStation()).toArray();
+    this.stationOffsets = new int[stationCount];
+    for (int s = 0; s < stationCount; s++) {
+      stationOffsets[s] = offsets[stationStops[s]];
+    }
+  }
+
+  /**
+   * @throws IllegalArgumentException if arrival offsets decrease along the route; driver-service
+   *     rejects such routes at registration
+   */
+  public static CompiledRoute compile(RoutePlan plan) {
+    return new CompiledRoute(plan);
+  }
+
+  public String routeId() { return routeId; }
+  public String driverId() { return driverId; }
+  public String finalAreaId() { return finalAreaId; }
+  public int stopCount() { return areaIds.length; }
+  public String areaIdAt(int stopIndex) { return areaIds[stopIndex]; }
+  public int sequenceAt(int stopIndex) { return sequences[stopIndex]; }
+  public int offsetAt(int stopIndex) { return offsets[stopIndex]; }
+
+  /** Index of the first stop in {@code areaId}, or {@link #NOT_FOUND}. */
+  public int stopIndexOf(String areaId) {
+    Integer idx = stopIndexByArea.get(areaId);
+    return idx == null ? NOT_FOUND : idx;
+  }
+
+  /** Index of the first station stop in {@code areaId}, or {@link #NOT_FOUND}. */
+  public int stationStopIndexOf(String areaId) {
+    Integer idx = stationStopByArea.get(areaId);
+    return idx == null ? NOT_FOUND : idx;
+  }
+
+  /**
+   * Minutes from the first stop in {@code currentAreaId} to the station stop in
+   * {@code stationAreaId}, or {@link #NOT_FOUND} if either is not on the route or the station is
+   * already behind the driver.
+   */
+  public int etaMinutes(String currentAreaId, String stationAreaId) {
+    int current = stopIndexOf(currentAreaId);
+    int target = stationStopIndexOf(stationAreaId);
+    if (current == NOT_FOUND || target == NOT_FOUND || sequences[target] < sequences[current]) {
+      return NOT_FOUND;
+    }
+    return offsets[target] - offsets[current];
+  }
+
+  public int stationCount() { return stationStops.length; }
+
+  /** Stop index of the {@code station}-th station on the route. */
+  public int stationStopAt(int station) { return stationStops[station]; }
+
+  /** Position in the station index of the first station at or after {@code stopIndex}. */
+  public int firstStationFrom(int stopIndex) {
+    int pos = Arrays.binarySearch(stationStops, stopIndex);
+    return pos >= 0 ? pos : -pos - 1;
+  }
+
+  /**
+   * Exclusive end of the stations, starting at {@code fromStation}, whose arrival offset is at most
+   * {@code maxOffset}.
+   */
+  public int stationsEndWithin(int fromStation, int maxOffset) {
+    int lo = fromStation;
+    int hi = stationOffsets.length;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (stationOffsets[mid] <= maxOffset) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+}
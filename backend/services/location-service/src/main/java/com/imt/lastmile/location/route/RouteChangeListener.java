@@ -0,0 +1,95 @@
+package com.imt.lastmile.location.route;
+
+import io.grpc.stub.StreamObserver;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lastmile.driver.DriverServiceGrpc;
+import lastmile.driver.RouteChange;
+import lastmile.driver.WatchRouteChangesRequest;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps {@link RoutePlanCache} in sync with driver-service's WatchRouteChanges feed, reconnecting
+ * with backoff and resuming from the last version applied.
+ */
+@Component
+public class RouteChangeListener {
+  private static final Logger log = LoggerFactory.getLogger(RouteChangeListener.class);
+  private static final long MIN_BACKOFF_MS = 1_000;
+  private static final long MAX_BACKOFF_MS = 30_000;
+
+  private final RoutePlanCache cache;
+  private final ScheduledExecutorService reconnects = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread t = new Thread(r, "route-change-reconnect");
+    t.setDaemon(true);
+    return t;
+  });
+  private volatile long lastVersion;
+  private volatile long backoffMs = MIN_BACKOFF_MS;
+  private volatile boolean stopped;
+
+  @GrpcClient("driver-service")
+  private DriverServiceGrpc.DriverServiceStub driverStub;
+
+  public RouteChangeListener(RoutePlanCache cache) {
+    this.cache = cache;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  void start() {
+    connect();
+  }
+
+  @PreDestroy
+  void stop() {
+    stopped = true;
+    reconnects.shutdownNow();
+  }
+
+  private void connect() {
+    if (stopped) {
+      return;
+    }
+    WatchRouteChangesRequest request = WatchRouteChangesRequest.newBuilder().setSinceVersion(lastVersion).build();
+    driverStub.watchRouteChanges(request, new StreamObserver<>() {
+      @Override
+      public void onNext(RouteChange change) {
+        cache.apply(change);
+        lastVersion = Math.max(lastVersion, change.getVersion());
+        if (change.getKind() == RouteChange.Kind.SUBSCRIBED) {
+          log.info("Watching route changes from version {}", change.getVersion());
+          backoffMs = MIN_BACKOFF_MS;
+          cache.setFeedConnected(true);
+        }
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        log.warn("Route change feed disconnected, retrying in {} ms: {}", backoffMs, t.getMessage());
+        scheduleReconnect();
+      }
+
+      @Override
+      public void onCompleted() {
+        scheduleReconnect();
+      }
+    });
+  }
+
+  private void scheduleReconnect() {
+    cache.setFeedConnected(false);
+    if (stopped) {
+      return;
+    }
+    long delay = backoffMs;
+    backoffMs = Math.min(backoffMs * 2, MAX_BACKOFF_MS);
+    reconnects.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+  }
+}
@@ -0,0 +1,184 @@
+package com.imt.lastmile.location.route;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.imt.lastmile.location.cache.BoundedCaches;
+import com.imt.lastmile.location.cache.CacheProperties.Spec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import lastmile.driver.DriverId;
+import lastmile.driver.DriverProfile;
+import lastmile.driver.DriverServiceGrpc;
+import lastmile.driver.RouteChange;
+import lastmile.driver.RoutePlan;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Compiled routes and driver capacities fetched from driver-service.
+ *
+ * <p>While {@link RouteChangeListener} is connected to driver-service's change feed, entries are
+ * kept current by pushed changes and never expire. While it is disconnected they fall back to a
+ * jittered TTL so entries cached together do not all refetch at once.
+ *
+ * <p>Each entry remembers the count of feed changes applied when it was written. A profile fetched
+ * from driver-service is older than any change that arrives while the fetch is in flight, so its
+ * routes never replace an entry written by such a change.
+ */
+@Component
+public class RoutePlanCache {
+  private static final Logger log = LoggerFactory.getLogger(RoutePlanCache.class);
+  static final Duration ROUTE_CACHE_TTL = Duration.ofMinutes(5);
+
+  private final Map<String, CachedRoute> routes;
+  private final Map<String, Integer> driverCapacity;
+  private volatile boolean feedConnected;
+  /** Feed changes applied so far */
+  private final AtomicLong changes = new AtomicLong();
+  /** Value of {@link #changes} at the last RESYNC; fetches started before it cache nothing */
+  private volatile long resyncedAt;
+
+  @GrpcClient("driver-service")
+  private DriverServiceGrpc.DriverServiceBlockingStub driverClient;
+
+  public RoutePlanCache(BoundedCaches caches) {
+    // Weighted by stop count so a few very long routes cannot crowd out the fleet
+    Cache<String, CachedRoute> routeEntries = caches.build("routes",
+        new Spec(null, 500_000L, null, Duration.ofHours(6)),
+        (String id, CachedRoute cached) -> cached.route.stopCount() + 1,
+        null);
+    Cache<String, Integer> capacityEntries = caches.build("driver-capacity",
+        new Spec(100_000L, null, null, Duration.ofHours(6)));
+    this.routes = routeEntries.asMap();
+    this.driverCapacity = capacityEntries.asMap();
+  }
+
+  /** Returns the compiled route, fetching the driver's profile on a miss; null if unavailable. */
+  public CompiledRoute resolve(String driverId, String routeId) {
+    if (routeId == null || routeId.isBlank()) {
+      return null;
+    }
+    CachedRoute cached = routes.get(routeId);
+    Instant now = Instant.now();
+    if (cached != null && (feedConnected || now.isBefore(cached.expiresAt))) {
+      driverCapacity.putIfAbsent(driverId, cached.capacity);
+      return cached.route;
+    }
+
+    long fetchedAt = changes.get();
+    try {
+      DriverProfile profile = driverClient.getDriver(DriverId.newBuilder().setId(driverId).build());
+      if (changes.get() == fetchedAt) {
+        driverCapacity.put(driverId, profile.getCapacity());
+      } else {
+        driverCapacity.putIfAbsent(driverId, profile.getCapacity());
+      }
+      profile.getRoutesList().forEach(plan -> put(plan, profile.getCapacity(), now, fetchedAt));
+      CachedRoute refreshed = routes.get(routeId);
+      return refreshed != null ? refreshed.route : null;
+    } catch (Exception ex) {
+      log.warn("Unable to fetch route {} for driver {}", routeId, driverId, ex);
+      return null;
+    }
+  }
+
+  /** The compiled route if it is cached and current; never calls driver-service. */
+  public CompiledRoute cached(String routeId) {
+    if (routeId == null || routeId.isBlank()) {
+      return null;
+    }
+    CachedRoute cached = routes.get(routeId);
+    return cached != null && (feedConnected || Instant.now().isBefore(cached.expiresAt)) ? cached.route : null;
+  }
+
+  /** Seats in the driver's vehicle, or 0 if no profile has been seen yet. */
+  public int capacity(String driverId) {
+    return driverCapacity.getOrDefault(driverId, 0);
+  }
+
+  /**
+   * Loads routes for drivers not cached yet, e.g. on startup. Drivers are fetched one profile at a
+   * time; failures are logged and skipped.
+   *
+   * @param routeByDriver driverId to the route the driver last reported
+   */
+  public void warmUp(Map<String, String> routeByDriver) {
+    int loaded = 0;
+    for (Map.Entry<String, String> entry : routeByDriver.entrySet()) {
+      if (!routes.containsKey(entry.getValue()) && resolve(entry.getKey(), entry.getValue()) != null) {
+        loaded++;
+      }
+    }
+    log.info("Warmed route cache with {} of {} active drivers", loaded, routeByDriver.size());
+  }
+
+  void apply(RouteChange change) {
+    switch (change.getKind()) {
+      case ROUTE_UPSERTED -> {
+        long written = changes.incrementAndGet();
+        driverCapacity.put(change.getDriverId(), change.getCapacity());
+        put(change.getRoute(), change.getCapacity(), Instant.now(), written);
+      }
+      case CAPACITY_CHANGED -> {
+        long written = changes.incrementAndGet();
+        driverCapacity.put(change.getDriverId(), change.getCapacity());
+        routes.replaceAll((id, cached) -> cached.route.driverId().equals(change.getDriverId())
+            ? new CachedRoute(cached.route, cached.expiresAt, change.getCapacity(), written)
+            : cached);
+      }
+      case RESYNC -> {
+        // Set before clearing: a fetch writing concurrently either sees it or is cleared after
+        resyncedAt = changes.incrementAndGet();
+        invalidateAll();
+      }
+      default -> { }
+    }
+  }
+
+  void invalidateAll() {
+    routes.clear();
+    driverCapacity.clear();
+  }
+
+  void setFeedConnected(boolean connected) {
+    if (feedConnected && !connected) {
+      // Entries were current up to now; start their TTL from the disconnect instead of from the
+      // original fetch so the whole cache does not expire at once
+      Instant now = Instant.now();
+      routes.replaceAll((id, cached) -> new CachedRoute(cached.route, expiryFrom(now), cached.capacity, cached.written));
+    }
+    this.feedConnected = connected;
+  }
+
+  /**
+   * Caches a plan unless the entry already holds a newer one.
+   *
+   * @param written {@link #changes} when the plan was current
+   */
+  private void put(RoutePlan plan, int capacity, Instant now, long written) {
+    try {
+      CachedRoute fresh = new CachedRoute(CompiledRoute.compile(plan), expiryFrom(now), capacity, written);
+      routes.compute(plan.getRouteId(), (id, cached) -> {
+        if (written < resyncedAt) {
+          return cached;
+        }
+        return cached != null && cached.written > written ? cached : fresh;
+      });
+    } catch (IllegalArgumentException ex) {
+      log.warn("Skipping route {}: {}", plan.getRouteId(), ex.getMessage());
+    }
+  }
+
+  /** TTL with +/-20% jitter. */
+  private static Instant expiryFrom(Instant now) {
+    long ttlMillis = ROUTE_CACHE_TTL.toMillis();
+    long jitter = ThreadLocalRandom.current().nextLong(-ttlMillis / 5, ttlMillis / 5 + 1);
+    return now.plusMillis(ttlMillis + jitter);
+  }
+
+  private record CachedRoute(CompiledRoute route, Instant expiresAt, int capacity, long written) {}
+}
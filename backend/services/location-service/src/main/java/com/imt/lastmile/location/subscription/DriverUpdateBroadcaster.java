@@ -0,0 +1,180 @@
+package com.imt.lastmile.location.subscription;
+
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.imt.lastmile.location.cache.BoundedCaches;
+import com.imt.lastmile.location.cache.CacheProperties.Spec;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import lastmile.location.DriverSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fans driver snapshots out to SubscribeDriverUpdates streams.
+ *
+ * <p>Each subscriber has a one-slot mailbox: publishing never blocks and never queues more than the
+ * newest snapshot, so a slow client only ever misses intermediate positions. The mailbox is drained
+ * while the transport reports the stream ready and again from its onReady callback; cancelled or
+ * expired streams are dropped from the index by their cancel handler.
+ */
+@Component
+public class DriverUpdateBroadcaster {
+  private static final Logger log = LoggerFactory.getLogger(DriverUpdateBroadcaster.class);
+
+  private final Map<String, Set<Subscriber>> subscribersByDriver;
+  private final AtomicInteger subscriberCount = new AtomicInteger();
+  private final Counter published;
+  private final Counter conflated;
+  private final Timer queueAge;
+
+  public DriverUpdateBroadcaster(BoundedCaches caches, MeterRegistry registry) {
+    this.subscribersByDriver = caches.<String, Set<Subscriber>>build("driver-streams",
+        new Spec(50_000L, null, null, null), null,
+        (driverId, subscribers, cause) -> {
+          if (cause == RemovalCause.SIZE && subscribers != null) {
+            subscribers.forEach(s -> s.close(Status.RESOURCE_EXHAUSTED.withDescription("too many watched drivers")));
+          }
+        }).asMap();
+    this.published = Counter.builder("location.updates.published")
+        .description("Snapshots offered to subscriber mailboxes")
+        .register(registry);
+    this.conflated = Counter.builder("location.updates.conflated")
+        .description("Snapshots replaced in a mailbox before the subscriber was ready for them")
+        .register(registry);
+    this.queueAge = Timer.builder("location.updates.queue.age")
+        .description("Time a snapshot waited in a subscriber mailbox before being sent")
+        .publishPercentiles(0.5, 0.99)
+        .register(registry);
+    registry.gauge("location.updates.subscribers", subscriberCount);
+  }
+
+  /**
+   * Registers {@code observer} for the driver's updates until the client cancels or the deadline
+   * passes. Must be called from the gRPC handler so the callbacks are installed in time.
+   *
+   * @param initial sent first if not null
+   */
+  public void subscribe(String driverId, StreamObserver<DriverSnapshot> observer, DriverSnapshot initial) {
+    Subscriber subscriber = new Subscriber(driverId, observer);
+    if (observer instanceof ServerCallStreamObserver<DriverSnapshot> serverObserver) {
+      serverObserver.setOnCancelHandler(() -> remove(subscriber));
+      serverObserver.setOnReadyHandler(subscriber::drain);
+    }
+    // Added inside compute so a concurrent remove() cannot drop the set between lookup and add
+    subscribersByDriver.compute(driverId, (k, subscribers) -> {
+      Set<Subscriber> set = subscribers != null ? subscribers : ConcurrentHashMap.newKeySet();
+      set.add(subscriber);
+      return set;
+    });
+    subscriberCount.incrementAndGet();
+    // A cancel that fired before registration found nothing to remove
+    if (observer instanceof ServerCallStreamObserver<DriverSnapshot> serverObserver && serverObserver.isCancelled()) {
+      remove(subscriber);
+      return;
+    }
+    if (initial != null) {
+      subscriber.offer(initial);
+    }
+  }
+
+  public boolean hasSubscribers(String driverId) {
+    Set<Subscriber> subscribers = subscribersByDriver.get(driverId);
+    return subscribers != null && !subscribers.isEmpty();
+  }
+
+  public void publish(DriverSnapshot snapshot) {
+    Set<Subscriber> subscribers = subscribersByDriver.get(snapshot.getDriverId());
+    if (subscribers == null) {
+      return;
+    }
+    for (Subscriber subscriber : subscribers) {
+      subscriber.offer(snapshot);
+    }
+  }
+
+  private void remove(Subscriber subscriber) {
+    boolean[] removed = new boolean[1];
+    subscribersByDriver.computeIfPresent(subscriber.driverId, (id, subscribers) -> {
+      removed[0] = subscribers.remove(subscriber);
+      return subscribers.isEmpty() ? null : subscribers;
+    });
+    if (removed[0]) {
+      subscriberCount.decrementAndGet();
+    }
+  }
+
+  private record Mail(DriverSnapshot snapshot, long enqueuedNanos) {}
+
+  private final class Subscriber {
+    private final String driverId;
+    private final StreamObserver<DriverSnapshot> observer;
+    private final ServerCallStreamObserver<DriverSnapshot> flowControl;
+    private final AtomicReference<Mail> mailbox = new AtomicReference<>();
+    /** Guarded by this; once set nothing more is written to the stream */
+    private boolean closed;
+
+    Subscriber(String driverId, StreamObserver<DriverSnapshot> observer) {
+      this.driverId = driverId;
+      this.observer = observer;
+      this.flowControl = observer instanceof ServerCallStreamObserver<DriverSnapshot> s ? s : null;
+    }
+
+    void offer(DriverSnapshot snapshot) {
+      published.increment();
+      long now = System.nanoTime();
+      // Keep the newest snapshot but the oldest enqueue time, so queue age covers the whole wait
+      Mail previous = mailbox.getAndUpdate(old -> new Mail(snapshot, old == null ? now : old.enqueuedNanos));
+      if (previous != null) {
+        conflated.increment();
+      }
+      drain();
+    }
+
+    synchronized void drain() {
+      if (closed) {
+        return;
+      }
+      if (flowControl != null && flowControl.isCancelled()) {
+        closed = true;
+        remove(this);
+        return;
+      }
+      Mail mail;
+      while ((flowControl == null || flowControl.isReady()) && (mail = mailbox.getAndSet(null)) != null) {
+        try {
+          observer.onNext(mail.snapshot);
+        } catch (Exception ex) {
+          log.warn("Removing defunct subscriber for driver {}", driverId);
+          closed = true;
+          remove(this);
+          return;
+        }
+        queueAge.record(System.nanoTime() - mail.enqueuedNanos, TimeUnit.NANOSECONDS);
+      }
+    }
+
+    synchronized void close(Status status) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      subscriberCount.decrementAndGet();
+      try {
+        observer.onError(status.asRuntimeException());
+      } catch (Exception ignored) {
+        // already closed by the client
+      }
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package com.imt.lastmile.location.telemetry;
+
+import com.imt.lastmile.location.domain.DriverTelemetryEntity;
+import java.time.Instant;
+
+/** Latest known position of a driver as held by {@link DriverStateTable}. */
+public record DriverState(String driverId, String routeId, String areaId, int occupancy, Instant ts) {
+
+  static DriverState of(DriverTelemetryEntity entity) {
+    return new DriverState(entity.getDriverId(), entity.getRouteId(), entity.getAreaId(), entity.getOccupancy(), entity.getTs());
+  }
+
+  boolean isOlderThan(DriverState other) {
+    return ts.isBefore(other.ts);
+  }
+}
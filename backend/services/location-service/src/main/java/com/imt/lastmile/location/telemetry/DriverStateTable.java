@@ -0,0 +1,271 @@
+package com.imt.lastmile.location.telemetry;
+
+import com.imt.lastmile.location.repo.DriverTelemetryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory table of the newest telemetry per driver, written behind to {@code driver_telemetry}.
+ *
+ * <p>Pings only touch memory on the gRPC thread. A background flusher upserts the newest row per
+ * driver in JDBC batches, so a driver pinging several times between flushes costs one row write.
+ */
+@Component
+public class DriverStateTable {
+  private static final Logger log = LoggerFactory.getLogger(DriverStateTable.class);
+  private static final String UPSERT_SQL = """
+      insert into driver_telemetry (driver_id, route_id, area_id, occupancy, ts)
+      values (?, ?, ?, ?, ?)
+      on conflict (driver_id) do update
+        set route_id = excluded.route_id,
+            area_id = excluded.area_id,
+            occupancy = excluded.occupancy,
+            ts = excluded.ts
+        where driver_telemetry.ts <= excluded.ts
+      """;
+
+  private final DriverTelemetryRepository repo;
+  private final JdbcTemplate jdbc;
+  private final TelemetryBufferProperties props;
+  private final Map<String, DriverState> latest = new ConcurrentHashMap<>();
+  private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+  private final AtomicBoolean earlyFlushScheduled = new AtomicBoolean();
+  /** Flush runs started so far; a run with a higher number includes everything recorded before it began */
+  private final AtomicLong flushesStarted = new AtomicLong();
+  /** Highest flush run that wrote everything it set out to write */
+  private volatile long durableEpoch;
+  private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread t = new Thread(r, "telemetry-flusher");
+    t.setDaemon(true);
+    return t;
+  });
+
+  private final Timer flushLag;
+  private final DistributionSummary batchSize;
+  private final Counter droppedWrites;
+  private final Counter flushFailures;
+
+  public DriverStateTable(DriverTelemetryRepository repo, JdbcTemplate jdbc, TelemetryBufferProperties props, MeterRegistry registry) {
+    this.repo = repo;
+    this.jdbc = jdbc;
+    this.props = props;
+    this.flushLag = Timer.builder("location.telemetry.flush.lag")
+        .description("Time a driver's newest ping waited in memory before reaching the database")
+        .publishPercentiles(0.5, 0.99)
+        .register(registry);
+    this.batchSize = DistributionSummary.builder("location.telemetry.flush.batch.size")
+        .description("Rows per telemetry upsert batch")
+        .register(registry);
+    this.droppedWrites = Counter.builder("location.telemetry.writes.dropped")
+        .description("Telemetry writes discarded because the pending buffer was full")
+        .register(registry);
+    this.flushFailures = Counter.builder("location.telemetry.flush.failures")
+        .description("Telemetry upsert batches that failed and were re-queued")
+        .register(registry);
+    registry.gauge("location.telemetry.pending", pending, Map::size);
+    registry.gauge("location.telemetry.drivers", latest, Map::size);
+
+    flusher.scheduleWithFixedDelay(this::flushSafely, props.getFlushIntervalMs(), props.getFlushIntervalMs(), TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Outcome of {@link #record}: the driver's current state and whether the ping became it. Once
+   * {@link #durableEpoch()} reaches {@code epoch}, the ping (or a newer one for the same driver) is
+   * in the database, unless it was {@code dropped} because the pending buffer was full.
+   */
+  public record Recorded(DriverState state, boolean applied, long epoch, boolean dropped) {}
+
+  /**
+   * Records a ping and queues it for persistence. Pings older than the state already held for the
+   * driver are ignored, so out-of-order delivery never rolls a driver back.
+   *
+   * @return the driver's current state after the ping, not applied if the ping was stale
+   */
+  public Recorded record(String driverId, String routeId, String areaId, int occupancy, Instant ts) {
+    DriverState incoming = new DriverState(driverId, routeId, areaId, occupancy, ts);
+    DriverState current = latest.merge(driverId, incoming, (old, neu) -> neu.isOlderThan(old) ? old : neu);
+    if (current != incoming) {
+      // The newer state that won was queued before now, so it lands in this epoch at the latest
+      return new Recorded(current, false, nextFlushEpoch(), false);
+    }
+
+    boolean dropped = !pending.containsKey(driverId) && pending.size() >= props.getMaxPending();
+    if (dropped) {
+      droppedWrites.increment();
+    } else {
+      pending.merge(driverId, new Pending(incoming, System.nanoTime()), Pending::coalesce);
+    }
+    // Read after the merge: a flush that started earlier may have missed the ping, the next one cannot
+    long epoch = nextFlushEpoch();
+    if (pending.size() >= props.getBatchSize() && earlyFlushScheduled.compareAndSet(false, true)) {
+      flusher.execute(() -> {
+        earlyFlushScheduled.set(false);
+        flushSafely();
+      });
+    }
+    return new Recorded(incoming, true, epoch, dropped);
+  }
+
+  /** Whether pings from drivers not already pending would currently be dropped. */
+  public boolean isSaturated() {
+    return pending.size() >= props.getMaxPending();
+  }
+
+  /** Fraction of the pending buffer in use, from 0 to 1. */
+  public double load() {
+    return (double) pending.size() / props.getMaxPending();
+  }
+
+  /** The first flush run that has not started yet, and so includes everything pending now. */
+  private long nextFlushEpoch() {
+    return flushesStarted.get() + 1;
+  }
+
+  public long durableEpoch() {
+    return durableEpoch;
+  }
+
+  /** The driver's state if it is held in memory; never touches the database. */
+  public Optional<DriverState> peek(String driverId) {
+    return Optional.ofNullable(latest.get(driverId));
+  }
+
+  /** Live, read-only view of every driver held in memory. */
+  public Collection<DriverState> states() {
+    return Collections.unmodifiableCollection(latest.values());
+  }
+
+  /** Returns the driver's latest state, loading it from the database on first access. */
+  public Optional<DriverState> find(String driverId) {
+    DriverState state = latest.get(driverId);
+    if (state != null) {
+      return Optional.of(state);
+    }
+    return repo.findByDriverId(driverId)
+        .map(DriverState::of)
+        .map(loaded -> latest.merge(driverId, loaded, (old, neu) -> neu.isOlderThan(old) ? old : neu));
+  }
+
+  /**
+   * Preloads drivers that pinged after {@code since}, newest first, up to {@code limit}. State
+   * already in memory wins over the loaded rows.
+   *
+   * @return the states loaded
+   */
+  public List<DriverState> warmUp(Instant since, int limit) {
+    List<DriverState> loaded = repo.findByTsAfterOrderByTsDesc(since, PageRequest.of(0, limit)).stream()
+        .map(DriverState::of)
+        .toList();
+    loaded.forEach(state -> latest.merge(state.driverId(), state, (old, neu) -> neu.isOlderThan(old) ? old : neu));
+    return loaded;
+  }
+
+  private void flushSafely() {
+    try {
+      flush();
+    } catch (Exception ex) {
+      log.warn("Telemetry flush failed", ex);
+    }
+  }
+
+  /** Drains every driver pending at call time; drivers first seen meanwhile wait for the next run. */
+  void flush() {
+    long epoch = flushesStarted.incrementAndGet();
+    List<String> drivers = new ArrayList<>(pending.keySet());
+    List<Pending> batch = new ArrayList<>(Math.min(drivers.size(), props.getBatchSize()));
+    for (String driverId : drivers) {
+      Pending p = pending.remove(driverId);
+      if (p != null) {
+        batch.add(p);
+      }
+      if (batch.size() >= props.getBatchSize()) {
+        if (!write(batch)) {
+          return;
+        }
+        batch = new ArrayList<>(props.getBatchSize());
+      }
+    }
+    if (!batch.isEmpty() && !write(batch)) {
+      return;
+    }
+    durableEpoch = epoch;
+  }
+
+  private boolean write(List<Pending> batch) {
+    try {
+      jdbc.batchUpdate(UPSERT_SQL, new BatchPreparedStatementSetter() {
+        @Override
+        public void setValues(PreparedStatement ps, int i) throws SQLException {
+          DriverState s = batch.get(i).state;
+          ps.setString(1, s.driverId());
+          ps.setString(2, s.routeId());
+          ps.setString(3, s.areaId());
+          ps.setInt(4, s.occupancy());
+          ps.setObject(5, OffsetDateTime.ofInstant(s.ts(), ZoneOffset.UTC));
+        }
+
+        @Override
+        public int getBatchSize() {
+          return batch.size();
+        }
+      });
+    } catch (Exception ex) {
+      flushFailures.increment();
+      log.warn("Failed to flush {} telemetry rows, re-queueing", batch.size(), ex);
+      // Newer pings that arrived while the batch was in flight take precedence over the retry
+      batch.forEach(p -> pending.merge(p.state.driverId(), p, Pending::coalesce));
+      return false;
+    }
+
+    long now = System.nanoTime();
+    batchSize.record(batch.size());
+    batch.forEach(p -> flushLag.record(now - p.enqueuedNanos, TimeUnit.NANOSECONDS));
+    return true;
+  }
+
+  @PreDestroy
+  void shutdown() {
+    flusher.shutdown();
+    try {
+      flusher.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    flushSafely();
+  }
+
+  /** A driver's unflushed state, stamped with when its oldest unflushed ping was first buffered. */
+  private record Pending(DriverState state, long enqueuedNanos) {
+    /** Keeps the newer state but the older enqueue time, so flush lag reflects the longest wait. */
+    static Pending coalesce(Pending a, Pending b) {
+      DriverState newest = b.state.isOlderThan(a.state) ? a.state : b.state;
+      return new Pending(newest, Math.min(a.enqueuedNanos, b.enqueuedNanos));
+    }
+  }
+}
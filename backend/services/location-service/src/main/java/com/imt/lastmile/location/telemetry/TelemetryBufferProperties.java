@@ -0,0 +1,20 @@
+package com.imt.lastmile.location.telemetry;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "location.telemetry.buffer")
+public class TelemetryBufferProperties {
+  /** Delay between background flushes of buffered telemetry */
+  private long flushIntervalMs = 250;
+  /** Rows per JDBC batch; reaching this many pending drivers also triggers an early flush */
+  private int batchSize = 500;
+  /** Upper bound on drivers waiting to be flushed; writes for new drivers beyond this are dropped */
+  private int maxPending = 50_000;
+
+  public long getFlushIntervalMs() { return flushIntervalMs; }
+  public void setFlushIntervalMs(long flushIntervalMs) { this.flushIntervalMs = flushIntervalMs; }
+  public int getBatchSize() { return batchSize; }
+  public void setBatchSize(int batchSize) { this.batchSize = batchSize; }
+  public int getMaxPending() { return maxPending; }
+  public void setMaxPending(int maxPending) { this.maxPending = maxPending; }
+}
@@ -0,0 +1,24 @@
+package com.imt.lastmile.location.telemetry;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "location.telemetry.channel")
+public class TelemetryChannelProperties {
+  /** Delay between durability checks; acks are only sent when something changed */
+  private long ackIntervalMs = 500;
+  /** Load (0..1) of the telemetry buffer or trigger queue above which clients are asked to slow down */
+  private double slowDownThreshold = 0.8;
+  /** Minimum seconds between batches requested from clients while slowed down */
+  private int slowDownIntervalSeconds = 5;
+  /** How long a half-closed channel waits for its last batches to become durable before completing */
+  private long drainTimeoutMs = 5_000;
+
+  public long getAckIntervalMs() { return ackIntervalMs; }
+  public void setAckIntervalMs(long ackIntervalMs) { this.ackIntervalMs = ackIntervalMs; }
+  public double getSlowDownThreshold() { return slowDownThreshold; }
+  public void setSlowDownThreshold(double slowDownThreshold) { this.slowDownThreshold = slowDownThreshold; }
+  public int getSlowDownIntervalSeconds() { return slowDownIntervalSeconds; }
+  public void setSlowDownIntervalSeconds(int slowDownIntervalSeconds) { this.slowDownIntervalSeconds = slowDownIntervalSeconds; }
+  public long getDrainTimeoutMs() { return drainTimeoutMs; }
+  public void setDrainTimeoutMs(long drainTimeoutMs) { this.drainTimeoutMs = drainTimeoutMs; }
+}
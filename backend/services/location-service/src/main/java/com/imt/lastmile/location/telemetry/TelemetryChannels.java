@@ -0,0 +1,252 @@
+package com.imt.lastmile.location.telemetry;
+
+import com.imt.lastmile.location.matching.MatchingTriggerQueue;
+import com.imt.lastmile.location.telemetry.DriverStateTable.Recorded;
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import lastmile.location.DriverTelemetry;
+import lastmile.location.TelemetryAck;
+import lastmile.location.TelemetryBatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Server side of the bidirectional TelemetryChannel.
+ *
+ * <p>Each accepted batch remembers the latest {@link DriverStateTable} flush epoch its pings
+ * landed in. A background tick acknowledges the highest sequence whose epoch has been flushed and,
+ * while the telemetry buffer or matching trigger queue is loaded, asks clients to send less often.
+ * When the buffer is full, or a ping of the batch did not fit in it, the batch is refused instead of
+ * acknowledged, and the client resends from the acknowledged sequence. Sequences start at 1, so 0
+ * stands for "nothing yet" in the acks and the channel state; a batch without one fails the
+ * stream.
+ */
+@Component
+public class TelemetryChannels {
+  private static final Logger log = LoggerFactory.getLogger(TelemetryChannels.class);
+
+  private final DriverStateTable stateTable;
+  private final MatchingTriggerQueue triggerQueue;
+  private final TelemetryChannelProperties props;
+  private final Set<Channel> channels = ConcurrentHashMap.newKeySet();
+  private final ScheduledExecutorService acker = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread t = new Thread(r, "telemetry-acks");
+    t.setDaemon(true);
+    return t;
+  });
+
+  private final Counter batches;
+  private final Counter duplicates;
+  private final Counter refused;
+
+  public TelemetryChannels(DriverStateTable stateTable, MatchingTriggerQueue triggerQueue, TelemetryChannelProperties props,
+      MeterRegistry registry) {
+    this.stateTable = stateTable;
+    this.triggerQueue = triggerQueue;
+    this.props = props;
+    this.batches = registry.counter("location.telemetry.channel.batches");
+    this.duplicates = Counter.builder("location.telemetry.channel.duplicates")
+        .description("Resent batches that had already been applied")
+        .register(registry);
+    this.refused = Counter.builder("location.telemetry.channel.refused")
+        .description("Batches refused because the telemetry buffer was full")
+        .register(registry);
+    registry.gauge("location.telemetry.channels", channels, Set::size);
+    acker.scheduleWithFixedDelay(this::tick, props.getAckIntervalMs(), props.getAckIntervalMs(), TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  void stop() {
+    acker.shutdownNow();
+  }
+
+  /**
+   * Opens a channel writing acks to {@code acks}.
+   *
+   * @param ingest applies a single ping and returns how it was recorded; called on the gRPC thread in
+   *     batch order
+   */
+  public StreamObserver<TelemetryBatch> open(StreamObserver<TelemetryAck> acks, Function<DriverTelemetry, Recorded> ingest) {
+    Channel channel = new Channel(acks, ingest);
+    if (acks instanceof ServerCallStreamObserver<TelemetryAck> serverAcks) {
+      serverAcks.setOnCancelHandler(() -> channels.remove(channel));
+    }
+    channels.add(channel);
+    return channel;
+  }
+
+  private int requestedInterval() {
+    double load = Math.max(stateTable.load(), triggerQueue.load());
+    return load >= props.getSlowDownThreshold() ? props.getSlowDownIntervalSeconds() : 0;
+  }
+
+  private void tick() {
+    if (channels.isEmpty()) {
+      return;
+    }
+    try {
+      long durableEpoch = stateTable.durableEpoch();
+      int interval = requestedInterval();
+      for (Channel channel : channels) {
+        channel.tick(durableEpoch, interval);
+      }
+    } catch (Exception ex) {
+      log.warn("Telemetry ack tick failed", ex);
+    }
+  }
+
+  private record Accepted(long sequence, long epoch) {}
+
+  private final class Channel implements StreamObserver<TelemetryBatch> {
+    private final StreamObserver<TelemetryAck> acks;
+    private final ServerCallStreamObserver<TelemetryAck> flowControl;
+    private final Function<DriverTelemetry, Recorded> ingest;
+    /** Accepted batches not yet durable, oldest first; guarded by this */
+    private final Deque<Accepted> inFlight = new ArrayDeque<>();
+    /** Highest sequence applied, 0 before the first batch */
+    private long lastAccepted;
+    /** Sequence of the first refused batch, or 0; later batches are refused until it is resent */
+    private long resendFrom;
+    private long durableSequence;
+    private long sentDurable = -1;
+    private int sentInterval;
+    private long halfClosedAtNanos;
+    private boolean closed;
+
+    Channel(StreamObserver<TelemetryAck> acks, Function<DriverTelemetry, Recorded> ingest) {
+      this.acks = acks;
+      this.flowControl = acks instanceof ServerCallStreamObserver<TelemetryAck> s ? s : null;
+      this.ingest = ingest;
+    }
+
+    @Override
+    public void onNext(TelemetryBatch batch) {
+      long sequence = batch.getSequence();
+      batches.increment();
+      if (sequence <= 0) {
+        reject(sequence);
+        return;
+      }
+      if (sequence <= lastAccepted) {
+        duplicates.increment();
+        return;
+      }
+      if ((resendFrom != 0 && sequence != resendFrom) || stateTable.isSaturated()) {
+        refuse(sequence);
+        return;
+      }
+
+      long epoch = 0;
+      for (DriverTelemetry ping : batch.getPingsList()) {
+        Recorded recorded = ingest.apply(ping);
+        if (recorded.dropped()) {
+          // Pings already applied are applied again, harmlessly, when the batch is resent
+          refuse(sequence);
+          return;
+        }
+        epoch = Math.max(epoch, recorded.epoch());
+      }
+      synchronized (this) {
+        inFlight.addLast(new Accepted(sequence, epoch));
+        lastAccepted = sequence;
+        resendFrom = 0;
+      }
+    }
+
+    @Override
+    public void onError(Throwable t) {
+      log.debug("Telemetry channel closed by client: {}", t.getMessage());
+      channels.remove(this);
+      synchronized (this) {
+        closed = true;
+      }
+    }
+
+    @Override
+    public void onCompleted() {
+      synchronized (this) {
+        halfClosedAtNanos = System.nanoTime();
+      }
+    }
+
+    /** Fails the stream: the batch would otherwise be mistaken for a resend and never applied. */
+    private synchronized void reject(long sequence) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      channels.remove(this);
+      acks.onError(Status.INVALID_ARGUMENT
+          .withDescription("Telemetry batch sequences start at 1, got " + sequence)
+          .asRuntimeException());
+    }
+
+    private void refuse(long sequence) {
+      refused.increment();
+      synchronized (this) {
+        if (resendFrom == 0) {
+          resendFrom = sequence;
+        }
+        send(TelemetryAck.newBuilder()
+            .setDurableSequence(durableSequence)
+            .setMinIntervalSeconds(Math.max(requestedInterval(), props.getSlowDownIntervalSeconds()))
+            .setMsg("ingestion saturated, resend from " + resendFrom)
+            .build());
+      }
+    }
+
+    synchronized void tick(long durableEpoch, int interval) {
+      if (closed) {
+        return;
+      }
+      while (!inFlight.isEmpty() && inFlight.peekFirst().epoch <= durableEpoch) {
+        durableSequence = inFlight.removeFirst().sequence;
+      }
+      if (halfClosedAtNanos != 0) {
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - halfClosedAtNanos);
+        if (inFlight.isEmpty() || waitedMs >= props.getDrainTimeoutMs()) {
+          send(ack(interval));
+          closed = true;
+          channels.remove(this);
+          acks.onCompleted();
+          return;
+        }
+      }
+      if ((durableSequence != sentDurable || interval != sentInterval) && (flowControl == null || flowControl.isReady())) {
+        send(ack(interval));
+      }
+    }
+
+    private TelemetryAck ack(int interval) {
+      return TelemetryAck.newBuilder().setDurableSequence(durableSequence).setMinIntervalSeconds(interval).build();
+    }
+
+    private void send(TelemetryAck ack) {
+      if (closed) {
+        return;
+      }
+      try {
+        acks.onNext(ack);
+        sentDurable = ack.getDurableSequence();
+        sentInterval = ack.getMinIntervalSeconds();
+      } catch (Exception ex) {
+        log.debug("Dropping telemetry channel: {}", ex.getMessage());
+        closed = true;
+        channels.remove(this);
+      }
+    }
+  }
+}
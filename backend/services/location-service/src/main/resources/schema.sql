@@ -101,3 +101,30 @@ create table if not exists driver_telemetry (
   occupancy int not null,
   ts timestamptz not null
 );
+
+-- Append-only ping history, partitioned by day; partitions are created and dropped by the service
+create table if not exists driver_locations (
+  id bigserial not null,
+  driver_id varchar(36) not null,
+  route_id varchar(36),
+  area_id varchar(128) not null,
+  occupancy int not null,
+  speed double precision,
+  ts timestamptz not null,
+  primary key (ts, id)
+) partition by range (ts);
+
+create index if not exists driver_locations_driver_ts_idx on driver_locations (driver_id, ts, id);
+
+-- Edge travel times learned from telemetry, per hour of day
+create table if not exists edge_travel_estimates (
+  from_area_id varchar(64) not null,
+  to_area_id varchar(64) not null,
+  hour_of_day smallint not null,
+  samples bigint not null,
+  ewma_minutes double precision not null,
+  p50_minutes double precision,
+  p90_minutes double precision,
+  updated_at timestamptz not null,
+  primary key (from_area_id, to_area_id, hour_of_day)
+);
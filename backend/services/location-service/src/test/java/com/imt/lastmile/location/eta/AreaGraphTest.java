@@ -0,0 +1,90 @@
+package com.imt.lastmile.location.eta;
+
+import com.imt.lastmile.location.eta.AreaGraph.Edge;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AreaGraphTest {
+
+  // mg_road -> church_street -> majestic(S) and mg_road -> majestic directly; silk_board(S) one-way from hsr
+  private static final Map<String, Boolean> AREAS = Map.of(
+      "majestic", true, "mg_road", false, "church_street", false, "hsr_layout", false, "silk_board", true);
+  private static final List<Edge> EDGES = List.of(
+      new Edge("mg_road", "church_street", 3),
+      new Edge("church_street", "majestic", 4),
+      new Edge("mg_road", "majestic", 12),
+      new Edge("hsr_layout", "silk_board", 3));
+
+  private final AreaGraph graph = AreaGraph.build(AREAS, EDGES);
+
+  @Test
+  void answersShortestPathToStations() {
+    assertEquals(7, graph.minutesTo("mg_road", "majestic"));
+    assertEquals(0, graph.minutesTo("majestic", "majestic"));
+    assertEquals(AreaGraph.UNREACHABLE, graph.minutesTo("majestic", "silk_board"));
+    assertEquals(AreaGraph.UNREACHABLE, graph.minutesTo("mg_road", "church_street"), "not a station");
+  }
+
+  @Test
+  void slowerEdgeOnShortestPathReroutes() {
+    AreaGraph slower = graph.withEdge("church_street", "majestic", 20);
+    assertEquals(12, slower.minutesTo("mg_road", "majestic"));
+    assertEquals(20, slower.minutesTo("church_street", "majestic"));
+    assertEquals(7, graph.minutesTo("mg_road", "majestic"), "original snapshot is unchanged");
+  }
+
+  @Test
+  void fasterEdgePropagatesUpstream() {
+    AreaGraph faster = graph.withEdge("mg_road", "majestic", 2);
+    assertEquals(2, faster.minutesTo("mg_road", "majestic"));
+    assertEquals(4, faster.minutesTo("church_street", "majestic"));
+  }
+
+  @Test
+  void incrementalUpdatesMatchFullRebuild() {
+    Random random = new Random(7);
+    int n = 60;
+    Map<String, Boolean> areas = new HashMap<>();
+    for (int a = 0; a < n; a++) {
+      areas.put("a" + a, a % 6 == 0);
+    }
+    List<Edge> edges = new ArrayList<>();
+    Set<String> pairs = new HashSet<>();
+    for (int a = 0; a < n; a++) {
+      for (int k = 0; k < 3; k++) {
+        int b = random.nextInt(n);
+        if (b != a && pairs.add(a + ">" + b)) {
+          edges.add(new Edge("a" + a, "a" + b, 1 + random.nextInt(20)));
+        }
+      }
+    }
+
+    AreaGraph incremental = AreaGraph.build(areas, edges);
+    for (int step = 0; step < 200; step++) {
+      int i = random.nextInt(edges.size());
+      Edge changed = new Edge(edges.get(i).from(), edges.get(i).to(), 1 + random.nextInt(20));
+      edges.set(i, changed);
+      incremental = incremental.withEdge(changed.from(), changed.to(), changed.minutes());
+    }
+
+    AreaGraph rebuilt = AreaGraph.build(areas, edges);
+    for (String from : areas.keySet()) {
+      for (String station : areas.keySet()) {
+        assertEquals(rebuilt.minutesTo(from, station), incremental.minutesTo(from, station), from + " -> " + station);
+      }
+    }
+  }
+
+  @Test
+  void unknownEdgeIsRejected() {
+    assertThrows(IllegalArgumentException.class, () -> graph.withEdge("majestic", "mg_road", 5));
+  }
+}
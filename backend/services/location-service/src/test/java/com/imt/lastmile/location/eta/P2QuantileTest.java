@@ -0,0 +1,34 @@
+package com.imt.lastmile.location.eta;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class P2QuantileTest {
+
+  @Test
+  void exactForFewSamples() {
+    P2Quantile median = new P2Quantile(0.5);
+    assertTrue(Double.isNaN(median.estimate()));
+    median.add(9);
+    median.add(3);
+    median.add(5);
+    assertEquals(5, median.estimate());
+  }
+
+  @Test
+  void tracksQuantilesOfSkewedTravelTimes() {
+    // 80% take 5-7 minutes, 20% hit a 10-20 minute jam: true p50 is 6.25, p90 is 15
+    Random random = new Random(3);
+    P2Quantile p50 = new P2Quantile(0.5);
+    P2Quantile p90 = new P2Quantile(0.9);
+    for (int i = 0; i < 20_000; i++) {
+      double minutes = random.nextInt(5) == 0 ? 10 + random.nextDouble() * 10 : 5 + random.nextDouble() * 2;
+      p50.add(minutes);
+      p90.add(minutes);
+    }
+    assertEquals(6.25, p50.estimate(), 0.2);
+    assertEquals(15.0, p90.estimate(), 0.5);
+  }
+}
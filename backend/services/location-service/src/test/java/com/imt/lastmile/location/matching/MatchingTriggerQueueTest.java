@@ -0,0 +1,146 @@
+package com.imt.lastmile.location.matching;
+
+import com.imt.lastmile.location.matching.MatchingTriggerProperties.OverflowPolicy;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import lastmile.matching.EvaluateDriverRequest;
+import lastmile.matching.MatchResponse;
+import lastmile.matching.MatchingServiceGrpc;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchingTriggerQueueTest {
+  private final Set<String> evaluated = ConcurrentHashMap.newKeySet();
+  private Server server;
+  private ManagedChannel channel;
+  private MatchingTriggerQueue queue;
+
+  @BeforeEach
+  void startMatching() throws Exception {
+    String name = "trigger-" + UUID.randomUUID();
+    server = InProcessServerBuilder.forName(name).directExecutor()
+        .addService(new MatchingServiceGrpc.MatchingServiceImplBase() {
+          @Override
+          public void evaluateDriver(EvaluateDriverRequest request, StreamObserver<MatchResponse> responseObserver) {
+            evaluated.add(request.getDriverId());
+            responseObserver.onNext(MatchResponse.newBuilder().setMatched(false).build());
+            responseObserver.onCompleted();
+          }
+        })
+        .build()
+        .start();
+    channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+  }
+
+  @AfterEach
+  void stopMatching() {
+    if (queue != null) {
+      queue.stop();
+    }
+    channel.shutdownNow();
+    server.shutdownNow();
+  }
+
+  /** A queue whose workers are not started until the test calls {@code start()}. */
+  private MatchingTriggerQueue queue(int capacity, OverflowPolicy policy) {
+    MatchingTriggerProperties props = new MatchingTriggerProperties();
+    props.setCapacity(capacity);
+    props.setConcurrency(2);
+    props.setOverflowPolicy(policy);
+    queue = new MatchingTriggerQueue(props, new SimpleMeterRegistry());
+    ReflectionTestUtils.setField(queue, "matchingClient", MatchingServiceGrpc.newBlockingStub(channel));
+    return queue;
+  }
+
+  private static EvaluateDriverRequest request(String driverId) {
+    return EvaluateDriverRequest.newBuilder().setDriverId(driverId).setStationAreaId("s").setSeatsAvailable(1).build();
+  }
+
+  @Test
+  void coalescesTriggersForAWaitingKey() throws Exception {
+    MatchingTriggerQueue queue = queue(4, OverflowPolicy.DROP_NEWEST);
+    CountDownLatch delivered = new CountDownLatch(2);
+    queue.submit(request("d1"), delivered::countDown);
+    queue.submit(request("d1"), delivered::countDown);
+    assertEquals(0.25, queue.load());
+
+    queue.start();
+    assertFalse(delivered.await(200, TimeUnit.MILLISECONDS), "Coalesced trigger was sent twice");
+    assertEquals(Set.of("d1"), evaluated);
+  }
+
+  @Test
+  void rejectedKeyIsTriggeredOnceRoomFrees() throws Exception {
+    MatchingTriggerQueue queue = queue(1, OverflowPolicy.DROP_NEWEST);
+    queue.submit(request("d1"), () -> { });
+    queue.submit(request("d2"), () -> { });
+    queue.start();
+    while (queue.load() > 0) {
+      Thread.sleep(10);
+    }
+
+    CountDownLatch delivered = new CountDownLatch(1);
+    queue.submit(request("d2"), delivered::countDown);
+    assertTrue(delivered.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  void noKeyIsStrandedByConcurrentEnqueuesOnAFullQueue() throws Exception {
+    for (OverflowPolicy policy : List.of(OverflowPolicy.DROP_NEWEST, OverflowPolicy.DROP_OLDEST)) {
+      MatchingTriggerQueue queue = queue(2, policy);
+      int drivers = 8;
+      ExecutorService callers = Executors.newFixedThreadPool(4);
+      List<Future<?>> storms = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        storms.add(callers.submit(() -> {
+          for (int i = 0; i < 20_000; i++) {
+            queue.submit(request("d" + (i % drivers)), () -> { });
+          }
+        }));
+      }
+      for (Future<?> storm : storms) {
+        storm.get();
+      }
+      callers.shutdown();
+      queue.start();
+
+      // Every driver must still get through; a stranded key would coalesce forever
+      CountDownLatch delivered = new CountDownLatch(drivers);
+      for (int d = 0; d < drivers; d++) {
+        while (!submitUntilQueued(queue, "d" + d, delivered::countDown)) {
+          Thread.sleep(10);
+        }
+      }
+      assertTrue(delivered.await(10, TimeUnit.SECONDS), policy + " stranded a driver's triggers");
+      queue.stop();
+      this.queue = null;
+    }
+  }
+
+  /** Submits while the queue has room, since a full queue may legitimately reject the trigger. */
+  private static boolean submitUntilQueued(MatchingTriggerQueue queue, String driverId, Runnable onDelivered) {
+    if (queue.load() >= 1.0) {
+      return false;
+    }
+    queue.submit(request(driverId), onDelivered);
+    return true;
+  }
+}
@@ -0,0 +1,77 @@
+package com.imt.lastmile.location.route;
+
+import lastmile.driver.RoutePlan;
+import lastmile.driver.RouteStop;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompiledRouteTest {
+
+  // majestic(S,0) -> mg_road(4) -> ulsoor(8) -> indiranagar(S,12) -> domlur(15) -> koramangala(S,25)
+  private final CompiledRoute route = CompiledRoute.compile(RoutePlan.newBuilder()
+      .setRouteId("r1")
+      .setFinalAreaId("koramangala")
+      // Deliberately out of order; compilation sorts by sequence
+      .addStops(stop(3, "indiranagar", true, 12))
+      .addStops(stop(0, "majestic", true, 0))
+      .addStops(stop(1, "mg_road", false, 4))
+      .addStops(stop(2, "ulsoor", false, 8))
+      .addStops(stop(5, "koramangala", true, 25))
+      .addStops(stop(4, "domlur", false, 15))
+      .build());
+
+  @Test
+  void indexesStopsBySequence() {
+    assertEquals(6, route.stopCount());
+    assertEquals("majestic", route.areaIdAt(0));
+    assertEquals(2, route.stopIndexOf("ulsoor"));
+    assertEquals(12, route.offsetAt(route.stopIndexOf("indiranagar")));
+    assertEquals(CompiledRoute.NOT_FOUND, route.stopIndexOf("whitefield"));
+  }
+
+  @Test
+  void stationLookupIgnoresNonStationStops() {
+    assertEquals(3, route.stationStopIndexOf("indiranagar"));
+    assertEquals(CompiledRoute.NOT_FOUND, route.stationStopIndexOf("mg_road"));
+  }
+
+  @Test
+  void findsStationsWithinWindowFromCurrentStop() {
+    int current = route.stopIndexOf("mg_road");
+    int from = route.firstStationFrom(current);
+    int to = route.stationsEndWithin(from, route.offsetAt(current) + 10);
+
+    assertEquals(1, to - from, "only indiranagar is within 10 minutes of mg_road");
+    assertEquals("indiranagar", route.areaIdAt(route.stationStopAt(from)));
+  }
+
+  @Test
+  void currentStationCountsAsUpcoming() {
+    int current = route.stopIndexOf("indiranagar");
+    int from = route.firstStationFrom(current);
+    assertEquals(current, route.stationStopAt(from));
+    assertEquals(from + 1, route.stationsEndWithin(from, route.offsetAt(current) + 10));
+  }
+
+  @Test
+  void etaIsOffsetDifferenceToUpcomingStation() {
+    assertEquals(17, route.etaMinutes("ulsoor", "koramangala"));
+    assertEquals(0, route.etaMinutes("indiranagar", "indiranagar"));
+    assertEquals(CompiledRoute.NOT_FOUND, route.etaMinutes("domlur", "indiranagar"), "station already passed");
+    assertEquals(CompiledRoute.NOT_FOUND, route.etaMinutes("ulsoor", "mg_road"), "not a station");
+  }
+
+  @Test
+  void rejectsDecreasingOffsets() {
+    RoutePlan plan = RoutePlan.newBuilder()
+        .addStops(stop(0, "majestic", true, 10))
+        .addStops(stop(1, "mg_road", false, 5))
+        .build();
+    assertThrows(IllegalArgumentException.class, () -> CompiledRoute.compile(plan));
+  }
+
+  private static RouteStop stop(int seq, String area, boolean station, int offset) {
+    return RouteStop.newBuilder().setSequence(seq).setAreaId(area).setIsStation(station).setArrivalOffsetMinutes(offset).build();
+  }
+}
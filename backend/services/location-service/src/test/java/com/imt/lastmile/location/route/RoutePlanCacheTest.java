@@ -0,0 +1,120 @@
+package com.imt.lastmile.location.route;
+
+import com.imt.lastmile.location.cache.BoundedCaches;
+import com.imt.lastmile.location.cache.CacheProperties;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import lastmile.driver.DriverId;
+import lastmile.driver.DriverProfile;
+import lastmile.driver.DriverServiceGrpc;
+import lastmile.driver.RouteChange;
+import lastmile.driver.RoutePlan;
+import lastmile.driver.RouteStop;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoutePlanCacheTest {
+  private final CountDownLatch fetching = new CountDownLatch(1);
+  private final CountDownLatch answer = new CountDownLatch(1);
+  private Server server;
+  private ManagedChannel channel;
+  private RoutePlanCache cache;
+
+  @BeforeEach
+  void startDriverService() throws Exception {
+    String name = "routes-" + UUID.randomUUID();
+    // Answers with the route's original plan once the test lets it
+    server = InProcessServerBuilder.forName(name)
+        .addService(new DriverServiceGrpc.DriverServiceImplBase() {
+          @Override
+          public void getDriver(DriverId request, StreamObserver<DriverProfile> responseObserver) {
+            fetching.countDown();
+            try {
+              answer.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+              Thread.currentThread().interrupt();
+            }
+            responseObserver.onNext(DriverProfile.newBuilder()
+                .setDriverId(request.getId())
+                .setCapacity(4)
+                .addRoutes(plan("a", "b"))
+                .build());
+            responseObserver.onCompleted();
+          }
+        })
+        .build()
+        .start();
+    channel = InProcessChannelBuilder.forName(name).build();
+    cache = new RoutePlanCache(new BoundedCaches(new CacheProperties(), new SimpleMeterRegistry()));
+    ReflectionTestUtils.setField(cache, "driverClient", DriverServiceGrpc.newBlockingStub(channel));
+    cache.setFeedConnected(true);
+  }
+
+  @AfterEach
+  void stopDriverService() {
+    channel.shutdownNow();
+    server.shutdownNow();
+  }
+
+  private static RoutePlan plan(String... stations) {
+    RoutePlan.Builder plan = RoutePlan.newBuilder().setRouteId("r1").setDriverId("d1").setFinalAreaId(stations[stations.length - 1]);
+    for (int i = 0; i < stations.length; i++) {
+      plan.addStops(RouteStop.newBuilder().setSequence(i).setAreaId(stations[i]).setIsStation(true).setArrivalOffsetMinutes(i * 5));
+    }
+    return plan.build();
+  }
+
+  private static RouteChange upsert(long version, int capacity, RoutePlan plan) {
+    return RouteChange.newBuilder()
+        .setVersion(version)
+        .setKind(RouteChange.Kind.ROUTE_UPSERTED)
+        .setDriverId("d1")
+        .setCapacity(capacity)
+        .setRoute(plan)
+        .build();
+  }
+
+  @Test
+  void fetchInFlightDoesNotOverwriteAFeedChange() throws Exception {
+    CompletableFuture<CompiledRoute> resolved = CompletableFuture.supplyAsync(() -> cache.resolve("d1", "r1"));
+    assertTrue(fetching.await(5, TimeUnit.SECONDS));
+    cache.apply(upsert(7, 6, plan("a", "b", "c")));
+    answer.countDown();
+
+    assertEquals(3, resolved.get(5, TimeUnit.SECONDS).stopCount());
+    assertEquals(3, cache.cached("r1").stopCount());
+    assertEquals(6, cache.capacity("d1"));
+  }
+
+  @Test
+  void fetchCachesTheProfileWhenNothingChanged() {
+    answer.countDown();
+
+    assertEquals(2, cache.resolve("d1", "r1").stopCount());
+    assertEquals(2, cache.cached("r1").stopCount());
+    assertEquals(4, cache.capacity("d1"));
+  }
+
+  @Test
+  void fetchStartedBeforeAResyncCachesNothing() throws Exception {
+    CompletableFuture<CompiledRoute> resolved = CompletableFuture.supplyAsync(() -> cache.resolve("d1", "r1"));
+    assertTrue(fetching.await(5, TimeUnit.SECONDS));
+    cache.apply(RouteChange.newBuilder().setVersion(9).setKind(RouteChange.Kind.RESYNC).build());
+    answer.countDown();
+
+    resolved.get(5, TimeUnit.SECONDS);
+    assertNull(cache.cached("r1"));
+  }
+}
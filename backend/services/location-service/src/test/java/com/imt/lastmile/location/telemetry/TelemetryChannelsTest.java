@@ -0,0 +1,141 @@
+package com.imt.lastmile.location.telemetry;
+
+import com.imt.lastmile.location.matching.MatchingTriggerQueue;
+import com.imt.lastmile.location.telemetry.DriverStateTable.Recorded;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+import lastmile.location.DriverTelemetry;
+import lastmile.location.TelemetryAck;
+import lastmile.location.TelemetryBatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TelemetryChannelsTest {
+  private final AtomicLong durableEpoch = new AtomicLong();
+  /** Flush epoch the next applied ping lands in */
+  private final AtomicLong epoch = new AtomicLong(1);
+  /** Drivers whose pings the buffer drops */
+  private final Set<String> dropping = ConcurrentHashMap.newKeySet();
+  private final List<String> ingested = new CopyOnWriteArrayList<>();
+  private final BlockingQueue<TelemetryAck> acks = new LinkedBlockingQueue<>();
+  private final AtomicReference<Throwable> error = new AtomicReference<>();
+  private TelemetryChannels channels;
+  private StreamObserver<TelemetryBatch> channel;
+
+  @BeforeEach
+  void open() {
+    DriverStateTable stateTable = Mockito.mock(DriverStateTable.class);
+    Mockito.when(stateTable.durableEpoch()).thenAnswer(call -> durableEpoch.get());
+    TelemetryChannelProperties props = new TelemetryChannelProperties();
+    props.setAckIntervalMs(10);
+    channels = new TelemetryChannels(stateTable, Mockito.mock(MatchingTriggerQueue.class), props, new SimpleMeterRegistry());
+    channel = channels.open(new StreamObserver<>() {
+      @Override
+      public void onNext(TelemetryAck ack) {
+        acks.add(ack);
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        error.set(t);
+      }
+
+      @Override
+      public void onCompleted() {
+      }
+    }, ping -> {
+      ingested.add(ping.getDriverId());
+      boolean dropped = dropping.contains(ping.getDriverId());
+      return new Recorded(null, !dropped, epoch.get(), dropped);
+    });
+  }
+
+  @AfterEach
+  void close() {
+    channels.stop();
+  }
+
+  private static TelemetryBatch batch(long sequence, String... drivers) {
+    TelemetryBatch.Builder batch = TelemetryBatch.newBuilder().setSequence(sequence);
+    for (String driver : drivers) {
+      batch.addPings(DriverTelemetry.newBuilder().setDriverId(driver));
+    }
+    return batch.build();
+  }
+
+  private TelemetryAck awaitAck(Predicate<TelemetryAck> wanted) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (System.nanoTime() < deadline) {
+      TelemetryAck ack = acks.poll(50, TimeUnit.MILLISECONDS);
+      if (ack != null && wanted.test(ack)) {
+        return ack;
+      }
+    }
+    return fail("No matching ack arrived");
+  }
+
+  @Test
+  void acknowledgesABatchOnlyOnceItsEpochIsDurable() throws Exception {
+    epoch.set(2);
+    durableEpoch.set(1);
+    channel.onNext(batch(1, "d1"));
+    assertEquals(0, awaitAck(ack -> true).getDurableSequence());
+    Thread.sleep(50);
+    assertTrue(acks.stream().allMatch(ack -> ack.getDurableSequence() == 0));
+
+    durableEpoch.set(2);
+    assertEquals(1, awaitAck(ack -> ack.getDurableSequence() != 0).getDurableSequence());
+  }
+
+  @Test
+  void appliesAResentBatchOnlyOnce() throws Exception {
+    channel.onNext(batch(1, "d1"));
+    channel.onNext(batch(1, "d1"));
+    channel.onNext(batch(2, "d2"));
+    durableEpoch.set(1);
+
+    assertEquals(2, awaitAck(ack -> ack.getDurableSequence() == 2).getDurableSequence());
+    assertEquals(List.of("d1", "d2"), ingested);
+  }
+
+  @Test
+  void refusesFromTheFirstDroppedBatchUntilItIsResent() throws Exception {
+    channel.onNext(batch(1, "d1"));
+    dropping.add("d2");
+    channel.onNext(batch(2, "d2"));
+    assertTrue(awaitAck(ack -> !ack.getMsg().isEmpty()).getMsg().endsWith("resend from 2"));
+    // Later batches are refused, not applied, until the client goes back to 2
+    channel.onNext(batch(3, "d3"));
+    assertEquals(List.of("d1", "d2"), ingested);
+
+    dropping.clear();
+    channel.onNext(batch(2, "d2"));
+    channel.onNext(batch(3, "d3"));
+    durableEpoch.set(1);
+    assertEquals(3, awaitAck(ack -> ack.getDurableSequence() == 3).getDurableSequence());
+    assertEquals(List.of("d1", "d2", "d2", "d3"), ingested);
+  }
+
+  @Test
+  void failsTheStreamOnABatchWithoutASequence() {
+    channel.onNext(batch(0, "d1"));
+
+    assertEquals(Status.Code.INVALID_ARGUMENT, Status.fromThrowable(error.get()).getCode());
+    assertTrue(ingested.isEmpty());
+  }
+}
@@ -0,0 +1,126 @@
+package com.imt.lastmile.matching.bench;
+
+import com.imt.lastmile.matching.batch.DriverOffer;
+import com.imt.lastmile.matching.batch.JointAssignment;
+import com.imt.lastmile.matching.domain.RiderIntent;
+import com.imt.lastmile.matching.policy.KnapsackPolicy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Replays the same synthetic traffic at one busy station through batch windows of increasing
+ * length and reports what each window costs (the latency it adds to every driver) against what it
+ * gains: seats filled, and passengers riding with a driver bound for their own destination rather
+ * than one that declared none.
+ *
+ * <p>Riders go to one of three destinations, in the "groups" party mix of
+ * {@link SeatUtilizationSimulation}, and give up after 30 minutes. Drivers have 2 to 5 free seats,
+ * are 0 to 10 minutes from the station, and 40% of them declare no destination. A window of 0 is
+ * matching without batching: each driver is answered alone with the knapsack policy.
+ *
+ * <p>Run: {@code java -cp target/benchmarks.jar com.imt.lastmile.matching.bench.BatchWindowSimulation [hours] [seed]}
+ */
+public final class BatchWindowSimulation {
+  private static final int MAX_WAIT_SECONDS = 1800;
+  private static final int TICK_MILLIS = 50;
+  private static final int MAX_DRIVERS = 8;
+  private static final String[] DESTINATIONS = {"north", "east", "west"};
+  private static final int[] GROUPS = {20, 55, 90, 100};
+
+  private BatchWindowSimulation() {}
+
+  private record Arrival(DriverOffer offer, long atMillis) {}
+
+  public static void main(String[] args) {
+    int hours = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+    long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+    JointAssignment joint = new JointAssignment(600, 20_000, Duration.ofMillis(20),
+        new KnapsackPolicy(64, Duration.ofMillis(2)));
+    System.out.printf("%8s %8s %9s %8s %8s %8s %10s %14s%n", "driver s", "rider s", "window ms", "added ms", "util",
+        "exact", "abandoned", "drivers/batch");
+    for (int[] intervals : new int[][] {{20, 8}, {3, 2}, {2, 4}, {1, 4}}) {
+      for (int window : new int[] {0, 250, 500, 1000, 2000, 5000}) {
+        run(joint, intervals[0], intervals[1], window, hours, seed);
+      }
+    }
+  }
+
+  private static void run(JointAssignment joint, int driverInterval, int riderInterval, int windowMillis, int hours,
+      long seed) {
+    Random random = new Random(seed);
+    Instant start = Instant.parse("2026-01-01T06:00:00Z");
+    List<RiderIntent> queue = new ArrayList<>();
+    List<Arrival> window = new ArrayList<>();
+    long windowOpened = 0;
+    long offered = 0;
+    long seated = 0;
+    long exact = 0;
+    long abandoned = 0;
+    long addedMillis = 0;
+    long drivers = 0;
+    long batches = 0;
+    int riderId = 0;
+    double nextRider = 0;
+    double nextDriver = 0;
+    for (long ms = 0; ms < hours * 3_600_000L; ms += TICK_MILLIS) {
+      Instant now = start.plusMillis(ms);
+      double t = ms / 1000.0;
+      while (nextRider <= t) {
+        String destination = DESTINATIONS[random.nextInt(DESTINATIONS.length)];
+        queue.add(new RiderIntent("r" + riderId++, "station", destination, now, now, partySize(random)));
+        nextRider += -Math.log(1 - random.nextDouble()) * riderInterval;
+      }
+      if (ms % 1000 == 0) {
+        long cutoff = now.getEpochSecond() - MAX_WAIT_SECONDS;
+        for (int i = queue.size() - 1; i >= 0; i--) {
+          if (queue.get(i).getArrivalTime().getEpochSecond() <= cutoff) {
+            abandoned += queue.remove(i).getPartySize();
+          }
+        }
+      }
+      while (nextDriver <= t) {
+        String destination = random.nextInt(100) < 40 ? "" : DESTINATIONS[random.nextInt(DESTINATIONS.length)];
+        DriverOffer offer = new DriverOffer("d" + drivers++, "station", destination, 2 + random.nextInt(4), random.nextInt(11));
+        offered += offer.seats();
+        if (window.isEmpty()) {
+          windowOpened = ms;
+        }
+        window.add(new Arrival(offer, ms));
+        nextDriver += -Math.log(1 - random.nextDouble()) * driverInterval;
+      }
+      if (!window.isEmpty() && (ms - windowOpened >= windowMillis || window.size() >= MAX_DRIVERS)) {
+        List<DriverOffer> offers = window.stream().map(Arrival::offer).toList();
+        int[] driverOf = windowMillis == 0 ? joint.firstCome(offers, queue, now) : joint.assign(offers, queue, now);
+        for (int i = driverOf.length - 1; i >= 0; i--) {
+          if (driverOf[i] >= 0) {
+            RiderIntent r = queue.remove(i);
+            seated += r.getPartySize();
+            if (!offers.get(driverOf[i]).anyDestination()) {
+              exact += r.getPartySize();
+            }
+          }
+        }
+        for (Arrival a : window) {
+          addedMillis += ms - a.atMillis();
+        }
+        batches++;
+        window.clear();
+      }
+    }
+    System.out.printf("%8d %8d %9d %8.0f %7.1f%% %7.1f%% %10d %14.2f%n", driverInterval, riderInterval, windowMillis,
+        (double) addedMillis / drivers, 100.0 * seated / offered, seated == 0 ? 0 : 100.0 * exact / seated, abandoned,
+        (double) drivers / batches);
+  }
+
+  private static int partySize(Random random) {
+    int p = random.nextInt(100);
+    int size = 1;
+    while (p >= GROUPS[size - 1]) {
+      size++;
+    }
+    return size;
+  }
+}
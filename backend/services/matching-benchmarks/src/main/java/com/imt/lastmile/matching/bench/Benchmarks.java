@@ -0,0 +1,22 @@
+package com.imt.lastmile.matching.bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of {@code benchmarks.jar}: JMH's own, but results are written as JSON to
+ * {@code jmh-result.json} unless {@code -rf} says otherwise, so every run leaves a file that can be
+ * diffed against another commit's.
+ */
+public final class Benchmarks {
+  private Benchmarks() {}
+
+  public static void main(String[] args) throws Exception {
+    List<String> jmhArgs = new ArrayList<>(Arrays.asList(args));
+    if (!jmhArgs.contains("-rf")) {
+      jmhArgs.addAll(List.of("-rf", "json"));
+    }
+    org.openjdk.jmh.Main.main(jmhArgs.toArray(String[]::new));
+  }
+}
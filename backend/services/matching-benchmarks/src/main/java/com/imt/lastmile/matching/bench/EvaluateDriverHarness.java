@@ -0,0 +1,263 @@
+package com.imt.lastmile.matching.bench;
+
+import com.imt.lastmile.matching.MatchingServiceApplication;
+import com.imt.lastmile.matching.batch.BatchProperties;
+import com.imt.lastmile.matching.batch.MatchBatcher;
+import com.imt.lastmile.matching.domain.InMemoryRiderIntentStore;
+import com.imt.lastmile.matching.domain.MatchingStoreProperties;
+import com.imt.lastmile.matching.domain.MatchingStoreProperties.Engine;
+import com.imt.lastmile.matching.domain.RedisRiderIntentStore;
+import com.imt.lastmile.matching.domain.RiderIntentStore;
+import com.imt.lastmile.matching.events.BroadcastProperties;
+import com.imt.lastmile.matching.events.EventBusProperties;
+import com.imt.lastmile.matching.events.InMemoryMatchEventBus;
+import com.imt.lastmile.matching.events.MatchEventBroadcaster;
+import com.imt.lastmile.matching.events.MatchEventBus;
+import com.imt.lastmile.matching.grpc.GrpcMatchingService;
+import com.imt.lastmile.matching.lane.LaneProperties;
+import com.imt.lastmile.matching.lane.StationLanes;
+import com.imt.lastmile.matching.policy.MatchingPolicy;
+import com.imt.lastmile.matching.policy.PolicyProperties;
+import com.imt.lastmile.matching.route.RouteMatcher;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import lastmile.matching.AddRiderIntentRequest;
+import lastmile.matching.EvaluateDriverRequest;
+import lastmile.matching.MatchResponse;
+import lastmile.matching.MatchingServiceGrpc;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+/**
+ * {@link GrpcMatchingService} wired as the application wires it (store, lanes, batchers, event bus)
+ * and served over an in-process gRPC channel, so requests pass through the generated stubs,
+ * marshalling and the server executor without a network. Each of {@code clients} threads loops:
+ * one rider joins a random station, then one driver is evaluated at another, with 2 to 5 seats,
+ * 0 to 10 minutes away and no destination 40% of the time. The client count is swept.
+ *
+ * <p>The default {@code memory} engine stands in for Redis so the harness runs anywhere;
+ * {@code redis} uses REDIS_HOST:REDIS_PORT (default 127.0.0.1:6379) and stations named
+ * {@code harness-*}. The service's console logging is discarded while it runs.
+ *
+ * <p>Reports EvaluateDriver calls per second, EvaluateDriver and AddRiderIntent latency, and the
+ * share of drivers matched, and writes them to a JSON file (default
+ * {@code evaluate-driver-result.json}).
+ *
+ * <p>Run: {@code java -cp target/benchmarks.jar com.imt.lastmile.matching.bench.EvaluateDriverHarness [seconds] [clients,...] [stations] [memory|redis] [file]}
+ */
+public final class EvaluateDriverHarness {
+  private static final String[] DESTINATIONS = {"north", "east", "west"};
+  private static final int WARMUP_SECONDS = 3;
+
+  private EvaluateDriverHarness() {}
+
+  /** What one client thread saw; latencies in nanoseconds. */
+  private static final class Client {
+    long[] evaluations = new long[1024];
+    long[] adds = new long[1024];
+    int evaluated;
+    int added;
+    int matched;
+    int seated;
+    int failed;
+
+    void recordEvaluation(long nanos) {
+      if (evaluated == evaluations.length) {
+        evaluations = Arrays.copyOf(evaluations, evaluated * 2);
+      }
+      evaluations[evaluated++] = nanos;
+    }
+
+    void recordAdd(long nanos) {
+      if (added == adds.length) {
+        adds = Arrays.copyOf(adds, added * 2);
+      }
+      adds[added++] = nanos;
+    }
+  }
+
+  public static void main(String[] args) throws Exception {
+    int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+    int[] clientCounts = Arrays.stream((args.length > 1 ? args[1] : "1,4,16").split(",")).mapToInt(Integer::parseInt)
+        .toArray();
+    int stations = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+    Engine engine = Engine.valueOf((args.length > 3 ? args[3] : "memory").toUpperCase());
+    Path file = Path.of(args.length > 4 ? args[4] : "evaluate-driver-result.json");
+
+    PrintStream console = System.out;
+    console.printf("%-7s %7s %12s %9s %9s %9s %9s %11s %9s %12s%n", "engine", "clients", "evaluate/s", "p50 ms",
+        "p99 ms", "p99.9 ms", "max ms", "add p99 ms", "matched", "riders/match");
+    List<Map<String, Object>> runs = new ArrayList<>();
+    for (int clients : clientCounts) {
+      System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+      Map<String, Object> run;
+      try {
+        run = run(engine, clients, seconds, stations);
+      } finally {
+        System.setOut(console);
+      }
+      console.printf("%-7s %7d %12.0f %9.2f %9.2f %9.2f %9.2f %11.2f %8.1f%% %12.2f%n", engine.name().toLowerCase(),
+          clients, run.get("evaluatePerSecond"), run.get("evaluateP50Millis"), run.get("evaluateP99Millis"),
+          run.get("evaluateP999Millis"), run.get("evaluateMaxMillis"), run.get("addP99Millis"),
+          run.get("matchedPercent"), run.get("ridersPerMatch"));
+      runs.add(run);
+    }
+    JsonResults.write(file, "EvaluateDriverHarness", runs);
+  }
+
+  private static Map<String, Object> run(Engine engine, int clients, int seconds, int stations) throws Exception {
+    MatchingStoreProperties props = new MatchingStoreProperties();
+    props.setEngine(engine);
+    PolicyProperties policyProps = new PolicyProperties();
+    MatchingServiceApplication app = new MatchingServiceApplication();
+    MatchingPolicy policy = app.matchingPolicy(policyProps);
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    LettuceConnectionFactory connectionFactory = null;
+    RiderIntentStore store;
+    if (engine == Engine.MEMORY) {
+      store = new InMemoryRiderIntentStore(props, policy, policyProps, registry);
+    } else {
+      connectionFactory = TakeMatchingContentionBenchmark.connect();
+      RedisTemplate<String, Object> template = app.redisTemplate(connectionFactory, props);
+      template.afterPropertiesSet();
+      store = new RedisRiderIntentStore(template, props, policy, policyProps, registry);
+    }
+    for (int s = 0; s < stations; s++) {
+      store.clear("harness-" + s);
+    }
+    StationLanes lanes = new StationLanes(new LaneProperties(), registry);
+    MatchEventBroadcaster broadcaster = new MatchEventBroadcaster(new BroadcastProperties(), registry);
+    MatchEventBus eventBus = new InMemoryMatchEventBus(new EventBusProperties(), broadcaster);
+    MatchBatcher batcher = new MatchBatcher(new BatchProperties(), policyProps, policy, store, lanes, registry);
+
+    // The service takes its collaborators by field injection, as in the application
+    AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+    context.registerBean(RiderIntentStore.class, () -> store);
+    context.registerBean(StationLanes.class, () -> lanes);
+    context.registerBean(MatchBatcher.class, () -> batcher);
+    context.registerBean(MatchEventBroadcaster.class, () -> broadcaster);
+    context.registerBean(MatchEventBus.class, () -> eventBus);
+    context.registerBean(RouteMatcher.class, () -> new RouteMatcher(store, policy, policyProps, registry));
+    context.registerBean(GrpcMatchingService.class);
+    context.refresh();
+
+    String name = "matching-harness-" + clients;
+    Server server = InProcessServerBuilder.forName(name).addService(context.getBean(GrpcMatchingService.class)).build()
+        .start();
+    ManagedChannel channel = InProcessChannelBuilder.forName(name).build();
+    try {
+      drive(channel, clients, WARMUP_SECONDS, stations);
+      long start = System.nanoTime();
+      List<Client> results = drive(channel, clients, seconds, stations);
+      double elapsed = (System.nanoTime() - start) / 1e9;
+      return summarize(engine, clients, stations, elapsed, results);
+    } finally {
+      channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+      server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+      context.close();
+      for (int s = 0; s < stations; s++) {
+        store.clear("harness-" + s);
+      }
+      if (store instanceof InMemoryRiderIntentStore memory) {
+        memory.close();
+      }
+      if (connectionFactory != null) {
+        connectionFactory.destroy();
+      }
+    }
+  }
+
+  /** Runs every client for {@code seconds} and returns what each saw. */
+  private static List<Client> drive(ManagedChannel channel, int clients, int seconds, int stations)
+      throws InterruptedException {
+    MatchingServiceGrpc.MatchingServiceBlockingStub stub = MatchingServiceGrpc.newBlockingStub(channel);
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+    List<Client> results = new ArrayList<>();
+    List<Thread> threads = new ArrayList<>();
+    for (int c = 0; c < clients; c++) {
+      Client client = new Client();
+      Random random = new Random(c);
+      String prefix = "c" + c + "-";
+      results.add(client);
+      Thread thread = new Thread(() -> {
+        for (int i = 0; System.nanoTime() < deadline; i++) {
+          Instant now = Instant.now();
+          AddRiderIntentRequest rider = AddRiderIntentRequest.newBuilder()
+              .setRiderId(prefix + "rider-" + i)
+              .setStationAreaId("harness-" + random.nextInt(stations))
+              .setDestinationAreaId(DESTINATIONS[random.nextInt(DESTINATIONS.length)])
+              .setArrivalTime(com.google.protobuf.TimestampProto.Timestamp.newBuilder().setSeconds(now.getEpochSecond()).build())
+              .setPartySize(SeatUtilizationSimulation.partySize(random, "groups"))
+              .build();
+          EvaluateDriverRequest driver = EvaluateDriverRequest.newBuilder()
+              .setDriverId(prefix + "driver-" + i)
+              .setStationAreaId("harness-" + random.nextInt(stations))
+              .setDestinationAreaId(random.nextInt(10) < 4 ? "" : DESTINATIONS[random.nextInt(DESTINATIONS.length)])
+              .setSeatsAvailable(2 + random.nextInt(4))
+              .setEtaToStationMinutes(random.nextInt(11))
+              .build();
+          try {
+            long sent = System.nanoTime();
+            stub.addRiderIntent(rider);
+            client.recordAdd(System.nanoTime() - sent);
+            sent = System.nanoTime();
+            MatchResponse response = stub.evaluateDriver(driver);
+            client.recordEvaluation(System.nanoTime() - sent);
+            if (response.getMatched()) {
+              client.matched++;
+              client.seated += response.getResults(0).getRiderIdsCount();
+            }
+          } catch (RuntimeException ex) {
+            client.failed++;
+          }
+        }
+      }, "harness-client-" + c);
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    return results;
+  }
+
+  private static Map<String, Object> summarize(Engine engine, int clients, int stations, double elapsed,
+      List<Client> results) {
+    long[] evaluations = results.stream().flatMapToLong(c -> Arrays.stream(c.evaluations, 0, c.evaluated)).sorted()
+        .toArray();
+    long[] adds = results.stream().flatMapToLong(c -> Arrays.stream(c.adds, 0, c.added)).sorted().toArray();
+    int matched = results.stream().mapToInt(c -> c.matched).sum();
+    int seated = results.stream().mapToInt(c -> c.seated).sum();
+    Map<String, Object> run = new LinkedHashMap<>();
+    run.put("engine", engine.name().toLowerCase());
+    run.put("clients", clients);
+    run.put("stations", stations);
+    run.put("evaluations", evaluations.length);
+    run.put("failures", results.stream().mapToInt(c -> c.failed).sum());
+    run.put("evaluatePerSecond", Math.round(evaluations.length / elapsed * 10) / 10.0);
+    run.put("evaluateP50Millis", JsonResults.millis(evaluations, 0.50));
+    run.put("evaluateP99Millis", JsonResults.millis(evaluations, 0.99));
+    run.put("evaluateP999Millis", JsonResults.millis(evaluations, 0.999));
+    run.put("evaluateMaxMillis", JsonResults.millis(evaluations, 1));
+    run.put("addP50Millis", JsonResults.millis(adds, 0.50));
+    run.put("addP99Millis", JsonResults.millis(adds, 0.99));
+    run.put("matchedPercent", evaluations.length == 0 ? 0.0 : Math.round(1000.0 * matched / evaluations.length) / 10.0);
+    run.put("ridersPerMatch", matched == 0 ? 0.0 : Math.round(100.0 * seated / matched) / 100.0);
+    return run;
+  }
+}
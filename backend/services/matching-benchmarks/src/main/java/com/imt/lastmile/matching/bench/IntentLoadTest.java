@@ -0,0 +1,168 @@
+package com.imt.lastmile.matching.bench;
+
+import com.imt.lastmile.matching.MatchingServiceApplication;
+import com.imt.lastmile.matching.domain.MatchingStoreProperties;
+import com.imt.lastmile.matching.domain.RedisPipeline;
+import com.imt.lastmile.matching.domain.RedisRiderIntentStore;
+import com.imt.lastmile.matching.domain.RiderIntent;
+import com.imt.lastmile.matching.domain.RiderIntentStore;
+import com.imt.lastmile.matching.lane.LaneProperties;
+import com.imt.lastmile.matching.lane.StationLanes;
+import com.imt.lastmile.matching.policy.FirstFitPolicy;
+import com.imt.lastmile.matching.policy.PolicyProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+/**
+ * Open-loop load against a real Redis: rider intents arrive at a fixed rate across many stations,
+ * with one first-fit driver take for every ten adds, and each call is made the way
+ * GrpcMatchingService makes it with {@code matching.store.io} set to {@code blocking} (on a station
+ * lane) or {@code pipelined} (through {@link RedisPipeline}). Latency is measured from when a call
+ * was due, not when it was sent, so a backlog shows up in the tail.
+ *
+ * <p>Reports achieved rate, p50/p99/p99.9/max latency, the threads the store kept busy, and for
+ * the pipeline the mean number of calls per flush, and writes them to
+ * {@code intent-load-result.json}.
+ *
+ * <p>Needs Redis at REDIS_HOST:REDIS_PORT (default 127.0.0.1:6379); uses stations named
+ * {@code load-*}.
+ *
+ * <p>Run: {@code java -cp target/benchmarks.jar com.imt.lastmile.matching.bench.IntentLoadTest [intents/s] [seconds] [stations] [blocking|pipelined]}
+ */
+public final class IntentLoadTest {
+  private static final String[] DESTINATIONS = {"north", "east", "west"};
+  private static final int WARMUP_SECONDS = 3;
+
+  private IntentLoadTest() {}
+
+  public static void main(String[] args) throws Exception {
+    int rate = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+    int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+    int stations = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+    List<MatchingStoreProperties.Io> modes = args.length > 3
+        ? List.of(MatchingStoreProperties.Io.valueOf(args[3].toUpperCase()))
+        : List.of(MatchingStoreProperties.Io.values());
+    System.out.printf("%-10s %8s %10s %9s %9s %9s %9s %8s %12s%n", "io", "target/s", "achieved/s", "p50 ms", "p99 ms",
+        "p99.9 ms", "max ms", "threads", "calls/flush");
+    List<Map<String, Object>> runs = new ArrayList<>();
+    for (MatchingStoreProperties.Io io : modes) {
+      runs.add(run(io, rate, seconds, stations));
+    }
+    JsonResults.write(Path.of("intent-load-result.json"), "IntentLoadTest", runs);
+  }
+
+  private static Map<String, Object> run(MatchingStoreProperties.Io io, int rate, int seconds, int stations) throws Exception {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    int threadsBefore = threads.getThreadCount();
+    LettuceConnectionFactory connectionFactory = TakeMatchingContentionBenchmark.connect();
+    MatchingStoreProperties props = new MatchingStoreProperties();
+    props.setIo(io);
+    RedisTemplate<String, Object> template = new MatchingServiceApplication().redisTemplate(connectionFactory, props);
+    template.afterPropertiesSet();
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    RedisPipeline pipeline = new RedisPipeline(connectionFactory, props, registry);
+    RiderIntentStore store = new RedisRiderIntentStore(template, props, new FirstFitPolicy(), new PolicyProperties(), pipeline,
+        registry);
+    StationLanes lanes = new StationLanes(new LaneProperties(), registry);
+    for (int s = 0; s < stations; s++) {
+      store.clear("load-" + s);
+    }
+
+    // Warm up at the same rate, then measure
+    drive(store, lanes, io, rate, WARMUP_SECONDS, stations, new long[rate * WARMUP_SECONDS], 0);
+    threads.resetPeakThreadCount();
+    long[] latencies = new long[rate * seconds];
+    long start = System.nanoTime();
+    drive(store, lanes, io, rate, seconds, stations, latencies, rate * WARMUP_SECONDS);
+    double elapsed = (System.nanoTime() - start) / 1e9;
+    int storeThreads = threads.getPeakThreadCount() - threadsBefore;
+
+    Arrays.sort(latencies);
+    double flushes = io == MatchingStoreProperties.Io.PIPELINED
+        ? registry.get("matching.pipeline.batch").summary().mean()
+        : 1;
+    Map<String, Object> run = new LinkedHashMap<>();
+    run.put("io", io.name().toLowerCase());
+    run.put("stations", stations);
+    run.put("targetPerSecond", rate);
+    run.put("achievedPerSecond", Math.round(latencies.length / elapsed));
+    run.put("p50Millis", JsonResults.millis(latencies, 0.50));
+    run.put("p99Millis", JsonResults.millis(latencies, 0.99));
+    run.put("p999Millis", JsonResults.millis(latencies, 0.999));
+    run.put("maxMillis", JsonResults.millis(latencies, 1));
+    run.put("threads", storeThreads);
+    run.put("callsPerFlush", Math.round(flushes * 10) / 10.0);
+    System.out.printf("%-10s %8d %10d %9.2f %9.2f %9.2f %9.2f %8d %12.1f%n", run.get("io"), rate,
+        run.get("achievedPerSecond"), run.get("p50Millis"), run.get("p99Millis"), run.get("p999Millis"),
+        run.get("maxMillis"), storeThreads, flushes);
+
+    for (int s = 0; s < stations; s++) {
+      store.clear("load-" + s);
+    }
+    connectionFactory.destroy();
+    return run;
+  }
+
+  /** Issues {@code latencies.length} calls at {@code rate} per second and waits for all of them. */
+  private static void drive(RiderIntentStore store, StationLanes lanes, MatchingStoreProperties.Io io, int rate,
+      int seconds, int stations, long[] latencies, int firstRider) throws InterruptedException {
+    Random random = new Random(firstRider);
+    CountDownLatch done = new CountDownLatch(latencies.length);
+    AtomicInteger failures = new AtomicInteger();
+    long period = TimeUnit.SECONDS.toNanos(1) / rate;
+    long start = System.nanoTime();
+    for (int i = 0; i < latencies.length; i++) {
+      long due = start + i * period;
+      long wait = due - System.nanoTime();
+      if (wait > 0) {
+        LockSupport.parkNanos(wait);
+      }
+      String station = "load-" + random.nextInt(stations);
+      String destination = DESTINATIONS[random.nextInt(DESTINATIONS.length)];
+      CompletableFuture<?> call;
+      if (i % 10 == 9) {
+        int seats = 1 + random.nextInt(4);
+        call = io == MatchingStoreProperties.Io.PIPELINED
+            ? store.takeMatchingAsync(station, destination, seats, 0)
+            : lanes.submit(station, () -> store.takeMatching(station, destination, seats, 0));
+      } else {
+        Instant now = Instant.now();
+        RiderIntent rider = new RiderIntent("load-" + (firstRider + i), station, destination, now, now, 1);
+        call = io == MatchingStoreProperties.Io.PIPELINED
+            ? store.addAsync(rider)
+            : lanes.submit(station, () -> {
+              store.add(rider);
+              return null;
+            });
+      }
+      int slot = i;
+      call.whenComplete((result, error) -> {
+        latencies[slot] = System.nanoTime() - due;
+        if (error != null) {
+          failures.incrementAndGet();
+        }
+        done.countDown();
+      });
+    }
+    done.await();
+    if (failures.get() > 0) {
+      System.out.printf("%d of %d calls failed%n", failures.get(), latencies.length);
+    }
+  }
+}
@@ -0,0 +1,39 @@
+package com.imt.lastmile.matching.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the results of a load tool as JSON, one object per run with its parameters and
+ * measurements in a fixed order, so files from two commits can be diffed directly. JMH benchmarks
+ * get the same from {@link Benchmarks}.
+ */
+final class JsonResults {
+  private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+  private JsonResults() {}
+
+  static void write(Path file, String tool, List<Map<String, Object>> runs) throws IOException {
+    Map<String, Object> document = new LinkedHashMap<>();
+    document.put("tool", tool);
+    document.put("jvm", System.getProperty("java.vm.name") + " " + System.getProperty("java.version"));
+    document.put("cpus", Runtime.getRuntime().availableProcessors());
+    document.put("runs", runs);
+    MAPPER.writeValue(file.toFile(), document);
+    System.out.println("Results written to " + file.toAbsolutePath());
+  }
+
+  /** Latency in milliseconds at a quantile of sorted nanosecond samples, rounded to microseconds. */
+  static double millis(long[] sorted, double quantile) {
+    if (sorted.length == 0) {
+      return 0;
+    }
+    long nanos = sorted[(int) Math.max(0, Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1))];
+    return Math.round(nanos / 1e3) / 1e3;
+  }
+}
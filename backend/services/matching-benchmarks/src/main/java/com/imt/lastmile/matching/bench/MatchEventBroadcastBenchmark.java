@@ -0,0 +1,85 @@
+package com.imt.lastmile.matching.bench;
+
+import com.imt.lastmile.matching.events.BroadcastProperties;
+import com.imt.lastmile.matching.events.MatchEventBroadcaster;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import lastmile.matching.MatchEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time the publishing thread spends on one match event with {@code subscribers} connected clients
+ * spread over 100 stations, so about 1% of them want it. {@code scan} is the former broadcast: walk
+ * every subscriber and write to the interested ones inline. {@code indexed} is
+ * {@link MatchEventBroadcaster}, which looks up the station and only queues. Streams are no-ops, so
+ * this measures the fan-out itself, not network writes. No Redis needed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MatchEventBroadcastBenchmark {
+  private static final int STATIONS = 100;
+
+  @Param({"100", "10000"})
+  int subscribers;
+
+  private record Subscriber(StreamObserver<MatchEvent> observer, Set<String> stationIds) {}
+
+  private final List<Subscriber> scanned = new CopyOnWriteArrayList<>();
+  private MatchEventBroadcaster broadcaster;
+  private MatchEvent event;
+
+  private static final StreamObserver<MatchEvent> NO_OP = new StreamObserver<>() {
+    @Override public void onNext(MatchEvent value) {}
+    @Override public void onError(Throwable t) {}
+    @Override public void onCompleted() {}
+  };
+
+  @Setup
+  public void setup() {
+    broadcaster = new MatchEventBroadcaster(new BroadcastProperties(), new SimpleMeterRegistry());
+    List<Subscriber> all = new ArrayList<>();
+    for (int i = 0; i < subscribers; i++) {
+      String station = "station-" + (i % STATIONS);
+      all.add(new Subscriber(NO_OP, Set.of(station)));
+      broadcaster.subscribe(NO_OP, List.of(station));
+    }
+    scanned.addAll(all);
+    event = MatchEvent.newBuilder().setEventId("bench").setStationAreaId("station-7").build();
+  }
+
+  @Benchmark
+  public int scan() {
+    int sent = 0;
+    for (Subscriber sub : scanned) {
+      if (sub.stationIds().contains(event.getStationAreaId())) {
+        sub.observer().onNext(event);
+        sent++;
+      }
+    }
+    return sent;
+  }
+
+  @Benchmark
+  public void indexed() {
+    broadcaster.publish(event);
+  }
+}
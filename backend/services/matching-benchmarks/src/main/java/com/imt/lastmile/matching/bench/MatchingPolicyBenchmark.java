@@ -0,0 +1,58 @@
+package com.imt.lastmile.matching.bench;
+
+import com.imt.lastmile.matching.domain.RiderIntent;
+import com.imt.lastmile.matching.policy.FirstFitPolicy;
+import com.imt.lastmile.matching.policy.KnapsackPolicy;
+import com.imt.lastmile.matching.policy.MatchingPolicy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One seat selection over a synthetic station queue of {@code candidates} riders, as the store
+ * runs it after a peek. See {@link SeatUtilizationSimulation} for what the policies seat.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MatchingPolicyBenchmark {
+  @Param({"FIRST_FIT", "KNAPSACK"})
+  String policyType;
+
+  @Param({"8", "64"})
+  int candidates;
+
+  @Param({"4", "8"})
+  int seats;
+
+  MatchingPolicy policy;
+  List<RiderIntent> queue;
+  Instant now;
+
+  @Setup
+  public void setup() {
+    policy = policyType.equals("KNAPSACK") ? new KnapsackPolicy(64, Duration.ofMillis(2)) : new FirstFitPolicy();
+    now = Instant.now();
+    queue = SeatUtilizationSimulation.syntheticQueue(candidates, now, 42);
+  }
+
+  @Benchmark
+  public int[] select() {
+    return policy.select(queue, seats, now);
+  }
+}
@@ -0,0 +1,85 @@
+package com.imt.lastmile.matching.bench;
+
+import com.imt.lastmile.matching.MatchingServiceApplication;
+import com.imt.lastmile.matching.domain.MatchingStoreProperties;
+import com.imt.lastmile.matching.domain.MatchingStoreProperties.Codec;
+import com.imt.lastmile.matching.domain.RiderIntent;
+import java.time.Instant;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * Encoding and decoding rider intents with the value serializer the service configures, per
+ * intent. Bytes per intent are printed once per trial. No Redis needed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RiderIntentCodecBenchmark {
+  private static final int INTENTS = 1_000;
+
+  @Param({"JSON", "BINARY"})
+  Codec codec;
+
+  RedisSerializer<Object> serializer;
+  RiderIntent[] intents;
+  byte[][] members;
+
+  @Setup
+  @SuppressWarnings("unchecked")
+  public void setup() {
+    MatchingStoreProperties props = new MatchingStoreProperties();
+    props.setCodec(codec);
+    // The template is never connected; only its serializer is used
+    serializer = (RedisSerializer<Object>) new MatchingServiceApplication()
+        .redisTemplate((RedisConnectionFactory) null, props).getValueSerializer();
+
+    Random random = new Random(42);
+    Instant now = Instant.now();
+    intents = new RiderIntent[INTENTS];
+    members = new byte[INTENTS][];
+    long bytes = 0;
+    for (int i = 0; i < INTENTS; i++) {
+      intents[i] = new RiderIntent(UUID.randomUUID().toString(), "area-" + random.nextInt(20),
+          "area-" + random.nextInt(200), now, now.plusSeconds(random.nextInt(1800)), 1 + random.nextInt(3));
+      members[i] = serializer.serialize(intents[i]);
+      bytes += members[i].length;
+    }
+    System.out.printf("%n%s: %.1f bytes per intent%n", codec, (double) bytes / INTENTS);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(INTENTS)
+  public void encode(Blackhole bh) {
+    for (RiderIntent intent : intents) {
+      bh.consume(serializer.serialize(intent));
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(INTENTS)
+  public void decode(Blackhole bh) {
+    for (byte[] member : members) {
+      bh.consume(serializer.deserialize(member));
+    }
+  }
+}
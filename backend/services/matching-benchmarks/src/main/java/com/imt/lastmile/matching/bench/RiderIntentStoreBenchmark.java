@@ -0,0 +1,147 @@
+package com.imt.lastmile.matching.bench;
+
+import com.imt.lastmile.matching.MatchingServiceApplication;
+import com.imt.lastmile.matching.domain.InMemoryRiderIntentStore;
+import com.imt.lastmile.matching.domain.MatchingStoreProperties;
+import com.imt.lastmile.matching.domain.MatchingStoreProperties.Engine;
+import com.imt.lastmile.matching.domain.RedisRiderIntentStore;
+import com.imt.lastmile.matching.domain.RiderIntent;
+import com.imt.lastmile.matching.domain.RiderIntentStore;
+import com.imt.lastmile.matching.policy.PolicyProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+/**
+ * Single calls into each {@link RiderIntentStore} engine at one station holding {@code depth}
+ * riders bound for three destinations, with party sizes drawn from {@code partyMix} (see
+ * {@link SeatUtilizationSimulation}). Every operation leaves the station at the same depth:
+ *
+ * <ul>
+ *   <li>{@code add}: a queued rider registers again, moving to the back of a random bucket.
+ *   <li>{@code removeThenAdd}: a queued rider cancels and registers again; the cancel costs the
+ *       difference from {@code add}.
+ *   <li>{@code takeThenRefill}: a four-seat driver bound for a random destination takes with the
+ *       {@code policy}, and the riders taken register again.
+ * </ul>
+ *
+ * <p>The {@code REDIS} engine needs Redis at REDIS_HOST:REDIS_PORT (default 127.0.0.1:6379) and
+ * uses stations named {@code bench-store-*}; run only the in-memory engine with
+ * {@code -p engine=MEMORY}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RiderIntentStoreBenchmark {
+  private static final String[] DESTINATIONS = {"north", "east", "west"};
+  private static final int SEATS = 4;
+
+  @Param({"MEMORY", "REDIS"})
+  Engine engine;
+
+  @Param({"10", "100", "1000"})
+  int depth;
+
+  @Param({"singles", "groups"})
+  String partyMix;
+
+  @Param({"KNAPSACK"})
+  PolicyProperties.Type policy;
+
+  LettuceConnectionFactory connectionFactory;
+  RiderIntentStore store;
+  String station;
+  Random random;
+  int next;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    MatchingStoreProperties props = new MatchingStoreProperties();
+    props.setEngine(engine);
+    PolicyProperties policyProps = new PolicyProperties();
+    policyProps.setType(policy);
+    MatchingServiceApplication app = new MatchingServiceApplication();
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    if (engine == Engine.MEMORY) {
+      store = new InMemoryRiderIntentStore(props, app.matchingPolicy(policyProps), policyProps, registry);
+    } else {
+      connectionFactory = TakeMatchingContentionBenchmark.connect();
+      RedisTemplate<String, Object> template = app.redisTemplate(connectionFactory, props);
+      template.afterPropertiesSet();
+      store = new RedisRiderIntentStore(template, props, app.matchingPolicy(policyProps), policyProps, registry);
+    }
+
+    station = "bench-store-" + depth + "-" + partyMix;
+    store.clear(station);
+    random = new Random(42);
+    // Arrivals spread over the last 20 minutes, so none expire during the trial
+    Instant now = Instant.now();
+    for (int i = 0; i < depth; i++) {
+      store.add(rider(i, now.minusSeconds((long) (depth - i) * 1200 / depth)));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    store.clear(station);
+    if (store instanceof InMemoryRiderIntentStore memory) {
+      memory.close();
+    }
+    if (connectionFactory != null) {
+      connectionFactory.destroy();
+    }
+  }
+
+  private RiderIntent rider(int index, Instant arrival) {
+    String destination = DESTINATIONS[random.nextInt(DESTINATIONS.length)];
+    return new RiderIntent("store-" + index, station, destination, arrival, arrival,
+        SeatUtilizationSimulation.partySize(random, partyMix));
+  }
+
+  private int nextRider() {
+    next = (next + 1) % depth;
+    return next;
+  }
+
+  @Benchmark
+  public void add() {
+    store.add(rider(nextRider(), Instant.now()));
+  }
+
+  @Benchmark
+  public void removeThenAdd() {
+    int index = nextRider();
+    store.remove("store-" + index, station);
+    store.add(rider(index, Instant.now()));
+  }
+
+  @Benchmark
+  public List<RiderIntent> takeThenRefill() {
+    List<RiderIntent> taken = store.takeMatching(station, DESTINATIONS[random.nextInt(DESTINATIONS.length)], SEATS, 0);
+    Instant now = Instant.now();
+    for (RiderIntent rider : taken) {
+      store.add(new RiderIntent(rider.getRiderId(), station, rider.getDestinationAreaId(), now, now, rider.getPartySize()));
+    }
+    return taken;
+  }
+}
@@ -0,0 +1,115 @@
+package com.imt.lastmile.matching.bench;
+
+import com.imt.lastmile.matching.domain.RiderIntent;
+import com.imt.lastmile.matching.policy.FirstFitPolicy;
+import com.imt.lastmile.matching.policy.KnapsackPolicy;
+import com.imt.lastmile.matching.policy.MatchingPolicy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Replays the same synthetic station traffic through each matching policy and reports the share
+ * of offered seats that were filled and how long seated riders had waited.
+ *
+ * <p>Drivers arrive about every 60 seconds with 3 to 6 free seats and riders give up after 30
+ * minutes. Each scenario sets how often parties arrive and how large they are: "singles" is 1
+ * (50%), 2 (30%), 3 (15%) or 4 (5%); "groups" is 1 (20%), 2 (35%), 3 (35%) or 4 (10%).
+ *
+ * <p>Run: {@code java -cp target/benchmarks.jar com.imt.lastmile.matching.bench.SeatUtilizationSimulation [hours] [seed]}
+ */
+public final class SeatUtilizationSimulation {
+  private static final int MAX_WAIT_SECONDS = 1800;
+
+  private SeatUtilizationSimulation() {}
+
+  /** Cumulative percentages of parties of 1, 2, 3 and 4 */
+  private static final int[] SINGLES = {50, 80, 95, 100};
+  private static final int[] GROUPS = {20, 55, 90, 100};
+
+  /** "Groups" party sizes; arrivals spread over the last 30 minutes, oldest first. */
+  static List<RiderIntent> syntheticQueue(int size, Instant now, long seed) {
+    Random random = new Random(seed);
+    List<RiderIntent> queue = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      Instant arrival = now.minusSeconds((long) (size - i) * MAX_WAIT_SECONDS / (size + 1));
+      queue.add(new RiderIntent("rider-" + i, "station", "dest", arrival, arrival, partySize(random, GROUPS)));
+    }
+    return queue;
+  }
+
+  /** A party size from a named mix: "ones" (always 1), "singles" or "groups". */
+  static int partySize(Random random, String mix) {
+    return switch (mix) {
+      case "ones" -> 1;
+      case "singles" -> partySize(random, SINGLES);
+      case "groups" -> partySize(random, GROUPS);
+      default -> throw new IllegalArgumentException("Unknown party mix " + mix);
+    };
+  }
+
+  private static int partySize(Random random, int[] mix) {
+    int p = random.nextInt(100);
+    int size = 1;
+    while (p >= mix[size - 1]) {
+      size++;
+    }
+    return size;
+  }
+
+  public static void main(String[] args) {
+    int hours = args.length > 0 ? Integer.parseInt(args[0]) : 24;
+    long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+    System.out.printf("%-8s %8s %-10s %8s %8s %8s %10s %12s%n", "parties", "every s", "policy", "offered", "seated", "util",
+        "abandoned", "mean wait s");
+    for (int[] mix : List.of(SINGLES, GROUPS)) {
+      for (int riderInterval : new int[] {20, 30, 45}) {
+        String scenario = String.format("%-8s %8d", mix == SINGLES ? "singles" : "groups", riderInterval);
+        run(scenario, "first-fit", new FirstFitPolicy(), mix, riderInterval, hours, seed);
+        run(scenario, "knapsack", new KnapsackPolicy(64, Duration.ofMillis(2)), mix, riderInterval, hours, seed);
+      }
+    }
+  }
+
+  private static void run(String scenario, String name, MatchingPolicy policy, int[] mix, int riderInterval, int hours,
+      long seed) {
+    Random random = new Random(seed);
+    Instant start = Instant.parse("2026-01-01T06:00:00Z");
+    List<RiderIntent> queue = new ArrayList<>();
+    long offered = 0;
+    long seated = 0;
+    long abandoned = 0;
+    long waitedPassengerSeconds = 0;
+    int riderId = 0;
+    double nextRider = 0;
+    double nextDriver = 0;
+    for (int t = 0; t < hours * 3600; t++) {
+      Instant now = start.plusSeconds(t);
+      while (nextRider <= t) {
+        queue.add(new RiderIntent("r" + riderId++, "station", "dest", now, now, partySize(random, mix)));
+        nextRider += -Math.log(1 - random.nextDouble()) * riderInterval;
+      }
+      long cutoff = now.getEpochSecond() - MAX_WAIT_SECONDS;
+      for (int i = queue.size() - 1; i >= 0; i--) {
+        if (queue.get(i).getArrivalTime().getEpochSecond() <= cutoff) {
+          abandoned += queue.remove(i).getPartySize();
+        }
+      }
+      while (nextDriver <= t) {
+        int seats = 3 + random.nextInt(4);
+        offered += seats;
+        int[] chosen = policy.select(queue, seats, now);
+        for (int k = chosen.length - 1; k >= 0; k--) {
+          RiderIntent r = queue.remove(chosen[k]);
+          seated += r.getPartySize();
+          waitedPassengerSeconds += (long) r.getPartySize() * (now.getEpochSecond() - r.getArrivalTime().getEpochSecond());
+        }
+        nextDriver += -Math.log(1 - random.nextDouble()) * 60;
+      }
+    }
+    System.out.printf("%s %-10s %8d %8d %7.1f%% %10d %12.0f%n", scenario, name, offered, seated, 100.0 * seated / offered, abandoned,
+        seated == 0 ? 0 : (double) waitedPassengerSeconds / seated);
+  }
+}
@@ -0,0 +1,139 @@
+package com.imt.lastmile.matching.bench;
+
+import com.imt.lastmile.matching.MatchingServiceApplication;
+import com.imt.lastmile.matching.domain.MatchingStoreProperties;
+import com.imt.lastmile.matching.domain.MatchingStoreProperties.TakeStrategy;
+import com.imt.lastmile.matching.domain.RedisRiderIntentStore;
+import com.imt.lastmile.matching.domain.RiderIntent;
+import com.imt.lastmile.matching.domain.RiderIntentStore;
+import com.imt.lastmile.matching.lane.LaneProperties;
+import com.imt.lastmile.matching.lane.StationLanes;
+import com.imt.lastmile.matching.policy.FirstFitPolicy;
+import com.imt.lastmile.matching.policy.PolicyProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+/**
+ * EvaluateDriver against one busy station in a real Redis: every operation is a rider joining the
+ * queue followed by a one-seat driver taking from it, on eight threads at once. {@code backlog}
+ * riders bound for another destination wait at the same station. With {@code lanes} both steps
+ * go through {@link StationLanes}, as the gRPC handlers do. Seats are filled first fit, so each
+ * take is a single script call.
+ *
+ * <p>{@code matchedRiders} is matches per second; {@code emptyTakes} counts drivers sent away with
+ * nothing although a rider was waiting, which under WATCH is a lost optimistic transaction. The
+ * total of {@code matching.take.cas.failures} is printed at the end of each trial.
+ *
+ * <p>Needs Redis at REDIS_HOST:REDIS_PORT (default 127.0.0.1:6379); uses stations named
+ * {@code bench-*}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class TakeMatchingContentionBenchmark {
+  private static final String DESTINATION = "area-dest";
+
+  @Param({"LUA", "WATCH"})
+  TakeStrategy strategy;
+
+  @Param({"50", "500"})
+  int backlog;
+
+  @Param({"false", "true"})
+  boolean lanes;
+
+  LettuceConnectionFactory connectionFactory;
+  RedisTemplate<String, Object> template;
+  SimpleMeterRegistry registry;
+  RiderIntentStore store;
+  StationLanes stationLanes;
+  String station;
+
+  /** Per-thread outcome counters, reported by JMH as rates. */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class Outcome {
+    public long matchedRiders;
+    public long emptyTakes;
+  }
+
+  @Setup(Level.Trial)
+  public void setup() {
+    connectionFactory = connect();
+    MatchingStoreProperties props = new MatchingStoreProperties();
+    props.setTakeStrategy(strategy);
+    template = new MatchingServiceApplication().redisTemplate(connectionFactory, props);
+    template.afterPropertiesSet();
+    registry = new SimpleMeterRegistry();
+    store = new RedisRiderIntentStore(template, props, new FirstFitPolicy(), new PolicyProperties(), registry);
+    LaneProperties laneProps = new LaneProperties();
+    laneProps.setEnabled(lanes);
+    stationLanes = new StationLanes(laneProps, registry);
+
+    station = "bench-" + strategy.name().toLowerCase() + "-" + backlog;
+    store.clear(station);
+    Instant later = Instant.now().plusSeconds(600);
+    for (int i = 0; i < backlog; i++) {
+      store.add(new RiderIntent("backlog-" + i, station, "area-elsewhere", Instant.now(), later, 1));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    System.out.printf("%n%s backlog=%d lanes=%s: cas failures=%.0f%n", strategy, backlog, lanes,
+        registry.counter("matching.take.cas.failures").count());
+    store.clear(station);
+    connectionFactory.destroy();
+  }
+
+  @Benchmark
+  public List<RiderIntent> riderJoinsThenDriverTakes(Outcome outcome) {
+    Instant now = Instant.now();
+    RiderIntent rider = new RiderIntent(UUID.randomUUID().toString(), station, DESTINATION, now, now, 1);
+    stationLanes.submit(station, () -> {
+      store.add(rider);
+      return rider;
+    }).join();
+    List<RiderIntent> taken = stationLanes.submit(station, () -> store.takeMatching(station, DESTINATION, 1, 0)).join();
+    if (taken.isEmpty()) {
+      outcome.emptyTakes++;
+    } else {
+      outcome.matchedRiders += taken.size();
+    }
+    return taken;
+  }
+
+  static LettuceConnectionFactory connect() {
+    RedisStandaloneConfiguration config = new RedisStandaloneConfiguration(
+        System.getenv().getOrDefault("REDIS_HOST", "127.0.0.1"),
+        Integer.parseInt(System.getenv().getOrDefault("REDIS_PORT", "6379")));
+    LettuceConnectionFactory factory = new LettuceConnectionFactory(config);
+    factory.afterPropertiesSet();
+    return factory;
+  }
+}
@@ -2,13 +2,16 @@ package com.imt.lastmile.matching;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class MatchingServiceApplication {
   public static void main(String[] args) { SpringApplication.run(MatchingServiceApplication.class, args); }
 
   @org.springframework.context.annotation.Bean
-  public org.springframework.data.redis.core.RedisTemplate<String, Object> redisTemplate(org.springframework.data.redis.connection.RedisConnectionFactory connectionFactory) {
+  public org.springframework.data.redis.core.RedisTemplate<String, Object> redisTemplate(org.springframework.data.redis.connection.RedisConnectionFactory connectionFactory,
+      com.imt.lastmile.matching.domain.MatchingStoreProperties props) {
     org.springframework.data.redis.core.RedisTemplate<String, Object> template = new org.springframework.data.redis.core.RedisTemplate<>();
     template.setConnectionFactory(connectionFactory);
     
@@ -17,7 +20,42 @@ public class MatchingServiceApplication {
     mapper.disable(com.fasterxml.jackson.databind.SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
     
     template.setKeySerializer(new org.springframework.data.redis.serializer.StringRedisSerializer());
-    template.setValueSerializer(new org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer(mapper));
+    template.setValueSerializer(new com.imt.lastmile.matching.domain.RiderIntentCodec(
+        new org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer(mapper),
+        props.getCodec() == com.imt.lastmile.matching.domain.MatchingStoreProperties.Codec.BINARY));
     return template;
   }
+
+  @org.springframework.context.annotation.Bean
+  public com.imt.lastmile.matching.policy.MatchingPolicy matchingPolicy(com.imt.lastmile.matching.policy.PolicyProperties props) {
+    if (props.getType() == com.imt.lastmile.matching.policy.PolicyProperties.Type.FIRST_FIT) {
+      return new com.imt.lastmile.matching.policy.FirstFitPolicy();
+    }
+    return new com.imt.lastmile.matching.policy.KnapsackPolicy(props.getMaxCandidates(),
+        java.time.Duration.ofNanos(props.getTimeBudgetMicros() * 1_000));
+  }
+
+  @org.springframework.context.annotation.Bean
+  public com.imt.lastmile.matching.domain.RiderIntentStore riderIntentStore(com.imt.lastmile.matching.domain.MatchingStoreProperties props,
+      org.springframework.data.redis.core.RedisTemplate<String, Object> redisTemplate,
+      com.imt.lastmile.matching.domain.RedisPipeline pipeline,
+      com.imt.lastmile.matching.policy.MatchingPolicy policy,
+      com.imt.lastmile.matching.policy.PolicyProperties policyProps,
+      io.micrometer.core.instrument.MeterRegistry registry) {
+    if (props.getEngine() == com.imt.lastmile.matching.domain.MatchingStoreProperties.Engine.MEMORY) {
+      return new com.imt.lastmile.matching.domain.InMemoryRiderIntentStore(props, policy, policyProps, registry);
+    }
+    return new com.imt.lastmile.matching.domain.RedisRiderIntentStore(redisTemplate, props, policy, policyProps, pipeline, registry);
+  }
+
+  @org.springframework.context.annotation.Bean
+  public com.imt.lastmile.matching.events.MatchEventBus matchEventBus(com.imt.lastmile.matching.events.EventBusProperties props,
+      org.springframework.data.redis.connection.RedisConnectionFactory connectionFactory,
+      org.springframework.data.redis.core.RedisTemplate<String, Object> redisTemplate,
+      com.imt.lastmile.matching.events.MatchEventBroadcaster broadcaster) {
+    if (props.getBus() == com.imt.lastmile.matching.events.EventBusProperties.Bus.MEMORY) {
+      return new com.imt.lastmile.matching.events.InMemoryMatchEventBus(props, broadcaster);
+    }
+    return new com.imt.lastmile.matching.events.RedisMatchEventBus(connectionFactory, redisTemplate, props, broadcaster);
+  }
 }
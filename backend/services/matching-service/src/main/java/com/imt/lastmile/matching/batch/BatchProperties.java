@@ -0,0 +1,32 @@
+package com.imt.lastmile.matching.batch;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "matching.batch")
+public class BatchProperties {
+  /** Collect EvaluateDriver requests per station and assign riders to them jointly */
+  private boolean enabled = false;
+  /** How long a station's window stays open after its first driver; every driver waits up to this long */
+  private long windowMillis = 500;
+  /** A window closes early once this many drivers are waiting in it */
+  private int maxDrivers = 8;
+  /** Extra cost per passenger of seating a rider with a driver that declared no destination */
+  private long destinationPenaltySeconds = 600;
+  /** Largest joint search (product of each driver's seats + 1) before drivers are served one by one */
+  private int maxStates = 20_000;
+  /** Joint solve time after which drivers are served one by one instead */
+  private long timeBudgetMicros = 20_000;
+
+  public boolean isEnabled() { return enabled; }
+  public void setEnabled(boolean enabled) { this.enabled = enabled; }
+  public long getWindowMillis() { return windowMillis; }
+  public void setWindowMillis(long windowMillis) { this.windowMillis = windowMillis; }
+  public int getMaxDrivers() { return maxDrivers; }
+  public void setMaxDrivers(int maxDrivers) { this.maxDrivers = maxDrivers; }
+  public long getDestinationPenaltySeconds() { return destinationPenaltySeconds; }
+  public void setDestinationPenaltySeconds(long destinationPenaltySeconds) { this.destinationPenaltySeconds = destinationPenaltySeconds; }
+  public int getMaxStates() { return maxStates; }
+  public void setMaxStates(int maxStates) { this.maxStates = maxStates; }
+  public long getTimeBudgetMicros() { return timeBudgetMicros; }
+  public void setTimeBudgetMicros(long timeBudgetMicros) { this.timeBudgetMicros = timeBudgetMicros; }
+}
@@ -0,0 +1,9 @@
+package com.imt.lastmile.matching.batch;
+
+/** A driver asking for riders at a station, as sent in EvaluateDriver. */
+public record DriverOffer(String driverId, String stationAreaId, String destinationAreaId, int seats, int etaMinutes) {
+  /** True if the driver declared no destination and takes riders to any. */
+  public boolean anyDestination() {
+    return destinationAreaId == null || destinationAreaId.isBlank();
+  }
+}
@@ -0,0 +1,196 @@
+package com.imt.lastmile.matching.batch;
+
+import com.imt.lastmile.matching.domain.RiderIntent;
+import com.imt.lastmile.matching.domain.RiderIntentStore;
+import com.imt.lastmile.matching.policy.MatchingPolicy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Assigns one station's waiting riders to a batch of drivers at once, as a min-cost assignment.
+ * A rider fits a driver heading to the rider's destination, or one that declared none, if the
+ * rider arrives no later than five minutes after the driver. Among all assignments that respect
+ * every driver's seats, the solver seats the most passengers; ties go to the assignment with the
+ * lowest cost, where each seated passenger costs the seconds they still wait for their driver,
+ * plus a penalty for a driver without a destination, minus the seconds they have already waited.
+ * So a rider goes to the driver bound for their exact destination even if it arrives a little
+ * later, and the longest waiting riders are seated first.
+ *
+ * <p>Parties cannot be split, so this is solved exactly by dynamic programming over riders, with
+ * one state per combination of seats used in each driver. When that product exceeds
+ * {@code maxStates} or the solve overruns its time budget, drivers are served one by one in ETA
+ * order with the {@link MatchingPolicy} instead.
+ */
+public final class JointAssignment {
+  /** Value of one seated passenger; larger than any total of waits and penalties it is traded against */
+  private static final long SEATED = 1L << 32;
+  private static final long UNREACHABLE = Long.MIN_VALUE;
+
+  private final long destinationPenaltySeconds;
+  private final int maxStates;
+  private final long budgetNanos;
+  private final MatchingPolicy policy;
+
+  public JointAssignment(long destinationPenaltySeconds, int maxStates, Duration budget, MatchingPolicy policy) {
+    this.destinationPenaltySeconds = destinationPenaltySeconds;
+    this.maxStates = maxStates;
+    this.budgetNanos = budget.toNanos();
+    this.policy = policy;
+  }
+
+  /**
+   * Jointly assigns candidates to drivers.
+   *
+   * @param candidates riders waiting at the drivers' station, in arrival order
+   * @return for each candidate the index of its driver, or -1 if it stays in the queue
+   */
+  public int[] assign(List<DriverOffer> drivers, List<RiderIntent> candidates, Instant now) {
+    long deadline = System.nanoTime() + budgetNanos;
+    int k = drivers.size();
+    int n = candidates.size();
+    int[] driverOf = new int[n];
+    Arrays.fill(driverOf, -1);
+    if (k == 0 || n == 0) {
+      return driverOf;
+    }
+    int[] seats = new int[k];
+    int[] stride = new int[k];
+    long states = 1;
+    for (int d = 0; d < k; d++) {
+      seats[d] = Math.max(0, drivers.get(d).seats());
+      stride[d] = (int) states;
+      states *= seats[d] + 1;
+      if (states > maxStates || k > Byte.MAX_VALUE) {
+        return byEta(drivers, candidates, now);
+      }
+    }
+
+    int size = (int) states;
+    long[] best = new long[size];
+    long[] next = new long[size];
+    Arrays.fill(best, UNREACHABLE);
+    best[0] = 0;
+    // placed[i][s]: 1 + driver that rider i went to in the best assignment using seats s, 0 if none
+    byte[][] placed = new byte[n][];
+    for (int i = 0; i < n; i++) {
+      if (System.nanoTime() >= deadline) {
+        return byEta(drivers, candidates, now);
+      }
+      RiderIntent r = candidates.get(i);
+      int party = r.getPartySize();
+      System.arraycopy(best, 0, next, 0, size);
+      for (int d = 0; d < k; d++) {
+        if (party <= 0 || party > seats[d] || !fits(drivers.get(d), r, now)) {
+          continue;
+        }
+        long value = (long) party * (SEATED - cost(drivers.get(d), r, now));
+        for (int s = 0; s < size; s++) {
+          if (best[s] == UNREACHABLE || (s / stride[d]) % (seats[d] + 1) + party > seats[d]) {
+            continue;
+          }
+          int to = s + party * stride[d];
+          if (best[s] + value > next[to]) {
+            next[to] = best[s] + value;
+            if (placed[i] == null) {
+              placed[i] = new byte[size];
+            }
+            placed[i][to] = (byte) (d + 1);
+          }
+        }
+      }
+      long[] swap = best;
+      best = next;
+      next = swap;
+    }
+
+    int state = 0;
+    for (int s = 1; s < size; s++) {
+      if (best[s] > best[state]) {
+        state = s;
+      }
+    }
+    for (int i = n - 1; i >= 0 && state > 0; i--) {
+      int d = placed[i] == null ? 0 : placed[i][state];
+      if (d > 0) {
+        driverOf[i] = d - 1;
+        state -= candidates.get(i).getPartySize() * stride[d - 1];
+      }
+    }
+    return driverOf;
+  }
+
+  /**
+   * What the same drivers would get answered one at a time in the order given, each taking its
+   * riders with the policy before the next one looks: matching without a batch window.
+   */
+  public int[] firstCome(List<DriverOffer> drivers, List<RiderIntent> candidates, Instant now) {
+    return sequential(drivers, IntStream.range(0, drivers.size()).toArray(), candidates, now);
+  }
+
+  /** Passengers seated by an assignment. */
+  public static int seated(int[] driverOf, List<RiderIntent> candidates) {
+    int pax = 0;
+    for (int i = 0; i < driverOf.length; i++) {
+      if (driverOf[i] >= 0) {
+        pax += candidates.get(i).getPartySize();
+      }
+    }
+    return pax;
+  }
+
+  /** Whether a driver can take a rider at all: destination and arrival time, not seats. */
+  static boolean fits(DriverOffer driver, RiderIntent rider, Instant now) {
+    if (!driver.anyDestination()) {
+      String destination = rider.getDestinationAreaId();
+      if (destination == null || !driver.destinationAreaId().equalsIgnoreCase(destination)) {
+        return false;
+      }
+    }
+    long latest = driverArrival(driver, now) + RiderIntentStore.ARRIVAL_SLACK_SECONDS;
+    return rider.getArrivalTime() != null && rider.getArrivalTime().getEpochSecond() < latest;
+  }
+
+  private long cost(DriverOffer driver, RiderIntent rider, Instant now) {
+    long arrival = rider.getArrivalTime().getEpochSecond();
+    long stillWaits = Math.max(0, driverArrival(driver, now) - Math.max(now.getEpochSecond(), arrival));
+    long waited = Math.max(0, now.getEpochSecond() - arrival);
+    long penalty = driver.anyDestination() ? destinationPenaltySeconds : 0;
+    return stillWaits + penalty - waited;
+  }
+
+  private static long driverArrival(DriverOffer driver, Instant now) {
+    return now.getEpochSecond() + driver.etaMinutes() * 60L;
+  }
+
+  private int[] byEta(List<DriverOffer> drivers, List<RiderIntent> candidates, Instant now) {
+    int[] order = IntStream.range(0, drivers.size()).boxed()
+        .sorted(Comparator.comparingInt(d -> drivers.get(d).etaMinutes()))
+        .mapToInt(Integer::intValue)
+        .toArray();
+    return sequential(drivers, order, candidates, now);
+  }
+
+  private int[] sequential(List<DriverOffer> drivers, int[] order, List<RiderIntent> candidates, Instant now) {
+    int[] driverOf = new int[candidates.size()];
+    Arrays.fill(driverOf, -1);
+    for (int d : order) {
+      List<Integer> indexes = new ArrayList<>();
+      List<RiderIntent> fitting = new ArrayList<>();
+      for (int i = 0; i < candidates.size(); i++) {
+        if (driverOf[i] < 0 && fits(drivers.get(d), candidates.get(i), now)) {
+          indexes.add(i);
+          fitting.add(candidates.get(i));
+        }
+      }
+      for (int c : policy.select(fitting, drivers.get(d).seats(), now)) {
+        driverOf[indexes.get(c)] = d;
+      }
+    }
+    return driverOf;
+  }
+}
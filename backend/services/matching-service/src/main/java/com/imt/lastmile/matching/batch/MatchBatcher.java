@@ -0,0 +1,220 @@
+package com.imt.lastmile.matching.batch;
+
+import com.imt.lastmile.matching.domain.RiderIntent;
+import com.imt.lastmile.matching.domain.RiderIntentStore;
+import com.imt.lastmile.matching.domain.RiderIntentStore.QueuedIntent;
+import com.imt.lastmile.matching.lane.StationLanes;
+import com.imt.lastmile.matching.policy.MatchingPolicy;
+import com.imt.lastmile.matching.policy.PolicyProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.springframework.stereotype.Component;
+
+/**
+ * Micro-batches EvaluateDriver per station. The first driver at a station opens a window of
+ * {@code matching.batch.window-millis}; drivers arriving while it is open join it, and when it
+ * closes, or holds {@code max-drivers}, the station's riders are assigned to all of them at once by
+ * {@link JointAssignment} on the station's lane. The whole assignment is claimed in one script, so
+ * it is applied completely or, after a conflict, computed again.
+ *
+ * <p>Two meters tell whether a window pays off: {@code matching.batch.wait} is the latency it adds
+ * to each driver, {@code matching.batch.seats.gained} the passengers seated per window beyond what
+ * answering the same drivers one by one would have seated.
+ */
+@Component
+public class MatchBatcher {
+  private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(MatchBatcher.class);
+
+  private final BatchProperties props;
+  private final PolicyProperties policyProps;
+  private final RiderIntentStore store;
+  private final StationLanes lanes;
+  private final JointAssignment assignment;
+  private final Map<String, Window> open = new ConcurrentHashMap<>();
+  private final ScheduledThreadPoolExecutor timer;
+  private final Timer windowWait;
+  private final DistributionSummary driversPerWindow;
+  private final DistributionSummary seatsGained;
+  private final Counter claimConflicts;
+  private final Counter fallbacks;
+
+  private record Pending(DriverOffer offer, CompletableFuture<List<RiderIntent>> result, long queuedAt) {}
+
+  /** Drivers waiting at one station; only touched inside the map's compute until it is closed. */
+  private static final class Window {
+    final List<Pending> drivers = new ArrayList<>();
+  }
+
+  public MatchBatcher(BatchProperties props, PolicyProperties policyProps, MatchingPolicy policy, RiderIntentStore store,
+      StationLanes lanes, MeterRegistry registry) {
+    this.props = props;
+    this.policyProps = policyProps;
+    this.store = store;
+    this.lanes = lanes;
+    this.assignment = new JointAssignment(props.getDestinationPenaltySeconds(), props.getMaxStates(),
+        Duration.ofNanos(props.getTimeBudgetMicros() * 1_000), policy);
+    this.timer = props.isEnabled() ? new ScheduledThreadPoolExecutor(1, r -> {
+      Thread t = new Thread(r, "match-batch-window");
+      t.setDaemon(true);
+      return t;
+    }) : null;
+    this.windowWait = Timer.builder("matching.batch.wait")
+        .description("Time a driver waited for its station's batch window to be assigned")
+        .publishPercentiles(0.5, 0.99)
+        .register(registry);
+    this.driversPerWindow = DistributionSummary.builder("matching.batch.drivers")
+        .description("Drivers assigned together per batch window")
+        .register(registry);
+    this.seatsGained = DistributionSummary.builder("matching.batch.seats.gained")
+        .description("Passengers seated per window beyond answering the same drivers one by one")
+        .register(registry);
+    this.claimConflicts = Counter.builder("matching.batch.claim.conflicts")
+        .description("Joint assignments that could not be claimed because a rider had already left the queue")
+        .register(registry);
+    this.fallbacks = Counter.builder("matching.batch.fallbacks")
+        .description("Windows whose drivers were served one by one after every claim attempt conflicted")
+        .register(registry);
+  }
+
+  /** Windows still open are assigned before the timer stops. */
+  @PreDestroy
+  void stop() {
+    if (timer == null) {
+      return;
+    }
+    timer.shutdown();
+    try {
+      timer.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public boolean isEnabled() {
+    return timer != null;
+  }
+
+  /**
+   * Adds a driver to its station's window. The future completes with the riders the driver takes
+   * once the window is assigned, or fails as {@link StationLanes#submit} does.
+   */
+  public CompletableFuture<List<RiderIntent>> evaluate(DriverOffer offer) {
+    String station = offer.stationAreaId();
+    Pending pending = new Pending(offer, new CompletableFuture<>(), System.nanoTime());
+    Window[] full = new Window[1];
+    open.compute(station, (key, window) -> {
+      if (window == null) {
+        Window opened = new Window();
+        timer.schedule(() -> close(station, opened), props.getWindowMillis(), TimeUnit.MILLISECONDS);
+        window = opened;
+      }
+      window.drivers.add(pending);
+      if (window.drivers.size() >= props.getMaxDrivers()) {
+        full[0] = window;
+      }
+      return window;
+    });
+    if (full[0] != null) {
+      close(station, full[0]);
+    }
+    return pending.result();
+  }
+
+  private void close(String station, Window window) {
+    // The timer and a full window may both close it; only the first one to remove it assigns
+    if (!open.remove(station, window)) {
+      return;
+    }
+    lanes.submit(station, () -> assign(station, window.drivers)).whenComplete((results, error) -> {
+      for (int i = 0; i < window.drivers.size(); i++) {
+        CompletableFuture<List<RiderIntent>> result = window.drivers.get(i).result();
+        if (error != null) {
+          result.completeExceptionally(error);
+        } else {
+          result.complete(results.get(i));
+        }
+      }
+    });
+  }
+
+  private List<List<RiderIntent>> assign(String station, List<Pending> pending) {
+    long start = System.nanoTime();
+    for (Pending p : pending) {
+      windowWait.record(start - p.queuedAt(), TimeUnit.NANOSECONDS);
+    }
+    driversPerWindow.record(pending.size());
+    List<DriverOffer> drivers = pending.stream().map(Pending::offer).toList();
+
+    for (int attempt = 0; attempt < policyProps.getClaimAttempts(); attempt++) {
+      List<QueuedIntent> queued = peek(station, drivers);
+      List<RiderIntent> candidates = queued.stream().map(QueuedIntent::intent).toList();
+      Instant now = Instant.now();
+      int[] driverOf = assignment.assign(drivers, candidates, now);
+
+      List<List<RiderIntent>> results = new ArrayList<>(drivers.size());
+      for (int d = 0; d < drivers.size(); d++) {
+        results.add(new ArrayList<>());
+      }
+      List<QueuedIntent> chosen = new ArrayList<>();
+      for (int i = 0; i < driverOf.length; i++) {
+        if (driverOf[i] >= 0) {
+          chosen.add(queued.get(i));
+          results.get(driverOf[i]).add(candidates.get(i));
+        }
+      }
+      if (store.claim(station, chosen)) {
+        int seated = JointAssignment.seated(driverOf, candidates);
+        int firstCome = JointAssignment.seated(assignment.firstCome(drivers, candidates, now), candidates);
+        seatsGained.record(Math.max(0, seated - firstCome));
+        log.debug("Batch at station {}: {} drivers seated {} passengers, {} one by one", station, drivers.size(), seated,
+            firstCome);
+        return results;
+      }
+      claimConflicts.increment();
+    }
+    fallbacks.increment();
+    return drivers.stream()
+        .map(d -> store.takeMatching(station, d.destinationAreaId(), d.seats(), d.etaMinutes()))
+        .toList();
+  }
+
+  /**
+   * Candidates for a window in arrival order: every bucket of the station if any driver goes
+   * anywhere, otherwise just the drivers' destinations, capped at the policy's candidate limit.
+   */
+  private List<QueuedIntent> peek(String station, List<DriverOffer> drivers) {
+    int eta = drivers.stream().mapToInt(DriverOffer::etaMinutes).max().orElse(0);
+    int max = policyProps.getMaxCandidates();
+    if (drivers.stream().anyMatch(DriverOffer::anyDestination)) {
+      return store.peek(station, "", eta, max);
+    }
+    Set<String> destinations = new LinkedHashSet<>();
+    for (DriverOffer d : drivers) {
+      destinations.add(d.destinationAreaId().toLowerCase(Locale.ROOT));
+    }
+    List<QueuedIntent> merged = new ArrayList<>();
+    for (String destination : destinations) {
+      merged.addAll(store.peek(station, destination, eta, max));
+    }
+    if (destinations.size() > 1) {
+      merged.sort(Comparator.comparing(q -> q.intent().getArrivalTime()));
+    }
+    return merged.size() > max ? merged.subList(0, max) : merged;
+  }
+}
@@ -0,0 +1,512 @@
+package com.imt.lastmile.matching.domain;
+
+import com.imt.lastmile.matching.policy.MatchingPolicy;
+import com.imt.lastmile.matching.policy.PolicyProperties;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link RiderIntentStore} in this process, for single-node deployments and tests: no Redis and no
+ * network hop, but nothing is shared with other replicas.
+ *
+ * <p>Each station's buckets are {@link IntentQueue}s. Stations hash onto
+ * {@code matching.store.lock-stripes} locks, and every call runs under its station's lock, so it is
+ * atomic just like a Redis script, including a policy's choice of riders. Moving a rider between
+ * stations takes both locks in stripe order. A rider index maps each rider to their queued entry,
+ * so adding is an upsert and cancelling never scans a queue.
+ *
+ * <p>With {@code matching.store.snapshot-path} set, the intents are written to that file every
+ * {@code snapshot-interval-millis} and at shutdown, one station at a time, in
+ * {@link RiderIntentCodec}'s binary layout; a restart restores them before serving. Intents added
+ * since the last snapshot are lost in a crash.
+ */
+public class InMemoryRiderIntentStore implements RiderIntentStore, AutoCloseable {
+  private static final Logger log = LoggerFactory.getLogger(InMemoryRiderIntentStore.class);
+  /** "LMRI" */
+  private static final int SNAPSHOT_MAGIC = 0x4C4D5249;
+  private static final int SNAPSHOT_VERSION = 1;
+
+  private final MatchingStoreProperties props;
+  private final MatchingPolicy policy;
+  private final PolicyProperties policyProps;
+  private final ReentrantLock[] stripes;
+  private final Map<String, Station> stations = new ConcurrentHashMap<>();
+  private final Map<String, Location> riders = new ConcurrentHashMap<>();
+  private final AtomicLong sequence = new AtomicLong();
+  private final RiderIntentCodec codec = new RiderIntentCodec(null, true);
+  private final Timer takeLatency;
+  private final DistributionSummary takeMatched;
+  private final ScheduledExecutorService snapshots;
+
+  /** Where a rider's intent is queued. */
+  private record Location(String station, String bucket, long key) {}
+
+  /** A queued entry seen by a scan. */
+  private record Slot(String bucket, long key, RiderIntent intent) {}
+
+  /** Destination buckets of one station; only touched under the station's stripe lock. */
+  private static final class Station {
+    final Map<String, IntentQueue> buckets = new HashMap<>();
+  }
+
+  public InMemoryRiderIntentStore(MatchingStoreProperties props, MatchingPolicy policy, PolicyProperties policyProps,
+      MeterRegistry registry) {
+    this.props = props;
+    this.policy = policy;
+    this.policyProps = policyProps;
+    this.stripes = new ReentrantLock[Math.max(1, props.getLockStripes())];
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new ReentrantLock();
+    }
+    this.takeLatency = Timer.builder("matching.take.latency")
+        .tag("strategy", "memory")
+        .publishPercentiles(0.5, 0.99)
+        .register(registry);
+    this.takeMatched = DistributionSummary.builder("matching.take.matched")
+        .description("Riders returned per takeMatching call")
+        .register(registry);
+    Gauge.builder("matching.store.memory.intents", riders, Map::size)
+        .description("Rider intents held by the in-memory store")
+        .register(registry);
+
+    String path = props.getSnapshotPath();
+    if (path == null || path.isBlank()) {
+      this.snapshots = null;
+      return;
+    }
+    try {
+      int restored = restore(Path.of(path));
+      if (restored > 0) {
+        log.info("Restored {} rider intents from {}", restored, path);
+      }
+    } catch (IOException ex) {
+      log.warn("Could not restore rider intents from {}; starting empty", path, ex);
+    }
+    this.snapshots = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "intent-snapshot");
+      t.setDaemon(true);
+      return t;
+    });
+    long interval = Math.max(1, props.getSnapshotIntervalMillis());
+    snapshots.scheduleWithFixedDelay(this::snapshotLogged, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /** Stops snapshotting and writes a last snapshot. */
+  @Override
+  public void close() {
+    if (snapshots == null) {
+      return;
+    }
+    snapshots.shutdown();
+    try {
+      snapshots.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+    snapshotLogged();
+  }
+
+  /** Calls run under their station's lock and never wait on I/O, so they need no lane. */
+  @Override
+  public boolean writesAsync() {
+    return true;
+  }
+
+  @Override
+  public boolean takesAsync() {
+    return true;
+  }
+
+  private int stripeOf(String stationAreaId) {
+    return Math.floorMod(Objects.hashCode(stationAreaId), stripes.length);
+  }
+
+  private ReentrantLock lockStation(String stationAreaId) {
+    ReentrantLock lock = stripes[stripeOf(stationAreaId)];
+    lock.lock();
+    return lock;
+  }
+
+  @Override
+  public void add(RiderIntent intent) {
+    boolean created = put(intent);
+    log.info("{} rider {} at station {} bucket '{}'", created ? "Added" : "Replaced", intent.getRiderId(),
+        intent.getStationAreaId(), RiderIntentStore.bucketName(intent.getDestinationAreaId()));
+  }
+
+  /** Upserts an intent; false if it replaced the rider's previous one. */
+  private boolean put(RiderIntent intent) {
+    String station = intent.getStationAreaId();
+    String bucket = RiderIntentStore.bucketName(intent.getDestinationAreaId());
+    long key = IntentQueue.key(intent.getArrivalTime().getEpochSecond(), sequence.getAndIncrement());
+    while (true) {
+      Location previous = riders.get(intent.getRiderId());
+      // Both stations' locks, lower stripe first, so two riders moving in opposite directions
+      // cannot deadlock
+      int a = stripeOf(station);
+      int b = previous == null ? a : stripeOf(previous.station());
+      ReentrantLock first = stripes[Math.min(a, b)];
+      ReentrantLock second = stripes[Math.max(a, b)];
+      first.lock();
+      second.lock();
+      try {
+        if (!Objects.equals(riders.get(intent.getRiderId()), previous)) {
+          continue;
+        }
+        if (previous != null) {
+          unqueue(previous);
+        }
+        long stored = stations.computeIfAbsent(station, s -> new Station()).buckets
+            .computeIfAbsent(bucket, d -> new IntentQueue())
+            .insert(key, intent);
+        riders.put(intent.getRiderId(), new Location(station, bucket, stored));
+        return previous == null;
+      } finally {
+        second.unlock();
+        first.unlock();
+      }
+    }
+  }
+
+  /** Removes a queued entry, and its bucket once empty; the caller holds the station's lock. */
+  private void unqueue(Location location) {
+    Station station = stations.get(location.station());
+    IntentQueue queue = station == null ? null : station.buckets.get(location.bucket());
+    if (queue == null) {
+      return;
+    }
+    queue.remove(location.key());
+    if (queue.isEmpty()) {
+      station.buckets.remove(location.bucket());
+    }
+  }
+
+  @Override
+  public void remove(String riderId, String stationAreaId) {
+    while (true) {
+      Location current = riders.get(riderId);
+      if (current == null || (stationAreaId != null && !stationAreaId.isBlank() && !current.station().equals(stationAreaId))) {
+        return;
+      }
+      ReentrantLock lock = lockStation(current.station());
+      try {
+        if (!riders.remove(riderId, current)) {
+          continue;
+        }
+        unqueue(current);
+      } finally {
+        lock.unlock();
+      }
+      log.info("Removed rider {} from station {}", riderId, current.station());
+      return;
+    }
+  }
+
+  @Override
+  public void clear(String stationAreaId) {
+    ReentrantLock lock = lockStation(stationAreaId);
+    try {
+      Station station = stations.remove(stationAreaId);
+      if (station == null) {
+        return;
+      }
+      for (Map.Entry<String, IntentQueue> bucket : station.buckets.entrySet()) {
+        IntentQueue queue = bucket.getValue();
+        for (int i = 0; i < queue.size(); i++) {
+          riders.remove(queue.intentAt(i).getRiderId(), new Location(stationAreaId, bucket.getKey(), queue.keyAt(i)));
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Stations with a queue, including ones emptied by takes since the last reap. */
+  @Override
+  public Set<String> activeStations() {
+    return Set.copyOf(stations.keySet());
+  }
+
+  @Override
+  public List<RiderIntent> reapExpired(String stationAreaId, int limit) {
+    long cutoff = Instant.now().getEpochSecond() - INTENT_MAX_AGE_SECONDS;
+    ReentrantLock lock = lockStation(stationAreaId);
+    try {
+      Station station = stations.get(stationAreaId);
+      if (station == null) {
+        return List.of();
+      }
+      List<RiderIntent> expired = new ArrayList<>();
+      Iterator<Map.Entry<String, IntentQueue>> buckets = station.buckets.entrySet().iterator();
+      while (buckets.hasNext()) {
+        Map.Entry<String, IntentQueue> bucket = buckets.next();
+        IntentQueue queue = bucket.getValue();
+        int end = Math.max(0, Math.min(queue.firstAfter(cutoff), limit - expired.size()));
+        for (int i = 0; i < end; i++) {
+          RiderIntent intent = queue.intentAt(i);
+          riders.remove(intent.getRiderId(), new Location(stationAreaId, bucket.getKey(), queue.keyAt(i)));
+          expired.add(intent);
+        }
+        queue.removeRange(0, end);
+        if (queue.isEmpty()) {
+          buckets.remove();
+        }
+      }
+      if (station.buckets.isEmpty()) {
+        stations.remove(stationAreaId);
+      }
+      return expired;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Visits a station's eligible entries earliest first, merging buckets when the destination is
+   * blank, until {@code visit} returns false. The caller holds the station's lock.
+   */
+  private static void scan(Station station, String destinationAreaId, int driverEtaMinutes, Predicate<Slot> visit) {
+    long now = Instant.now().getEpochSecond();
+    long cutoff = now - INTENT_MAX_AGE_SECONDS;
+    long latest = now + driverEtaMinutes * 60L + ARRIVAL_SLACK_SECONDS;
+    String bucket = RiderIntentStore.bucketName(destinationAreaId);
+    List<String> names = bucket.isEmpty() ? List.copyOf(station.buckets.keySet()) : List.of(bucket);
+    IntentQueue[] queues = new IntentQueue[names.size()];
+    int[] next = new int[names.size()];
+    int[] end = new int[names.size()];
+    for (int i = 0; i < queues.length; i++) {
+      queues[i] = station.buckets.get(names.get(i));
+      if (queues[i] != null) {
+        next[i] = queues[i].firstAfter(cutoff);
+        end[i] = queues[i].firstAtOrAfter(latest);
+      }
+    }
+    while (true) {
+      int best = -1;
+      for (int i = 0; i < queues.length; i++) {
+        if (next[i] < end[i] && (best < 0 || queues[i].keyAt(next[i]) < queues[best].keyAt(next[best]))) {
+          best = i;
+        }
+      }
+      if (best < 0) {
+        return;
+      }
+      int at = next[best]++;
+      if (!visit.test(new Slot(names.get(best), queues[best].keyAt(at), queues[best].intentAt(at)))) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * First fit fills seats greedily in arrival order, skipping parties that do not fit; other
+   * policies choose among the first {@code matching.policy.max-candidates}, still under the lock.
+   */
+  @Override
+  public List<RiderIntent> takeMatching(String stationAreaId, String destinationAreaId, int limit, int driverEtaMinutes) {
+    long start = System.nanoTime();
+    List<RiderIntent> matched = List.of();
+    ReentrantLock lock = lockStation(stationAreaId);
+    try {
+      Station station = stations.get(stationAreaId);
+      if (station != null) {
+        List<Slot> chosen = new ArrayList<>();
+        if (policy.isFirstFit()) {
+          int[] seated = {0};
+          scan(station, destinationAreaId, driverEtaMinutes, slot -> {
+            int size = slot.intent().getPartySize();
+            if (seated[0] + size <= limit) {
+              chosen.add(slot);
+              seated[0] += size;
+            }
+            return seated[0] < limit;
+          });
+        } else {
+          List<Slot> candidates = new ArrayList<>();
+          int max = policyProps.getMaxCandidates();
+          scan(station, destinationAreaId, driverEtaMinutes, slot -> {
+            candidates.add(slot);
+            return candidates.size() < max;
+          });
+          for (int i : policy.select(candidates.stream().map(Slot::intent).toList(), limit, Instant.now())) {
+            chosen.add(candidates.get(i));
+          }
+        }
+        matched = take(stationAreaId, station, chosen);
+      }
+    } finally {
+      lock.unlock();
+    }
+    takeLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    takeMatched.record(matched.size());
+    return matched;
+  }
+
+  /** Removes scanned entries with their index entries; the caller holds the station's lock. */
+  private List<RiderIntent> take(String stationAreaId, Station station, List<Slot> chosen) {
+    List<RiderIntent> taken = new ArrayList<>(chosen.size());
+    for (Slot slot : chosen) {
+      Location location = new Location(stationAreaId, slot.bucket(), slot.key());
+      riders.remove(slot.intent().getRiderId(), location);
+      unqueue(location);
+      taken.add(slot.intent());
+    }
+    return taken;
+  }
+
+  /** A peeked entry's handle is its bucket name and its 8-byte queue key. */
+  @Override
+  public List<QueuedIntent> peek(String stationAreaId, String destinationAreaId, int driverEtaMinutes, int maxCandidates) {
+    List<QueuedIntent> peeked = new ArrayList<>();
+    ReentrantLock lock = lockStation(stationAreaId);
+    try {
+      Station station = stations.get(stationAreaId);
+      if (station != null && maxCandidates > 0) {
+        scan(station, destinationAreaId, driverEtaMinutes, slot -> {
+          peeked.add(new QueuedIntent(slot.bucket().getBytes(StandardCharsets.UTF_8),
+              ByteBuffer.allocate(Long.BYTES).putLong(slot.key()).array(), slot.intent()));
+          return peeked.size() < maxCandidates;
+        });
+      }
+    } finally {
+      lock.unlock();
+    }
+    return peeked;
+  }
+
+  @Override
+  public boolean claim(String stationAreaId, List<QueuedIntent> chosen) {
+    if (chosen.isEmpty()) {
+      return true;
+    }
+    List<Slot> slots = new ArrayList<>(chosen.size());
+    for (QueuedIntent q : chosen) {
+      slots.add(new Slot(new String(q.bucket(), StandardCharsets.UTF_8), ByteBuffer.wrap(q.member()).getLong(), q.intent()));
+    }
+    ReentrantLock lock = lockStation(stationAreaId);
+    try {
+      Station station = stations.get(stationAreaId);
+      if (station == null) {
+        return false;
+      }
+      for (Slot slot : slots) {
+        IntentQueue queue = station.buckets.get(slot.bucket());
+        if (queue == null || !queue.contains(slot.key())) {
+          return false;
+        }
+      }
+      take(stationAreaId, station, slots);
+      return true;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void snapshotLogged() {
+    try {
+      int written = snapshot();
+      log.debug("Saved {} rider intents to {}", written, props.getSnapshotPath());
+    } catch (IOException | RuntimeException ex) {
+      // Keep the schedule alive; the previous snapshot stays in place
+      log.warn("Could not save rider intents to {}", props.getSnapshotPath(), ex);
+    }
+  }
+
+  /**
+   * Writes every queued intent to {@code matching.store.snapshot-path}, replacing the previous
+   * snapshot only once the new one is complete. Returns the number written.
+   */
+  public int snapshot() throws IOException {
+    List<byte[]> records = new ArrayList<>();
+    int skipped = 0;
+    for (String stationAreaId : List.copyOf(stations.keySet())) {
+      ReentrantLock lock = lockStation(stationAreaId);
+      try {
+        Station station = stations.get(stationAreaId);
+        if (station == null) {
+          continue;
+        }
+        for (IntentQueue queue : station.buckets.values()) {
+          for (int i = 0; i < queue.size(); i++) {
+            try {
+              records.add(RiderIntentCodec.encode(queue.intentAt(i)));
+            } catch (RuntimeException ex) {
+              // Times the binary layout cannot hold; Redis would have refused the intent
+              skipped++;
+            }
+          }
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+    if (skipped > 0) {
+      log.warn("Left {} rider intents out of the snapshot: they cannot be encoded", skipped);
+    }
+    Path path = Path.of(props.getSnapshotPath());
+    Path partial = path.resolveSibling(path.getFileName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(partial)))) {
+      out.writeInt(SNAPSHOT_MAGIC);
+      out.writeInt(SNAPSHOT_VERSION);
+      out.writeInt(records.size());
+      for (byte[] record : records) {
+        out.writeInt(record.length);
+        out.write(record);
+      }
+    }
+    Files.move(partial, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    return records.size();
+  }
+
+  /** Adds every intent of a snapshot file, if there is one; expired ones are left to the reaper. */
+  private int restore(Path path) throws IOException {
+    if (!Files.exists(path)) {
+      return 0;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+        throw new IOException("Not a rider intent snapshot: " + path);
+      }
+      int count = in.readInt();
+      int restored = 0;
+      for (int i = 0; i < count; i++) {
+        byte[] record = new byte[in.readInt()];
+        in.readFully(record);
+        if (codec.deserialize(record) instanceof RiderIntent intent) {
+          put(intent);
+          restored++;
+        }
+      }
+      return restored;
+    }
+  }
+}
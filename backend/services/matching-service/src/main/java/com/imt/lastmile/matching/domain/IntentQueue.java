@@ -0,0 +1,105 @@
+package com.imt.lastmile.matching.domain;
+
+import java.util.Arrays;
+
+/**
+ * One destination bucket of {@link InMemoryRiderIntentStore}: intents sorted by a {@code long} key
+ * of arrival epoch seconds and an insertion sequence, in two parallel arrays. Lookups are binary
+ * searches on primitives; inserting or removing shifts the tail, which for station queues of tens
+ * to a few thousand riders is cheaper than a tree's nodes. Not thread-safe; the store locks.
+ */
+final class IntentQueue {
+  /** Low bits of a key hold the sequence; arrivals up to 2^40 seconds fit above them */
+  static final int SEQUENCE_BITS = 23;
+  private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+  private long[] keys = new long[8];
+  private RiderIntent[] intents = new RiderIntent[8];
+  private int size;
+
+  /** Key ordering by arrival, then by sequence among riders arriving in the same second. */
+  static long key(long arrivalEpochSeconds, long sequence) {
+    return (Math.max(0, arrivalEpochSeconds) << SEQUENCE_BITS) | (sequence & SEQUENCE_MASK);
+  }
+
+  static long arrival(long key) {
+    return key >>> SEQUENCE_BITS;
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  long keyAt(int index) {
+    return keys[index];
+  }
+
+  RiderIntent intentAt(int index) {
+    return intents[index];
+  }
+
+  /**
+   * Inserts an intent and returns the key it was stored under. The sequence wraps after
+   * 2^{@value #SEQUENCE_BITS} adds, so a key can already be taken by an older rider arriving in
+   * the same second; the next free sequence of that second is used instead of overwriting it.
+   */
+  long insert(long key, RiderIntent intent) {
+    int at = Arrays.binarySearch(keys, 0, size, key);
+    for (long probes = 0; at >= 0; probes++) {
+      if (probes > SEQUENCE_MASK) {
+        throw new IllegalStateException("No free sequence for arrival " + arrival(key));
+      }
+      key = (key & ~SEQUENCE_MASK) | ((key + 1) & SEQUENCE_MASK);
+      at = Arrays.binarySearch(keys, 0, size, key);
+    }
+    at = -at - 1;
+    if (size == keys.length) {
+      keys = Arrays.copyOf(keys, size * 2);
+      intents = Arrays.copyOf(intents, size * 2);
+    }
+    System.arraycopy(keys, at, keys, at + 1, size - at);
+    System.arraycopy(intents, at, intents, at + 1, size - at);
+    keys[at] = key;
+    intents[at] = intent;
+    size++;
+    return key;
+  }
+
+  boolean contains(long key) {
+    return Arrays.binarySearch(keys, 0, size, key) >= 0;
+  }
+
+  /** Removes the entry with this key and returns its intent, or null if there is none. */
+  RiderIntent remove(long key) {
+    int at = Arrays.binarySearch(keys, 0, size, key);
+    if (at < 0) {
+      return null;
+    }
+    RiderIntent removed = intents[at];
+    removeRange(at, at + 1);
+    return removed;
+  }
+
+  /** Removes the entries in {@code [from, to)}. */
+  void removeRange(int from, int to) {
+    System.arraycopy(keys, to, keys, from, size - to);
+    System.arraycopy(intents, to, intents, from, size - to);
+    Arrays.fill(intents, size - (to - from), size, null);
+    size -= to - from;
+  }
+
+  /** Index of the first entry arriving after {@code epochSeconds}, or {@link #size()}. */
+  int firstAfter(long epochSeconds) {
+    return firstAtOrAfter(epochSeconds + 1);
+  }
+
+  /** Index of the first entry arriving at or after {@code epochSeconds}, or {@link #size()}. */
+  int firstAtOrAfter(long epochSeconds) {
+    int at = Arrays.binarySearch(keys, 0, size, key(epochSeconds, 0));
+    return at >= 0 ? at : -at - 1;
+  }
+}
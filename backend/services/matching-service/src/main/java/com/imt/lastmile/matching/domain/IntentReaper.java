@@ -0,0 +1,130 @@
+package com.imt.lastmile.matching.domain;
+
+import com.imt.lastmile.matching.events.MatchEventBus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import lastmile.matching.MatchEvent;
+import lastmile.matching.MatchResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Removes expired rider intents in the background, so matching only reads and removes the riders
+ * it takes. Every {@code matching.store.reap-interval-millis} it sweeps each active station in
+ * batches of {@code reap-batch-size}, and publishes one {@code rider-expired} event per station
+ * and destination listing the riders removed, so clients can drop them.
+ *
+ * <p>Every replica reaps; the script is atomic, so each expired intent is removed, and announced,
+ * once.
+ */
+@Component
+public class IntentReaper {
+  private static final Logger log = LoggerFactory.getLogger(IntentReaper.class);
+
+  private final RiderIntentStore store;
+  private final MatchingStoreProperties props;
+  private final MatchEventBus eventBus;
+  private final Counter expired;
+  private final Timer sweeps;
+  private ScheduledExecutorService scheduler;
+
+  public IntentReaper(RiderIntentStore store, MatchingStoreProperties props, MatchEventBus eventBus, MeterRegistry registry) {
+    this.store = store;
+    this.props = props;
+    this.eventBus = eventBus;
+    this.expired = Counter.builder("matching.reaper.expired")
+        .description("Expired rider intents removed by the reaper")
+        .register(registry);
+    this.sweeps = Timer.builder("matching.reaper.sweep")
+        .description("Time to sweep every active station once")
+        .register(registry);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  void start() {
+    long interval = props.getReapIntervalMillis();
+    if (interval <= 0) {
+      return;
+    }
+    scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "intent-reaper");
+      t.setDaemon(true);
+      return t;
+    });
+    scheduler.scheduleWithFixedDelay(this::sweepLogged, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  void stop() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+  }
+
+  private void sweepLogged() {
+    try {
+      int removed = sweep();
+      if (removed > 0) {
+        log.info("Reaped {} expired rider intents", removed);
+      }
+    } catch (Exception ex) {
+      // Keep the schedule alive; the next sweep picks up where this one failed
+      log.warn("Intent reaper sweep failed", ex);
+    }
+  }
+
+  /** Sweeps every active station once and returns the number of intents removed. */
+  public int sweep() {
+    long start = System.nanoTime();
+    int total = 0;
+    int batch = Math.max(1, props.getReapBatchSize());
+    for (String station : store.activeStations()) {
+      List<RiderIntent> removed = new ArrayList<>();
+      List<RiderIntent> page;
+      do {
+        page = store.reapExpired(station, batch);
+        removed.addAll(page);
+      } while (page.size() == batch);
+      if (!removed.isEmpty()) {
+        publish(station, removed);
+        total += removed.size();
+      }
+    }
+    expired.increment(total);
+    sweeps.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    return total;
+  }
+
+  private void publish(String station, List<RiderIntent> removed) {
+    Map<String, List<String>> byDestination = new LinkedHashMap<>();
+    for (RiderIntent r : removed) {
+      String destination = r.getDestinationAreaId() == null ? "" : r.getDestinationAreaId();
+      byDestination.computeIfAbsent(destination, d -> new ArrayList<>()).add(r.getRiderId());
+    }
+    for (Map.Entry<String, List<String>> entry : byDestination.entrySet()) {
+      try {
+        eventBus.publish("rider-expired", MatchEvent.newBuilder()
+            .setStationAreaId(station)
+            .setResult(MatchResult.newBuilder()
+                .setStationAreaId(station)
+                .setDestinationAreaId(entry.getKey())
+                .addAllRiderIds(entry.getValue()))
+            .build());
+      } catch (RuntimeException ex) {
+        log.warn("Could not announce {} expired riders at station {}", entry.getValue().size(), station, ex);
+      }
+    }
+  }
+}
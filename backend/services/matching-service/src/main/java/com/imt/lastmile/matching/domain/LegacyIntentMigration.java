@@ -0,0 +1,112 @@
+package com.imt.lastmile.matching.domain;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.dao.DataAccessException;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves intents from the single per-station ZSET ({@code station:{s}:intents}) into the
+ * destination buckets of {@link RedisRiderIntentStore} at startup, keeping each intent's arrival
+ * score. Older replicas may still write the old keys during a rolling deploy, so each key is first
+ * renamed to {@code station:{s}:intents:migrating}, which only migrations touch, and that is read,
+ * re-added and deleted. Re-adding is an upsert per rider, so instances starting together or a
+ * migration cut short do no harm, and a rider with several old entries keeps the latest-arriving
+ * one. With the in-memory engine there is nothing to migrate.
+ */
+@Component
+public class LegacyIntentMigration {
+  private static final Logger log = LoggerFactory.getLogger(LegacyIntentMigration.class);
+  private static final String PREFIX = "station:";
+  private static final String SUFFIX = ":intents";
+  /** Suffix a legacy key is renamed to while it is migrated */
+  private static final String MIGRATING = ":migrating";
+
+  private final RedisTemplate<String, Object> redisTemplate;
+  private final RedisRiderIntentStore store;
+  private final MatchingStoreProperties props;
+
+  public LegacyIntentMigration(RedisTemplate<String, Object> redisTemplate, RiderIntentStore store,
+      MatchingStoreProperties props) {
+    this.redisTemplate = redisTemplate;
+    this.store = store instanceof RedisRiderIntentStore redis ? redis : null;
+    this.props = props;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  void migrateOnStartup() {
+    if (store == null || !props.isMigrateLegacyKeys()) {
+      return;
+    }
+    try {
+      int moved = migrate();
+      if (moved > 0) {
+        log.info("Moved {} rider intents to destination buckets", moved);
+      }
+    } catch (Exception ex) {
+      log.warn("Failed to migrate legacy rider intent keys", ex);
+    }
+  }
+
+  /** Migrates every legacy station key and returns the number of intents moved. */
+  public int migrate() {
+    Set<String> stations = new LinkedHashSet<>();
+    ScanOptions options = ScanOptions.scanOptions().match(PREFIX + "*" + SUFFIX + "*").count(1000).build();
+    try (Cursor<String> cursor = redisTemplate.scan(options)) {
+      cursor.forEachRemaining(key -> {
+        if (key.contains(":dest:")) {
+          return;
+        }
+        if (key.endsWith(SUFFIX)) {
+          stations.add(key.substring(PREFIX.length(), key.length() - SUFFIX.length()));
+        } else if (key.endsWith(SUFFIX + MIGRATING)) {
+          stations.add(key.substring(PREFIX.length(), key.length() - SUFFIX.length() - MIGRATING.length()));
+        }
+      });
+    }
+    int moved = 0;
+    for (String stationAreaId : stations) {
+      String legacy = RedisRiderIntentStore.legacyKey(stationAreaId);
+      String migrating = legacy + MIGRATING;
+      // Renamed before reading, so intents an older replica adds meanwhile land in a fresh legacy
+      // key for the next run instead of being deleted unread. A key left by an interrupted run
+      // is finished first; the legacy key then waits for the next run.
+      if (!Boolean.TRUE.equals(redisTemplate.hasKey(migrating))) {
+        try {
+          redisTemplate.renameIfAbsent(legacy, migrating);
+        } catch (DataAccessException ex) {
+          // Another instance renamed it first
+          continue;
+        }
+      }
+      moved += moveAll(stationAreaId, migrating);
+    }
+    return moved;
+  }
+
+  private int moveAll(String stationAreaId, String key) {
+    int moved = 0;
+    Set<TypedTuple<Object>> members = redisTemplate.opsForZSet().rangeWithScores(key, 0, -1);
+    if (members != null) {
+      for (TypedTuple<Object> member : members) {
+        RiderIntent intent = store.convert(member.getValue());
+        if (intent == null || member.getScore() == null) {
+          continue;
+        }
+        store.addMember(stationAreaId, RiderIntentStore.bucketName(intent.getDestinationAreaId()), intent.getRiderId(),
+            member.getValue(), member.getScore().longValue());
+        moved++;
+      }
+    }
+    redisTemplate.delete(key);
+    return moved;
+  }
+}
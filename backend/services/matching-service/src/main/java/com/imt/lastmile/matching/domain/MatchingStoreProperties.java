@@ -0,0 +1,92 @@
+package com.imt.lastmile.matching.domain;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "matching.store")
+public class MatchingStoreProperties {
+  /** Where rider intents are kept */
+  public enum Engine {
+    /** {@link RedisRiderIntentStore}: shared by every replica */
+    REDIS,
+    /** {@link InMemoryRiderIntentStore}: this process only, for single-node deployments and tests */
+    MEMORY
+  }
+
+  /** How takeMatching selects and removes riders */
+  public enum TakeStrategy {
+    /** One server-side script: filter and remove atomically, only matches cross the wire */
+    LUA,
+    /** WATCH the buckets, read them whole, MULTI/EXEC; returns nothing on conflict */
+    WATCH
+  }
+
+  /** How intents are written to Redis; both are always readable */
+  public enum Codec {
+    /** {@link RiderIntentCodec}'s fixed layout */
+    BINARY,
+    /** Jackson with type metadata, as written before the binary layout */
+    JSON
+  }
+
+  /** How store calls wait for Redis */
+  public enum Io {
+    /** Each call holds its thread until Redis answers */
+    BLOCKING,
+    /** Single-script calls share a {@link RedisPipeline} and complete asynchronously */
+    PIPELINED
+  }
+
+  private Engine engine = Engine.REDIS;
+  private TakeStrategy takeStrategy = TakeStrategy.LUA;
+  private Codec codec = Codec.BINARY;
+  /** Move intents from the single per-station ZSET layout into destination buckets at startup */
+  private boolean migrateLegacyKeys = true;
+  /** Pause between IntentReaper sweeps of the active stations; 0 disables reaping */
+  private long reapIntervalMillis = 5_000;
+  /** Most expired intents removed per script call while reaping a station */
+  private int reapBatchSize = 500;
+  private Io io = Io.BLOCKING;
+  /** Longest a queued call waits for other calls to share its flush */
+  private long pipelineFlushMicros = 200;
+  /** Queued calls that trigger a flush without waiting */
+  private int pipelineMaxBatch = 128;
+  /** Calls in flight before new ones are rejected */
+  private int pipelineMaxPending = 10_000;
+  /** Threads that complete pipelined calls and run what follows them */
+  private int pipelineCallbackThreads = 4;
+  /** In-memory engine: locks stations hash onto; stations sharing one serialize */
+  private int lockStripes = 64;
+  /** In-memory engine: file the intents are saved to and restored from at startup; blank keeps them in memory only */
+  private String snapshotPath = "";
+  /** In-memory engine: pause between snapshots */
+  private long snapshotIntervalMillis = 10_000;
+
+  public Engine getEngine() { return engine; }
+  public void setEngine(Engine engine) { this.engine = engine; }
+  public TakeStrategy getTakeStrategy() { return takeStrategy; }
+  public void setTakeStrategy(TakeStrategy takeStrategy) { this.takeStrategy = takeStrategy; }
+  public Codec getCodec() { return codec; }
+  public void setCodec(Codec codec) { this.codec = codec; }
+  public boolean isMigrateLegacyKeys() { return migrateLegacyKeys; }
+  public void setMigrateLegacyKeys(boolean migrateLegacyKeys) { this.migrateLegacyKeys = migrateLegacyKeys; }
+  public long getReapIntervalMillis() { return reapIntervalMillis; }
+  public void setReapIntervalMillis(long reapIntervalMillis) { this.reapIntervalMillis = reapIntervalMillis; }
+  public int getReapBatchSize() { return reapBatchSize; }
+  public void setReapBatchSize(int reapBatchSize) { this.reapBatchSize = reapBatchSize; }
+  public Io getIo() { return io; }
+  public void setIo(Io io) { this.io = io; }
+  public long getPipelineFlushMicros() { return pipelineFlushMicros; }
+  public void setPipelineFlushMicros(long pipelineFlushMicros) { this.pipelineFlushMicros = pipelineFlushMicros; }
+  public int getPipelineMaxBatch() { return pipelineMaxBatch; }
+  public void setPipelineMaxBatch(int pipelineMaxBatch) { this.pipelineMaxBatch = pipelineMaxBatch; }
+  public int getPipelineMaxPending() { return pipelineMaxPending; }
+  public void setPipelineMaxPending(int pipelineMaxPending) { this.pipelineMaxPending = pipelineMaxPending; }
+  public int getPipelineCallbackThreads() { return pipelineCallbackThreads; }
+  public void setPipelineCallbackThreads(int pipelineCallbackThreads) { this.pipelineCallbackThreads = pipelineCallbackThreads; }
+  public int getLockStripes() { return lockStripes; }
+  public void setLockStripes(int lockStripes) { this.lockStripes = lockStripes; }
+  public String getSnapshotPath() { return snapshotPath; }
+  public void setSnapshotPath(String snapshotPath) { this.snapshotPath = snapshotPath; }
+  public long getSnapshotIntervalMillis() { return snapshotIntervalMillis; }
+  public void setSnapshotIntervalMillis(long snapshotIntervalMillis) { this.snapshotIntervalMillis = snapshotIntervalMillis; }
+}
@@ -0,0 +1,216 @@
+package com.imt.lastmile.matching.domain;
+
+import io.lettuce.core.RedisChannelHandler;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+/**
+ * Non-blocking script calls for {@link RedisRiderIntentStore} when {@code matching.store.io} is
+ * {@code pipelined}. Calls go out on one dedicated Lettuce connection with automatic flushing off:
+ * they are written to the socket together once {@code pipeline-max-batch} are queued or
+ * {@code pipeline-flush-micros} after the first of them, so many requests share one round trip
+ * and no thread waits for Redis. Redis runs a connection's commands in the order they were
+ * queued.
+ *
+ * <p>The first call of each script on the connection is sent as a full EVAL, which caches it in
+ * Redis; later calls queued behind it use EVALSHA. A NOSCRIPT reply is never retried, since the
+ * retry would run after commands queued since: the call fails, and the next one of that script
+ * is sent in full again. After a disconnect Redis may have restarted, so every script is sent in
+ * full once more.
+ *
+ * <p>Results are handed over on the {@code redis-pipeline-callback} threads, never on Lettuce's
+ * event loop, so callers may block in their continuations. Calls beyond
+ * {@code pipeline-max-pending} in flight fail with {@link RejectedExecutionException}, as a full
+ * station lane does.
+ *
+ * <p>With blocking I/O or the in-memory engine no connection is opened and {@link #isEnabled()}
+ * is false.
+ */
+@Component
+public class RedisPipeline {
+  private final MatchingStoreProperties props;
+  private final StatefulRedisConnection<byte[], byte[]> connection;
+  private final RedisAsyncCommands<byte[], byte[]> commands;
+  private final ScheduledExecutorService flusher;
+  private final ExecutorService callbacks;
+  private final AtomicInteger pending = new AtomicInteger();
+  /** SHA1s of scripts an earlier command on this connection sends in full */
+  private final Set<String> sent = ConcurrentHashMap.newKeySet();
+  private final RedisClient client;
+  private final RedisConnectionStateListener reconnects;
+  private final Object lock = new Object();
+  private int queued;
+  private boolean flushScheduled;
+  private final DistributionSummary batchSize;
+  private final Counter rejected;
+
+  public RedisPipeline(RedisConnectionFactory connectionFactory, MatchingStoreProperties props, MeterRegistry registry) {
+    this.props = props;
+    if (props.getEngine() != MatchingStoreProperties.Engine.REDIS || props.getIo() != MatchingStoreProperties.Io.PIPELINED) {
+      this.connection = null;
+      this.commands = null;
+      this.client = null;
+      this.reconnects = null;
+      this.flusher = null;
+      this.callbacks = null;
+      this.batchSize = null;
+      this.rejected = null;
+      return;
+    }
+    if (!(connectionFactory instanceof LettuceConnectionFactory lettuce)
+        || !(lettuce.getRequiredNativeClient() instanceof RedisClient client)) {
+      throw new IllegalStateException("Pipelined store I/O needs a standalone Lettuce connection to Redis");
+    }
+    this.client = client;
+    this.connection = client.connect(ByteArrayCodec.INSTANCE);
+    this.reconnects = new RedisConnectionStateListener() {
+      @Override
+      public void onRedisDisconnected(RedisChannelHandler<?, ?> handler) {
+        if (handler == connection) {
+          sent.clear();
+        }
+      }
+    };
+    client.addListener(reconnects);
+    connection.setAutoFlushCommands(false);
+    this.commands = connection.async();
+    this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread t = new Thread(r, "redis-pipeline-flush");
+      t.setDaemon(true);
+      return t;
+    });
+    AtomicInteger threadCount = new AtomicInteger();
+    this.callbacks = Executors.newFixedThreadPool(Math.max(1, props.getPipelineCallbackThreads()), r -> {
+      Thread t = new Thread(r, "redis-pipeline-callback-" + threadCount.getAndIncrement());
+      t.setDaemon(true);
+      return t;
+    });
+    this.batchSize = DistributionSummary.builder("matching.pipeline.batch")
+        .description("Commands written to Redis per pipeline flush")
+        .register(registry);
+    this.rejected = Counter.builder("matching.pipeline.rejected")
+        .description("Store calls refused because too many were already in flight")
+        .register(registry);
+    Gauge.builder("matching.pipeline.pending", pending, AtomicInteger::get)
+        .description("Store calls sent or queued and not yet answered")
+        .register(registry);
+  }
+
+  /** True when store calls may go through the pipeline. */
+  public boolean isEnabled() {
+    return connection != null;
+  }
+
+  @PreDestroy
+  void stop() {
+    if (connection == null) {
+      return;
+    }
+    flusher.shutdown();
+    flush();
+    client.removeListener(reconnects);
+    connection.close();
+    callbacks.shutdown();
+  }
+
+  /**
+   * Queues a script call and returns its result: a {@code Long} for {@link ScriptOutputType#INTEGER},
+   * a {@code List} of byte arrays for {@link ScriptOutputType#MULTI}. The script is sent in full
+   * unless an earlier command on this connection already carried it.
+   */
+  public <T> CompletableFuture<T> eval(RedisScript<?> script, ScriptOutputType type, byte[][] keys, byte[]... args) {
+    if (pending.incrementAndGet() > props.getPipelineMaxPending()) {
+      pending.decrementAndGet();
+      rejected.increment();
+      return CompletableFuture.failedFuture(new RejectedExecutionException("Redis pipeline is full"));
+    }
+    String sha = script.getSha1();
+    // Decided under the dispatch lock, so an EVALSHA is always queued behind its script's EVAL
+    CompletableFuture<T> call = dispatch(() -> sent.add(sha)
+        ? commands.eval(script.getScriptAsString().getBytes(StandardCharsets.UTF_8), type, keys, args)
+        : commands.evalsha(sha, type, keys, args));
+    CompletableFuture<T> result = new CompletableFuture<>();
+    call.whenComplete((value, error) -> {
+      pending.decrementAndGet();
+      if (error != null && unwrap(error) instanceof RedisNoScriptException) {
+        // Redis lost its script cache (SCRIPT FLUSH) without this connection dropping
+        sent.remove(sha);
+      }
+      callbacks.execute(() -> {
+        if (error == null) {
+          result.complete(value);
+        } else {
+          result.completeExceptionally(unwrap(error));
+        }
+      });
+    });
+    return result;
+  }
+
+  private <T> CompletableFuture<T> dispatch(Supplier<RedisFuture<?>> command) {
+    CompletableFuture<T> future;
+    boolean flushNow;
+    synchronized (lock) {
+      @SuppressWarnings("unchecked")
+      CompletableFuture<T> f = (CompletableFuture<T>) command.get().toCompletableFuture();
+      future = f;
+      queued++;
+      flushNow = queued >= props.getPipelineMaxBatch();
+      if (!flushNow && !flushScheduled) {
+        flushScheduled = true;
+        flusher.schedule(this::flush, props.getPipelineFlushMicros(), TimeUnit.MICROSECONDS);
+      }
+    }
+    if (flushNow) {
+      flush();
+    }
+    return future;
+  }
+
+  /** Writes every queued command to the socket. */
+  private void flush() {
+    int count;
+    synchronized (lock) {
+      count = queued;
+      queued = 0;
+      flushScheduled = false;
+      if (count > 0) {
+        connection.flushCommands();
+      }
+    }
+    if (count > 0) {
+      batchSize.record(count);
+    }
+  }
+
+  private static Throwable unwrap(Throwable error) {
+    return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+  }
+}
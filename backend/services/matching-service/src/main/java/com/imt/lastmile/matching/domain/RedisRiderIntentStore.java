@@ -0,0 +1,576 @@
+package com.imt.lastmile.matching.domain;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.imt.lastmile.matching.domain.MatchingStoreProperties.TakeStrategy;
+import com.imt.lastmile.matching.policy.MatchingPolicy;
+import com.imt.lastmile.matching.policy.PolicyProperties;
+import io.lettuce.core.ScriptOutputType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.zset.Tuple;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+/**
+ * {@link RiderIntentStore} in Redis, shared by every replica; intents are partitioned by station
+ * and destination.
+ *
+ * <p>Each (station, destination) pair has its own ZSET {@code station:{s}:dest:{d}:intents}
+ * scored by arrival epoch seconds, with {@code d} lower-cased (empty for riders without a
+ * destination) because destinations match case-insensitively. {@code station:{s}:dests} lists the
+ * buckets in use, so a driver without a destination can merge them. Keys of the older single-ZSET
+ * layout, {@code station:{s}:intents}, are moved over by {@link LegacyIntentMigration}.
+ *
+ * <p>{@code intents:rider:{r}} points at the rider's current member, so adding is an upsert and
+ * cancelling never reads the queue. Every script that removes a member also drops its index entry.
+ *
+ * <p>Nothing expires by TTL. Matching skips intents older than 30 minutes, and
+ * {@link IntentReaper} removes them in the background for every station in
+ * {@code stations:active}; keys disappear with their last member.
+ *
+ * <p>With a {@link RedisPipeline} enabled, adds, cancels and first-fit script takes also have
+ * {@code *Async} forms that share pipelined round trips instead of holding a thread.
+ */
+public class RedisRiderIntentStore implements RiderIntentStore {
+  private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(RedisRiderIntentStore.class);
+  /** Stations that may hold intents, for the reaper */
+  private static final String ACTIVE_STATIONS_KEY = "stations:active";
+  private static final String BUCKET_SUFFIX = ":intents";
+  private static final String RIDER_INDEX_PREFIX = "intents:rider:";
+  /** Script arguments: byte arrays as they are, anything else as UTF-8 text */
+  private static final RedisSerializer<Object> SCRIPT_ARGS = new RedisSerializer<>() {
+    @Override
+    public byte[] serialize(Object value) {
+      return value instanceof byte[] bytes ? bytes : value.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) {
+      return bytes;
+    }
+  };
+  private static final RedisScript<Long> UPSERT_SCRIPT =
+      RedisScript.of(new ClassPathResource("scripts/upsert-intent.lua"), Long.class);
+  private static final RedisScript<Long> CANCEL_SCRIPT =
+      RedisScript.of(new ClassPathResource("scripts/cancel-intent.lua"), Long.class);
+  @SuppressWarnings("rawtypes")
+  private static final RedisScript<List> TAKE_SCRIPT =
+      RedisScript.of(new ClassPathResource("scripts/take-matching.lua"), List.class);
+  private static final RedisScript<Long> CLAIM_SCRIPT =
+      RedisScript.of(new ClassPathResource("scripts/claim-riders.lua"), Long.class);
+  @SuppressWarnings("rawtypes")
+  private static final RedisScript<List> REAP_SCRIPT =
+      RedisScript.of(new ClassPathResource("scripts/reap-intents.lua"), List.class);
+
+  private final RedisTemplate<String, Object> redisTemplate;
+  private final MatchingStoreProperties props;
+  private final MatchingPolicy policy;
+  private final PolicyProperties policyProps;
+  private final RedisPipeline pipeline;
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final Map<TakeStrategy, Timer> takeLatency = new EnumMap<>(TakeStrategy.class);
+  private final DistributionSummary takeMatched;
+  private final Counter casFailures;
+  private final Counter claimConflicts;
+  private final Counter policyFallbacks;
+
+  public RedisRiderIntentStore(RedisTemplate<String, Object> redisTemplate, MatchingStoreProperties props, MatchingPolicy policy,
+      PolicyProperties policyProps, MeterRegistry registry) {
+    this(redisTemplate, props, policy, policyProps, null, registry);
+  }
+
+  public RedisRiderIntentStore(RedisTemplate<String, Object> redisTemplate, MatchingStoreProperties props, MatchingPolicy policy,
+      PolicyProperties policyProps, RedisPipeline pipeline, MeterRegistry registry) {
+    this.redisTemplate = redisTemplate;
+    this.props = props;
+    this.policy = policy;
+    this.policyProps = policyProps;
+    this.pipeline = pipeline;
+    for (TakeStrategy strategy : TakeStrategy.values()) {
+      takeLatency.put(strategy, Timer.builder("matching.take.latency")
+          .tag("strategy", strategy.name().toLowerCase())
+          .publishPercentiles(0.5, 0.99)
+          .register(registry));
+    }
+    this.takeMatched = DistributionSummary.builder("matching.take.matched")
+        .description("Riders returned per takeMatching call")
+        .register(registry);
+    this.casFailures = Counter.builder("matching.take.cas.failures")
+        .description("WATCH transactions aborted because the station queue changed; the driver got no riders")
+        .register(registry);
+    this.claimConflicts = Counter.builder("matching.policy.claim.conflicts")
+        .description("Policy selections that could not be claimed because a rider had already left the queue")
+        .register(registry);
+    this.policyFallbacks = Counter.builder("matching.policy.fallbacks")
+        .description("Takes that fell back to first fit after every claim attempt conflicted")
+        .register(registry);
+    // Register JavaTimeModule for Instant serialization if not already configured globally
+    objectMapper.registerModule(new com.fasterxml.jackson.datatype.jsr310.JavaTimeModule());
+  }
+
+  private static String bucketPrefix(String stationAreaId) {
+    return "station:" + stationAreaId + ":dest:";
+  }
+
+  private static String bucketKey(String stationAreaId, String bucketName) {
+    return bucketPrefix(stationAreaId) + bucketName + BUCKET_SUFFIX;
+  }
+
+  private static String destinationsKey(String stationAreaId) {
+    return "station:" + stationAreaId + ":dests";
+  }
+
+  private static String riderIndexKey(String riderId) {
+    return RIDER_INDEX_PREFIX + riderId;
+  }
+
+  /** Key of the single-ZSET layout used before intents were partitioned by destination. */
+  static String legacyKey(String stationAreaId) {
+    return "station:" + stationAreaId + BUCKET_SUFFIX;
+  }
+
+  @Override
+  public void add(RiderIntent intent) {
+    String bucket = RiderIntentStore.bucketName(intent.getDestinationAreaId());
+    long score = intent.getArrivalTime().getEpochSecond();
+    boolean created = addMember(intent.getStationAreaId(), bucket, intent.getRiderId(), intent, score);
+    logAdded(intent, bucket, score, created);
+  }
+
+  /** {@link #add} through the pipeline when there is one; completes once Redis has stored the intent. */
+  @Override
+  public CompletableFuture<Void> addAsync(RiderIntent intent) {
+    if (!writesAsync()) {
+      return RiderIntentStore.super.addAsync(intent);
+    }
+    String bucket = RiderIntentStore.bucketName(intent.getDestinationAreaId());
+    long score = intent.getArrivalTime().getEpochSecond();
+    @SuppressWarnings("unchecked")
+    byte[] value = ((RedisSerializer<Object>) redisTemplate.getValueSerializer()).serialize(intent);
+    return pipeline.<Long>eval(UPSERT_SCRIPT, ScriptOutputType.INTEGER,
+            scriptBytes(upsertKeys(intent.getStationAreaId(), bucket, intent.getRiderId())),
+            scriptBytes(Long.toString(score), value, bucket, intent.getStationAreaId()))
+        .thenAccept(created -> logAdded(intent, bucket, score, created != null && created == 1L));
+  }
+
+  private static void logAdded(RiderIntent intent, String bucket, long score, boolean created) {
+    log.info("{} rider {} at station {} bucket '{}' with score: {}", created ? "Added" : "Replaced", intent.getRiderId(),
+        intent.getStationAreaId(), bucket, score);
+  }
+
+  private static List<String> upsertKeys(String stationAreaId, String bucket, String riderId) {
+    return List.of(bucketKey(stationAreaId, bucket), destinationsKey(stationAreaId), riderIndexKey(riderId), ACTIVE_STATIONS_KEY);
+  }
+
+  /** True with a {@link RedisPipeline}: each write is one script, sent without holding a thread. */
+  @Override
+  public boolean writesAsync() {
+    return pipeline != null && pipeline.isEnabled();
+  }
+
+  private static byte[][] scriptBytes(List<?> values) {
+    return scriptBytes(values.toArray());
+  }
+
+  private static byte[][] scriptBytes(Object... values) {
+    byte[][] bytes = new byte[values.length][];
+    for (int i = 0; i < values.length; i++) {
+      bytes[i] = SCRIPT_ARGS.serialize(values[i]);
+    }
+    return bytes;
+  }
+
+  /**
+   * Upserts a member, serialized with the template's value serializer, under the given arrival
+   * score. Returns false if it replaced the rider's previous intent.
+   */
+  boolean addMember(String stationAreaId, String bucket, String riderId, Object member, long score) {
+    @SuppressWarnings("unchecked")
+    byte[] value = ((RedisSerializer<Object>) redisTemplate.getValueSerializer()).serialize(member);
+    Long created = redisTemplate.execute(UPSERT_SCRIPT, SCRIPT_ARGS, null, upsertKeys(stationAreaId, bucket, riderId),
+        Long.toString(score), value, bucket, stationAreaId);
+    return created != null && created == 1L;
+  }
+
+  @Override
+  public void remove(String riderId, String stationAreaId) {
+    Long removed = redisTemplate.execute(CANCEL_SCRIPT, SCRIPT_ARGS, null, List.of(riderIndexKey(riderId)),
+        cancelScope(stationAreaId));
+    logRemoved(riderId, stationAreaId, removed);
+  }
+
+  /** {@link #remove} through the pipeline when there is one. */
+  @Override
+  public CompletableFuture<Void> removeAsync(String riderId, String stationAreaId) {
+    if (!writesAsync()) {
+      return RiderIntentStore.super.removeAsync(riderId, stationAreaId);
+    }
+    return pipeline.<Long>eval(CANCEL_SCRIPT, ScriptOutputType.INTEGER, scriptBytes(riderIndexKey(riderId)),
+            scriptBytes(cancelScope(stationAreaId)))
+        .thenAccept(removed -> logRemoved(riderId, stationAreaId, removed));
+  }
+
+  private static String cancelScope(String stationAreaId) {
+    return stationAreaId == null || stationAreaId.isBlank() ? "" : destinationsKey(stationAreaId);
+  }
+
+  private static void logRemoved(String riderId, String stationAreaId, Long removed) {
+    if (removed != null && removed == 1L) {
+      log.info("Removed rider {} from station {}", riderId, stationAreaId);
+    }
+  }
+
+  /** Drops every intent at a station, with the rider index entries pointing at them. */
+  @Override
+  public void clear(String stationAreaId) {
+    List<String> keys = new ArrayList<>(bucketKeys(stationAreaId));
+    for (String bucket : List.copyOf(keys)) {
+      Set<Object> members = redisTemplate.opsForZSet().range(bucket, 0, -1);
+      if (members != null) {
+        for (Object member : members) {
+          RiderIntent r = convert(member);
+          if (r != null) keys.add(riderIndexKey(r.getRiderId()));
+        }
+      }
+    }
+    keys.add(destinationsKey(stationAreaId));
+    keys.add(legacyKey(stationAreaId));
+    redisTemplate.delete(keys);
+    byte[] active = ACTIVE_STATIONS_KEY.getBytes(StandardCharsets.UTF_8);
+    byte[] station = stationAreaId.getBytes(StandardCharsets.UTF_8);
+    redisTemplate.execute((RedisCallback<Long>) conn -> conn.setCommands().sRem(active, station));
+  }
+
+  /** Members of {@code stations:active}. */
+  @Override
+  public Set<String> activeStations() {
+    byte[] key = ACTIVE_STATIONS_KEY.getBytes(StandardCharsets.UTF_8);
+    Set<byte[]> stations = redisTemplate.execute((RedisCallback<Set<byte[]>>) conn -> conn.setCommands().sMembers(key));
+    if (stations == null) {
+      return Set.of();
+    }
+    Set<String> ids = new HashSet<>();
+    for (byte[] station : stations) {
+      ids.add(new String(station, StandardCharsets.UTF_8));
+    }
+    return ids;
+  }
+
+  @Override
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public List<RiderIntent> reapExpired(String stationAreaId, int limit) {
+    RedisSerializer<Object> values = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+    long cutoff = Instant.now().getEpochSecond() - INTENT_MAX_AGE_SECONDS;
+    List<Object> removed = redisTemplate.execute(REAP_SCRIPT, SCRIPT_ARGS, (RedisSerializer) SCRIPT_ARGS,
+        List.of(destinationsKey(stationAreaId), ACTIVE_STATIONS_KEY),
+        Long.toString(cutoff), Integer.toString(limit), bucketPrefix(stationAreaId), BUCKET_SUFFIX, RIDER_INDEX_PREFIX,
+        stationAreaId);
+    if (removed == null || removed.isEmpty()) {
+      return List.of();
+    }
+    List<RiderIntent> expired = new ArrayList<>(removed.size() / 2);
+    for (int i = 1; i < removed.size(); i += 2) {
+      RiderIntent r = convert(values.deserialize((byte[]) removed.get(i)));
+      if (r != null) {
+        expired.add(r);
+      }
+    }
+    return expired;
+  }
+
+  /** Keys of the station's destination buckets; the SET holds plain strings, not JSON values. */
+  private List<String> bucketKeys(String stationAreaId) {
+    byte[] key = destinationsKey(stationAreaId).getBytes(StandardCharsets.UTF_8);
+    Set<byte[]> buckets = redisTemplate.execute((RedisCallback<Set<byte[]>>) conn -> conn.setCommands().sMembers(key));
+    if (buckets == null) {
+      return List.of();
+    }
+    return buckets.stream().map(b -> bucketKey(stationAreaId, new String(b, StandardCharsets.UTF_8))).toList();
+  }
+
+  /**
+   * Takes with {@code matching.store.take-strategy}: first fit in one script, other policies by
+   * peek and claim, or the legacy WATCH transaction.
+   */
+  @Override
+  public List<RiderIntent> takeMatching(String stationAreaId, String destinationAreaId, int limit, int driverEtaMinutes) {
+    TakeStrategy strategy = props.getTakeStrategy();
+    long start = System.nanoTime();
+    List<RiderIntent> matched;
+    if (strategy == TakeStrategy.WATCH) {
+      String bucket = RiderIntentStore.bucketName(destinationAreaId);
+      List<String> keys = bucket.isEmpty() ? bucketKeys(stationAreaId) : List.of(bucketKey(stationAreaId, bucket));
+      Instant driverArrival = Instant.now().plusSeconds(driverEtaMinutes * 60L);
+      matched = executeTransaction(keys, limit, driverArrival);
+    } else if (policy.isFirstFit()) {
+      matched = takeWithScript(stationAreaId, destinationAreaId, limit, driverEtaMinutes);
+    } else {
+      matched = takeWithPolicy(stationAreaId, destinationAreaId, limit, driverEtaMinutes);
+    }
+    takeLatency.get(strategy).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    takeMatched.record(matched.size());
+    return matched;
+  }
+
+  /** True for a first-fit script take with a pipeline. */
+  @Override
+  public boolean takesAsync() {
+    return writesAsync() && props.getTakeStrategy() == TakeStrategy.LUA && policy.isFirstFit();
+  }
+
+  /**
+   * {@link #takeMatching} as one pipelined script call when {@link #takesAsync()}. Other takes read
+   * before they remove, and run inline.
+   */
+  @Override
+  public CompletableFuture<List<RiderIntent>> takeMatchingAsync(String stationAreaId, String destinationAreaId, int limit,
+      int driverEtaMinutes) {
+    if (!takesAsync()) {
+      return RiderIntentStore.super.takeMatchingAsync(stationAreaId, destinationAreaId, limit, driverEtaMinutes);
+    }
+    long start = System.nanoTime();
+    return pipeline.<List<Object>>eval(TAKE_SCRIPT, ScriptOutputType.MULTI, scriptBytes(destinationsKey(stationAreaId)),
+            scriptBytes(takeArgs(stationAreaId, destinationAreaId, limit, driverEtaMinutes)))
+        .thenApply(members -> {
+          @SuppressWarnings("unchecked")
+          RedisSerializer<Object> values = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+          List<RiderIntent> matched = new ArrayList<>(members.size());
+          for (Object member : members) {
+            RiderIntent r = convert(values.deserialize((byte[]) member));
+            if (r != null) {
+              matched.add(r);
+            }
+          }
+          takeLatency.get(TakeStrategy.LUA).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+          takeMatched.record(matched.size());
+          return matched;
+        });
+  }
+
+  private static List<String> takeArgs(String stationAreaId, String destinationAreaId, int limit, int driverEtaMinutes) {
+    long now = Instant.now().getEpochSecond();
+    return List.of(
+        Long.toString(now - INTENT_MAX_AGE_SECONDS),
+        Long.toString(now + driverEtaMinutes * 60L + ARRIVAL_SLACK_SECONDS),
+        Integer.toString(limit),
+        RiderIntentStore.bucketName(destinationAreaId),
+        bucketPrefix(stationAreaId),
+        BUCKET_SUFFIX,
+        RIDER_INDEX_PREFIX);
+  }
+
+  /**
+   * Filter and remove in one script, so concurrent drivers at the same station serialize inside
+   * Redis instead of failing each other's transactions, and only the matched members are sent back.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private List<RiderIntent> takeWithScript(String stationAreaId, String destinationAreaId, int limit, int driverEtaMinutes) {
+    List<Object> members = redisTemplate.execute(TAKE_SCRIPT, StringRedisSerializer.UTF_8,
+        (RedisSerializer) redisTemplate.getValueSerializer(), List.of(destinationsKey(stationAreaId)),
+        takeArgs(stationAreaId, destinationAreaId, limit, driverEtaMinutes).toArray());
+    if (members == null || members.isEmpty()) {
+      return List.of();
+    }
+    List<RiderIntent> matched = new ArrayList<>(members.size());
+    for (Object member : members) {
+      RiderIntent r = convert(member);
+      if (r != null) {
+        matched.add(r);
+      }
+    }
+    return matched;
+  }
+
+  /**
+   * Peeks at the earliest eligible candidates, lets the policy choose, then claims the choice in
+   * one script that removes all of it or nothing. A conflicting claim (a chosen rider was taken or
+   * cancelled in between, which lanes make rare) is retried with a fresh peek; after the last
+   * attempt the take falls back to first fit.
+   */
+  private List<RiderIntent> takeWithPolicy(String stationAreaId, String destinationAreaId, int limit, int driverEtaMinutes) {
+    for (int attempt = 0; attempt < policyProps.getClaimAttempts(); attempt++) {
+      List<QueuedIntent> peeked = peek(stationAreaId, destinationAreaId, driverEtaMinutes, policyProps.getMaxCandidates());
+      if (peeked.isEmpty()) {
+        return List.of();
+      }
+      List<RiderIntent> candidates = peeked.stream().map(QueuedIntent::intent).toList();
+      int[] chosen = policy.select(candidates, limit, Instant.now());
+      if (chosen.length == 0) {
+        return List.of();
+      }
+      List<QueuedIntent> selected = new ArrayList<>(chosen.length);
+      for (int i : chosen) {
+        selected.add(peeked.get(i));
+      }
+      if (claim(stationAreaId, selected)) {
+        return selected.stream().map(QueuedIntent::intent).toList();
+      }
+      claimConflicts.increment();
+    }
+    policyFallbacks.increment();
+    return takeWithScript(stationAreaId, destinationAreaId, limit, driverEtaMinutes);
+  }
+
+  /** Peeked intents carry their bucket name and member as stored, so they are claimed byte for byte. */
+  @Override
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public List<QueuedIntent> peek(String stationAreaId, String destinationAreaId, int driverEtaMinutes, int maxCandidates) {
+    RedisSerializer<Object> values = (RedisSerializer<Object>) redisTemplate.getValueSerializer();
+    long now = Instant.now().getEpochSecond();
+    List<Object> peeked = redisTemplate.execute(TAKE_SCRIPT, SCRIPT_ARGS, (RedisSerializer) SCRIPT_ARGS,
+        List.of(destinationsKey(stationAreaId)),
+        Long.toString(now - INTENT_MAX_AGE_SECONDS),
+        Long.toString(now + driverEtaMinutes * 60L + ARRIVAL_SLACK_SECONDS),
+        "0",
+        RiderIntentStore.bucketName(destinationAreaId),
+        bucketPrefix(stationAreaId),
+        BUCKET_SUFFIX,
+        RIDER_INDEX_PREFIX,
+        "peek",
+        Integer.toString(maxCandidates));
+    if (peeked == null || peeked.isEmpty()) {
+      return List.of();
+    }
+    List<QueuedIntent> queued = new ArrayList<>(peeked.size() / 2);
+    for (int i = 0; i + 1 < peeked.size(); i += 2) {
+      byte[] member = (byte[]) peeked.get(i + 1);
+      RiderIntent r = convert(values.deserialize(member));
+      if (r != null) {
+        queued.add(new QueuedIntent((byte[]) peeked.get(i), member, r));
+      }
+    }
+    return queued;
+  }
+
+  @Override
+  public boolean claim(String stationAreaId, List<QueuedIntent> chosen) {
+    if (chosen.isEmpty()) {
+      return true;
+    }
+    List<Object> args = new ArrayList<>(3 + 3 * chosen.size());
+    args.add(bucketPrefix(stationAreaId));
+    args.add(BUCKET_SUFFIX);
+    args.add(RIDER_INDEX_PREFIX);
+    for (QueuedIntent q : chosen) {
+      args.add(q.bucket());
+      args.add(q.member());
+      args.add(q.intent().getRiderId());
+    }
+    Long claimed = redisTemplate.execute(CLAIM_SCRIPT, SCRIPT_ARGS, null, List.of(destinationsKey(stationAreaId)),
+        args.toArray());
+    return claimed != null && claimed == 1L;
+  }
+
+  /** A member as stored, so it is removed byte for byte whichever format it was written in. */
+  private record Candidate(byte[] key, byte[] member, RiderIntent intent, double score) {}
+
+  @SuppressWarnings("unchecked")
+  private List<RiderIntent> executeTransaction(List<String> keys, int limit, Instant driverArrival) {
+    if (keys.isEmpty()) {
+      return List.of();
+    }
+    // Execute in a transaction
+    // We return a List containing [execResults, matchedRiders]
+    List<Object> result = redisTemplate.execute(new SessionCallback<List<Object>>() {
+      public List<Object> execute(RedisOperations operations) throws DataAccessException {
+        // 1. Watch the buckets for optimistic locking
+        operations.watch(keys);
+
+        // 2. Read all candidates of every bucket, merged by arrival time
+        List<Candidate> candidates = new ArrayList<>();
+        for (String key : keys) {
+          byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+          Set<Tuple> bucket = (Set<Tuple>) operations.execute(
+              (RedisCallback<Set<Tuple>>) conn -> conn.zSetCommands().zRangeWithScores(rawKey, 0, -1));
+          if (bucket == null) continue;
+          for (Tuple tuple : bucket) {
+            RiderIntent r = convert(redisTemplate.getValueSerializer().deserialize(tuple.getValue()));
+            if (r != null) candidates.add(new Candidate(rawKey, tuple.getValue(), r, tuple.getScore()));
+          }
+        }
+        candidates.sort(Comparator.comparingDouble(Candidate::score));
+
+        // 3. Keep riders arriving in time and not expired (the reaper removes those), and let the
+        // policy choose among them
+        Instant latest = driverArrival.plusSeconds(ARRIVAL_SLACK_SECONDS); // 5 min buffer
+        double cutoff = Instant.now().minusSeconds(INTENT_MAX_AGE_SECONDS).getEpochSecond();
+        List<Candidate> eligible = candidates.stream()
+            .filter(c -> c.score() > cutoff && c.intent().getArrivalTime().isBefore(latest))
+            .toList();
+        List<Candidate> matched = new ArrayList<>();
+        for (int i : policy.select(eligible.stream().map(Candidate::intent).toList(), limit, Instant.now())) {
+          matched.add(eligible.get(i));
+        }
+
+        // 4. Start transaction
+        operations.multi();
+
+        // 5. Remove matched riders. Re-registering also rewrites a watched bucket, so the index
+        // entries cannot have moved on to a newer intent if this commits.
+        for (Candidate c : matched) {
+          operations.execute((RedisCallback<Long>) conn -> conn.zSetCommands().zRem(c.key(), c.member()));
+          operations.delete(riderIndexKey(c.intent().getRiderId()));
+        }
+
+        // 6. Commit
+        List<Object> execResults = operations.exec();
+        List<RiderIntent> riders = matched.stream().map(Candidate::intent).toList();
+
+        // Return both the transaction results and the matched list
+        // Note: execResults will be null if transaction failed (CAS)
+        if (execResults == null) {
+            if (!riders.isEmpty()) {
+                casFailures.increment();
+            }
+            return null;
+        }
+        return List.of(execResults, riders);
+      }
+    });
+
+    // Check if transaction succeeded
+    if (result != null && !result.isEmpty()) {
+        List<Object> execResults = (List<Object>) result.get(0);
+        if (execResults != null && !execResults.isEmpty()) {
+            // Transaction committed successfully
+            return (List<RiderIntent>) result.get(1);
+        }
+        if (!((List<RiderIntent>) result.get(1)).isEmpty()) {
+            casFailures.increment();
+        }
+    }
+
+    // Transaction failed (CAS failure or empty), return empty list
+    return List.of();
+  }
+
+  RiderIntent convert(Object obj) {
+    if (obj instanceof RiderIntent) return (RiderIntent) obj;
+    try {
+      return objectMapper.convertValue(obj, RiderIntent.class);
+    } catch (Exception e) {
+      log.error("Conversion failed for object: {}", obj, e);
+      return null;
+    }
+  }
+}
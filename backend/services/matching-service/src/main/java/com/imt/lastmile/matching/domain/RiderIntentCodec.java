@@ -0,0 +1,158 @@
+package com.imt.lastmile.matching.domain;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * Redis value serializer that stores {@link RiderIntent}s in a fixed binary layout and reads both
+ * that and JSON, so members written before the switch (or by an instance configured for JSON)
+ * stay readable until they are taken or expire.
+ *
+ * <p>Layout, big-endian: version byte {@code 1}; party size as uint16; createdAt as uint32 epoch
+ * seconds (0 for null); arrival as uint32 epoch seconds, where 0 is the epoch itself, since every
+ * stored intent has one and a request without it arrives at the epoch; then rider, station and destination ids, each as a uint16
+ * byte length (0xFFFF for null) followed by UTF-8. JSON values always start with {@code '{'}, so
+ * the first byte tells the formats apart. The take script reads the same layout.
+ *
+ * <p>Station and destination ids repeat across every intent at a station, so decoded ids are
+ * interned up to {@link #MAX_INTERNED} distinct values.
+ */
+public class RiderIntentCodec implements RedisSerializer<Object> {
+  static final byte VERSION = 1;
+  static final int MAX_INTERNED = 10_000;
+  private static final int NULL_LENGTH = 0xFFFF;
+
+  private final RedisSerializer<Object> json;
+  private final boolean writeBinary;
+  private final Map<String, String> interned = new ConcurrentHashMap<>();
+
+  /**
+   * @param json serializer for everything that is not written in binary, and for reading JSON
+   * @param writeBinary write intents in the binary layout; false keeps writing JSON
+   */
+  public RiderIntentCodec(RedisSerializer<Object> json, boolean writeBinary) {
+    this.json = json;
+    this.writeBinary = writeBinary;
+  }
+
+  @Override
+  public byte[] serialize(Object value) throws SerializationException {
+    if (writeBinary && value instanceof RiderIntent intent) {
+      return encode(intent);
+    }
+    return json.serialize(value);
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) throws SerializationException {
+    if (bytes != null && bytes.length > 0 && bytes[0] == VERSION) {
+      return decode(bytes);
+    }
+    return json.deserialize(bytes);
+  }
+
+  static byte[] encode(RiderIntent intent) {
+    byte[] rider = utf8(intent.getRiderId());
+    byte[] station = utf8(intent.getStationAreaId());
+    byte[] destination = utf8(intent.getDestinationAreaId());
+    int partySize = intent.getPartySize();
+    if (partySize < 0 || partySize >= NULL_LENGTH) {
+      throw new SerializationException("Party size out of range: " + partySize);
+    }
+    ByteBuffer buf = ByteBuffer.allocate(1 + 2 + 4 + 4 + idLength(rider) + idLength(station) + idLength(destination));
+    buf.put(VERSION);
+    buf.putShort((short) partySize);
+    buf.putInt(epochSeconds(intent.getCreatedAt()));
+    buf.putInt(arrivalSeconds(intent.getArrivalTime()));
+    putId(buf, rider);
+    putId(buf, station);
+    putId(buf, destination);
+    return buf.array();
+  }
+
+  RiderIntent decode(byte[] bytes) {
+    try {
+      ByteBuffer buf = ByteBuffer.wrap(bytes, 1, bytes.length - 1);
+      int partySize = Short.toUnsignedInt(buf.getShort());
+      Instant createdAt = instant(buf.getInt());
+      Instant arrival = Instant.ofEpochSecond(Integer.toUnsignedLong(buf.getInt()));
+      String rider = getId(buf, false);
+      String station = getId(buf, true);
+      String destination = getId(buf, true);
+      return new RiderIntent(rider, station, destination, createdAt, arrival, partySize);
+    } catch (RuntimeException ex) {
+      throw new SerializationException("Malformed binary rider intent", ex);
+    }
+  }
+
+  private static byte[] utf8(String s) {
+    return s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static int idLength(byte[] id) {
+    if (id != null && id.length >= NULL_LENGTH) {
+      throw new SerializationException("Id too long: " + id.length + " bytes");
+    }
+    return 2 + (id == null ? 0 : id.length);
+  }
+
+  private static void putId(ByteBuffer buf, byte[] id) {
+    if (id == null) {
+      buf.putShort((short) NULL_LENGTH);
+    } else {
+      buf.putShort((short) id.length);
+      buf.put(id);
+    }
+  }
+
+  private String getId(ByteBuffer buf, boolean intern) {
+    int length = Short.toUnsignedInt(buf.getShort());
+    if (length == NULL_LENGTH) {
+      return null;
+    }
+    String id = new String(buf.array(), buf.position(), length, StandardCharsets.UTF_8);
+    buf.position(buf.position() + length);
+    if (!intern) {
+      return id;
+    }
+    String existing = interned.get(id);
+    if (existing != null) {
+      return existing;
+    }
+    if (interned.size() < MAX_INTERNED) {
+      existing = interned.putIfAbsent(id, id);
+    }
+    return existing != null ? existing : id;
+  }
+
+  private static int epochSeconds(Instant instant) {
+    if (instant == null) {
+      return 0;
+    }
+    long seconds = instant.getEpochSecond();
+    if (seconds <= 0 || seconds > 0xFFFFFFFFL) {
+      throw new SerializationException("Time out of range: " + instant);
+    }
+    return (int) seconds;
+  }
+
+  private static int arrivalSeconds(Instant arrival) {
+    if (arrival == null) {
+      throw new SerializationException("Rider intent has no arrival time");
+    }
+    long seconds = arrival.getEpochSecond();
+    if (seconds < 0 || seconds > 0xFFFFFFFFL) {
+      throw new SerializationException("Time out of range: " + arrival);
+    }
+    return (int) seconds;
+  }
+
+  private static Instant instant(int epochSeconds) {
+    return epochSeconds == 0 ? null : Instant.ofEpochSecond(Integer.toUnsignedLong(epochSeconds));
+  }
+}
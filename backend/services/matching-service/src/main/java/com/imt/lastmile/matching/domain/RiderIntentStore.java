@@ -1,147 +1,119 @@
 package com.imt.lastmile.matching.domain;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import java.time.Instant;
-import java.util.ArrayList;
+import com.imt.lastmile.matching.policy.MatchingPolicy;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
-import org.springframework.dao.DataAccessException;
-import org.springframework.data.redis.core.RedisOperations;
-import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.SessionCallback;
-import org.springframework.stereotype.Component;
-
-@Component
-public class RiderIntentStore {
-  private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(RiderIntentStore.class);
-  private final RedisTemplate<String, Object> redisTemplate;
-  private final ObjectMapper objectMapper = new ObjectMapper();
-
-  public RiderIntentStore(RedisTemplate<String, Object> redisTemplate) {
-    this.redisTemplate = redisTemplate;
-    // Register JavaTimeModule for Instant serialization if not already configured globally
-    objectMapper.registerModule(new com.fasterxml.jackson.datatype.jsr310.JavaTimeModule());
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Rider intents waiting at stations, queued by destination in arrival order. The engine is chosen
+ * by {@code matching.store.engine}: {@link RedisRiderIntentStore} is shared by every replica,
+ * {@link InMemoryRiderIntentStore} lives in one process for single-node deployments and tests.
+ * Both behave the same way, which RiderIntentStoreConformanceTest checks:
+ *
+ * <ul>
+ *   <li>A rider has at most one intent; adding again replaces it, at any station.
+ *   <li>Destinations match case-insensitively. A driver with a destination sees only riders bound
+ *       there; a driver without one sees every rider at the station, merged by arrival.
+ *   <li>Intents older than {@link #INTENT_MAX_AGE_SECONDS} are never matched and are removed by
+ *       {@link #reapExpired}; riders arriving {@link #ARRIVAL_SLACK_SECONDS} or more after the
+ *       driver are not offered the seat.
+ *   <li>Every change is atomic: a rider is taken by at most one driver.
+ * </ul>
+ */
+public interface RiderIntentStore {
+  /** Intents whose arrival is older than this are never matched, and are reaped */
+  long INTENT_MAX_AGE_SECONDS = 1800;
+  /** Riders arriving up to this long after the driver are still offered the seat */
+  long ARRIVAL_SLACK_SECONDS = 300;
+
+  /** A queued intent with the engine's handle for claiming exactly that entry later. */
+  record QueuedIntent(byte[] bucket, byte[] member, RiderIntent intent) {}
+
+  /** Bucket name for a destination: lower-cased, empty when there is none. */
+  static String bucketName(String destinationAreaId) {
+    return destinationAreaId == null || destinationAreaId.isBlank() ? "" : destinationAreaId.toLowerCase(Locale.ROOT);
   }
 
-  private String getKey(String stationAreaId) {
-    return "station:" + stationAreaId + ":intents";
-  }
+  /** Adds the rider's intent, replacing any intent the rider already has at any station. */
+  void add(RiderIntent intent);
 
-  public void add(RiderIntent intent) {
-    String key = getKey(intent.getStationAreaId());
-    double score = intent.getArrivalTime().getEpochSecond();
-    log.info("Adding rider {} to key: {} with score: {}", intent.getRiderId(), key, score);
-    
-    Boolean result = redisTemplate.opsForZSet().add(key, intent, score);
-    log.info("Add result: {}", result);
-    
-    // Set TTL for the station key (e.g., 1 hour) to cleanup old data
-    redisTemplate.expire(key, 3600, TimeUnit.SECONDS);
-  }
+  /** Cancels the rider's intent at the station, or at any station when blank; a no-op if there is none. */
+  void remove(String riderId, String stationAreaId);
 
-  public void remove(String riderId, String stationAreaId) {
-    String key = getKey(stationAreaId);
-    Set<Object> candidates = redisTemplate.opsForZSet().range(key, 0, -1);
-    if (candidates != null) {
-      for (Object obj : candidates) {
-        RiderIntent r = convert(obj);
-        if (r != null && r.getRiderId().equals(riderId)) {
-          redisTemplate.opsForZSet().remove(key, obj);
-          log.info("Removed rider {} from key: {}", riderId, key);
-          break; 
-        }
-      }
-    }
-  }
+  /** Drops every intent at a station. */
+  void clear(String stationAreaId);
+
+  /** Stations that have had intents since the reaper last found them empty. */
+  Set<String> activeStations();
+
+  /**
+   * Removes up to {@code limit} intents at a station that are too old to be matched, and returns
+   * them. Once the station has no intents left it leaves {@link #activeStations()}.
+   */
+  List<RiderIntent> reapExpired(String stationAreaId, int limit);
+
+  /**
+   * Removes and returns the riders at a station that fit {@code limit} seats, head to the
+   * driver's destination (any destination when blank) and arrive in time for a driver
+   * {@code driverEtaMinutes} away. Which riders are seated is up to the {@link MatchingPolicy}.
+   */
+  List<RiderIntent> takeMatching(String stationAreaId, String destinationAreaId, int limit, int driverEtaMinutes);
+
+  /**
+   * Up to {@code maxCandidates} intents at a station, earliest arrival first, that a driver
+   * {@code driverEtaMinutes} away could take toward the destination (any when blank). Nothing is
+   * removed.
+   */
+  List<QueuedIntent> peek(String stationAreaId, String destinationAreaId, int driverEtaMinutes, int maxCandidates);
+
+  /**
+   * Removes peeked intents of one station, all or nothing. False, with nothing removed, if any of
+   * them was taken or cancelled since the peek.
+   */
+  boolean claim(String stationAreaId, List<QueuedIntent> chosen);
 
   /**
-   * Fetch candidate riders for a station matching destination.
-   * Uses Redis transactions to ensure atomicity.
+   * True when {@link #addAsync} and {@link #removeAsync} hold no thread while they wait and are
+   * atomic on their own, so callers need not queue them on a station lane.
    */
-  public List<RiderIntent> takeMatching(String stationAreaId, String destinationAreaId, int limit, int driverEtaMinutes) {
-    String key = getKey(stationAreaId);
-    
-    // Cleanup expired intents (older than 30 minutes)
-    double cutoff = Instant.now().minusSeconds(1800).getEpochSecond();
-    redisTemplate.opsForZSet().removeRangeByScore(key, 0, cutoff);
-    
-    Instant driverArrival = Instant.now().plusSeconds(driverEtaMinutes * 60L);
-    return executeTransaction(key, stationAreaId, destinationAreaId, limit, driverArrival);
+  default boolean writesAsync() {
+    return false;
+  }
+
+  /** True when {@link #takeMatchingAsync} can likewise skip the station lane. */
+  default boolean takesAsync() {
+    return false;
+  }
+
+  /** {@link #add}, completing once the intent is stored; runs inline unless the engine overrides it. */
+  default CompletableFuture<Void> addAsync(RiderIntent intent) {
+    try {
+      add(intent);
+      return CompletableFuture.completedFuture(null);
+    } catch (RuntimeException ex) {
+      return CompletableFuture.failedFuture(ex);
+    }
   }
 
-  @SuppressWarnings("unchecked")
-  private List<RiderIntent> executeTransaction(String key, String stationAreaId, String destinationAreaId, int limit, Instant driverArrival) {
-    // Execute in a transaction
-    // We return a List containing [execResults, matchedRiders]
-    List<Object> result = redisTemplate.execute(new SessionCallback<List<Object>>() {
-      public List<Object> execute(RedisOperations operations) throws DataAccessException {
-        // 1. Watch the key for optimistic locking
-        operations.watch(key);
-
-        // 2. Read all candidates (ZSET is sorted by arrival time)
-        Set<Object> candidates = operations.opsForZSet().range(key, 0, -1);
-        
-        List<RiderIntent> matched = new ArrayList<>();
-        int currentPax = 0;
-        if (candidates != null) {
-          for (Object obj : candidates) {
-            RiderIntent r = convert(obj);
-            if (r == null) continue;
-
-            boolean destMatch = destinationAreaId == null || destinationAreaId.isBlank() || destinationAreaId.equalsIgnoreCase(r.getDestinationAreaId());
-            boolean timeMatch = r.getArrivalTime().isBefore(driverArrival.plusSeconds(300)); // 5 min buffer
-            boolean fits = (currentPax + r.getPartySize()) <= limit;
-
-            if (destMatch && timeMatch && fits) {
-              matched.add(r);
-              currentPax += r.getPartySize();
-              // If we are full exactly, break. If we have space but next guy is too big, we continue (utilization).
-              if (currentPax >= limit) break;
-            }
-          }
-        }
-
-        // 3. Start transaction
-        operations.multi();
-
-        // 4. Remove matched riders
-        for (RiderIntent r : matched) {
-          operations.opsForZSet().remove(key, r);
-        }
-
-        // 5. Commit
-        List<Object> execResults = operations.exec();
-        
-        // Return both the transaction results and the matched list
-        // Note: execResults will be null if transaction failed (CAS)
-        if (execResults == null) {
-            return null;
-        }
-        return List.of(execResults, matched);
-      }
-    });
-
-    // Check if transaction succeeded
-    if (result != null && !result.isEmpty()) {
-        List<Object> execResults = (List<Object>) result.get(0);
-        if (execResults != null && !execResults.isEmpty()) {
-            // Transaction committed successfully
-            return (List<RiderIntent>) result.get(1);
-        }
+  /** {@link #remove}, asynchronously where the engine supports it. */
+  default CompletableFuture<Void> removeAsync(String riderId, String stationAreaId) {
+    try {
+      remove(riderId, stationAreaId);
+      return CompletableFuture.completedFuture(null);
+    } catch (RuntimeException ex) {
+      return CompletableFuture.failedFuture(ex);
     }
-    
-    // Transaction failed (CAS failure or empty), return empty list
-    return List.of();
   }
 
-  private RiderIntent convert(Object obj) {
-    if (obj instanceof RiderIntent) return (RiderIntent) obj;
+  /** {@link #takeMatching}, asynchronously where the engine supports it. */
+  default CompletableFuture<List<RiderIntent>> takeMatchingAsync(String stationAreaId, String destinationAreaId, int limit,
+      int driverEtaMinutes) {
     try {
-      return objectMapper.convertValue(obj, RiderIntent.class);
-    } catch (Exception e) {
-      log.error("Conversion failed for object: {}", obj, e);
-      return null;
+      return CompletableFuture.completedFuture(takeMatching(stationAreaId, destinationAreaId, limit, driverEtaMinutes));
+    } catch (RuntimeException ex) {
+      return CompletableFuture.failedFuture(ex);
     }
   }
 }
@@ -0,0 +1,16 @@
+package com.imt.lastmile.matching.events;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "matching.broadcast")
+public class BroadcastProperties {
+  /** Events held per subscriber that is not ready to receive; the oldest is dropped beyond this */
+  private int subscriberQueueCapacity = 256;
+  /** Threads writing events to subscriber streams */
+  private int threads = 2;
+
+  public int getSubscriberQueueCapacity() { return subscriberQueueCapacity; }
+  public void setSubscriberQueueCapacity(int subscriberQueueCapacity) { this.subscriberQueueCapacity = subscriberQueueCapacity; }
+  public int getThreads() { return threads; }
+  public void setThreads(int threads) { this.threads = threads; }
+}
@@ -0,0 +1,27 @@
+package com.imt.lastmile.matching.events;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "matching.events")
+public class EventBusProperties {
+  /** How replicas share match events */
+  public enum Bus {
+    /** A Redis stream per station for replay, plus one pub/sub channel to every replica */
+    REDIS,
+    /** This replica only; for tests and single-instance runs */
+    MEMORY
+  }
+
+  private Bus bus = Bus.REDIS;
+  /** Events kept per station for clients that reconnect */
+  private int replayLength = 100;
+  /** A station's log is dropped this long after its last event */
+  private long retentionSeconds = 3600;
+
+  public Bus getBus() { return bus; }
+  public void setBus(Bus bus) { this.bus = bus; }
+  public int getReplayLength() { return replayLength; }
+  public void setReplayLength(int replayLength) { this.replayLength = replayLength; }
+  public long getRetentionSeconds() { return retentionSeconds; }
+  public void setRetentionSeconds(long retentionSeconds) { this.retentionSeconds = retentionSeconds; }
+}
@@ -0,0 +1,54 @@
+package com.imt.lastmile.matching.events;
+
+/**
+ * Position of an event in its station's log, as a Redis stream id: milliseconds, then a sequence
+ * within the millisecond. The bus appends it to every event_id ({@code new-rider-1718000000000-0}),
+ * so ids order a station's events and tell a reconnecting client's position.
+ */
+public record EventSequence(long millis, long seq) implements Comparable<EventSequence> {
+  /** The sequence at the end of an event id, or null if it has none (e.g. a greeting). */
+  public static EventSequence of(String eventId) {
+    if (eventId == null) {
+      return null;
+    }
+    int dash = eventId.lastIndexOf('-');
+    int before = dash > 0 ? eventId.lastIndexOf('-', dash - 1) : -1;
+    if (dash < 0 || !digits(eventId, dash + 1, eventId.length()) || !digits(eventId, before + 1, dash)) {
+      return null;
+    }
+    try {
+      return new EventSequence(Long.parseLong(eventId, before + 1, dash, 10),
+          Long.parseLong(eventId, dash + 1, eventId.length(), 10));
+    } catch (NumberFormatException ex) {
+      return null;
+    }
+  }
+
+  private static boolean digits(String s, int from, int to) {
+    if (from >= to) {
+      return false;
+    }
+    for (int i = from; i < to; i++) {
+      if (s.charAt(i) < '0' || s.charAt(i) > '9') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** The smallest sequence after this one. */
+  public EventSequence next() {
+    return new EventSequence(millis, seq + 1);
+  }
+
+  @Override
+  public int compareTo(EventSequence other) {
+    int byMillis = Long.compare(millis, other.millis);
+    return byMillis != 0 ? byMillis : Long.compare(seq, other.seq);
+  }
+
+  @Override
+  public String toString() {
+    return millis + "-" + seq;
+  }
+}
@@ -0,0 +1,59 @@
+package com.imt.lastmile.matching.events;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lastmile.matching.MatchEvent;
+
+/**
+ * {@link MatchEventBus} within one JVM, with the same ids, ordering and replay as the Redis bus.
+ * Events only reach this replica's subscribers.
+ */
+public class InMemoryMatchEventBus implements MatchEventBus {
+  private final int replayLength;
+  private final MatchEventBroadcaster broadcaster;
+  private final Map<String, Deque<MatchEvent>> logs = new HashMap<>();
+  private EventSequence last = new EventSequence(0, 0);
+
+  public InMemoryMatchEventBus(EventBusProperties props, MatchEventBroadcaster broadcaster) {
+    this.replayLength = Math.max(0, props.getReplayLength());
+    this.broadcaster = broadcaster;
+  }
+
+  @Override
+  public synchronized void publish(String kind, MatchEvent event) {
+    long now = System.currentTimeMillis();
+    last = now > last.millis() ? new EventSequence(now, 0) : last.next();
+    MatchEvent logged = event.toBuilder().setEventId(kind + "-" + last).build();
+    Deque<MatchEvent> log = logs.computeIfAbsent(logged.getStationAreaId(), s -> new ArrayDeque<>());
+    log.addLast(logged);
+    while (log.size() > replayLength) {
+      log.removeFirst();
+    }
+    // Under the lock, so a station's events reach the broadcaster in order
+    broadcaster.publish(logged);
+  }
+
+  @Override
+  public synchronized List<MatchEvent> replay(Collection<String> stationIds, String afterEventId) {
+    EventSequence after = EventSequence.of(afterEventId);
+    if (after == null) {
+      return List.of();
+    }
+    List<MatchEvent> events = new ArrayList<>();
+    for (String station : stationIds) {
+      for (MatchEvent event : logs.getOrDefault(station, new ArrayDeque<>())) {
+        if (EventSequence.of(event.getEventId()).compareTo(after) > 0) {
+          events.add(event);
+        }
+      }
+    }
+    events.sort(Comparator.comparing(e -> EventSequence.of(e.getEventId())));
+    return events;
+  }
+}
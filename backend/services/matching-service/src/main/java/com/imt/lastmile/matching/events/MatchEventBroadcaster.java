@@ -0,0 +1,246 @@
+package com.imt.lastmile.matching.events;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import lastmile.matching.MatchEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fans match events out to SubscribeMatches streams. Subscribers are indexed by station, so
+ * publishing an event touches only the subscribers of its station; events without a station go to
+ * everyone.
+ *
+ * <p>Publishing never writes to a stream. Each subscriber has a bounded queue drained on the
+ * broadcaster's threads while gRPC reports the stream ready, so a slow client only ever delays
+ * itself; when its queue is full the oldest event is dropped. A cancelled stream is unsubscribed
+ * by its cancel handler.
+ *
+ * <p>Events reach the broadcaster from the {@link MatchEventBus}, from any replica. A client that
+ * reconnects gets what it missed replayed before live events; since a station's event ids only
+ * grow, an event both replayed and received live is sent once.
+ */
+@Component
+public class MatchEventBroadcaster {
+  private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(MatchEventBroadcaster.class);
+
+  private final int queueCapacity;
+  private final ExecutorService writers;
+  private final Set<Subscription> all = ConcurrentHashMap.newKeySet();
+  private final Map<String, Set<Subscription>> byStation = new ConcurrentHashMap<>();
+  private final Counter dropped;
+  private final Timer latency;
+
+  public MatchEventBroadcaster(BroadcastProperties props, MeterRegistry registry) {
+    this.queueCapacity = Math.max(1, props.getSubscriberQueueCapacity());
+    AtomicInteger threads = new AtomicInteger();
+    this.writers = Executors.newFixedThreadPool(Math.max(1, props.getThreads()), r -> {
+      Thread t = new Thread(r, "match-events-" + threads.getAndIncrement());
+      t.setDaemon(true);
+      return t;
+    });
+    Gauge.builder("matching.events.subscribers", all, Set::size)
+        .description("Open SubscribeMatches streams")
+        .register(registry);
+    this.dropped = Counter.builder("matching.events.dropped")
+        .description("Events dropped because a subscriber's queue was full")
+        .register(registry);
+    this.latency = Timer.builder("matching.events.latency")
+        .description("From publishing a live event on the bus to writing it to a subscriber's stream")
+        .publishPercentiles(0.5, 0.99)
+        .register(registry);
+  }
+
+  /** Completes every open stream, so clients reconnect to another replica. */
+  @PreDestroy
+  void stop() {
+    for (Subscription subscription : all) {
+      unsubscribe(subscription);
+      subscription.complete();
+    }
+    writers.shutdown();
+    try {
+      writers.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Registers a stream for events of the given stations. For a gRPC server stream, sends wait for
+   * {@code isReady()} and the subscription ends when the call is cancelled.
+   */
+  public Subscription subscribe(StreamObserver<MatchEvent> observer, Collection<String> stationIds) {
+    return subscribe(observer, stationIds, List::of);
+  }
+
+  /**
+   * Registers a stream, then reads {@code replay} and sends those events before any live one.
+   * Live events published meanwhile are held, not lost. A failing replay is logged and skipped.
+   */
+  public Subscription subscribe(StreamObserver<MatchEvent> observer, Collection<String> stationIds,
+      Supplier<List<MatchEvent>> replay) {
+    Subscription subscription = new Subscription(observer, Set.copyOf(stationIds));
+    all.add(subscription);
+    for (String station : subscription.stationIds) {
+      byStation.compute(station, (key, subscribers) -> {
+        Set<Subscription> set = subscribers != null ? subscribers : ConcurrentHashMap.newKeySet();
+        set.add(subscription);
+        return set;
+      });
+    }
+    if (observer instanceof ServerCallStreamObserver<MatchEvent> call) {
+      call.setOnReadyHandler(subscription::schedule);
+      call.setOnCancelHandler(() -> unsubscribe(subscription));
+    }
+    try {
+      subscription.backlog.addAll(replay.get());
+    } catch (RuntimeException ex) {
+      log.warn("Could not replay missed events for stations {}", stationIds, ex);
+    } finally {
+      subscription.held = false;
+      subscription.schedule();
+    }
+    return subscription;
+  }
+
+  /** Queues an event for every subscriber of its station, or for everyone when it has none. */
+  public void publish(MatchEvent event) {
+    String station = event.getStationAreaId();
+    Set<Subscription> targets = station.isEmpty() ? all : byStation.getOrDefault(station, Set.of());
+    for (Subscription subscription : targets) {
+      subscription.send(event);
+    }
+    log.debug("Queued event {} for {} subscribers (total: {})", event.getEventId(), targets.size(), all.size());
+  }
+
+  /** Number of open subscriptions. */
+  public int subscribers() {
+    return all.size();
+  }
+
+  private void unsubscribe(Subscription subscription) {
+    if (!all.remove(subscription)) {
+      return;
+    }
+    subscription.closed = true;
+    for (String station : subscription.stationIds) {
+      byStation.computeIfPresent(station, (key, subscribers) -> {
+        subscribers.remove(subscription);
+        return subscribers.isEmpty() ? null : subscribers;
+      });
+    }
+  }
+
+  /** One subscriber's stream and the events waiting for it. */
+  public final class Subscription {
+    private final StreamObserver<MatchEvent> observer;
+    private final ServerCallStreamObserver<MatchEvent> call;
+    private final Set<String> stationIds;
+    private final Queue<MatchEvent> queue = new ConcurrentLinkedQueue<>();
+    /** Replayed events, sent before the queue */
+    private final Queue<MatchEvent> backlog = new ConcurrentLinkedQueue<>();
+    /** Last sequence sent per station; only touched by drain, which never runs concurrently */
+    private final Map<String, EventSequence> sent = new HashMap<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    /** Drain requests not yet served; only the caller that raises it from 0 starts a drain */
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean closed;
+    private volatile boolean completing;
+    /** Live events wait while the replay is read */
+    private volatile boolean held = true;
+
+    private Subscription(StreamObserver<MatchEvent> observer, Set<String> stationIds) {
+      this.observer = observer;
+      this.call = observer instanceof ServerCallStreamObserver<MatchEvent> c ? c : null;
+      this.stationIds = stationIds;
+    }
+
+    /** Queues an event for this subscriber alone, e.g. a greeting. */
+    public void send(MatchEvent event) {
+      if (closed) {
+        return;
+      }
+      queue.offer(event);
+      if (queued.incrementAndGet() > queueCapacity && queue.poll() != null) {
+        queued.decrementAndGet();
+        dropped.increment();
+      }
+      schedule();
+    }
+
+    private void complete() {
+      completing = true;
+      schedule();
+    }
+
+    private void schedule() {
+      if (pending.getAndIncrement() == 0) {
+        try {
+          writers.execute(this::drain);
+        } catch (RejectedExecutionException ex) {
+          // Shutting down; the stream is completed or cancelled anyway
+        }
+      }
+    }
+
+    /** Writes queued events while the stream is ready; never runs twice at once for a subscriber. */
+    private void drain() {
+      int missed = 1;
+      do {
+        try {
+          while (!closed && !held && (call == null || call.isReady())) {
+            MatchEvent event = backlog.poll();
+            boolean live = event == null;
+            if (live) {
+              event = queue.poll();
+              if (event == null) {
+                break;
+              }
+              queued.decrementAndGet();
+            }
+            EventSequence sequence = EventSequence.of(event.getEventId());
+            if (sequence != null) {
+              EventSequence last = sent.get(event.getStationAreaId());
+              if (last != null && sequence.compareTo(last) <= 0) {
+                continue;
+              }
+              sent.put(event.getStationAreaId(), sequence);
+              if (live) {
+                latency.record(Math.max(0, System.currentTimeMillis() - sequence.millis()), TimeUnit.MILLISECONDS);
+              }
+            }
+            observer.onNext(event);
+          }
+          if (completing) {
+            completing = false;
+            observer.onCompleted();
+          }
+        } catch (RuntimeException ex) {
+          log.debug("Dropping subscriber after failed send", ex);
+          unsubscribe(this);
+          queue.clear();
+        }
+        missed = pending.addAndGet(-missed);
+      } while (missed != 0);
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package com.imt.lastmile.matching.events;
+
+import java.util.Collection;
+import java.util.List;
+import lastmile.matching.MatchEvent;
+
+/**
+ * Shares match events between replicas, so a SubscribeMatches stream sees events handled by any of
+ * them. Every replica hands the events it receives to its {@link MatchEventBroadcaster}. A
+ * station's events arrive in the order they were published, and the last
+ * {@code matching.events.replay-length} of them can be read again by a client that reconnects.
+ */
+public interface MatchEventBus {
+  /**
+   * Appends an event to its station's log and delivers it on every replica. The event's id is
+   * replaced by {@code kind} followed by its {@link EventSequence}.
+   */
+  void publish(String kind, MatchEvent event);
+
+  /**
+   * Logged events of the stations published after {@code afterEventId}, oldest first; empty when
+   * the id carries no sequence.
+   */
+  List<MatchEvent> replay(Collection<String> stationIds, String afterEventId);
+}
@@ -0,0 +1,171 @@
+package com.imt.lastmile.matching.events;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lastmile.matching.MatchEvent;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+/**
+ * {@link MatchEventBus} over Redis. Each station has a capped stream {@code events:station:{s}}
+ * that ids and replay come from; a script appends to it and publishes the same event on
+ * {@code matching:events} in one step. Every replica listens on the channel and hands events to
+ * its broadcaster on a single thread, so a station's events keep stream order.
+ */
+public class RedisMatchEventBus implements MatchEventBus, AutoCloseable {
+  private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(RedisMatchEventBus.class);
+  static final String CHANNEL = "matching:events";
+  private static final byte[] KIND = "kind".getBytes(StandardCharsets.UTF_8);
+  private static final byte[] EVENT = "event".getBytes(StandardCharsets.UTF_8);
+  private static final RedisScript<String> PUBLISH_SCRIPT =
+      RedisScript.of(new ClassPathResource("scripts/publish-event.lua"), String.class);
+  /** Script arguments: byte arrays as they are, anything else as UTF-8 text */
+  private static final RedisSerializer<Object> SCRIPT_ARGS = new RedisSerializer<>() {
+    @Override
+    public byte[] serialize(Object value) {
+      return value instanceof byte[] bytes ? bytes : value.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) {
+      return bytes;
+    }
+  };
+
+  private final RedisTemplate<String, Object> redisTemplate;
+  private final EventBusProperties props;
+  private final MatchEventBroadcaster broadcaster;
+  private final ExecutorService dispatcher;
+  private final RedisMessageListenerContainer container;
+
+  public RedisMatchEventBus(RedisConnectionFactory connectionFactory, RedisTemplate<String, Object> redisTemplate,
+      EventBusProperties props, MatchEventBroadcaster broadcaster) {
+    this.redisTemplate = redisTemplate;
+    this.props = props;
+    this.broadcaster = broadcaster;
+    this.dispatcher = Executors.newSingleThreadExecutor(r -> {
+      Thread t = new Thread(r, "match-event-bus");
+      t.setDaemon(true);
+      return t;
+    });
+    this.container = new RedisMessageListenerContainer();
+    container.setConnectionFactory(connectionFactory);
+    // One thread keeps messages in channel order
+    container.setTaskExecutor(dispatcher);
+    container.addMessageListener((message, pattern) -> deliver(message.getBody()), new ChannelTopic(CHANNEL));
+    container.afterPropertiesSet();
+    container.start();
+  }
+
+  @Override
+  public void close() throws Exception {
+    container.stop();
+    container.destroy();
+    dispatcher.shutdown();
+  }
+
+  static String streamKey(String stationAreaId) {
+    return "events:station:" + stationAreaId;
+  }
+
+  @Override
+  public void publish(String kind, MatchEvent event) {
+    redisTemplate.execute(PUBLISH_SCRIPT, SCRIPT_ARGS, StringRedisSerializer.UTF_8,
+        List.of(streamKey(event.getStationAreaId())),
+        kind, event.toBuilder().clearEventId().build().toByteArray(),
+        Integer.toString(props.getReplayLength()), Long.toString(props.getRetentionSeconds()), CHANNEL);
+  }
+
+  /** Parses "<stream id> <kind> <event>" and hands the event to the broadcaster. */
+  private void deliver(byte[] body) {
+    int first = indexOf(body, 0);
+    int second = first < 0 ? -1 : indexOf(body, first + 1);
+    if (second < 0) {
+      log.warn("Ignoring malformed match event of {} bytes", body.length);
+      return;
+    }
+    String id = new String(body, 0, first, StandardCharsets.UTF_8);
+    String kind = new String(body, first + 1, second - first - 1, StandardCharsets.UTF_8);
+    MatchEvent event = decode(kind, id, Arrays.copyOfRange(body, second + 1, body.length));
+    if (event != null) {
+      broadcaster.publish(event);
+    }
+  }
+
+  @Override
+  public List<MatchEvent> replay(Collection<String> stationIds, String afterEventId) {
+    EventSequence after = EventSequence.of(afterEventId);
+    if (after == null) {
+      return List.of();
+    }
+    Range<String> range = Range.rightUnbounded(Range.Bound.inclusive(after.next().toString()));
+    Limit limit = Limit.limit().count(props.getReplayLength());
+    List<MatchEvent> events = new ArrayList<>();
+    for (String station : stationIds) {
+      byte[] key = streamKey(station).getBytes(StandardCharsets.UTF_8);
+      List<ByteRecord> records = redisTemplate.execute(
+          (RedisCallback<List<ByteRecord>>) conn -> conn.streamCommands().xRange(key, range, limit));
+      if (records == null) {
+        continue;
+      }
+      for (ByteRecord record : records) {
+        byte[] kind = field(record.getValue(), KIND);
+        byte[] bytes = field(record.getValue(), EVENT);
+        if (kind == null || bytes == null) {
+          continue;
+        }
+        MatchEvent event = decode(new String(kind, StandardCharsets.UTF_8), record.getId().getValue(), bytes);
+        if (event != null) {
+          events.add(event);
+        }
+      }
+    }
+    events.sort(Comparator.comparing(e -> EventSequence.of(e.getEventId())));
+    return events;
+  }
+
+  private static MatchEvent decode(String kind, String id, byte[] bytes) {
+    try {
+      return MatchEvent.parseFrom(bytes).toBuilder().setEventId(kind + "-" + id).build();
+    } catch (InvalidProtocolBufferException ex) {
+      log.warn("Ignoring undecodable match event {}", id, ex);
+      return null;
+    }
+  }
+
+  private static byte[] field(Map<byte[], byte[]> fields, byte[] name) {
+    for (Map.Entry<byte[], byte[]> entry : fields.entrySet()) {
+      if (Arrays.equals(entry.getKey(), name)) {
+        return entry.getValue();
+      }
+    }
+    return null;
+  }
+
+  private static int indexOf(byte[] body, int from) {
+    for (int i = from; i < body.length; i++) {
+      if (body[i] == ' ') {
+        return i;
+      }
+    }
+    return -1;
+  }
+}
@@ -1,35 +1,54 @@
 package com.imt.lastmile.matching.grpc;
 
+import com.imt.lastmile.matching.batch.DriverOffer;
+import com.imt.lastmile.matching.batch.MatchBatcher;
 import com.imt.lastmile.matching.domain.RiderIntent;
 import com.imt.lastmile.matching.domain.RiderIntentStore;
+import com.imt.lastmile.matching.events.MatchEventBroadcaster;
+import com.imt.lastmile.matching.events.MatchEventBus;
+import com.imt.lastmile.matching.lane.StationLanes;
+import com.imt.lastmile.matching.route.RouteMatcher;
+import com.imt.lastmile.matching.route.RouteStop;
+import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 import lastmile.matching.EvaluateDriverRequest;
+import lastmile.matching.EvaluateDriverRouteRequest;
 import lastmile.matching.MatchEvent;
 import lastmile.matching.MatchResponse;
 import lastmile.matching.MatchResult;
 import lastmile.matching.MatchingServiceGrpc;
 import lastmile.matching.SubscribeRequest;
 import net.devh.boot.grpc.server.service.GrpcService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 @GrpcService
 public class GrpcMatchingService extends MatchingServiceGrpc.MatchingServiceImplBase {
+  private static final Logger log = LoggerFactory.getLogger(GrpcMatchingService.class);
+
   @org.springframework.beans.factory.annotation.Autowired
   private RiderIntentStore riderStore;
-  
-  private static class Subscriber {
-    final StreamObserver<MatchEvent> observer;
-    final java.util.Set<String> stationIds;
 
-    Subscriber(StreamObserver<MatchEvent> observer, java.util.Set<String> stationIds) {
-      this.observer = observer;
-      this.stationIds = stationIds;
-    }
-  }
+  @org.springframework.beans.factory.annotation.Autowired
+  private StationLanes lanes;
+
+  @org.springframework.beans.factory.annotation.Autowired
+  private MatchBatcher batcher;
+
+  @org.springframework.beans.factory.annotation.Autowired
+  private RouteMatcher routeMatcher;
+  
+  @org.springframework.beans.factory.annotation.Autowired
+  private MatchEventBroadcaster broadcaster;
 
-  private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+  @org.springframework.beans.factory.annotation.Autowired
+  private MatchEventBus eventBus;
 
   @net.devh.boot.grpc.client.inject.GrpcClient("trip-service")
   private lastmile.trip.TripServiceGrpc.TripServiceBlockingStub tripClient;
@@ -51,8 +70,108 @@ public class GrpcMatchingService extends MatchingServiceGrpc.MatchingServiceImpl
 
     // Pass driver ETA to matching logic
     System.out.println("Evaluating driver " + request.getDriverId() + ". Seats: " + seats + ", ETA: " + request.getEtaToStationMinutes());
-    List<RiderIntent> riders = riderStore.takeMatching(request.getStationAreaId(), request.getDestinationAreaId(), seats, request.getEtaToStationMinutes());
-    
+    if (batcher.isEnabled()) {
+      // Drivers at a station within one window share its riders, assigned jointly
+      DriverOffer offer = new DriverOffer(request.getDriverId(), request.getStationAreaId(), request.getDestinationAreaId(),
+          seats, request.getEtaToStationMinutes());
+      whenDone(batcher.evaluate(offer), request.getStationAreaId(), responseObserver,
+          riders -> respond(request, riders, responseObserver));
+      return;
+    }
+    if (riderStore.takesAsync()) {
+      // One atomic step in the store, which orders concurrent takes itself and holds no thread
+      whenDone(riderStore.takeMatchingAsync(request.getStationAreaId(), request.getDestinationAreaId(), seats,
+              request.getEtaToStationMinutes()), request.getStationAreaId(), responseObserver,
+          riders -> respond(request, riders, responseObserver));
+      return;
+    }
+    // Takes for one station run one at a time on its lane, so drivers there never race each other
+    onLane(request.getStationAreaId(), responseObserver,
+        () -> riderStore.takeMatching(request.getStationAreaId(), request.getDestinationAreaId(), seats, request.getEtaToStationMinutes()),
+        riders -> respond(request, riders, responseObserver));
+  }
+
+  @Override
+  public void evaluateDriverRoute(EvaluateDriverRouteRequest request, StreamObserver<MatchResponse> responseObserver) {
+    int seats = request.getSeatsAvailable();
+    if (seats <= 0 || request.getStationsCount() == 0) {
+      responseObserver.onNext(MatchResponse.newBuilder().setMatched(false)
+          .setMsg(seats <= 0 ? "No seats available" : "No stations on route").build());
+      responseObserver.onCompleted();
+      return;
+    }
+    List<RouteStop> stops = request.getStationsList().stream()
+        .map(s -> new RouteStop(s.getStationAreaId(), s.getEtaToStationMinutes()))
+        .toList();
+    // One decision for the whole route, run on the first station's lane. Batch windows are per
+    // station and do not apply; claims at the later stations are atomic on their own.
+    onLane(stops.get(0).stationAreaId(), responseObserver,
+        () -> routeMatcher.match(request.getDestinationAreaId(), seats, stops),
+        taken -> respondRoute(request, stops, taken, responseObserver));
+  }
+
+  private void respondRoute(EvaluateDriverRouteRequest request, List<RouteStop> stops, List<List<RiderIntent>> taken,
+      StreamObserver<MatchResponse> responseObserver) {
+    List<MatchResult> results = new ArrayList<>();
+    int riders = 0;
+    for (int s = 0; s < stops.size(); s++) {
+      if (!taken.get(s).isEmpty()) {
+        results.add(matchResult(request.getDriverId(), stops.get(s).stationAreaId(), request.getDestinationAreaId(),
+            taken.get(s)));
+        riders += taken.get(s).size();
+      }
+    }
+    if (results.isEmpty()) {
+      responseObserver.onNext(MatchResponse.newBuilder().setMatched(false).setMsg("No riders waiting").build());
+      responseObserver.onCompleted();
+      return;
+    }
+    log.debug("Matched {} riders for driver {} at {} station(s) on route {}", riders, request.getDriverId(),
+        results.size(), request.getRouteId());
+    responseObserver.onNext(MatchResponse.newBuilder()
+        .setMatched(true)
+        .addAllResults(results)
+        .setMsg("Matched " + riders + " rider(s) at " + results.size() + " station(s)")
+        .build());
+    responseObserver.onCompleted();
+
+    for (MatchResult result : results) {
+      broadcastEvent("match-found", MatchEvent.newBuilder()
+          .setStationAreaId(result.getStationAreaId())
+          .setResult(result)
+          .build());
+    }
+  }
+
+  /**
+   * Runs a store call on the station's lane, then {@code then} with its result. Calls that wait
+   * on Redis go through a lane, so a take never overlaps an add or cancel at the same station.
+   * Callers whose store reports {@link RiderIntentStore#writesAsync()} (pipelined, or in memory)
+   * pass its future to {@link #whenDone} instead: each call is one atomic step there, and the RPC
+   * answers only once the store has applied it.
+   */
+  private <T> void onLane(String stationAreaId, StreamObserver<?> responseObserver, java.util.function.Supplier<T> work,
+      java.util.function.Consumer<T> then) {
+    whenDone(lanes.submit(stationAreaId, work), stationAreaId, responseObserver, then);
+  }
+
+  /** Runs {@code then} with the result of station work, or fails the call the way lanes fail. */
+  private <T> void whenDone(CompletableFuture<T> work, String stationAreaId, StreamObserver<?> responseObserver,
+      java.util.function.Consumer<T> then) {
+    work.whenComplete((result, error) -> {
+      if (error == null) {
+        then.accept(result);
+        return;
+      }
+      Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+      Status status = cause instanceof RejectedExecutionException
+          ? Status.RESOURCE_EXHAUSTED.withDescription("Matching queue for station " + stationAreaId + " is full")
+          : Status.INTERNAL.withDescription("Matching store failed").withCause(cause);
+      responseObserver.onError(status.asRuntimeException());
+    });
+  }
+
+  private void respond(EvaluateDriverRequest request, List<RiderIntent> riders, StreamObserver<MatchResponse> responseObserver) {
     if (riders.isEmpty()) {
       System.out.println("No riders matched for driver " + request.getDriverId());
       responseObserver.onNext(MatchResponse.newBuilder().setMatched(false).setMsg("No riders waiting").build());
@@ -62,21 +181,8 @@ public class GrpcMatchingService extends MatchingServiceGrpc.MatchingServiceImpl
 
     System.out.println("Matched " + riders.size() + " riders. Returning potential match...");
 
-    // Do NOT create trip automatically. Let driver accept first.
-    String tripId = ""; 
-
-    int totalPassengers = riders.stream().mapToInt(RiderIntent::getPartySize).sum();
-    // Fallback if partySize is 0 for some reason (backward compat)
-    if (totalPassengers == 0 && !riders.isEmpty()) totalPassengers = riders.size();
-
-    MatchResult result = MatchResult.newBuilder()
-      .setTripId(tripId)
-      .setDriverId(request.getDriverId())
-      .setStationAreaId(request.getStationAreaId())
-      .setDestinationAreaId(request.getDestinationAreaId())
-      .addAllRiderIds(riders.stream().map(RiderIntent::getRiderId).toList())
-      .setPassengerCount(totalPassengers)
-      .build();
+    MatchResult result = matchResult(request.getDriverId(), request.getStationAreaId(), request.getDestinationAreaId(),
+        riders);
     MatchResponse resp = MatchResponse.newBuilder()
       .setMatched(true)
       .addResults(result)
@@ -95,11 +201,29 @@ public class GrpcMatchingService extends MatchingServiceGrpc.MatchingServiceImpl
 
     // Broadcast event to subscribers (filtered)
     MatchEvent event = MatchEvent.newBuilder()
-      .setEventId("match-found-" + UUID.randomUUID().toString().substring(0, 8))
       .setStationAreaId(request.getStationAreaId())
       .setResult(result)
       .build();
-    broadcastEvent(event);
+    broadcastEvent("match-found", event);
+  }
+
+  private static MatchResult matchResult(String driverId, String stationAreaId, String destinationAreaId,
+      List<RiderIntent> riders) {
+    // Do NOT create trip automatically. Let driver accept first.
+    String tripId = "";
+
+    int totalPassengers = riders.stream().mapToInt(RiderIntent::getPartySize).sum();
+    // Fallback if partySize is 0 for some reason (backward compat)
+    if (totalPassengers == 0 && !riders.isEmpty()) totalPassengers = riders.size();
+
+    return MatchResult.newBuilder()
+      .setTripId(tripId)
+      .setDriverId(driverId)
+      .setStationAreaId(stationAreaId)
+      .setDestinationAreaId(destinationAreaId)
+      .addAllRiderIds(riders.stream().map(RiderIntent::getRiderId).toList())
+      .setPassengerCount(totalPassengers)
+      .build();
   }
 
   @Override
@@ -113,61 +237,66 @@ public class GrpcMatchingService extends MatchingServiceGrpc.MatchingServiceImpl
         arrivalTime,
         request.getPartySize()
     );
-    riderStore.add(intent);
-    
-    // Notify subscribers (e.g., drivers) that a new rider has arrived
-    MatchEvent event = MatchEvent.newBuilder()
-      .setEventId("new-rider-" + UUID.randomUUID().toString().substring(0, 8))
-      .setStationAreaId(request.getStationAreaId())
-      .setResult(MatchResult.newBuilder()
-          .setStationAreaId(request.getStationAreaId())
-          .setDestinationAreaId(request.getDestinationAreaId())
-          .build()) // Include params for filtering
-      .build();
-    
-    broadcastEvent(event);
-    
-    responseObserver.onNext(lastmile.matching.AddRiderIntentResponse.newBuilder().setSuccess(true).setMsg("Intent added").build());
-    responseObserver.onCompleted();
+    CompletableFuture<Void> stored = riderStore.writesAsync()
+        ? riderStore.addAsync(intent)
+        : lanes.submit(request.getStationAreaId(), () -> {
+          riderStore.add(intent);
+          return null;
+        });
+    whenDone(stored, request.getStationAreaId(), responseObserver, added -> {
+      responseObserver.onNext(lastmile.matching.AddRiderIntentResponse.newBuilder().setSuccess(true).setMsg("Intent added").build());
+      responseObserver.onCompleted();
+
+      // Notify subscribers (e.g., drivers) that a new rider has arrived
+      MatchEvent event = MatchEvent.newBuilder()
+        .setStationAreaId(request.getStationAreaId())
+        .setResult(MatchResult.newBuilder()
+            .setStationAreaId(request.getStationAreaId())
+            .setDestinationAreaId(request.getDestinationAreaId())
+            .build()) // Include params for filtering
+        .build();
+
+      broadcastEvent("new-rider", event);
+    });
   }
 
   @Override
   public void subscribeMatches(SubscribeRequest request, StreamObserver<MatchEvent> responseObserver) {
     System.out.println("Received subscribeMatches request from client: " + request.getClientId() + " with stations: " + request.getStationIdsList());
-    subscribers.add(new Subscriber(responseObserver, new java.util.HashSet<>(request.getStationIdsList())));
-    
-    // Remove subscriber when client terminates (best-effort)
-    responseObserver.onNext(MatchEvent.newBuilder()
-      .setEventId("welcome-" + UUID.randomUUID().toString().substring(0, 6))
-      .setStationAreaId("")
-      .build());
+    // Unsubscribed by the stream's cancel handler when the client goes away. Events the client
+    // missed since last_event_id are replayed first.
+    broadcaster.subscribe(responseObserver, request.getStationIdsList(),
+            () -> eventBus.replay(request.getStationIdsList(), request.getLastEventId()))
+        .send(MatchEvent.newBuilder()
+            .setEventId("welcome-" + UUID.randomUUID().toString().substring(0, 6))
+            .setStationAreaId("")
+            .build());
   }
 
-  private void broadcastEvent(MatchEvent event) {
-    String stationId = event.getStationAreaId();
-    int sentCount = 0;
-    for (Subscriber sub : subscribers) {
-      // Filter: Only send if the subscriber is interested in this station
-      // If stationId is empty (e.g. welcome), send to all? Or maybe welcome is handled separately.
-      // If subscriber has no stations (e.g. global monitor), maybe send all?
-      // For now, strict filtering: must contain stationId.
-      if (sub.stationIds.contains(stationId) || stationId.isEmpty()) {
-        try {
-          sub.observer.onNext(event);
-          sentCount++;
-        } catch (Exception e) {
-          // Remove dead subscriber?
-          subscribers.remove(sub);
-        }
-      }
+  /**
+   * Publishes to subscribers on every replica; the bus names the event {@code kind-<sequence>}.
+   * The caller has already answered its RPC, so a bus failure only costs the notification.
+   */
+  private void broadcastEvent(String kind, MatchEvent event) {
+    try {
+      eventBus.publish(kind, event);
+    } catch (RuntimeException e) {
+      log.warn("Failed to publish {} event for station {}", kind, event.getStationAreaId(), e);
     }
-    System.out.println("Broadcasted event " + event.getEventId() + " to " + sentCount + " subscribers (Total: " + subscribers.size() + ")");
   }
+
   @Override
   public void cancelRideIntent(lastmile.matching.CancelRideIntentRequest request, StreamObserver<lastmile.matching.CancelRideIntentResponse> responseObserver) {
-    riderStore.remove(request.getRiderId(), request.getStationAreaId());
-    responseObserver.onNext(lastmile.matching.CancelRideIntentResponse.newBuilder().setSuccess(true).setMsg("Intent cancelled").build());
-    responseObserver.onCompleted();
+    CompletableFuture<Void> removed = riderStore.writesAsync()
+        ? riderStore.removeAsync(request.getRiderId(), request.getStationAreaId())
+        : lanes.submit(request.getStationAreaId(), () -> {
+          riderStore.remove(request.getRiderId(), request.getStationAreaId());
+          return null;
+        });
+    whenDone(removed, request.getStationAreaId(), responseObserver, cancelled -> {
+      responseObserver.onNext(lastmile.matching.CancelRideIntentResponse.newBuilder().setSuccess(true).setMsg("Intent cancelled").build());
+      responseObserver.onCompleted();
+    });
   }
 }
 
@@ -0,0 +1,20 @@
+package com.imt.lastmile.matching.lane;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "matching.lanes")
+public class LaneProperties {
+  /** Run matching for each station on one lane thread; false matches on the gRPC thread */
+  private boolean enabled = true;
+  /** Number of lanes; stations are assigned by hash, so several stations may share one */
+  private int count = 16;
+  /** Requests waiting per lane before new ones are rejected */
+  private int queueCapacity = 1_000;
+
+  public boolean isEnabled() { return enabled; }
+  public void setEnabled(boolean enabled) { this.enabled = enabled; }
+  public int getCount() { return count; }
+  public void setCount(int count) { this.count = count; }
+  public int getQueueCapacity() { return queueCapacity; }
+  public void setQueueCapacity(int queueCapacity) { this.queueCapacity = queueCapacity; }
+}
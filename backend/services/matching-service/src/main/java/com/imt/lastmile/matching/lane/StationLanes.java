@@ -0,0 +1,109 @@
+package com.imt.lastmile.matching.lane;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Single-writer lanes for station work. Each station hashes to one lane, and each lane is one
+ * thread with a bounded queue, so matching for a station runs strictly in order and never races
+ * another request for the same station inside this replica. Requests for stations on other lanes
+ * run in parallel.
+ *
+ * <p>Across replicas the take script is atomic in Redis, so serializing per replica is enough to
+ * stop drivers at the same station from failing each other's takes.
+ */
+@Component
+public class StationLanes {
+  private final ThreadPoolExecutor[] lanes;
+  private final Timer[] waits;
+  private final Counter rejected;
+
+  public StationLanes(LaneProperties props, MeterRegistry registry) {
+    int count = props.isEnabled() ? Math.max(1, props.getCount()) : 0;
+    this.lanes = new ThreadPoolExecutor[count];
+    this.waits = new Timer[count];
+    for (int i = 0; i < count; i++) {
+      String name = "station-lane-" + i;
+      lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+          new ArrayBlockingQueue<>(props.getQueueCapacity()), r -> {
+            Thread t = new Thread(r, name);
+            t.setDaemon(true);
+            return t;
+          });
+      String lane = Integer.toString(i);
+      ThreadPoolExecutor executor = lanes[i];
+      Gauge.builder("matching.lane.queue.depth", executor, e -> e.getQueue().size())
+          .tag("lane", lane)
+          .register(registry);
+      waits[i] = Timer.builder("matching.lane.wait")
+          .description("Time a request waited for its station lane")
+          .tag("lane", lane)
+          .publishPercentiles(0.5, 0.99)
+          .register(registry);
+    }
+    this.rejected = Counter.builder("matching.lane.rejected")
+        .description("Requests refused because their lane queue was full")
+        .register(registry);
+  }
+
+  @PreDestroy
+  void stop() {
+    for (ThreadPoolExecutor lane : lanes) {
+      lane.shutdown();
+    }
+    for (ThreadPoolExecutor lane : lanes) {
+      try {
+        lane.awaitTermination(5, TimeUnit.SECONDS);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /** Lane of a station, stable for the life of the process. */
+  public int laneOf(String stationAreaId) {
+    return Math.floorMod(stationAreaId == null ? 0 : stationAreaId.hashCode(), lanes.length);
+  }
+
+  /**
+   * Runs {@code work} on the station's lane after everything queued there before it. With lanes
+   * disabled it runs on the calling thread. The future fails with
+   * {@link RejectedExecutionException} when the lane is full.
+   */
+  public <T> CompletableFuture<T> submit(String stationAreaId, Supplier<T> work) {
+    if (lanes.length == 0) {
+      try {
+        return CompletableFuture.completedFuture(work.get());
+      } catch (RuntimeException ex) {
+        return CompletableFuture.failedFuture(ex);
+      }
+    }
+    int lane = laneOf(stationAreaId);
+    long queuedAt = System.nanoTime();
+    CompletableFuture<T> result = new CompletableFuture<>();
+    try {
+      lanes[lane].execute(() -> {
+        waits[lane].record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+        try {
+          result.complete(work.get());
+        } catch (Throwable ex) {
+          result.completeExceptionally(ex);
+        }
+      });
+    } catch (RejectedExecutionException ex) {
+      rejected.increment();
+      result.completeExceptionally(ex);
+    }
+    return result;
+  }
+}
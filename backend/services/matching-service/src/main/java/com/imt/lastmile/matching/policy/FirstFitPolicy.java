@@ -0,0 +1,32 @@
+package com.imt.lastmile.matching.policy;
+
+import com.imt.lastmile.matching.domain.RiderIntent;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Seats riders in arrival order, skipping any party that no longer fits so a smaller one behind
+ * it can take the seat. The behaviour of the take script.
+ */
+public final class FirstFitPolicy implements MatchingPolicy {
+  @Override
+  public int[] select(List<RiderIntent> candidates, int seats, Instant now) {
+    int[] chosen = new int[candidates.size()];
+    int count = 0;
+    int pax = 0;
+    for (int i = 0; i < candidates.size() && pax < seats; i++) {
+      int size = candidates.get(i).getPartySize();
+      if (pax + size <= seats) {
+        chosen[count++] = i;
+        pax += size;
+      }
+    }
+    return Arrays.copyOf(chosen, count);
+  }
+
+  @Override
+  public boolean isFirstFit() {
+    return true;
+  }
+}
@@ -0,0 +1,85 @@
+package com.imt.lastmile.matching.policy;
+
+import com.imt.lastmile.matching.domain.RiderIntent;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Seats the most passengers the free seats allow: a 0/1 knapsack over party sizes, solved exactly
+ * by dynamic programming over seat counts. Among selections that seat the same number, the one
+ * whose passengers have waited longest in total wins, then the one reached first in arrival order.
+ *
+ * <p>The table is {@code candidates x seats}; candidates beyond {@code maxCandidates} are
+ * ignored, and if the solve overruns its time budget the first-fit answer is returned instead.
+ */
+public final class KnapsackPolicy implements MatchingPolicy {
+  private static final long UNREACHABLE = Long.MIN_VALUE;
+
+  private final int maxCandidates;
+  private final long budgetNanos;
+  private final MatchingPolicy fallback = new FirstFitPolicy();
+
+  public KnapsackPolicy(int maxCandidates, Duration budget) {
+    this.maxCandidates = maxCandidates;
+    this.budgetNanos = budget.toNanos();
+  }
+
+  @Override
+  public int[] select(List<RiderIntent> candidates, int seats, Instant now) {
+    long deadline = System.nanoTime() + budgetNanos;
+    int n = Math.min(candidates.size(), maxCandidates);
+    if (n == 0 || seats <= 0) {
+      return new int[0];
+    }
+    // wait[c]: most passenger-seconds waited with exactly c seats filled by the items so far
+    long[] wait = new long[seats + 1];
+    Arrays.fill(wait, UNREACHABLE);
+    wait[0] = 0;
+    // taken[i][c]: item i was added to reach the best for c seats after considering items 0..i
+    boolean[][] taken = new boolean[n][seats + 1];
+    for (int i = 0; i < n; i++) {
+      if (System.nanoTime() >= deadline) {
+        return fallback.select(candidates, seats, now);
+      }
+      RiderIntent r = candidates.get(i);
+      int size = r.getPartySize();
+      if (size <= 0 || size > seats) {
+        continue;
+      }
+      long value = (long) size * waitedSeconds(r, now);
+      for (int c = seats; c >= size; c--) {
+        if (wait[c - size] != UNREACHABLE && wait[c - size] + value > wait[c]) {
+          wait[c] = wait[c - size] + value;
+          taken[i][c] = true;
+        }
+      }
+    }
+
+    int best = seats;
+    while (best > 0 && wait[best] == UNREACHABLE) {
+      best--;
+    }
+    boolean[] chosen = new boolean[n];
+    int count = 0;
+    for (int i = n - 1, c = best; i >= 0 && c > 0; i--) {
+      if (taken[i][c]) {
+        chosen[i] = true;
+        count++;
+        c -= candidates.get(i).getPartySize();
+      }
+    }
+    int[] result = new int[count];
+    for (int i = 0, k = 0; i < n; i++) {
+      if (chosen[i]) {
+        result[k++] = i;
+      }
+    }
+    return result;
+  }
+
+  private static long waitedSeconds(RiderIntent r, Instant now) {
+    return r.getArrivalTime() == null ? 0 : Math.max(0, now.getEpochSecond() - r.getArrivalTime().getEpochSecond());
+  }
+}
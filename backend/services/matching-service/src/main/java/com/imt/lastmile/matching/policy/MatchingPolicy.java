@@ -0,0 +1,26 @@
+package com.imt.lastmile.matching.policy;
+
+import com.imt.lastmile.matching.domain.RiderIntent;
+import java.time.Instant;
+import java.util.List;
+
+/** Chooses which waiting riders a driver takes. */
+public interface MatchingPolicy {
+  /**
+   * Picks riders to seat.
+   *
+   * @param candidates riders that suit the driver, in arrival order
+   * @param seats free seats
+   * @param now for wait times
+   * @return indexes into {@code candidates}, ascending
+   */
+  int[] select(List<RiderIntent> candidates, int seats, Instant now);
+
+  /**
+   * True if the policy takes riders in arrival order as they fit, which the store can then do in
+   * a single script without reading candidates first.
+   */
+  default boolean isFirstFit() {
+    return false;
+  }
+}
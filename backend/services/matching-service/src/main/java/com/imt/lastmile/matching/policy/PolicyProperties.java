@@ -0,0 +1,30 @@
+package com.imt.lastmile.matching.policy;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "matching.policy")
+public class PolicyProperties {
+  public enum Type {
+    /** Arrival order, skipping parties that do not fit */
+    FIRST_FIT,
+    /** Most seated passengers, longest total wait on ties */
+    KNAPSACK
+  }
+
+  private Type type = Type.KNAPSACK;
+  /** Knapsack: earliest-arriving candidates read per take */
+  private int maxCandidates = 64;
+  /** Knapsack: solve time after which first fit is used instead */
+  private long timeBudgetMicros = 2_000;
+  /** Knapsack: attempts to claim a selection before falling back to a first-fit take */
+  private int claimAttempts = 3;
+
+  public Type getType() { return type; }
+  public void setType(Type type) { this.type = type; }
+  public int getMaxCandidates() { return maxCandidates; }
+  public void setMaxCandidates(int maxCandidates) { this.maxCandidates = maxCandidates; }
+  public long getTimeBudgetMicros() { return timeBudgetMicros; }
+  public void setTimeBudgetMicros(long timeBudgetMicros) { this.timeBudgetMicros = timeBudgetMicros; }
+  public int getClaimAttempts() { return claimAttempts; }
+  public void setClaimAttempts(int claimAttempts) { this.claimAttempts = claimAttempts; }
+}
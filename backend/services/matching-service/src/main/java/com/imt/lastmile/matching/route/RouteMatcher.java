@@ -0,0 +1,119 @@
+package com.imt.lastmile.matching.route;
+
+import com.imt.lastmile.matching.domain.RiderIntent;
+import com.imt.lastmile.matching.domain.RiderIntentStore;
+import com.imt.lastmile.matching.domain.RiderIntentStore.QueuedIntent;
+import com.imt.lastmile.matching.policy.MatchingPolicy;
+import com.imt.lastmile.matching.policy.PolicyProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.springframework.stereotype.Component;
+
+/**
+ * Seats riders for a driver across the upcoming stations of its route in one decision. Riders ride
+ * to the driver's destination, so the free seats are one budget for the whole route: a seat filled
+ * at an earlier station is not free at a later one. Every station is peeked with the driver's ETA
+ * to it, the candidates are merged in arrival order and the {@link MatchingPolicy} chooses among
+ * all of them at once, so a large party further on can win over a small one at the next station.
+ *
+ * <p>The choice is claimed station by station in route order. If a claim conflicts, what earlier
+ * stations claimed stands and the rest of the route is chosen again with the seats left, up to
+ * {@code matching.policy.claim-attempts} times; then the remaining stations are taken one by one.
+ */
+@Component
+public class RouteMatcher {
+  private final RiderIntentStore store;
+  private final MatchingPolicy policy;
+  private final PolicyProperties policyProps;
+  private final DistributionSummary stationsPerRoute;
+  private final Counter claimConflicts;
+
+  /** A peeked intent and the index of the stop it waits at. */
+  private record Candidate(int stop, QueuedIntent queued) {}
+
+  public RouteMatcher(RiderIntentStore store, MatchingPolicy policy, PolicyProperties policyProps,
+      MeterRegistry registry) {
+    this.store = store;
+    this.policy = policy;
+    this.policyProps = policyProps;
+    this.stationsPerRoute = DistributionSummary.builder("matching.route.stations")
+        .description("Stations evaluated together per EvaluateDriverRoute")
+        .register(registry);
+    this.claimConflicts = Counter.builder("matching.route.claim.conflicts")
+        .description("Route selections whose claim at a station conflicted and were chosen again")
+        .register(registry);
+  }
+
+  /** Riders taken at each stop, in the order of {@code stops}; together they fit {@code seats}. */
+  public List<List<RiderIntent>> match(String destinationAreaId, int seats, List<RouteStop> stops) {
+    stationsPerRoute.record(stops.size());
+    List<List<RiderIntent>> taken = new ArrayList<>(stops.size());
+    for (int s = 0; s < stops.size(); s++) {
+      taken.add(new ArrayList<>());
+    }
+    int free = seats;
+    int from = 0;
+    for (int attempt = 0; attempt < policyProps.getClaimAttempts(); attempt++) {
+      List<Candidate> candidates = peek(destinationAreaId, stops, from);
+      int[] chosen = policy.select(candidates.stream().map(c -> c.queued().intent()).toList(), free, Instant.now());
+      if (chosen.length == 0) {
+        return taken;
+      }
+      List<List<QueuedIntent>> claims = new ArrayList<>();
+      for (int s = 0; s < stops.size(); s++) {
+        claims.add(new ArrayList<>());
+      }
+      for (int i : chosen) {
+        claims.get(candidates.get(i).stop()).add(candidates.get(i).queued());
+      }
+      int conflict = -1;
+      for (int s = from; s < stops.size() && conflict < 0; s++) {
+        List<QueuedIntent> claim = claims.get(s);
+        if (claim.isEmpty()) {
+          continue;
+        }
+        if (!store.claim(stops.get(s).stationAreaId(), claim)) {
+          conflict = s;
+          continue;
+        }
+        for (QueuedIntent q : claim) {
+          taken.get(s).add(q.intent());
+          free -= q.intent().getPartySize();
+        }
+      }
+      if (conflict < 0) {
+        return taken;
+      }
+      claimConflicts.increment();
+      from = conflict;
+    }
+    for (int s = from; s < stops.size() && free > 0; s++) {
+      RouteStop stop = stops.get(s);
+      List<RiderIntent> riders = store.takeMatching(stop.stationAreaId(), destinationAreaId, free, stop.etaMinutes());
+      taken.get(s).addAll(riders);
+      free -= riders.stream().mapToInt(RiderIntent::getPartySize).sum();
+    }
+    return taken;
+  }
+
+  /** Candidates at the stops from {@code from} on, in arrival order, capped at the policy's limit. */
+  private List<Candidate> peek(String destinationAreaId, List<RouteStop> stops, int from) {
+    int max = policyProps.getMaxCandidates();
+    List<Candidate> merged = new ArrayList<>();
+    for (int s = from; s < stops.size(); s++) {
+      RouteStop stop = stops.get(s);
+      for (QueuedIntent queued : store.peek(stop.stationAreaId(), destinationAreaId, stop.etaMinutes(), max)) {
+        merged.add(new Candidate(s, queued));
+      }
+    }
+    if (stops.size() - from > 1) {
+      merged.sort(Comparator.comparing(c -> c.queued().intent().getArrivalTime()));
+    }
+    return merged.size() > max ? merged.subList(0, max) : merged;
+  }
+}
@@ -0,0 +1,4 @@
+package com.imt.lastmile.matching.route;
+
+/** An upcoming station on a driver's route, as sent in EvaluateDriverRoute. */
+public record RouteStop(String stationAreaId, int etaMinutes) {}
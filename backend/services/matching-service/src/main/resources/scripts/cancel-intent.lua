@@ -0,0 +1,16 @@
+-- Removes a rider's intent through the rider index, without reading the station queue.
+--
+-- KEYS[1]  rider index HASH
+-- ARGV[1]  station destination SET the intent must belong to, empty to accept any station
+--
+-- Returns 1 when an intent was removed, 0 when the rider had none there.
+local current = redis.call('HMGET', KEYS[1], 'key', 'member', 'dests', 'bucket')
+if not current[1] or (ARGV[1] ~= '' and current[3] ~= ARGV[1]) then
+  return 0
+end
+local removed = redis.call('ZREM', current[1], current[2])
+if redis.call('EXISTS', current[1]) == 0 then
+  redis.call('SREM', current[3], current[4])
+end
+redis.call('DEL', KEYS[1])
+return removed
@@ -0,0 +1,26 @@
+-- Removes a chosen set of intents, all or nothing, after a policy picked them from a peek.
+--
+-- KEYS[1]  station destination SET
+-- ARGV[1]  bucket key prefix, ARGV[2] bucket key suffix, ARGV[3] rider index key prefix
+-- ARGV[4..] triples of (bucket name, member, rider id)
+--
+-- Returns 1 when every member was still queued and all were removed, 0 (removing nothing) when
+-- any of them had been taken or cancelled since the peek.
+local prefix, suffix, indexPrefix = ARGV[1], ARGV[2], ARGV[3]
+for i = 4, #ARGV, 3 do
+  if not redis.call('ZSCORE', prefix .. ARGV[i] .. suffix, ARGV[i + 1]) then
+    return 0
+  end
+end
+for i = 4, #ARGV, 3 do
+  local key = prefix .. ARGV[i] .. suffix
+  redis.call('ZREM', key, ARGV[i + 1])
+  local index = indexPrefix .. ARGV[i + 2]
+  if redis.call('HGET', index, 'member') == ARGV[i + 1] then
+    redis.call('DEL', index)
+  end
+  if redis.call('EXISTS', key) == 0 then
+    redis.call('SREM', KEYS[1], ARGV[i])
+  end
+end
+return 1
@@ -0,0 +1,13 @@
+-- Appends a match event to its station's stream and publishes it to every replica in one step, so
+-- subscribers on all replicas see a station's events in stream order.
+--
+-- KEYS[1]  station event stream
+-- ARGV[1]  event kind, ARGV[2] event without its id (protobuf)
+-- ARGV[3]  events kept for replay, ARGV[4] stream TTL in seconds
+-- ARGV[5]  pub/sub channel
+--
+-- Publishes "<stream id> <kind> <event>" and returns the stream id.
+local id = redis.call('XADD', KEYS[1], 'MAXLEN', ARGV[3], '*', 'kind', ARGV[1], 'event', ARGV[2])
+redis.call('EXPIRE', KEYS[1], ARGV[4])
+redis.call('PUBLISH', ARGV[5], id .. ' ' .. ARGV[1] .. ' ' .. ARGV[2])
+return id
@@ -0,0 +1,65 @@
+-- Removes a batch of expired intents at one station, with their rider index entries, and forgets
+-- the station once it has no intents left. Run by IntentReaper for every active station, so the
+-- take script never has to clean up.
+--
+-- KEYS[1]  station destination SET
+-- KEYS[2]  active station SET
+-- ARGV[1]  expiry cutoff: intents scored at or below this are removed
+-- ARGV[2]  most intents to remove in this call
+-- ARGV[3]  bucket key prefix, ARGV[4] bucket key suffix
+-- ARGV[5]  rider index key prefix
+-- ARGV[6]  station id
+--
+-- Returns the removed members as flat (bucket name, member) pairs.
+local prefix, suffix, indexPrefix = ARGV[3], ARGV[4], ARGV[5]
+local budget = tonumber(ARGV[2])
+
+local function uint16(s, at)
+  local hi, lo = string.byte(s, at, at + 1)
+  return hi * 256 + lo
+end
+
+-- Rider id of a member in either format RiderIntentCodec reads
+local function riderId(member)
+  if string.byte(member, 1) == 1 then
+    if #member < 13 then
+      return nil
+    end
+    return string.sub(member, 14, 13 + uint16(member, 12))
+  end
+  local ok, intent = pcall(cjson.decode, member)
+  if ok and type(intent) == 'table' and type(intent.riderId) == 'string' then
+    return intent.riderId
+  end
+  return nil
+end
+
+local removed = {}
+for _, name in ipairs(redis.call('SMEMBERS', KEYS[1])) do
+  local key = prefix .. name .. suffix
+  if budget > 0 then
+    local expired = redis.call('ZRANGEBYSCORE', key, '-inf', ARGV[1], 'LIMIT', 0, budget)
+    if #expired > 0 then
+      redis.call('ZREM', key, unpack(expired))
+      budget = budget - #expired
+      for _, member in ipairs(expired) do
+        local id = riderId(member)
+        if id then
+          local index = indexPrefix .. id
+          if redis.call('HGET', index, 'member') == member then
+            redis.call('DEL', index)
+          end
+        end
+        removed[#removed + 1] = name
+        removed[#removed + 1] = member
+      end
+    end
+  end
+  if redis.call('EXISTS', key) == 0 then
+    redis.call('SREM', KEYS[1], name)
+  end
+end
+if redis.call('EXISTS', KEYS[1]) == 0 then
+  redis.call('SREM', KEYS[2], ARGV[6])
+end
+return removed
@@ -0,0 +1,153 @@
+-- Atomically selects and removes the riders a driver can take at one station.
+--
+-- Intents live in one ZSET per (station, destination), scored by arrival epoch seconds, and the
+-- station SET lists the destination buckets in use. A driver with a destination reads only that
+-- bucket; a driver without one merges every bucket of the station in arrival order. Buckets are
+-- read a page at a time, so a take that fills its seats early never reads the rest of the queue.
+--
+-- Bucket and rider index keys are derived from ARGV rather than passed in KEYS, so the station's
+-- keys and the rider index must live on one node. Every intent taken here also loses its rider index
+-- entry. Expired intents are skipped, not removed: IntentReaper sweeps them in the background.
+--
+-- KEYS[1]  station destination SET
+-- ARGV[1]  expiry cutoff: intents scored at or below this are ignored
+-- ARGV[2]  latest acceptable arrival (exclusive)
+-- ARGV[3]  free seats
+-- ARGV[4]  destination bucket name, empty to merge every bucket
+-- ARGV[5]  bucket key prefix, ARGV[6] bucket key suffix
+-- ARGV[7]  rider index key prefix
+-- ARGV[8]  'take' (default) or 'peek'
+-- ARGV[9]  peek only: most candidates to return
+--
+-- In peek mode nothing is removed; the script returns up to ARGV[9] eligible
+-- candidates in arrival order as flat (bucket name, member) pairs, for a policy to choose from.
+--
+-- Candidates are filled greedily: a party that does not fit is skipped so a smaller one behind it
+-- can still take the seat. Returns the removed members.
+local PAGE = 16
+local dests = KEYS[1]
+local minArrival = '(' .. ARGV[1]
+local maxArrival = '(' .. ARGV[2]
+local seats = tonumber(ARGV[3])
+local prefix, suffix = ARGV[5], ARGV[6]
+local indexPrefix = ARGV[7]
+
+-- Drops the rider index entry if it still points at this member
+local function unindex(riderId, member)
+  if type(riderId) == 'string' then
+    local index = indexPrefix .. riderId
+    if redis.call('HGET', index, 'member') == member then
+      redis.call('DEL', index)
+    end
+  end
+end
+
+local function uint16(s, at)
+  local hi, lo = string.byte(s, at, at + 1)
+  return hi * 256 + lo
+end
+
+-- Rider id and party size of a member in either format RiderIntentCodec reads
+local function decode(member)
+  if string.byte(member, 1) == 1 then
+    if #member < 13 then
+      return nil
+    end
+    local idLength = uint16(member, 12)
+    return { partySize = uint16(member, 2), riderId = string.sub(member, 14, 13 + idLength) }
+  end
+  local ok, intent = pcall(cjson.decode, member)
+  if ok and type(intent) == 'table' then
+    return intent
+  end
+  return nil
+end
+
+local names
+if ARGV[4] ~= '' then
+  names = { ARGV[4] }
+else
+  names = redis.call('SMEMBERS', dests)
+end
+
+local cursors = {}
+for _, name in ipairs(names) do
+  cursors[#cursors + 1] = { key = prefix .. name .. suffix, name = name, offset = 0, page = {}, pos = 1, done = false, taken = {} }
+end
+
+-- Next unread (member, score) of a bucket, fetching another page when this one is used up
+local function head(c)
+  if c.pos > #c.page then
+    if c.done then
+      return nil
+    end
+    c.page = redis.call('ZRANGEBYSCORE', c.key, minArrival, maxArrival, 'WITHSCORES', 'LIMIT', c.offset, PAGE)
+    c.offset = c.offset + #c.page / 2
+    c.pos = 1
+    c.done = #c.page < 2 * PAGE
+    if #c.page == 0 then
+      return nil
+    end
+  end
+  return c.page[c.pos], tonumber(c.page[c.pos + 1])
+end
+
+-- Earliest unread candidate over all buckets, consumed; nil when none are left
+local function nextCandidate()
+  local best, bestMember, bestScore
+  for _, c in ipairs(cursors) do
+    local member, score = head(c)
+    if member and (best == nil or score < bestScore or (score == bestScore and member < bestMember)) then
+      best, bestMember, bestScore = c, member, score
+    end
+  end
+  if best then
+    best.pos = best.pos + 2
+  end
+  return best, bestMember
+end
+
+if ARGV[8] == 'peek' then
+  local limit = tonumber(ARGV[9])
+  local peeked = {}
+  while #peeked < 2 * limit do
+    local c, member = nextCandidate()
+    if c == nil then
+      break
+    end
+    peeked[#peeked + 1] = c.name
+    peeked[#peeked + 1] = member
+  end
+  return peeked
+end
+
+local taken = {}
+local pax = 0
+while pax < seats do
+  local best, bestMember = nextCandidate()
+  if best == nil then
+    break
+  end
+
+  local intent = decode(bestMember)
+  if intent then
+    local size = tonumber(intent.partySize) or 1
+    if pax + size <= seats then
+      taken[#taken + 1] = bestMember
+      best.taken[#best.taken + 1] = bestMember
+      pax = pax + size
+      unindex(intent.riderId, bestMember)
+    end
+  end
+end
+
+-- Removed only now so the page offsets above stay valid
+for _, c in ipairs(cursors) do
+  if #c.taken > 0 then
+    redis.call('ZREM', c.key, unpack(c.taken))
+    if redis.call('EXISTS', c.key) == 0 then
+      redis.call('SREM', dests, c.name)
+    end
+  end
+end
+return taken
@@ -0,0 +1,34 @@
+-- Adds or replaces a rider's intent and keeps the rider index pointing at it.
+--
+-- The rider index is a HASH holding the bucket key, member, station SET and bucket name of the
+-- rider's current intent, so a rider who registers again replaces the old member wherever it is
+-- instead of adding a second one.
+--
+-- KEYS[1]  destination bucket ZSET, scored by arrival epoch seconds
+-- KEYS[2]  station destination SET
+-- KEYS[3]  rider index HASH
+-- KEYS[4]  active station SET
+-- ARGV[1]  arrival epoch seconds
+-- ARGV[2]  member
+-- ARGV[3]  destination bucket name
+-- ARGV[4]  station id
+--
+-- Nothing expires by TTL: IntentReaper removes expired intents of every active station, and the
+-- keys go away with their last member.
+--
+-- Returns 1 when the rider had no intent, 0 when one was replaced.
+local previous = redis.call('HMGET', KEYS[3], 'key', 'member', 'dests', 'bucket')
+local replaced = 0
+if previous[1] then
+  replaced = 1
+  redis.call('ZREM', previous[1], previous[2])
+  if previous[1] ~= KEYS[1] and redis.call('EXISTS', previous[1]) == 0 then
+    redis.call('SREM', previous[3], previous[4])
+  end
+end
+
+redis.call('ZADD', KEYS[1], ARGV[1], ARGV[2])
+redis.call('SADD', KEYS[2], ARGV[3])
+redis.call('HSET', KEYS[3], 'key', KEYS[1], 'member', ARGV[2], 'dests', KEYS[2], 'bucket', ARGV[3])
+redis.call('SADD', KEYS[4], ARGV[4])
+return 1 - replaced
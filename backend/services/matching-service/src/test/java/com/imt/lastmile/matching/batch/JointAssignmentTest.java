@@ -0,0 +1,88 @@
+package com.imt.lastmile.matching.batch;
+
+import com.imt.lastmile.matching.domain.RiderIntent;
+import com.imt.lastmile.matching.policy.FirstFitPolicy;
+import com.imt.lastmile.matching.policy.KnapsackPolicy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JointAssignmentTest {
+  private static final Instant NOW = Instant.parse("2026-01-01T08:00:00Z");
+  private final JointAssignment joint =
+      new JointAssignment(600, 20_000, Duration.ofSeconds(1), new KnapsackPolicy(64, Duration.ofSeconds(1)));
+
+  private static RiderIntent rider(String id, String destination, int partySize, int waitedSeconds) {
+    Instant arrival = NOW.minusSeconds(waitedSeconds);
+    return new RiderIntent(id, "s", destination, arrival, arrival, partySize);
+  }
+
+  private static DriverOffer driver(String id, String destination, int seats, int etaMinutes) {
+    return new DriverOffer(id, "s", destination, seats, etaMinutes);
+  }
+
+  @Test
+  void sendsRidersToTheDriverBoundForTheirDestination() {
+    List<DriverOffer> drivers = List.of(driver("any", "", 4, 0), driver("to-x", "X", 4, 1));
+    List<RiderIntent> queue = List.of(rider("a", "x", 1, 120), rider("b", "x", 1, 60));
+
+    assertArrayEquals(new int[] {0, 0}, joint.firstCome(drivers, queue, NOW));
+    assertArrayEquals(new int[] {1, 1}, joint.assign(drivers, queue, NOW));
+  }
+
+  @Test
+  void seatsMoreThanAnsweringDriversOneByOne() {
+    // The first driver would take the X party, leaving the X driver nothing and the Y party waiting
+    List<DriverOffer> drivers = List.of(driver("any", "", 2, 0), driver("to-x", "X", 2, 0));
+    List<RiderIntent> queue = List.of(rider("a", "X", 2, 300), rider("b", "Y", 2, 100));
+
+    assertEquals(2, JointAssignment.seated(joint.firstCome(drivers, queue, NOW), queue));
+    int[] assigned = joint.assign(drivers, queue, NOW);
+    assertArrayEquals(new int[] {1, 0}, assigned);
+    assertEquals(4, JointAssignment.seated(assigned, queue));
+  }
+
+  @Test
+  void leavesRidersArrivingTooLateForEveryDriver() {
+    List<DriverOffer> drivers = List.of(driver("d", "", 4, 0));
+    List<RiderIntent> queue = List.of(rider("early", "", 1, 0), rider("late", "", 1, -600));
+    assertArrayEquals(new int[] {0, -1}, joint.assign(drivers, queue, NOW));
+  }
+
+  @Test
+  void respectsSeatsAndNeverSeatsFewerThanOneByOne() {
+    Random random = new Random(11);
+    String[] destinations = {"", "X", "Y"};
+    JointAssignment small = new JointAssignment(600, 50, Duration.ofSeconds(1), new FirstFitPolicy());
+    for (int round = 0; round < 500; round++) {
+      List<DriverOffer> drivers = new ArrayList<>();
+      for (int d = random.nextInt(4); d >= 0; d--) {
+        drivers.add(driver("d" + d, destinations[random.nextInt(3)], 1 + random.nextInt(6), random.nextInt(10)));
+      }
+      List<RiderIntent> queue = new ArrayList<>();
+      for (int i = random.nextInt(15); i > 0; i--) {
+        queue.add(rider("r" + i, destinations[random.nextInt(3)], 1 + random.nextInt(3), 900 - random.nextInt(1200)));
+      }
+      for (JointAssignment solver : List.of(joint, small)) {
+        int[] assigned = solver.assign(drivers, queue, NOW);
+        int[] used = new int[drivers.size()];
+        for (int i = 0; i < assigned.length; i++) {
+          if (assigned[i] >= 0) {
+            assertTrue(JointAssignment.fits(drivers.get(assigned[i]), queue.get(i), NOW));
+            used[assigned[i]] += queue.get(i).getPartySize();
+          }
+        }
+        for (int d = 0; d < drivers.size(); d++) {
+          assertTrue(used[d] <= drivers.get(d).seats());
+        }
+      }
+      assertTrue(JointAssignment.seated(joint.assign(drivers, queue, NOW), queue)
+          >= JointAssignment.seated(joint.firstCome(drivers, queue, NOW), queue));
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package com.imt.lastmile.matching.domain;
+
+import com.imt.lastmile.matching.policy.FirstFitPolicy;
+import com.imt.lastmile.matching.policy.MatchingPolicy;
+import com.imt.lastmile.matching.policy.PolicyProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryRiderIntentStoreTest extends RiderIntentStoreConformanceTest {
+  @TempDir
+  Path dir;
+
+  @Override
+  RiderIntentStore newStore(MatchingPolicy policy) {
+    return new InMemoryRiderIntentStore(new MatchingStoreProperties(), policy, new PolicyProperties(), new SimpleMeterRegistry());
+  }
+
+  private InMemoryRiderIntentStore snapshotting(Path file) {
+    MatchingStoreProperties props = new MatchingStoreProperties();
+    props.setEngine(MatchingStoreProperties.Engine.MEMORY);
+    props.setSnapshotPath(file.toString());
+    props.setSnapshotIntervalMillis(3_600_000);
+    return new InMemoryRiderIntentStore(props, new FirstFitPolicy(), new PolicyProperties(), new SimpleMeterRegistry());
+  }
+
+  @Test
+  void restoresIntentsFromTheShutdownSnapshot() {
+    Path file = dir.resolve("intents.bin");
+    Instant now = Instant.now();
+    InMemoryRiderIntentStore before = snapshotting(file);
+    before.add(new RiderIntent("a", "s", "A", now, now.minusSeconds(30), 2));
+    before.add(new RiderIntent("b", "s", "B", now, now.minusSeconds(20), 1));
+    before.add(new RiderIntent("c", "t", "A", now, now.minusSeconds(10), 1));
+    before.remove("b", "s");
+    before.close();
+
+    InMemoryRiderIntentStore after = snapshotting(file);
+    List<RiderIntent> taken = after.takeMatching("s", "", 4, 0);
+    assertEquals(List.of("a"), taken.stream().map(RiderIntent::getRiderId).toList());
+    assertEquals(2, taken.get(0).getPartySize());
+    // The restored rider index still makes adding an upsert
+    after.add(new RiderIntent("c", "s", "A", now, now, 1));
+    assertTrue(after.takeMatching("t", "", 4, 0).isEmpty());
+    assertEquals(1, after.takeMatching("s", "a", 4, 0).size());
+    after.close();
+  }
+
+  @Test
+  void startsEmptyWithoutASnapshot() throws Exception {
+    InMemoryRiderIntentStore store = snapshotting(dir.resolve("missing.bin"));
+    assertTrue(store.activeStations().isEmpty());
+    assertEquals(0, store.snapshot());
+    store.close();
+  }
+}
@@ -0,0 +1,41 @@
+package com.imt.lastmile.matching.domain;
+
+import java.time.Instant;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntentQueueTest {
+  private static final long WRAP = 1L << IntentQueue.SEQUENCE_BITS;
+  private static final Instant NOW = Instant.ofEpochSecond(1_700_000_000L);
+
+  private static RiderIntent rider(String id) {
+    return new RiderIntent(id, "s", "A", NOW, NOW, 1);
+  }
+
+  @Test
+  void wrappedSequenceDoesNotOverwriteAnEarlierRider() {
+    IntentQueue queue = new IntentQueue();
+    long first = queue.insert(IntentQueue.key(NOW.getEpochSecond(), 0), rider("a"));
+    long second = queue.insert(IntentQueue.key(NOW.getEpochSecond(), WRAP), rider("b"));
+
+    assertNotEquals(first, second);
+    assertEquals(2, queue.size());
+    assertEquals(NOW.getEpochSecond(), IntentQueue.arrival(second));
+    assertEquals("a", queue.remove(first).getRiderId());
+    assertEquals("b", queue.remove(second).getRiderId());
+  }
+
+  @Test
+  void collisionOnTheLastSequenceStaysInTheSameSecond() {
+    IntentQueue queue = new IntentQueue();
+    long last = IntentQueue.key(NOW.getEpochSecond(), WRAP - 1);
+    queue.insert(last, rider("a"));
+    queue.insert(IntentQueue.key(NOW.getEpochSecond() + 1, 0), rider("later"));
+    long stored = queue.insert(last, rider("b"));
+
+    assertEquals(IntentQueue.key(NOW.getEpochSecond(), 0), stored);
+    assertEquals(3, queue.size());
+    assertEquals(2, queue.firstAfter(NOW.getEpochSecond()));
+  }
+}
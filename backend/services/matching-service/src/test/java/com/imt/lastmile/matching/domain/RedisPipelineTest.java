@@ -0,0 +1,103 @@
+package com.imt.lastmile.matching.domain;
+
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/** Runs against Redis at REDIS_HOST:REDIS_PORT (default 127.0.0.1:6379); skipped when none answers. */
+class RedisPipelineTest {
+  private static final String PUSH = "redis.call('RPUSH', KEYS[1], ARGV[1]) return redis.call('LLEN', KEYS[1])";
+
+  private LettuceConnectionFactory connectionFactory;
+  private RedisPipeline pipeline;
+  private final byte[] key = ("test:pipeline:" + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+
+  @BeforeEach
+  void connect() {
+    connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(
+        System.getenv().getOrDefault("REDIS_HOST", "127.0.0.1"),
+        Integer.parseInt(System.getenv().getOrDefault("REDIS_PORT", "6379"))));
+    connectionFactory.afterPropertiesSet();
+    boolean reachable;
+    try (RedisConnection connection = connectionFactory.getConnection()) {
+      reachable = "PONG".equals(connection.ping());
+    } catch (RuntimeException ex) {
+      reachable = false;
+    }
+    assumeTrue(reachable, "No Redis to run the pipeline against");
+    MatchingStoreProperties props = new MatchingStoreProperties();
+    props.setIo(MatchingStoreProperties.Io.PIPELINED);
+    props.setPipelineFlushMicros(50_000);
+    pipeline = new RedisPipeline(connectionFactory, props, new SimpleMeterRegistry());
+  }
+
+  @AfterEach
+  void disconnect() {
+    if (pipeline != null) {
+      try (RedisConnection connection = connectionFactory.getConnection()) {
+        connection.keyCommands().del(key);
+      }
+      pipeline.stop();
+    }
+    connectionFactory.destroy();
+  }
+
+  /** A script no earlier test can have cached in Redis */
+  private static RedisScript<Long> uncached() {
+    return RedisScript.of("-- " + UUID.randomUUID() + "\n" + PUSH, Long.class);
+  }
+
+  private CompletableFuture<Long> push(RedisScript<Long> script, String value) {
+    return pipeline.eval(script, ScriptOutputType.INTEGER, new byte[][] {key}, value.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private List<String> list() {
+    try (RedisConnection connection = connectionFactory.getConnection()) {
+      return connection.listCommands().lRange(key, 0, -1).stream()
+          .map(bytes -> new String(bytes, StandardCharsets.UTF_8))
+          .toList();
+    }
+  }
+
+  @Test
+  void firstCallOfAScriptKeepsItsPlaceInThePipeline() throws Exception {
+    RedisScript<Long> cached = uncached();
+    push(cached, "warm").get();
+
+    // Queued in one batch: the new script must still run before the cached one behind it
+    CompletableFuture<Long> first = push(uncached(), "a");
+    CompletableFuture<Long> second = push(cached, "b");
+    assertEquals(2L, first.get());
+    assertEquals(3L, second.get());
+    assertEquals(List.of("warm", "a", "b"), list());
+  }
+
+  @Test
+  void flushedScriptFailsOnceThenIsSentInFullAgain() throws Exception {
+    RedisScript<Long> script = uncached();
+    push(script, "a").get();
+    try (RedisConnection connection = connectionFactory.getConnection()) {
+      connection.scriptingCommands().scriptFlush();
+    }
+
+    ExecutionException refused = assertThrows(ExecutionException.class, () -> push(script, "b").get());
+    assertInstanceOf(RedisNoScriptException.class, refused.getCause());
+    assertEquals(2L, push(script, "c").get());
+    assertEquals(List.of("a", "c"), list());
+  }
+}
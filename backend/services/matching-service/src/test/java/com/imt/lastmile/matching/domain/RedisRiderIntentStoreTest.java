@@ -0,0 +1,82 @@
+package com.imt.lastmile.matching.domain;
+
+import com.imt.lastmile.matching.MatchingServiceApplication;
+import com.imt.lastmile.matching.policy.FirstFitPolicy;
+import com.imt.lastmile.matching.policy.MatchingPolicy;
+import com.imt.lastmile.matching.policy.PolicyProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/** Runs against Redis at REDIS_HOST:REDIS_PORT (default 127.0.0.1:6379); skipped when none answers. */
+class RedisRiderIntentStoreTest extends RiderIntentStoreConformanceTest {
+  private static LettuceConnectionFactory connectionFactory;
+
+  @BeforeAll
+  static void connect() {
+    connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration(
+        System.getenv().getOrDefault("REDIS_HOST", "127.0.0.1"),
+        Integer.parseInt(System.getenv().getOrDefault("REDIS_PORT", "6379"))));
+    connectionFactory.afterPropertiesSet();
+    boolean reachable;
+    try (var connection = connectionFactory.getConnection()) {
+      reachable = "PONG".equals(connection.ping());
+    } catch (RuntimeException ex) {
+      reachable = false;
+    }
+    assumeTrue(reachable, "No Redis to run the conformance suite against");
+  }
+
+  @AfterAll
+  static void disconnect() {
+    connectionFactory.destroy();
+  }
+
+  @Override
+  RiderIntentStore newStore(MatchingPolicy policy) {
+    return new RedisRiderIntentStore(template(), new MatchingStoreProperties(), policy, new PolicyProperties(),
+        new SimpleMeterRegistry());
+  }
+
+  private static RedisTemplate<String, Object> template() {
+    RedisTemplate<String, Object> template = new MatchingServiceApplication().redisTemplate(connectionFactory,
+        new MatchingStoreProperties());
+    template.afterPropertiesSet();
+    return template;
+  }
+
+  @Test
+  void migratesLegacyKeysIncludingOneAnInterruptedRunRenamed() {
+    RedisTemplate<String, Object> template = template();
+    RedisRiderIntentStore store = (RedisRiderIntentStore) newStore(new FirstFitPolicy());
+    String run = UUID.randomUUID().toString().substring(0, 8);
+    String fresh = "legacy-" + run + "-fresh";
+    String interrupted = "legacy-" + run + "-interrupted";
+    Instant now = Instant.now();
+    template.opsForZSet().add(RedisRiderIntentStore.legacyKey(fresh),
+        new RiderIntent(run + "-a", fresh, "A", now, now.minusSeconds(10), 1), now.getEpochSecond() - 10);
+    template.opsForZSet().add(RedisRiderIntentStore.legacyKey(interrupted) + ":migrating",
+        new RiderIntent(run + "-b", interrupted, "B", now, now.minusSeconds(5), 1), now.getEpochSecond() - 5);
+    try {
+      assertTrue(new LegacyIntentMigration(template, store, new MatchingStoreProperties()).migrate() >= 2);
+
+      assertFalse(Boolean.TRUE.equals(template.hasKey(RedisRiderIntentStore.legacyKey(fresh))));
+      assertFalse(Boolean.TRUE.equals(template.hasKey(RedisRiderIntentStore.legacyKey(interrupted) + ":migrating")));
+      assertEquals(List.of(run + "-a"), store.takeMatching(fresh, "A", 4, 0).stream().map(RiderIntent::getRiderId).toList());
+      assertEquals(List.of(run + "-b"), store.takeMatching(interrupted, "B", 4, 0).stream().map(RiderIntent::getRiderId).toList());
+    } finally {
+      store.clear(fresh);
+      store.clear(interrupted);
+    }
+  }
+}
@@ -0,0 +1,204 @@
+package com.imt.lastmile.matching.domain;
+
+import com.imt.lastmile.matching.domain.RiderIntentStore.QueuedIntent;
+import com.imt.lastmile.matching.policy.FirstFitPolicy;
+import com.imt.lastmile.matching.policy.KnapsackPolicy;
+import com.imt.lastmile.matching.policy.MatchingPolicy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Behaviour every {@link RiderIntentStore} engine must share; each engine's test extends this.
+ * Station and rider ids are unique per test, so engines backed by a shared server can run it.
+ */
+abstract class RiderIntentStoreConformanceTest {
+  private final String run = UUID.randomUUID().toString().substring(0, 8);
+  private final Set<String> stations = new HashSet<>();
+  private final RiderIntentStore store = newStore(new FirstFitPolicy());
+
+  abstract RiderIntentStore newStore(MatchingPolicy policy);
+
+  @AfterEach
+  void clearStations() {
+    stations.forEach(store::clear);
+  }
+
+  private String station(String name) {
+    String id = "conformance-" + run + "-" + name;
+    stations.add(id);
+    return id;
+  }
+
+  private RiderIntent rider(String name, String station, String destination, int waitedSeconds, int partySize) {
+    Instant arrival = Instant.now().minusSeconds(waitedSeconds);
+    return new RiderIntent(run + "-" + name, station, destination, Instant.now(), arrival, partySize);
+  }
+
+  private List<String> ids(List<RiderIntent> riders) {
+    return riders.stream().map(r -> r.getRiderId().substring(run.length() + 1)).toList();
+  }
+
+  @Test
+  void takesOnlyTheDriversDestinationIgnoringCase() {
+    String s = station("dest");
+    store.add(rider("a", s, "WF", 30, 1));
+    store.add(rider("b", s, "EC", 20, 1));
+
+    assertEquals(List.of("a"), ids(store.takeMatching(s, "wf", 4, 0)));
+    assertEquals(List.of("b"), ids(store.takeMatching(s, "Ec", 4, 0)));
+    assertTrue(store.takeMatching(s, "wf", 4, 0).isEmpty());
+  }
+
+  @Test
+  void driverWithoutDestinationTakesEveryBucketByArrival() {
+    String s = station("any");
+    store.add(rider("a", s, "A", 30, 1));
+    store.add(rider("b", s, "B", 20, 1));
+    store.add(rider("c", s, "", 10, 1));
+    store.add(rider("d", s, "a", 5, 1));
+
+    assertEquals(List.of("a", "b", "c"), ids(store.takeMatching(s, "", 3, 0)));
+    assertEquals(List.of("d"), ids(store.takeMatching(s, null, 3, 0)));
+  }
+
+  @Test
+  void skipsPartiesThatDoNotFit() {
+    String s = station("fit");
+    store.add(rider("three", s, "A", 30, 3));
+    store.add(rider("two", s, "A", 20, 2));
+    store.add(rider("one", s, "A", 10, 1));
+
+    assertEquals(List.of("three", "one"), ids(store.takeMatching(s, "A", 4, 0)));
+    assertEquals(List.of("two"), ids(store.takeMatching(s, "A", 4, 0)));
+  }
+
+  @Test
+  void offersRidersArrivingWithinSlackOfTheDriver() {
+    String s = station("eta");
+    store.add(rider("later", s, "A", -3600, 1));
+
+    assertTrue(store.takeMatching(s, "A", 1, 0).isEmpty());
+    assertTrue(store.takeMatching(s, "A", 1, 55).isEmpty());
+    assertEquals(List.of("later"), ids(store.takeMatching(s, "A", 1, 60)));
+  }
+
+  @Test
+  void addingAgainReplacesTheIntentAtAnyStation() {
+    String first = station("move-from");
+    String second = station("move-to");
+    store.add(rider("a", first, "A", 30, 1));
+    store.add(rider("a", first, "A", 20, 2));
+    store.add(rider("a", second, "B", 10, 1));
+
+    assertTrue(store.takeMatching(first, "", 4, 0).isEmpty());
+    assertEquals(List.of("a"), ids(store.takeMatching(second, "b", 4, 0)));
+    assertTrue(store.takeMatching(second, "", 4, 0).isEmpty());
+  }
+
+  @Test
+  void cancelsOnlyAtTheRidersStation() {
+    String s = station("cancel");
+    String other = station("cancel-other");
+    store.add(rider("a", s, "A", 30, 1));
+    store.add(rider("b", s, "A", 20, 1));
+
+    store.remove(run + "-a", other);
+    store.remove(run + "-b", "");
+    store.remove(run + "-nobody", s);
+
+    assertEquals(List.of("a"), ids(store.takeMatching(s, "A", 4, 0)));
+  }
+
+  @Test
+  void skipsExpiredIntentsUntilTheReaperRemovesThem() {
+    String s = station("reap");
+    store.add(rider("old", s, "A", 4000, 1));
+    store.add(rider("older", s, "B", 5000, 1));
+    store.add(rider("fresh", s, "A", 10, 1));
+
+    assertEquals(List.of("fresh"), ids(store.takeMatching(s, "", 4, 0)));
+    assertTrue(store.activeStations().contains(s));
+
+    List<RiderIntent> reaped = store.reapExpired(s, 1);
+    assertEquals(1, reaped.size());
+    assertTrue(store.activeStations().contains(s));
+    reaped = store.reapExpired(s, 10);
+    assertEquals(1, reaped.size());
+    assertTrue(store.reapExpired(s, 10).isEmpty());
+    assertFalse(store.activeStations().contains(s));
+
+    // Reaping dropped the rider index too, so the rider can register again
+    store.add(rider("old", s, "A", 10, 1));
+    assertEquals(List.of("old"), ids(store.takeMatching(s, "A", 1, 0)));
+  }
+
+  @Test
+  void acceptsAnIntentArrivingAtTheEpoch() {
+    // What AddRiderIntent stores when arrival_time is left unset
+    String s = station("epoch");
+    store.add(new RiderIntent(run + "-unset", s, "A", Instant.now(), Instant.EPOCH, 1));
+
+    assertTrue(store.takeMatching(s, "A", 4, 0).isEmpty());
+    List<RiderIntent> reaped = store.reapExpired(s, 10);
+    assertEquals(List.of("unset"), ids(reaped));
+    assertEquals(Instant.EPOCH, reaped.get(0).getArrivalTime());
+  }
+
+  @Test
+  void claimsPeekedIntentsAllOrNothing() {
+    String s = station("claim");
+    store.add(rider("a", s, "A", 30, 1));
+    store.add(rider("b", s, "B", 20, 1));
+    store.add(rider("c", s, "A", 10, 1));
+
+    List<QueuedIntent> peeked = store.peek(s, "", 0, 2);
+    assertEquals(List.of("a", "b"), ids(peeked.stream().map(QueuedIntent::intent).toList()));
+    assertEquals(List.of("a", "c"), ids(store.peek(s, "a", 0, 5).stream().map(QueuedIntent::intent).toList()));
+
+    assertTrue(store.claim(s, List.of(peeked.get(0))));
+    assertFalse(store.claim(s, peeked));
+    assertEquals(List.of("b", "c"), ids(store.takeMatching(s, "", 4, 0)));
+  }
+
+  @Test
+  void letsThePolicyChooseAmongCandidates() {
+    RiderIntentStore knapsack = newStore(new KnapsackPolicy(64, Duration.ofSeconds(1)));
+    String s = station("policy");
+    knapsack.add(rider("three", s, "A", 30, 3));
+    knapsack.add(rider("two", s, "B", 20, 2));
+    knapsack.add(rider("also-two", s, "A", 10, 2));
+
+    assertEquals(List.of("two", "also-two"), ids(knapsack.takeMatching(s, "", 4, 0)));
+    assertEquals(List.of("three"), ids(knapsack.takeMatching(s, "", 4, 0)));
+  }
+
+  @Test
+  void clearDropsTheStation() {
+    String s = station("clear");
+    store.add(rider("a", s, "A", 30, 1));
+    store.add(rider("b", s, "B", 20, 1));
+
+    store.clear(s);
+
+    assertTrue(store.takeMatching(s, "", 4, 0).isEmpty());
+    assertFalse(store.activeStations().contains(s));
+  }
+
+  @Test
+  void asyncFormsMatchTheBlockingOnes() {
+    String s = station("async");
+    store.addAsync(rider("a", s, "A", 30, 1)).join();
+    store.addAsync(rider("b", s, "A", 20, 1)).join();
+    store.removeAsync(run + "-a", s).join();
+
+    assertEquals(List.of("b"), ids(store.takeMatchingAsync(s, "a", 4, 0).join()));
+  }
+}
@@ -0,0 +1,95 @@
+package com.imt.lastmile.matching.events;
+
+import io.grpc.stub.StreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import lastmile.matching.MatchEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryMatchEventBusTest {
+  private final MatchEventBroadcaster broadcaster = new MatchEventBroadcaster(new BroadcastProperties(), new SimpleMeterRegistry());
+  private final InMemoryMatchEventBus bus = new InMemoryMatchEventBus(props(), broadcaster);
+
+  private static EventBusProperties props() {
+    EventBusProperties props = new EventBusProperties();
+    props.setBus(EventBusProperties.Bus.MEMORY);
+    props.setReplayLength(3);
+    return props;
+  }
+
+  private static class Recorder implements StreamObserver<MatchEvent> {
+    final List<MatchEvent> received = new CopyOnWriteArrayList<>();
+    @Override public void onNext(MatchEvent value) { received.add(value); }
+    @Override public void onError(Throwable t) {}
+    @Override public void onCompleted() {}
+  }
+
+  private void publish(String kind, String station, String driverId) {
+    bus.publish(kind, MatchEvent.newBuilder()
+        .setStationAreaId(station)
+        .setResult(lastmile.matching.MatchResult.newBuilder().setDriverId(driverId))
+        .build());
+  }
+
+  private static List<String> drivers(List<MatchEvent> events) {
+    return events.stream().map(e -> e.getResult().getDriverId()).toList();
+  }
+
+  @AfterEach
+  void stop() {
+    broadcaster.stop();
+  }
+
+  @Test
+  void namesEventsByKindAndIncreasingSequence() {
+    publish("new-rider", "s1", "a");
+    publish("match-found", "s1", "b");
+    List<MatchEvent> logged = bus.replay(List.of("s1"), "x-0-0");
+
+    assertTrue(logged.get(0).getEventId().startsWith("new-rider-"));
+    assertTrue(logged.get(1).getEventId().startsWith("match-found-"));
+    assertTrue(EventSequence.of(logged.get(0).getEventId()).compareTo(EventSequence.of(logged.get(1).getEventId())) < 0);
+  }
+
+  @Test
+  void replaysOnlyNewerEventsOfTheStationsUpToTheLimit() {
+    publish("new-rider", "s1", "a");
+    String seen = bus.replay(List.of("s1"), "x-0-0").get(0).getEventId();
+    publish("new-rider", "s2", "b");
+    publish("new-rider", "s1", "c");
+    publish("new-rider", "s3", "d");
+
+    assertEquals(List.of("b", "c"), drivers(bus.replay(List.of("s1", "s2"), seen)));
+    assertEquals(List.of(), bus.replay(List.of("s1"), "welcome-ab12"));
+
+    for (int i = 0; i < 5; i++) {
+      publish("new-rider", "s1", "e" + i);
+    }
+    assertEquals(List.of("e2", "e3", "e4"), drivers(bus.replay(List.of("s1"), seen)));
+  }
+
+  @Test
+  void sendsReplayedEventsOnceAndBeforeLiveOnes() throws InterruptedException {
+    publish("new-rider", "s1", "a");
+    String seen = bus.replay(List.of("s1"), "x-0-0").get(0).getEventId();
+    publish("new-rider", "s1", "b");
+
+    Recorder recorder = new Recorder();
+    // A live event published while the replay is read is replayed and delivered live; sent once
+    broadcaster.subscribe(recorder, List.of("s1"), () -> {
+      publish("new-rider", "s1", "c");
+      return bus.replay(List.of("s1"), seen);
+    });
+    publish("new-rider", "s1", "d");
+
+    for (int i = 0; i < 200 && recorder.received.size() < 3; i++) {
+      Thread.sleep(10);
+    }
+    Thread.sleep(50);
+    assertEquals(List.of("b", "c", "d"), drivers(recorder.received));
+  }
+}
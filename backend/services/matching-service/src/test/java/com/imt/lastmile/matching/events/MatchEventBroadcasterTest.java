@@ -0,0 +1,108 @@
+package com.imt.lastmile.matching.events;
+
+import io.grpc.stub.ServerCallStreamObserver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import lastmile.matching.MatchEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchEventBroadcasterTest {
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final MatchEventBroadcaster broadcaster = new MatchEventBroadcaster(props(), registry);
+
+  private static BroadcastProperties props() {
+    BroadcastProperties props = new BroadcastProperties();
+    props.setSubscriberQueueCapacity(3);
+    return props;
+  }
+
+  /** A server stream whose readiness the test controls. */
+  private static class FakeCall extends ServerCallStreamObserver<MatchEvent> {
+    final List<String> received = new CopyOnWriteArrayList<>();
+    volatile boolean ready = true;
+    Runnable onReady;
+    Runnable onCancel;
+
+    void becomeReady() {
+      ready = true;
+      onReady.run();
+    }
+
+    @Override public boolean isCancelled() { return false; }
+    @Override public void setOnCancelHandler(Runnable handler) { onCancel = handler; }
+    @Override public void setCompression(String compression) {}
+    @Override public boolean isReady() { return ready; }
+    @Override public void setOnReadyHandler(Runnable handler) { onReady = handler; }
+    @Override public void disableAutoInboundFlowControl() {}
+    @Override public void request(int count) {}
+    @Override public void setMessageCompression(boolean enable) {}
+    @Override public void onNext(MatchEvent value) { received.add(value.getEventId()); }
+    @Override public void onError(Throwable t) {}
+    @Override public void onCompleted() {}
+  }
+
+  private static MatchEvent event(String id, String station) {
+    return MatchEvent.newBuilder().setEventId(id).setStationAreaId(station).build();
+  }
+
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    for (int i = 0; i < 200 && !condition.getAsBoolean(); i++) {
+      Thread.sleep(10);
+    }
+    assertTrue(condition.getAsBoolean());
+  }
+
+  @AfterEach
+  void stop() {
+    broadcaster.stop();
+  }
+
+  @Test
+  void deliversOnlyToSubscribersOfTheStation() throws InterruptedException {
+    FakeCall a = new FakeCall();
+    FakeCall b = new FakeCall();
+    broadcaster.subscribe(a, List.of("s1"));
+    broadcaster.subscribe(b, List.of("s2"));
+
+    broadcaster.publish(event("one", "s1"));
+    broadcaster.publish(event("all", ""));
+    await(() -> a.received.size() == 2 && b.received.size() == 1);
+    assertEquals(List.of("one", "all"), a.received);
+    assertEquals(List.of("all"), b.received);
+  }
+
+  @Test
+  void holdsEventsUntilReadyAndDropsTheOldest() throws InterruptedException {
+    FakeCall slow = new FakeCall();
+    slow.ready = false;
+    broadcaster.subscribe(slow, List.of("s1"));
+    for (int i = 1; i <= 5; i++) {
+      broadcaster.publish(event("e" + i, "s1"));
+    }
+    Thread.sleep(50);
+    assertTrue(slow.received.isEmpty());
+
+    slow.becomeReady();
+    await(() -> slow.received.size() == 3);
+    assertEquals(List.of("e3", "e4", "e5"), slow.received);
+    assertEquals(2, registry.counter("matching.events.dropped").count());
+  }
+
+  @Test
+  void unsubscribesWhenTheCallIsCancelled() throws InterruptedException {
+    FakeCall call = new FakeCall();
+    broadcaster.subscribe(call, List.of("s1"));
+    assertEquals(1, broadcaster.subscribers());
+
+    call.onCancel.run();
+    broadcaster.publish(event("late", "s1"));
+    Thread.sleep(50);
+    assertEquals(0, broadcaster.subscribers());
+    assertTrue(call.received.isEmpty());
+  }
+}
@@ -0,0 +1,68 @@
+package com.imt.lastmile.matching.policy;
+
+import com.imt.lastmile.matching.domain.RiderIntent;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KnapsackPolicyTest {
+  private static final Instant NOW = Instant.parse("2026-01-01T08:00:00Z");
+  private final KnapsackPolicy knapsack = new KnapsackPolicy(64, Duration.ofSeconds(1));
+  private final FirstFitPolicy firstFit = new FirstFitPolicy();
+
+  private static RiderIntent rider(String id, int partySize, int waitedSeconds) {
+    Instant arrival = NOW.minusSeconds(waitedSeconds);
+    return new RiderIntent(id, "s", "d", arrival, arrival, partySize);
+  }
+
+  private static int seated(List<RiderIntent> candidates, int[] chosen) {
+    return Arrays.stream(chosen).map(i -> candidates.get(i).getPartySize()).sum();
+  }
+
+  @Test
+  void fillsSeatsFirstFitLeavesEmpty() {
+    List<RiderIntent> queue = List.of(rider("a", 3, 300), rider("b", 2, 200), rider("c", 2, 100));
+
+    assertArrayEquals(new int[] {0}, firstFit.select(queue, 4, NOW));
+    assertArrayEquals(new int[] {1, 2}, knapsack.select(queue, 4, NOW));
+  }
+
+  @Test
+  void breaksTiesByLongestWait() {
+    // Both {a} and {b, c} seat two; a alone has waited 2 x 600 passenger-seconds, b and c 500 + 50
+    List<RiderIntent> queue = List.of(rider("a", 2, 600), rider("b", 1, 500), rider("c", 1, 50));
+    assertArrayEquals(new int[] {0}, knapsack.select(queue, 2, NOW));
+
+    List<RiderIntent> swapped = List.of(rider("a", 2, 200), rider("b", 1, 500), rider("c", 1, 50));
+    assertArrayEquals(new int[] {1, 2}, knapsack.select(swapped, 2, NOW));
+  }
+
+  @Test
+  void neverSeatsFewerThanFirstFit() {
+    Random random = new Random(7);
+    for (int round = 0; round < 500; round++) {
+      List<RiderIntent> queue = new ArrayList<>();
+      int n = random.nextInt(12);
+      for (int i = 0; i < n; i++) {
+        queue.add(rider("r" + i, 1 + random.nextInt(4), random.nextInt(1800)));
+      }
+      int seats = 1 + random.nextInt(8);
+      int[] chosen = knapsack.select(queue, seats, NOW);
+      assertTrue(seated(queue, chosen) <= seats);
+      assertTrue(seated(queue, chosen) >= seated(queue, firstFit.select(queue, seats, NOW)));
+    }
+  }
+
+  @Test
+  void fallsBackToFirstFitWhenOverBudget() {
+    KnapsackPolicy noTime = new KnapsackPolicy(64, Duration.ZERO);
+    List<RiderIntent> queue = List.of(rider("a", 3, 300), rider("b", 2, 200), rider("c", 2, 100));
+    assertArrayEquals(new int[] {0}, noTime.select(queue, 4, NOW));
+  }
+}
@@ -0,0 +1,92 @@
+package com.imt.lastmile.matching.route;
+
+import com.imt.lastmile.matching.domain.InMemoryRiderIntentStore;
+import com.imt.lastmile.matching.domain.MatchingStoreProperties;
+import com.imt.lastmile.matching.domain.RiderIntent;
+import com.imt.lastmile.matching.domain.RiderIntentStore.QueuedIntent;
+import com.imt.lastmile.matching.policy.KnapsackPolicy;
+import com.imt.lastmile.matching.policy.MatchingPolicy;
+import com.imt.lastmile.matching.policy.PolicyProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RouteMatcherTest {
+  private final MatchingPolicy policy = new KnapsackPolicy(64, Duration.ofSeconds(1));
+  private final PolicyProperties policyProps = new PolicyProperties();
+  private final InMemoryRiderIntentStore store = new InMemoryRiderIntentStore(new MatchingStoreProperties(), policy,
+      policyProps, new SimpleMeterRegistry());
+  private final RouteMatcher matcher = new RouteMatcher(store, policy, policyProps, new SimpleMeterRegistry());
+  private final List<RouteStop> route = List.of(new RouteStop("a", 2), new RouteStop("b", 6));
+
+  private RiderIntent rider(String id, String station, int partySize, int waitedSeconds) {
+    Instant arrival = Instant.now().minusSeconds(waitedSeconds);
+    RiderIntent intent = new RiderIntent(id, station, "dest", arrival, arrival, partySize);
+    store.add(intent);
+    return intent;
+  }
+
+  private static List<List<String>> ids(List<List<RiderIntent>> taken) {
+    return taken.stream().map(riders -> riders.stream().map(RiderIntent::getRiderId).toList()).toList();
+  }
+
+  @Test
+  void seatsFilledEarlierAreNotFreeLater() {
+    rider("a1", "a", 2, 100);
+    rider("b1", "b", 2, 200);
+    rider("b2", "b", 1, 50);
+
+    List<List<RiderIntent>> taken = matcher.match("dest", 4, route);
+
+    assertEquals(List.of(List.of("a1"), List.of("b1")), ids(taken));
+    assertEquals(List.of("b2"), store.takeMatching("b", "", 4, 0).stream().map(RiderIntent::getRiderId).toList());
+  }
+
+  @Test
+  void leavesSeatsForALargerPartyFurtherOn() {
+    // Station by station, the single at a would leave three seats for a party of four
+    rider("single", "a", 1, 300);
+    rider("family", "b", 4, 100);
+
+    assertEquals(List.of(List.of(), List.of("family")), ids(matcher.match("", 4, route)));
+    assertEquals(1, store.takeMatching("a", "", 4, 0).size());
+  }
+
+  @Test
+  void usesEachStationsEta() {
+    rider("soon", "a", 1, -200);
+    rider("late", "b", 1, -1200);
+
+    assertEquals(List.of(List.of("soon"), List.of()), ids(matcher.match("", 4, route)));
+  }
+
+  @Test
+  void choosesTheRestOfTheRouteAgainAfterAConflict() {
+    InMemoryRiderIntentStore racing = new InMemoryRiderIntentStore(new MatchingStoreProperties(), policy, policyProps,
+        new SimpleMeterRegistry()) {
+      private boolean raced;
+
+      @Override
+      public boolean claim(String stationAreaId, List<QueuedIntent> chosen) {
+        if (stationAreaId.equals("b") && !raced) {
+          // Another driver takes the chosen rider between the peek and the claim
+          raced = true;
+          remove(chosen.get(0).intent().getRiderId(), "b");
+        }
+        return super.claim(stationAreaId, chosen);
+      }
+    };
+    Instant now = Instant.now();
+    racing.add(new RiderIntent("a1", "a", "dest", now, now.minusSeconds(300), 2));
+    racing.add(new RiderIntent("b1", "b", "dest", now, now.minusSeconds(200), 2));
+    racing.add(new RiderIntent("b2", "b", "dest", now, now.minusSeconds(100), 2));
+    RouteMatcher matcher = new RouteMatcher(racing, policy, policyProps, new SimpleMeterRegistry());
+
+    assertEquals(List.of(List.of("a1"), List.of("b2")), ids(matcher.match("", 4, route)));
+    racing.close();
+  }
+}
@@ -15,6 +15,7 @@ export class MatchingGrpcService {
     public matchEvents$ = this.matchEventsSubject.asObservable();
 
     private matchingClient: MatchingServiceClientImpl;
+    private lastEventId = '';
 
     constructor(
         private authService: AuthService,
@@ -30,13 +31,18 @@ export class MatchingGrpcService {
     subscribeMatches(stationIds: string[]) {
         const req: SubscribeRequest = {
             clientId: this.authService.getUserId() || '',
-            stationIds: stationIds
+            stationIds: stationIds,
+            // Resubscribing replays what this client missed in between
+            lastEventId: this.lastEventId
         };
 
         this.matchingClient.SubscribeMatches(req).subscribe({
             next: (event: MatchEvent) => {
                 this.ngZone.run(() => {
                     console.log('Received MatchEvent:', event);
+                    if (!event.eventId.startsWith('welcome-')) {
+                        this.lastEventId = event.eventId;
+                    }
                     this.matchEventsSubject.next(event);
                 });
             },
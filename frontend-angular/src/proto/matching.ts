@@ -47,6 +47,8 @@ export interface MatchEvent {
 export interface SubscribeRequest {
   clientId: string;
   stationIds: string[];
+  /** event_id of the last event the client received; newer events of its stations are replayed first */
+  lastEventId: string;
 }
 
 export interface AddRiderIntentRequest {
@@ -580,7 +582,7 @@ export const MatchEvent: MessageFns<MatchEvent> = {
 };
 
 function createBaseSubscribeRequest(): SubscribeRequest {
-  return { clientId: "", stationIds: [] };
+  return { clientId: "", stationIds: [], lastEventId: "" };
 }
 
 export const SubscribeRequest: MessageFns<SubscribeRequest> = {
@@ -591,6 +593,9 @@ export const SubscribeRequest: MessageFns<SubscribeRequest> = {
     for (const v of message.stationIds) {
       writer.uint32(18).string(v!);
     }
+    if (message.lastEventId !== "") {
+      writer.uint32(26).string(message.lastEventId);
+    }
     return writer;
   },
 
@@ -617,6 +622,14 @@ export const SubscribeRequest: MessageFns<SubscribeRequest> = {
           message.stationIds.push(reader.string());
           continue;
         }
+        case 3: {
+          if (tag !== 26) {
+            break;
+          }
+
+          message.lastEventId = reader.string();
+          continue;
+        }
       }
       if ((tag & 7) === 4 || tag === 0) {
         break;
@@ -632,6 +645,7 @@ export const SubscribeRequest: MessageFns<SubscribeRequest> = {
       stationIds: globalThis.Array.isArray(object?.stationIds)
         ? object.stationIds.map((e: any) => globalThis.String(e))
         : [],
+      lastEventId: isSet(object.lastEventId) ? globalThis.String(object.lastEventId) : "",
     };
   },
 
@@ -643,6 +657,9 @@ export const SubscribeRequest: MessageFns<SubscribeRequest> = {
     if (message.stationIds?.length) {
       obj.stationIds = message.stationIds;
     }
+    if (message.lastEventId !== "") {
+      obj.lastEventId = message.lastEventId;
+    }
     return obj;
   },
 
@@ -653,6 +670,7 @@ export const SubscribeRequest: MessageFns<SubscribeRequest> = {
     const message = createBaseSubscribeRequest();
     message.clientId = object.clientId ?? "";
     message.stationIds = object.stationIds?.map((e) => e) || [];
+    message.lastEventId = object.lastEventId ?? "";
     return message;
   },
 };